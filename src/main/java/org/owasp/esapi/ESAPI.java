@@ -16,6 +16,8 @@
  */
 package org.owasp.esapi;
 
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -26,7 +28,7 @@ import org.owasp.esapi.util.ObjFactory;
  * Use the set methods to override the reference implementations with instances of any custom ESAPI implementations.
  */
 public final class ESAPI {
-	private static String securityConfigurationImplName = System.getProperty("org.owasp.esapi.SecurityConfiguration", "org.owasp.esapi.reference.DefaultSecurityConfiguration");
+	private static volatile String securityConfigurationImplName = System.getProperty("org.owasp.esapi.SecurityConfiguration", "org.owasp.esapi.reference.DefaultSecurityConfiguration");
 
 	/**
 	 * prevent instantiation of this class
@@ -82,35 +84,35 @@ public final class ESAPI {
 	 * @return the current ESAPI AccessController object being used to maintain the access control rules for this application. 
 	 */
 	public static AccessController accessController() {
-        return ObjFactory.make( securityConfiguration().getAccessControlImplementation(), "AccessController" );
+        return Component.ACCESS_CONTROLLER.get();
 	}
 
 	/**
 	 * @return the current ESAPI Authenticator object being used to authenticate users for this application. 
 	 */
 	public static Authenticator authenticator() {
-        return ObjFactory.make( securityConfiguration().getAuthenticationImplementation(), "Authenticator" );
+        return Component.AUTHENTICATOR.get();
 	}
 
 	/**
 	 * @return the current ESAPI Encoder object being used to encode and decode data for this application. 
 	 */
 	public static Encoder encoder() {
-        return ObjFactory.make( securityConfiguration().getEncoderImplementation(), "Encoder" );
+        return Component.ENCODER.get();
 	}
 
 	/**
 	 * @return the current ESAPI Encryptor object being used to encrypt and decrypt data for this application. 
 	 */
 	public static Encryptor encryptor() {
-        return ObjFactory.make( securityConfiguration().getEncryptionImplementation(), "Encryptor" );
+        return Component.ENCRYPTOR.get();
 	}
 
 	/**
 	 * @return the current ESAPI Executor object being used to safely execute OS commands for this application. 
 	 */
 	public static Executor executor() {
-        return ObjFactory.make( securityConfiguration().getExecutorImplementation(), "Executor" );
+        return Component.EXECUTOR.get();
 	}
 
 	/**
@@ -118,14 +120,14 @@ public final class ESAPI {
 	 * for this application. 
 	 */
 	public static HTTPUtilities httpUtilities() {
-        return ObjFactory.make( securityConfiguration().getHTTPUtilitiesImplementation(), "HTTPUtilities" );
+        return Component.HTTP_UTILITIES.get();
 	}
 
 	/**
 	 * @return the current ESAPI IntrusionDetector being used to monitor for intrusions in this application. 
 	 */
 	public static IntrusionDetector intrusionDetector() {
-        return ObjFactory.make( securityConfiguration().getIntrusionDetectionImplementation(), "IntrusionDetector" );
+        return Component.INTRUSION_DETECTOR.get();
 	}
 
 	/**
@@ -134,7 +136,7 @@ public final class ESAPI {
 	 * @return The current LogFactory being used by ESAPI.
 	 */
 	private static LogFactory logFactory() {
-        return ObjFactory.make( securityConfiguration().getLogImplementation(), "LogFactory" );
+        return Component.LOG_FACTORY.get();
 	}
 	
 	/**
@@ -165,7 +167,7 @@ public final class ESAPI {
 	 * @return the current ESAPI Randomizer being used to generate random numbers in this application. 
 	 */
 	public static Randomizer randomizer() {
-        return ObjFactory.make( securityConfiguration().getRandomizerImplementation(), "Randomizer" );
+        return Component.RANDOMIZER.get();
 	}
 
     private static volatile SecurityConfiguration overrideConfig = null;
@@ -181,14 +183,24 @@ public final class ESAPI {
 			return override;
         }
 
-        return ObjFactory.make( securityConfigurationImplName, "SecurityConfiguration" );
+        // copy the volatile into a non-volatile, as above
+        ResolvedComponent resolved = resolvedConfiguration;
+        String implName = securityConfigurationImplName;
+        if ( resolved != null && resolved.source == implName && resolved.instance != null ) {
+            return (SecurityConfiguration) resolved.instance;
+        }
+        SecurityConfiguration config = ObjFactory.make( implName, "SecurityConfiguration" );
+        if ( resolved == null || resolved.source != implName ) {
+            resolvedConfiguration = ResolvedComponent.of( implName, implName, config );
+        }
+        return config;
 	}
 
 	/**
 	 * @return the current ESAPI Validator being used to validate data in this application. 
 	 */
 	public static Validator validator() {
-        return ObjFactory.make( securityConfiguration().getValidationImplementation(), "Validator" );
+        return Component.VALIDATOR.get();
 	}
 
     // TODO: This should probably use the SecurityManager or some value within the current
@@ -203,6 +215,7 @@ public final class ESAPI {
     public static String initialize( String impl ) {
         String oldImpl = securityConfigurationImplName;
         securityConfigurationImplName = impl;
+        clearResolvedComponents();
         return oldImpl;
     }
 
@@ -220,5 +233,135 @@ public final class ESAPI {
      */
     public static void override( SecurityConfiguration config ) {
         overrideConfig = config;
+        clearResolvedComponents();
+    }
+
+    /**
+     * Forgets the components resolved so far, so the next call to each accessor asks the 
+     * security configuration for its implementation again.
+     */
+    private static void clearResolvedComponents() {
+        resolvedConfiguration = null;
+        for ( int i = 0; i < resolvedComponents.length(); i++ ) {
+            resolvedComponents.set( i, null );
+        }
+    }
+
+    /**
+     * A component made by {@link ObjFactory}, together with what named its implementation:
+     * the security configuration, or for the security configuration itself the class name.
+     * Only singleton implementations are kept, since ObjFactory makes a new object of any
+     * other class on every call; for those just the implementation name is kept.
+     */
+    private static final class ResolvedComponent {
+        final Object source;
+        final String implName;
+        final Object instance;      // null unless the implementation is a singleton
+
+        ResolvedComponent( Object source, String implName, Object instance ) {
+            this.source = source;
+            this.implName = implName;
+            this.instance = instance;
+        }
+
+        static ResolvedComponent of( Object source, String implName, Object instance ) {
+            return new ResolvedComponent( source, implName, ObjFactory.isSingleton( implName ) ? instance : null );
+        }
+    }
+
+    /**
+     * The security configuration if its implementation is a singleton. Cleared by 
+     * {@link #initialize(String)} and {@link #override(SecurityConfiguration)}, and also
+     * ignored if the implementation has been changed since.
+     */
+    private static volatile ResolvedComponent resolvedConfiguration = null;
+
+    /**
+     * The components resolved so far, indexed by {@link Component#ordinal()}.
+     * Cleared by {@link #initialize(String)} and {@link #override(SecurityConfiguration)}, and also
+     * ignored if the current configuration is not the one that named the implementation.
+     */
+    private static final AtomicReferenceArray<ResolvedComponent> resolvedComponents =
+        new AtomicReferenceArray<ResolvedComponent>( Component.values().length );
+
+    /**
+     * The components ESAPI makes through {@link ObjFactory}, and the configuration setting
+     * naming the implementation of each. Implementations are only looked up on first use, so
+     * the accessors above do not read the configuration on every call. Singletons are kept;
+     * other implementations are made anew by ObjFactory, which only reflects on a class once.
+     */
+    private enum Component {
+        ACCESS_CONTROLLER("AccessController") {
+            String implementation(SecurityConfiguration config) {
+                return config.getAccessControlImplementation();
+            }
+        },
+        AUTHENTICATOR("Authenticator") {
+            String implementation(SecurityConfiguration config) {
+                return config.getAuthenticationImplementation();
+            }
+        },
+        ENCODER("Encoder") {
+            String implementation(SecurityConfiguration config) {
+                return config.getEncoderImplementation();
+            }
+        },
+        ENCRYPTOR("Encryptor") {
+            String implementation(SecurityConfiguration config) {
+                return config.getEncryptionImplementation();
+            }
+        },
+        EXECUTOR("Executor") {
+            String implementation(SecurityConfiguration config) {
+                return config.getExecutorImplementation();
+            }
+        },
+        HTTP_UTILITIES("HTTPUtilities") {
+            String implementation(SecurityConfiguration config) {
+                return config.getHTTPUtilitiesImplementation();
+            }
+        },
+        INTRUSION_DETECTOR("IntrusionDetector") {
+            String implementation(SecurityConfiguration config) {
+                return config.getIntrusionDetectionImplementation();
+            }
+        },
+        LOG_FACTORY("LogFactory") {
+            String implementation(SecurityConfiguration config) {
+                return config.getLogImplementation();
+            }
+        },
+        RANDOMIZER("Randomizer") {
+            String implementation(SecurityConfiguration config) {
+                return config.getRandomizerImplementation();
+            }
+        },
+        VALIDATOR("Validator") {
+            String implementation(SecurityConfiguration config) {
+                return config.getValidationImplementation();
+            }
+        };
+
+        private final String typeName;
+
+        Component( String typeName ) {
+            this.typeName = typeName;
+        }
+
+        abstract String implementation( SecurityConfiguration config );
+
+        @SuppressWarnings("unchecked")
+        <T> T get() {
+            SecurityConfiguration config = securityConfiguration();
+            ResolvedComponent resolved = resolvedComponents.get( ordinal() );
+            if ( resolved != null && resolved.source == config ) {
+                return resolved.instance != null ? (T) resolved.instance
+                                                 : ObjFactory.<T>make( resolved.implName, typeName );
+            }
+            String implName = implementation( config );
+            T instance = ObjFactory.make( implName, typeName );
+            resolvedComponents.set( ordinal(), ResolvedComponent.of( config, implName, instance ) );
+            return instance;
+        }
     }
 }
@@ -0,0 +1,63 @@
+/**
+ * OWASP Enterprise Security API (ESAPI)
+ *
+ * This file is part of the Open Web Application Security Project (OWASP)
+ * Enterprise Security API (ESAPI) project. For details, please see
+ * <a href="http://www.owasp.org/index.php/ESAPI">http://www.owasp.org/index.php/ESAPI</a>.
+ *
+ * Copyright (c) 2017 - The OWASP Foundation
+ *
+ * The ESAPI is published by OWASP under the BSD license. You should read and accept the
+ * LICENSE before you use, modify, and/or redistribute this software.
+ */
+package org.owasp.esapi;
+
+import org.owasp.esapi.errors.ValidationException;
+
+/**
+ * The FileContentCheck interface defines a check of file content that is run while
+ * the content is streamed, by
+ * {@link org.owasp.esapi.reference.DefaultValidator#getValidFileContent(String, java.io.InputStream, java.io.OutputStream, long, boolean, java.util.List)}.
+ * The content is passed to the check one buffer at a time, so memory use does not
+ * depend on the size of the file.
+ * <P>
+ * A check usually keeps state between buffers, for example to find a byte sequence
+ * that spans two of them, so a new instance should be used for each file.
+ * <P>
+ * Each buffer is written to the output once every check has accepted it, and
+ * {@link #finish(String)} is only called after the last buffer has been written.
+ * Content that fails a check may therefore already be in the output, in part or
+ * in full, so callers must discard the output whenever validation fails.
+ *
+ * @see org.owasp.esapi.reference.validation.FileSignatureCheck
+ * @see org.owasp.esapi.reference.validation.ByteSequenceDenylistCheck
+ */
+public interface FileContentCheck {
+
+	/**
+	 * Checks the next bytes of the content.
+	 *
+	 * @param context
+	 * 		A descriptive name of the file that you are validating, used in any exception thrown.
+	 * @param buffer
+	 * 		The buffer holding the bytes; it is reused for later bytes once this returns.
+	 * @param offset
+	 * 		The offset of the first byte in the buffer.
+	 * @param length
+	 * 		The number of bytes to check.
+	 *
+	 * @throws ValidationException if the content is not valid
+	 */
+	void update(String context, byte[] buffer, int offset, int length) throws ValidationException;
+
+	/**
+	 * Completes the check after the last bytes of the content have been passed to
+	 * {@link #update(String, byte[], int, int)}.
+	 *
+	 * @param context
+	 * 		A descriptive name of the file that you are validating, used in any exception thrown.
+	 *
+	 * @throws ValidationException if the content is not valid
+	 */
+	void finish(String context) throws ValidationException;
+}
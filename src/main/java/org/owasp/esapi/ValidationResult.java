@@ -0,0 +1,111 @@
+/**
+ * OWASP Enterprise Security API (ESAPI)
+ *
+ * This file is part of the Open Web Application Security Project (OWASP)
+ * Enterprise Security API (ESAPI) project. For details, please see
+ * <a href="http://www.owasp.org/index.php/ESAPI">http://www.owasp.org/index.php/ESAPI</a>.
+ *
+ * Copyright (c) 2017 - The OWASP Foundation
+ *
+ * The ESAPI is published by OWASP under the BSD license. You should read and accept the
+ * LICENSE before you use, modify, and/or redistribute this software.
+ */
+package org.owasp.esapi;
+
+import org.owasp.esapi.errors.ValidationException;
+
+/**
+ * The ValidationResult class is the outcome of a validation that does not
+ * throw, such as {@link org.owasp.esapi.reference.DefaultValidator#check(String, String, String, int, boolean)}.
+ * A valid result carries the canonicalized input; an invalid one carries the
+ * same user message a ValidationException would have.
+ * <P>
+ * Invalid input is expected, and under attack it can be most of the input, so
+ * reporting it this way avoids building an exception and its stack trace:
+ *
+ * <PRE>
+ * ValidationResult name = new DefaultValidator().check("Name", form.getName(), "SafeString", 255, false);
+ * if ( !name.isValid() ) {
+ *     return showError( name.getUserMessage() );
+ * }
+ * save( name.getValue() );
+ * </PRE>
+ *
+ * Unlike a ValidationException, an invalid result is not reported to the
+ * IntrusionDetector.
+ */
+public final class ValidationResult {
+
+	private static final ValidationResult VALID_NULL = new ValidationResult(true, null, null, null);
+
+	private final boolean valid;
+	private final String value;
+	private final String context;
+	private final String userMessage;
+
+	private ValidationResult(boolean valid, String value, String context, String userMessage) {
+		this.valid = valid;
+		this.value = value;
+		this.context = context;
+		this.userMessage = userMessage;
+	}
+
+	/**
+	 * @param value the validated, canonicalized input; may be null if null input was allowed
+	 * @return a valid result
+	 */
+	public static ValidationResult valid(String value) {
+		return value == null ? VALID_NULL : new ValidationResult(true, value, null, null);
+	}
+
+	/**
+	 * @param context the name of the field that was validated
+	 * @param userMessage why the input was rejected, safe to display to users
+	 * @return an invalid result
+	 */
+	public static ValidationResult invalid(String context, String userMessage) {
+		return new ValidationResult(false, null, context, userMessage);
+	}
+
+	/**
+	 * @return true if the input was valid
+	 */
+	public boolean isValid() {
+		return valid;
+	}
+
+	/**
+	 * @return the validated input, or null if the input was invalid or allowed to be null
+	 */
+	public String getValue() {
+		return value;
+	}
+
+	/**
+	 * @return the name of the field that was rejected, or null if the input was valid
+	 */
+	public String getContext() {
+		return context;
+	}
+
+	/**
+	 * @return why the input was rejected, or null if it was valid
+	 */
+	public String getUserMessage() {
+		return userMessage;
+	}
+
+	/**
+	 * Creates the ValidationException for an invalid result, for callers that
+	 * have to throw one after all. Its log message does not include the input.
+	 *
+	 * @return a new ValidationException
+	 * @throws IllegalStateException if the result is valid
+	 */
+	public ValidationException toException() {
+		if ( valid ) {
+			throw new IllegalStateException("The input was valid");
+		}
+		return new ValidationException(userMessage, "Invalid input: context=" + context + ", " + userMessage, context);
+	}
+}
@@ -0,0 +1,188 @@
+/**
+ * OWASP Enterprise Security API (ESAPI)
+ *
+ * This file is part of the Open Web Application Security Project (OWASP)
+ * Enterprise Security API (ESAPI) project. For details, please see
+ * <a href="http://www.owasp.org/index.php/ESAPI">http://www.owasp.org/index.php/ESAPI</a>.
+ *
+ * Copyright (c) 2017 - The OWASP Foundation
+ *
+ * The ESAPI is published by OWASP under the BSD license. You should read and accept the
+ * LICENSE before you use, modify, and/or redistribute this software.
+ */
+package org.owasp.esapi;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The ValidationSchema class describes how each field of a form is to be
+ * validated, so that the whole form can be checked with a single call to
+ * {@link org.owasp.esapi.reference.DefaultValidator#validateAll(Map, ValidationSchema)}.
+ * <P>
+ * A schema is typically built once and reused for every request:
+ *
+ * <PRE>
+ * private static final ValidationSchema ORDER_FORM = new ValidationSchema()
+ *     .add("Name", "SafeString", 255, false)
+ *     .add("Address", "SafeString", 255, true)
+ *     .add("Weight", weightRule);
+ *
+ * ValidationErrorList errorList = new DefaultValidator().validateAll(request.getParameterMap(), ORDER_FORM);
+ * </PRE>
+ *
+ * A schema must not be changed once it is shared between threads.
+ *
+ * @see org.owasp.esapi.reference.DefaultValidator#validateAll(Map, ValidationSchema)
+ */
+public class ValidationSchema {
+
+	/** The fields in the order they were added. */
+	private final Map<String, Field> fields = new LinkedHashMap<String, Field>();
+
+	/**
+	 * Adds a field validated like {@link Validator#getValidInput(String, String, String, int, boolean)},
+	 * with canonicalization.
+	 *
+	 * @param name
+	 * 		The parameter name, also used as the context of any error.
+	 * @param type
+	 * 		The regular expression name that maps to the actual regular expression from "ESAPI.properties".
+	 * @param maxLength
+	 * 		The maximum String length allowed.
+	 * @param allowNull
+	 * 		If allowNull is true then a missing parameter or an empty value will be legal.
+	 *
+	 * @return this schema
+	 */
+	public ValidationSchema add(String name, String type, int maxLength, boolean allowNull) {
+		return add(name, type, maxLength, allowNull, true);
+	}
+
+	/**
+	 * Adds a field validated like {@link Validator#getValidInput(String, String, String, int, boolean, boolean)}.
+	 *
+	 * @param name
+	 * 		The parameter name, also used as the context of any error.
+	 * @param type
+	 * 		The regular expression name that maps to the actual regular expression from "ESAPI.properties".
+	 * @param maxLength
+	 * 		The maximum String length allowed.
+	 * @param allowNull
+	 * 		If allowNull is true then a missing parameter or an empty value will be legal.
+	 * @param canonicalize
+	 * 		If canonicalize is true then each value will be canonicalized before it is validated.
+	 *
+	 * @return this schema
+	 */
+	public ValidationSchema add(String name, String type, int maxLength, boolean allowNull, boolean canonicalize) {
+		if (type == null) {
+			throw new IllegalArgumentException("Type cannot be null for field " + name);
+		}
+		return add(new Field(name, type, null, maxLength, allowNull, canonicalize));
+	}
+
+	/**
+	 * Adds a field validated by the given rule. A missing parameter is passed to the rule as {@code null},
+	 * so the rule decides whether it is allowed.
+	 *
+	 * @param name
+	 * 		The parameter name, also used as the context of any error.
+	 * @param rule
+	 * 		The rule that validates each value of the parameter.
+	 *
+	 * @return this schema
+	 */
+	public ValidationSchema add(String name, ValidationRule rule) {
+		if (rule == null) {
+			throw new IllegalArgumentException("Rule cannot be null for field " + name);
+		}
+		return add(new Field(name, null, rule, Integer.MAX_VALUE, false, true));
+	}
+
+	private ValidationSchema add(Field field) {
+		if (field.getName() == null) {
+			throw new IllegalArgumentException("Field name cannot be null");
+		}
+		if (fields.containsKey(field.getName())) {
+			throw new IllegalArgumentException("Field (" + field.getName() + ") already exists, must be unique");
+		}
+		fields.put(field.getName(), field);
+		return this;
+	}
+
+	/**
+	 * Returns the fields of this schema, in the order they were added.
+	 *
+	 * @return an unmodifiable collection of the fields
+	 */
+	public Collection<Field> getFields() {
+		return Collections.unmodifiableCollection(fields.values());
+	}
+
+	/**
+	 * One field of a {@link ValidationSchema}. A field either names a validation
+	 * type from "ESAPI.properties" or carries its own {@link ValidationRule}.
+	 */
+	public static final class Field {
+		private final String name;
+		private final String type;
+		private final ValidationRule rule;
+		private final int maxLength;
+		private final boolean allowNull;
+		private final boolean canonicalize;
+
+		Field(String name, String type, ValidationRule rule, int maxLength, boolean allowNull, boolean canonicalize) {
+			this.name = name;
+			this.type = type;
+			this.rule = rule;
+			this.maxLength = maxLength;
+			this.allowNull = allowNull;
+			this.canonicalize = canonicalize;
+		}
+
+		/**
+		 * @return the parameter name
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the validation type, or null if the field has its own rule
+		 */
+		public String getType() {
+			return type;
+		}
+
+		/**
+		 * @return the rule of the field, or null if it is validated by type
+		 */
+		public ValidationRule getRule() {
+			return rule;
+		}
+
+		/**
+		 * @return the maximum length of each value
+		 */
+		public int getMaxLength() {
+			return maxLength;
+		}
+
+		/**
+		 * @return whether the parameter may be missing or empty; not used for a field with its own rule
+		 */
+		public boolean isAllowNull() {
+			return allowNull;
+		}
+
+		/**
+		 * @return whether each value is canonicalized before it is validated; not used for a field with its own rule
+		 */
+		public boolean isCanonicalize() {
+			return canonicalize;
+		}
+	}
+}
@@ -32,16 +32,46 @@ public abstract class AbstractCharacterCodec extends AbstractCodec<Character> {
 	 */
 	@Override
 	public String decode(String input) {
-		StringBuilder sb = new StringBuilder();
-		PushbackSequence<Character> pbs = new PushbackString(input);
+		StringBuilder sb = new StringBuilder(input.length());
+		PushbackString pbs = new PushbackString(input);
 		while (pbs.hasNext()) {
-			Character c = decodeCharacter(pbs);
-			if (c != null) {
-				sb.append(c);
+			int c = decodeInt(pbs);
+			if (c != IntPushbackSequence.EOF) {
+				sb.append((char) c);
 			} else {
-				sb.append(pbs.next());
+				sb.append((char) pbs.nextInt());
 			}
 		}
 		return sb.toString();
 	}
+
+	/**
+	 * Primitive counterpart of {@link #decodeCharacter(PushbackSequence)}: returns the 
+	 * decoded version of the next character and advances the input, or returns 
+	 * {@link IntPushbackSequence#EOF} and resets the input if the current character 
+	 * is not encoded.
+	 * <br/><br/>
+	 * Codecs that decode without boxing override this.  The default adapts 
+	 * {@code decodeCharacter}, passing it the input itself if it is a 
+	 * {@link PushbackString} and a boxed view of it otherwise.
+	 * 
+	 * @param input
+	 * @return the decoded char, or {@link IntPushbackSequence#EOF}
+	 */
+	public int decodeInt(IntPushbackSequence input) {
+		Character c = decodeCharacter(BoxedIntPushbackSequence.characters(input));
+		return c == null ? IntPushbackSequence.EOF : c.charValue();
+	}
+
+	/**
+	 * Adapts {@link #decodeInt(IntPushbackSequence)} to the boxed API, for codecs 
+	 * that implement their decoding primitively.
+	 * 
+	 * @param input
+	 * @return the decoded Character, or null.
+	 */
+	protected Character decodeBoxed(PushbackSequence<Character> input) {
+		int c = decodeInt(BoxedIntPushbackSequence.ofCharacters(input));
+		return c == IntPushbackSequence.EOF ? null : Character.valueOf((char) c);
+	}
 }
@@ -15,6 +15,8 @@
  */
 package org.owasp.esapi.codecs;
 
+import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * The Codec interface defines a set of methods for encoding and decoding application level encoding schemes,
@@ -38,6 +40,22 @@ public abstract class AbstractCodec<T> implements Codec<T> {
 	 */
 	private final String[] hex = new String[256];
 
+	/**
+	 * Number of leading characters (all of ASCII) covered by an encoding table.
+	 */
+	private static final int PLAN_SIZE = 128;
+
+	/**
+	 * Upper bound on the number of distinct immune sets a single codec caches tables for.
+	 */
+	private static final int MAX_PLANS = 16;
+
+	/**
+	 * Encoding tables built so far, one per immune set.  Copy-on-write so the 
+	 * lookup in {@link #getEncodingTable(char[])} never locks.
+	 */
+	private volatile EncodingPlan[] plans = new EncodingPlan[0];
+
 	/**
 	 * Default constructor
 	 */
@@ -64,18 +82,227 @@ public abstract class AbstractCodec<T> implements Codec<T> {
 	 */
 	@Override
 	public String encode(char[] immune, String input) {
-		StringBuilder sb = new StringBuilder();
-		for(int offset  = 0; offset < input.length(); ){
-			final int point = input.codePointAt(offset);
-			if(Character.isBmpCodePoint(point)){
-				//We can then safely cast this to char and maintain legacy behavior.
-				sb.append(encodeCharacter(immune, new Character((char) point)));
+		final String[] table = getEncodingTable(immune);
+		final int start = indexOfFirstEncoded(table, immune, input);
+		if(start == input.length()){
+			//Nothing to encode, so don't bother copying the input.
+			return input;
+		}
+		StringBuilder sb = new StringBuilder(input.length() + (input.length() >> 1));
+		sb.append(input, 0, start);
+		try {
+			encode(table, immune, input, start, sb);
+		} catch (IOException e) {
+			// StringBuilder never throws IOException
+			throw new IllegalStateException(e);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Encode a CharSequence so that it can be safely used in a specific context, writing 
+	 * the result directly to {@code out} instead of building an intermediate String.  
+	 * The text written is identical to what {@link #encode(char[], String)} returns.
+	 * <p>
+	 * Runs of pass-through characters are handed to {@code out} as a single 
+	 * {@code append(CharSequence, int, int)} call rather than one character at a time.
+	 * 
+	 * @param immune
+	 * @param input
+	 * 		the text to encode
+	 * @param out
+	 * 		where the encoded text is written, such as a servlet {@code Writer}
+	 * @throws IOException if {@code out} does
+	 */
+	public void encode(char[] immune, CharSequence input, Appendable out) throws IOException {
+		encode(getEncodingTable(immune), immune, input, 0, out);
+	}
+
+	/**
+	 * Encodes {@code input} from index {@code start} onwards into {@code out}.  
+	 * Everything before {@code start} is assumed to have been written already.
+	 * ASCII characters are resolved through {@code table} when there is one.
+	 */
+	private void encode(String[] table, char[] immune, CharSequence input, int start, Appendable out) throws IOException {
+		final int len = input.length();
+		int pending = start;
+		for(int offset = start; offset < len; ){
+			final char c = input.charAt(offset);
+			final String replacement;
+			if(table != null && c < PLAN_SIZE){
+				replacement = table[c];
+				if(replacement == null){
+					offset++;
+					continue;
+				}
+				if(pending < offset){
+					out.append(input, pending, offset);
+				}
+				offset++;
 			}else{
-				sb.append(encodeCharacter(immune, point));	
+				final int point = Character.codePointAt(input, offset);
+				if(Character.isBmpCodePoint(point) && isPassThrough(immune, (char) point)){
+					offset++;
+					continue;
+				}
+				if(pending < offset){
+					out.append(input, pending, offset);
+				}
+				replacement = encodeCodePoint(immune, point);
+				offset += Character.charCount(point);
 			}
-			offset += Character.charCount(point);
+			out.append(replacement);
+			pending = offset;
 		}
-		return sb.toString();
+		if(pending < len){
+			out.append(input, pending, len);
+		}
+	}
+
+	/**
+	 * Encodes a single code point that is not pass-through.  BMP code points are 
+	 * cast to {@code char} and go through {@link #encodeCharacter(char[], Character)} 
+	 * to maintain legacy behavior; everything else uses 
+	 * {@link #encodeCharacter(char[], int)}.
+	 * 
+	 * @param immune
+	 * @param codePoint
+	 * @return the encoded code point
+	 */
+	protected String encodeCodePoint(char[] immune, int codePoint) {
+		if(Character.isBmpCodePoint(codePoint)){
+			//We can then safely cast this to char and maintain legacy behavior.
+			return encodeCharacter(immune, Character.valueOf((char) codePoint));
+		}
+		return encodeCharacter(immune, codePoint);
+	}
+
+	/**
+	 * Returns the index of the first {@code char} in the input that is not a 
+	 * pass-through character, or {@code input.length()} if the whole input 
+	 * would be returned unchanged by {@link #encode(char[], String)}.
+	 * Surrogates are never considered pass-through, so code points outside 
+	 * the BMP always take the {@code encodeCharacter} path.
+	 */
+	private int indexOfFirstEncoded(String[] table, char[] immune, CharSequence input) {
+		final int len = input.length();
+		for(int i = 0; i < len; i++){
+			final char c = input.charAt(i);
+			if(table != null && c < PLAN_SIZE){
+				if(table[c] != null){
+					return i;
+				}
+			}else if(Character.isSurrogate(c) || !isPassThrough(immune, c)){
+				return i;
+			}
+		}
+		return len;
+	}
+
+	/**
+	 * Returns the encoding table for the given immune set, building and caching it 
+	 * on first use.  Entry {@code c} of the table holds what this codec encodes the 
+	 * ASCII character {@code c} to, or null if it is passed through unchanged, so 
+	 * encoding ASCII input takes a single array load per character.
+	 * <br/><br/>
+	 * Tables are cached per codec instance and matched on the contents of the immune 
+	 * array, so callers that mutate or re-create their arrays still get the right table.  
+	 * Null immune arrays, and immune sets beyond the first {@value #MAX_PLANS}, 
+	 * are encoded without a table.
+	 * 
+	 * @param immune
+	 * @return the table, or null to encode without one.
+	 */
+	private String[] getEncodingTable(char[] immune) {
+		if(immune == null){
+			return null;
+		}
+		final EncodingPlan[] current = plans;
+		for(EncodingPlan plan : current){
+			if(Arrays.equals(plan.immune, immune)){
+				return plan.table;
+			}
+		}
+		if(current.length >= MAX_PLANS){
+			return null;
+		}
+		final EncodingPlan plan = new EncodingPlan(immune.clone(), buildEncodingTable(immune));
+		synchronized(this){
+			for(EncodingPlan other : plans){
+				if(Arrays.equals(other.immune, immune)){
+					return other.table;
+				}
+			}
+			if(plans.length < MAX_PLANS){
+				EncodingPlan[] grown = Arrays.copyOf(plans, plans.length + 1);
+				grown[plans.length] = plan;
+				plans = grown;
+			}
+		}
+		return plan.table;
+	}
+
+	/**
+	 * Precomputes the encoding of every ASCII character for the given immune set.  
+	 * This relies on {@link #isPassThrough(char[], char)} and the 
+	 * {@code encodeCharacter} methods returning the same result for the same 
+	 * arguments, which holds for every codec in this package.
+	 * 
+	 * @return the table, or null if one cannot be built.
+	 */
+	private String[] buildEncodingTable(char[] immune) {
+		final String[] table = new String[PLAN_SIZE];
+		for(char c = 0; c < PLAN_SIZE; c++){
+			if(isPassThrough(immune, c)){
+				continue;
+			}
+			final String encoded = encodeCodePoint(immune, c);
+			if(encoded == null){
+				// not something a table can represent, so encode without one
+				return null;
+			}
+			if(encoded.length() != 1 || encoded.charAt(0) != c){
+				table[c] = encoded;
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * An immune set together with its precomputed ASCII encoding table.
+	 */
+	private static final class EncodingPlan {
+		private final char[] immune;
+		private final String[] table;
+
+		private EncodingPlan(char[] immune, String[] table) {
+			this.immune = immune;
+			this.table = table;
+		}
+	}
+
+	/**
+	 * Returns true if {@code encodeCharacter(immune, c)} is guaranteed to return 
+	 * {@code c} unchanged.  This lets {@link #encode(char[], String)} copy such 
+	 * characters straight into the output instead of creating a {@code String} 
+	 * for each one.
+	 * <br/><br/>
+	 * The default treats ASCII alphanumerics and the immune characters as 
+	 * pass-through, which matches every codec that checks the immune list and 
+	 * {@link #getHexForNonAlphanumeric(char)} before encoding.  Codecs that 
+	 * ignore the immune list, or leave additional characters alone, MUST override this.
+	 * 
+	 * @param immune
+	 * 		array of chars to NOT encode, may be null.
+	 * @param c
+	 * 		the char to check
+	 * @return true if the char is emitted as-is.
+	 */
+	protected boolean isPassThrough(char[] immune, char c) {
+		if ( c < 0xFF && hex[c] == null ) {
+			return true;
+		}
+		return immune != null && containsCharacter( c, immune );
 	}
 
 	/**
@@ -116,6 +343,20 @@ public abstract class AbstractCodec<T> implements Codec<T> {
 		return input.next();
 	}
 
+	/**
+	 * Returns the characters that can start an encoded sequence for this codec.  
+	 * {@link #decode(String)} returns input that contains none of them unchanged,
+	 * which lets callers such as {@code Encoder.canonicalize()} skip the codec.
+	 * <p>
+	 * The default is unknown (null), since subclasses may decode anything in
+	 * {@link #decodeCharacter(PushbackSequence)}.
+	 * 
+	 * @return the characters, or null if any character might start an encoded sequence
+	 */
+	public char[] getDecodeTriggers() {
+		return null;
+	}
+
 	/**
 	 * Lookup the hex value of any character that is not alphanumeric.
 	 * @param c The character to lookup.
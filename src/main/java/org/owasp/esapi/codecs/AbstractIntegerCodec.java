@@ -35,17 +35,46 @@ public class AbstractIntegerCodec extends AbstractCodec<Integer> {
 	 */
 	@Override
 	public String decode(String input) {
-		StringBuilder sb = new StringBuilder();
-		PushbackSequence<Integer> pbs = new PushBackSequenceImpl(input);
+		StringBuilder sb = new StringBuilder(input.length());
+		PushBackSequenceImpl pbs = new PushBackSequenceImpl(input);
 		while (pbs.hasNext()) {
-			Integer c = decodeCharacter(pbs);
-			boolean isValid = null == c ? false:Character.isValidCodePoint(c);
-			if (c != null && isValid) {
+			int c = decodeInt(pbs);
+			if (Character.isValidCodePoint(c)) {
 				sb.appendCodePoint(c);
 			}else{
-				sb.appendCodePoint(pbs.next());
+				sb.appendCodePoint(pbs.nextInt());
 			}
 		}
 		return sb.toString();
 	}
+
+	/**
+	 * Primitive counterpart of {@link #decodeCharacter(PushbackSequence)}: returns the 
+	 * decoded code point and advances the input, or returns 
+	 * {@link IntPushbackSequence#EOF} and resets the input if the current code point 
+	 * is not encoded.
+	 * <br/><br/>
+	 * Codecs that decode without boxing override this.  The default adapts 
+	 * {@code decodeCharacter}, passing it the input itself if it is a 
+	 * {@link PushBackSequenceImpl} and a boxed view of it otherwise.
+	 * 
+	 * @param input
+	 * @return the decoded code point, or {@link IntPushbackSequence#EOF}
+	 */
+	public int decodeInt(IntPushbackSequence input) {
+		Integer c = decodeCharacter(BoxedIntPushbackSequence.integers(input));
+		return c == null ? IntPushbackSequence.EOF : c.intValue();
+	}
+
+	/**
+	 * Adapts {@link #decodeInt(IntPushbackSequence)} to the boxed API, for codecs 
+	 * that implement their decoding primitively.
+	 * 
+	 * @param input
+	 * @return the decoded code point, or null.
+	 */
+	protected Integer decodeBoxed(PushbackSequence<Integer> input) {
+		int c = decodeInt(BoxedIntPushbackSequence.ofIntegers(input));
+		return c == IntPushbackSequence.EOF ? null : Integer.valueOf(c);
+	}
 }
@@ -24,12 +24,15 @@ package org.owasp.esapi.codecs;
  * a type {@code T} such that the pushback interface can be utilized for sequences
  * of type {@code T}.  Presently this generic class is limited by the fact that 
  * @{code input} is a {@code String}.  
+ * <br/><br/>
+ * Implementations also provide the primitive {@link IntPushbackSequence} methods 
+ * over the same state; the boxed methods are adapters over those.
  *  
  * @author Matt Seil
  *
  * @param <T>
  */
-public abstract class AbstractPushbackSequence<T> implements PushbackSequence<T> {
+public abstract class AbstractPushbackSequence<T> implements PushbackSequence<T>, IntPushbackSequence {
 	protected String input;
 	protected T pushback;
 	protected T temp;
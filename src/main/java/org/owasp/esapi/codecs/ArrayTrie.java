@@ -0,0 +1,270 @@
+/**
+ * OWASP Enterprise Security API (ESAPI)
+ *
+ * This file is part of the Open Web Application Security Project (OWASP)
+ * Enterprise Security API (ESAPI) project. For details, please see
+ * <a href="http://www.owasp.org/index.php/ESAPI">http://www.owasp.org/index.php/ESAPI</a>.
+ *
+ * Copyright (c) 2017 - The OWASP Foundation
+ *
+ * The ESAPI is published by OWASP under the BSD license. You should read and accept the
+ * LICENSE before you use, modify, and/or redistribute this software.
+ *
+ */
+package org.owasp.esapi.codecs;
+
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Immutable trie for CharSequence keys, stored in a few flat arrays.
+ * <br/><br/>
+ * Nodes are numbered breadth first, so the children of a node are
+ * consecutive and the edges leading to them can be stored in one sorted
+ * run of {@code labels}. The edge at index {@code e} of {@code labels}
+ * leads to node {@code e + 1}. Finding a child is a binary search within
+ * the run, and a lookup does not allocate: the entries returned are
+ * created when the trie is built.
+ * <br/><br/>
+ * This suits tables that are built once and read often, such as the
+ * entity names of {@link HTMLEntityCodec}. Use {@link HashTrie} when
+ * the trie has to change.
+ *
+ * <b>NOTE:</b><br>
+ * <ul>
+ *	<li>All {@link Map} modifications throw UnsupportedOperationException.</li>
+ *	<li>Null values are not supported.</li>
+ * </ul>
+ */
+public final class ArrayTrie<T> extends AbstractMap<CharSequence,T> implements Trie<T>
+{
+	/** For each node, the index in labels of its first child edge; one extra for the end. */
+	private final int[] firstEdge;
+	/** Edge characters, sorted within the run of each node. */
+	private final char[] labels;
+	/** For each node, the entry of the key that ends there, or null. */
+	private final Map.Entry<CharSequence,T>[] entries;
+	private final Set<Map.Entry<CharSequence,T>> entrySet;
+	private final int maxKeyLen;
+
+	/**
+	 * Build a trie holding the mappings of {@code map}.
+	 * @param map The mappings to copy.
+	 * @throws NullPointerException if a key or value is null.
+	 */
+	@SuppressWarnings("unchecked")
+	public ArrayTrie(Map<? extends CharSequence, ? extends T> map)
+	{
+		// a sorted map per node, built breadth first below
+		List<TreeMap<Character,Integer>> children = new ArrayList<TreeMap<Character,Integer>>();
+		List<Map.Entry<CharSequence,T>> nodeEntries = new ArrayList<Map.Entry<CharSequence,T>>();
+		Set<Map.Entry<CharSequence,T>> all = new LinkedHashSet<Map.Entry<CharSequence,T>>();
+		int maxLen = -1;
+
+		children.add(new TreeMap<Character,Integer>());
+		nodeEntries.add(null);
+		for(Map.Entry<? extends CharSequence, ? extends T> mapping : map.entrySet())
+		{
+			CharSequence key = mapping.getKey();
+			T value = mapping.getValue();
+			if(key == null)
+				throw new NullPointerException("Null keys are not handled");
+			if(value == null)
+				throw new NullPointerException("Null values are not handled");
+			int node = 0;
+			for(int i=0;i<key.length();i++)
+			{
+				Integer next = children.get(node).get(key.charAt(i));
+				if(next == null)
+				{
+					next = children.size();
+					children.get(node).put(key.charAt(i), next);
+					children.add(new TreeMap<Character,Integer>());
+					nodeEntries.add(null);
+				}
+				node = next;
+			}
+			Map.Entry<CharSequence,T> entry = new AbstractMap.SimpleImmutableEntry<CharSequence,T>(key.toString(), value);
+			Map.Entry<CharSequence,T> replaced = nodeEntries.set(node, entry);
+			if(replaced != null)	// keys equal as strings
+				all.remove(replaced);
+			all.add(entry);
+			maxLen = Math.max(maxLen, key.length());
+		}
+
+		// renumber the nodes breadth first
+		int count = children.size();
+		int[] order = new int[count];
+		firstEdge = new int[count + 1];
+		labels = new char[count - 1];
+		entries = new Map.Entry[count];
+		int tail = 1;
+		for(int head=0;head<count;head++)
+		{
+			int node = order[head];
+			entries[head] = nodeEntries.get(node);
+			firstEdge[head] = tail - 1;
+			for(Map.Entry<Character,Integer> edge : children.get(node).entrySet())
+			{
+				labels[tail - 1] = edge.getKey();
+				order[tail++] = edge.getValue();
+			}
+		}
+		firstEdge[count] = count - 1;
+		entrySet = Collections.unmodifiableSet(all);
+		maxKeyLen = maxLen;
+	}
+
+	/**
+	 * Get the node reached from {@code node} over {@code ch}.
+	 * @return The child node or -1 if there is none.
+	 */
+	private int child(int node, char ch)
+	{
+		int e = Arrays.binarySearch(labels, firstEdge[node], firstEdge[node + 1], ch);
+		return e < 0 ? -1 : e + 1;
+	}
+
+	/**
+	 * Get the key value entry who's key is the longest prefix match.
+	 * @param key The key to lookup
+	 * @return Entry with the longest matching key.
+	 */
+	public Map.Entry<CharSequence,T> getLongestMatch(CharSequence key)
+	{
+		if(key == null)
+			return null;
+		Map.Entry<CharSequence,T> longest = entries[0];
+		int node = 0;
+		for(int i=0;i<key.length();i++)
+		{
+			if((node = child(node, key.charAt(i))) < 0)
+				break;
+			if(entries[node] != null)
+				longest = entries[node];
+		}
+		return longest;
+	}
+
+	/**
+	 * Get the key value entry who's key is the longest prefix match.
+	 * Characters read past the match are unread.
+	 * @param keyIn Pushback reader to read the key from. This should
+	 * have a buffer at least as large as {@link #getMaxKeyLength()}
+	 * or an IOException may be thrown backing up.
+	 * @return Entry with the longest matching key.
+	 * @throws IOException if keyIn.read() or keyIn.unread() does.
+	 */
+	public Map.Entry<CharSequence,T> getLongestMatch(PushbackReader keyIn) throws IOException
+	{
+		if(keyIn == null)
+			return null;
+		Map.Entry<CharSequence,T> longest = entries[0];
+		char[] read = new char[Math.max(maxKeyLen, 0) + 1];
+		int len = 0;
+		int node = 0;
+		int c;
+		while(len < read.length && (c = keyIn.read()) >= 0)
+		{
+			read[len++] = (char)c;
+			if((node = child(node, (char)c)) < 0)
+				break;
+			if(entries[node] != null)
+				longest = entries[node];
+		}
+		int matched = longest == null ? 0 : longest.getKey().length();
+		if(len > matched)
+			keyIn.unread(read, matched, len - matched);
+		return longest;
+	}
+
+	/**
+	 * Get the key value entry who's key is the longest prefix of the
+	 * code points read from {@code input}, without allocating. At most
+	 * {@link #getMaxKeyLength()} code points are read, and those read past
+	 * the match are not pushed back; the caller resets the input. Code
+	 * points outside the Basic Multilingual Plane never match.
+	 * @param input The sequence to read the key from.
+	 * @param foldCase Whether to match ASCII upper case letters as their
+	 * lower case ones.
+	 * @return Entry with the longest matching key.
+	 */
+	Map.Entry<CharSequence,T> getLongestMatch(IntPushbackSequence input, boolean foldCase)
+	{
+		Map.Entry<CharSequence,T> longest = entries[0];
+		int node = 0;
+		for(int i=0;i<maxKeyLen && input.hasNext();i++)
+		{
+			int c = input.nextInt();
+			if(foldCase && c >= 'A' && c <= 'Z')
+				c += 'a' - 'A';
+			if(c > Character.MAX_VALUE || (node = child(node, (char)c)) < 0)
+				break;
+			if(entries[node] != null)
+				longest = entries[node];
+		}
+		return longest;
+	}
+
+	/**
+	 * Get the maximum key length.
+	 * @return max key length.
+	 */
+	public int getMaxKeyLength()
+	{
+		return maxKeyLen;
+	}
+
+        /*****************/
+        /* java.util.Map */
+        /*****************/
+
+	/**
+	 * Get the value for a key.
+	 * @param key The key to look up.
+	 * @return The value for key or null if the key is not found.
+	 */
+	@Override
+	public T get(Object key)
+	{
+		if(!(key instanceof CharSequence))
+			return null;
+		CharSequence seq = (CharSequence)key;
+		int node = 0;
+		for(int i=0;i<seq.length() && node >= 0;i++)
+			node = child(node, seq.charAt(i));
+		if(node < 0 || entries[node] == null)
+			return null;
+		return entries[node].getValue();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean containsKey(Object key)
+	{
+		return (get(key) != null);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int size()
+	{
+		return entrySet.size();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Set<Map.Entry<CharSequence,T>> entrySet()
+	{
+		return entrySet;
+	}
+}
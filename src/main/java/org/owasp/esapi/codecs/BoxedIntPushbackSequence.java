@@ -0,0 +1,242 @@
+/**
+ * OWASP Enterprise Security API (ESAPI)
+ *
+ * This file is part of the Open Web Application Security Project (OWASP)
+ * Enterprise Security API (ESAPI) project. For details, please see
+ * <a href="http://www.owasp.org/index.php/ESAPI">http://www.owasp.org/index.php/ESAPI</a>.
+ *
+ * Copyright (c) 2017 - The OWASP Foundation
+ *
+ * The ESAPI is published by OWASP under the BSD license. You should read and accept the
+ * LICENSE before you use, modify, and/or redistribute this software.
+ *
+ */
+package org.owasp.esapi.codecs;
+
+/**
+ * Presents a boxed {@link PushbackSequence} that does not implement
+ * {@link IntPushbackSequence} itself through the primitive interface, so the
+ * codecs' primitive decoders can still be driven by it.  The sequences in this
+ * package never need this; it only exists for third party implementations.
+ * <br/><br/>
+ * {@link #characters(IntPushbackSequence)} and {@link #integers(IntPushbackSequence)}
+ * adapt the other way, so that the boxed decoders can be driven by any
+ * primitive sequence, whatever its boxed type.
+ *
+ * @param <T> the boxed character type
+ */
+abstract class BoxedIntPushbackSequence<T> implements IntPushbackSequence {
+	private final PushbackSequence<T> boxed;
+	private final Class<T> type;
+
+	BoxedIntPushbackSequence(PushbackSequence<T> boxed, Class<T> type) {
+		this.boxed = boxed;
+		this.type = type;
+	}
+
+	/**
+	 * @return the primitive view of {@code input}, which is {@code input} itself when possible.
+	 */
+	static IntPushbackSequence ofCharacters(PushbackSequence<Character> input) {
+		if (input instanceof IntPushbackSequence) {
+			return (IntPushbackSequence) input;
+		}
+		return new BoxedIntPushbackSequence<Character>(input, Character.class) {
+			int unbox(Character c) {
+				return c.charValue();
+			}
+
+			Character box(int c) {
+				return Character.valueOf((char) c);
+			}
+		};
+	}
+
+	/**
+	 * @return the primitive view of {@code input}, which is {@code input} itself when possible.
+	 */
+	static IntPushbackSequence ofIntegers(PushbackSequence<Integer> input) {
+		if (input instanceof IntPushbackSequence) {
+			return (IntPushbackSequence) input;
+		}
+		return new BoxedIntPushbackSequence<Integer>(input, Integer.class) {
+			int unbox(Integer c) {
+				return c.intValue();
+			}
+
+			Integer box(int c) {
+				return Integer.valueOf(c);
+			}
+		};
+	}
+
+	/**
+	 * @return the boxed view of {@code input}, which is {@code input} itself, or the
+	 * sequence it adapts, when possible.
+	 */
+	static PushbackSequence<Character> characters(IntPushbackSequence input) {
+		if (input instanceof PushbackString) {
+			return (PushbackString) input;
+		}
+		PushbackSequence<Character> boxed = unwrap(input, Character.class);
+		if (boxed != null) {
+			return boxed;
+		}
+		return new BoxedView<Character>(input) {
+			int unbox(Character c) {
+				return c.charValue();
+			}
+
+			Character box(int c) {
+				return Character.valueOf((char) c);
+			}
+		};
+	}
+
+	/**
+	 * @return the boxed view of {@code input}, which is {@code input} itself, or the
+	 * sequence it adapts, when possible.
+	 */
+	static PushbackSequence<Integer> integers(IntPushbackSequence input) {
+		if (input instanceof PushBackSequenceImpl) {
+			return (PushBackSequenceImpl) input;
+		}
+		PushbackSequence<Integer> boxed = unwrap(input, Integer.class);
+		if (boxed != null) {
+			return boxed;
+		}
+		return new BoxedView<Integer>(input) {
+			int unbox(Integer c) {
+				return c.intValue();
+			}
+
+			Integer box(int c) {
+				return Integer.valueOf(c);
+			}
+		};
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> PushbackSequence<T> unwrap(IntPushbackSequence input, Class<T> type) {
+		if (input instanceof BoxedIntPushbackSequence && ((BoxedIntPushbackSequence<?>) input).type == type) {
+			return ((BoxedIntPushbackSequence<T>) input).boxed;
+		}
+		return null;
+	}
+
+	abstract int unbox(T c);
+
+	abstract T box(int c);
+
+	private int toInt(T c) {
+		return c == null ? EOF : unbox(c);
+	}
+
+	public void pushbackInt(int c) {
+		boxed.pushback(c == EOF ? null : box(c));
+	}
+
+	public int index() {
+		return boxed.index();
+	}
+
+	public boolean hasNext() {
+		return boxed.hasNext();
+	}
+
+	public int nextInt() {
+		return toInt(boxed.next());
+	}
+
+	public int nextHexInt() {
+		return toInt(boxed.nextHex());
+	}
+
+	public int nextOctalInt() {
+		return toInt(boxed.nextOctal());
+	}
+
+	public int peekInt() {
+		return toInt(boxed.peek());
+	}
+
+	public void mark() {
+		boxed.mark();
+	}
+
+	public void reset() {
+		boxed.reset();
+	}
+
+	/**
+	 * Presents a primitive sequence through the boxed interface.
+	 *
+	 * @param <T> the boxed character type
+	 */
+	abstract static class BoxedView<T> implements PushbackSequence<T> {
+		private final IntPushbackSequence input;
+
+		BoxedView(IntPushbackSequence input) {
+			this.input = input;
+		}
+
+		abstract int unbox(T c);
+
+		abstract T box(int c);
+
+		private T toBoxed(int c) {
+			return c == EOF ? null : box(c);
+		}
+
+		public void pushback(T c) {
+			input.pushbackInt(c == null ? EOF : unbox(c));
+		}
+
+		public int index() {
+			return input.index();
+		}
+
+		public boolean hasNext() {
+			return input.hasNext();
+		}
+
+		public T next() {
+			return toBoxed(input.nextInt());
+		}
+
+		public T nextHex() {
+			return toBoxed(input.nextHexInt());
+		}
+
+		public T nextOctal() {
+			return toBoxed(input.nextOctalInt());
+		}
+
+		public T peek() {
+			return toBoxed(input.peekInt());
+		}
+
+		public boolean peek(T c) {
+			return c != null && input.peekInt() == unbox(c);
+		}
+
+		public void mark() {
+			input.mark();
+		}
+
+		public void reset() {
+			input.reset();
+		}
+
+		/**
+		 * A primitive sequence cannot be read ahead without losing its mark, so
+		 * this is only supported if it is also a boxed sequence, of any type.
+		 */
+		public String remainder() {
+			if (input instanceof PushbackSequence) {
+				return ((PushbackSequence<?>) input).remainder();
+			}
+			throw new UnsupportedOperationException("remainder() needs a PushbackSequence");
+		}
+	}
+}
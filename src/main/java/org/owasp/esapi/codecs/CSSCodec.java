@@ -25,7 +25,7 @@ package org.owasp.esapi.codecs;
  */
 public class CSSCodec extends AbstractCharacterCodec
 {
-	private static final Character REPLACEMENT = '\ufffd';
+	private static final char REPLACEMENT = '\ufffd';
 
 
     /**
@@ -52,6 +52,15 @@ public class CSSCodec extends AbstractCharacterCodec
     }
 
     
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public char[] getDecodeTriggers()
+	{
+		return new char[] { '\\' };
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * 
@@ -59,19 +68,31 @@ public class CSSCodec extends AbstractCharacterCodec
 	 * or null if no decoding is possible.
 	 */
 	public Character decodeCharacter(PushbackSequence<Character> input)
+	{
+		return decodeBoxed(input);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * Returns the decoded version of the character starting at index,
+	 * or EOF if no decoding is possible.
+	 */
+	@Override
+	public int decodeInt(IntPushbackSequence input)
 	{
 		input.mark();
-		Character first = input.next();
-		if (first == null || first != '\\')
+		int first = input.nextInt();
+		if (first != '\\')
 		{
 			input.reset();
-			return null;
+			return IntPushbackSequence.EOF;
 		}
 
-		Character second = input.next();
-		if (second == null) {
+		int second = input.nextInt();
+		if (second == IntPushbackSequence.EOF) {
 			input.reset();
-			return null;
+			return IntPushbackSequence.EOF;
 		}
 
 		/* From css 2.1 spec:
@@ -132,14 +153,14 @@ public class CSSCodec extends AbstractCharacterCodec
 			// line." Otherwise there is no specification
 			// of what to do for \f
 			case '\r':
-				if(input.peek('\n'))
-					input.next();
+				if(input.peekInt() == '\n')
+					input.nextInt();
 				// fall through
 			case '\n':
 			case '\f':
 				// bs follwed by new line replaced by nothing
 			case '\u0000':	// skip NUL for now too
-				return decodeCharacter(input);
+				return decodeInt(input);
 		}
 
 		if (!PushbackString.isHexDigit(second))
@@ -148,34 +169,25 @@ public class CSSCodec extends AbstractCharacterCodec
 		}
 
 		// Search for up to 6 hex digits following until a space
-		StringBuilder sb = new StringBuilder();
-		sb.append(second);
-		for (int i = 0; i < 5; i++)
+		int i = Character.digit(second, 16);
+		for (int n = 0; n < 5; n++)
 		{
-			Character c = input.next();
-			if(c == null || Character.isWhitespace(c))
+			int c = input.nextInt();
+			if(c == IntPushbackSequence.EOF || Character.isWhitespace(c))
 				break;
 			if(PushbackString.isHexDigit(c))
-				sb.append(c);
+				i = (i << 4) | Character.digit(c, 16);
 			else
 			{
-				input.pushback(c);
+				input.pushbackInt(c);
 				break;
 			}
 		}
-		try
-		{
-			// parse the hex digit and create a character
-			int i = Integer.parseInt(sb.toString(), 16);
-	
-			if (Character.isValidCodePoint(i))
-				return (char)i;
-			return REPLACEMENT;
-		}
-		catch (NumberFormatException e)
-		{
-			throw new IllegalStateException("Received a NumberFormateException parsing a string verified to be hex", e);
-        	}
+
+		// at most 6 hex digits, so this cannot overflow
+		if (Character.isValidCodePoint(i))
+			return (char)i;
+		return REPLACEMENT;
 	}
 
 }
@@ -33,6 +33,11 @@ public class DB2Codec extends AbstractCharacterCodec {
 		return "" + c;
 	}
 
+	@Override
+	protected boolean isPassThrough(char[] immune, char c) {
+		return c != '\'' && c != ';';
+	}
+
 	public Character decodeCharacter(PushbackString input) {
 
 		input.mark();
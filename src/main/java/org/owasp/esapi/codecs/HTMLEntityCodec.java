@@ -42,7 +42,7 @@ public class HTMLEntityCodec extends AbstractIntegerCodec
 	private static final String REPLACEMENT_STR = "" + REPLACEMENT_CHAR;
 	private static final Map<Integer,String> characterToEntityMap = mkCharacterToEntityMap();
 
-	private static final Trie<Integer> entityToCharacterTrie = mkEntityToCharacterTrie();
+	private static final ArrayTrie<Integer> entityToCharacterTrie = mkEntityToCharacterTrie();
 
     /**
      *
@@ -51,8 +51,7 @@ public class HTMLEntityCodec extends AbstractIntegerCodec
 	}
 
     /**
-     * Given an array of {@code char}, scan the input {@code String} and encode unsafe
-     * codePoints, except for codePoints passed into the {@code char} array.  
+     * Code points are always encoded through {@link #encodeCharacter(char[], int)}.
      * <br/><br/>
      * WARNING:  This method will silently discard any code point per the 
      * call to {@code Character.isValidCodePoint( int )} method.  
@@ -60,16 +59,11 @@ public class HTMLEntityCodec extends AbstractIntegerCodec
      * {@inheritDoc}
      */
 	@Override
-	public String encode(char[] immune, String input) {
-		StringBuilder sb = new StringBuilder();
-		for(int offset  = 0; offset < input.length(); ){
-			final int point = input.codePointAt(offset);
-			if(Character.isValidCodePoint(point)){
-				sb.append(encodeCharacter(immune, point));	
-			}
-			offset += Character.charCount(point);
+	protected String encodeCodePoint(char[] immune, int codePoint) {
+		if(Character.isValidCodePoint(codePoint)){
+			return encodeCharacter(immune, codePoint);
 		}
-		return sb.toString();
+		return "";
 	}
 	
 	/**
@@ -113,6 +107,14 @@ public class HTMLEntityCodec extends AbstractIntegerCodec
 		return "&#x" + hex + ";";
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public char[] getDecodeTriggers() {
+		return new char[] { '&' };
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * 
@@ -125,38 +127,50 @@ public class HTMLEntityCodec extends AbstractIntegerCodec
 	 *   &name;
 	 */
 	public Integer decodeCharacter( PushbackSequence<Integer> input ) {
+		return decodeBoxed( input );
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * Returns the decoded version of the character starting at index, or
+	 * EOF if no decoding is possible.
+	 * 
+	 * Formats all are legal both with and without semi-colon, upper/lower case:
+	 *   &#dddd;
+	 *   &#xhhhh;
+	 *   &name;
+	 */
+	@Override
+	public int decodeInt( IntPushbackSequence input ) {
 		input.mark();
-		Integer first = input.next();
-		if ( first == null ) {
-			input.reset();
-			return null;
-		}
+		int first = input.nextInt();
 		
-		// if this is not an encoded character, return null
+		// if this is not an encoded character, return EOF
 		if (first != '&' ) {
 			input.reset();
-			return null;
+			return IntPushbackSequence.EOF;
 		}
 		
 		// test for numeric encodings
-		Integer second = input.next();
-		if ( second == null ) {
+		int second = input.nextInt();
+		if ( second == IntPushbackSequence.EOF ) {
 			input.reset();
-			return null;
+			return IntPushbackSequence.EOF;
 		}
 		
 		if (second == '#' ) {
 			// handle numbers
-			Integer c = getNumericEntity( input );
-			if ( c != null ) return c;
+			int c = getNumericEntity( input );
+			if ( c != IntPushbackSequence.EOF ) return c;
 		} else if ( Character.isLetter( second ) ) {
 			// handle entities
-			input.pushback( second );
-			Integer c = getNamedEntity( input );
-			if ( c != null ) return c;
+			input.pushbackInt( second );
+			int c = getNamedEntity( input );
+			if ( c != IntPushbackSequence.EOF ) return c;
 		}
 		input.reset();
-		return null;
+		return IntPushbackSequence.EOF;
 	}
 	
 	/**
@@ -166,14 +180,14 @@ public class HTMLEntityCodec extends AbstractIntegerCodec
 	 * 			The input to test for being a numeric entity
 	 *  
 	 * @return
-	 * 			null if input is null, the character of input after decoding
+	 * 			EOF if input is not a numeric entity, the character of input after decoding
 	 */
-	private Integer getNumericEntity( PushbackSequence<Integer> input ) {
-		Integer first = input.peek();
-		if ( first == null ) return null;
+	private int getNumericEntity( IntPushbackSequence input ) {
+		int first = input.peekInt();
+		if ( first == IntPushbackSequence.EOF ) return IntPushbackSequence.EOF;
 
 		if (first == 'x' || first == 'X' ) {
-			input.next();
+			input.nextInt();
 			return parseHex( input );
 		}
 		return parseNumber( input );
@@ -185,22 +199,30 @@ public class HTMLEntityCodec extends AbstractIntegerCodec
 	 * @param input
 	 * 			decimal encoded string, such as 65
 	 * @return
-	 * 			character representation of this decimal value, e.g. A 
-	 * @throws NumberFormatException
+	 * 			character representation of this decimal value, e.g. A, or EOF
 	 */
-	private Integer parseNumber( PushbackSequence<Integer> input ) {
-		StringBuilder sb = new StringBuilder();
+	private int parseNumber( IntPushbackSequence input ) {
+		int i = 0;
+		int digits = 0;
 		while( input.hasNext() ) {
-			Integer c = input.peek();
+			int c = input.peekInt();
 			
 			// if character is a digit then add it on and keep going
-			if ( Character.isDigit( c ) && Character.isValidCodePoint(c) ) {
-				sb.appendCodePoint( c );
-				input.next();
+			if ( Character.isDigit( c ) ) {
+				if ( !Character.isBmpCodePoint( c ) ) {
+					// not something Integer.parseInt() ever accepted
+					return IntPushbackSequence.EOF;
+				}
+				i = i * 10 + Character.digit( c, 10 );
+				if ( i > Character.MAX_CODE_POINT ) {
+					return IntPushbackSequence.EOF;
+				}
+				digits++;
+				input.nextInt();
 				
 			// if character is a semi-colon, eat it and quit
 			} else if (c == ';' ) {
-				input.next();
+				input.nextInt();
 				break;
 				
 			// otherwise just quit
@@ -208,16 +230,11 @@ public class HTMLEntityCodec extends AbstractIntegerCodec
 				break;
 			}
 		}
-		try {
-			int i = Integer.parseInt(sb.toString());
-            if (Character.isValidCodePoint(i)) {
-                return i;
-            }
-		} catch( NumberFormatException e ) {
-			// throw an exception for malformed entity?
-		}
-			return null;
+		if ( digits == 0 ) {
+			return IntPushbackSequence.EOF;
 		}
+		return i;
+	}
 	
 	/**
 	 * Parse a hex encoded entity
@@ -225,23 +242,26 @@ public class HTMLEntityCodec extends AbstractIntegerCodec
 	 * @param input
 	 * 			Hex encoded input (such as 437ae;)
 	 * @return
-	 * 			A single character from the string
-	 * @throws NumberFormatException
+	 * 			A single character from the string, or EOF
 	 */
-	private Integer parseHex( PushbackSequence<Integer> input ) {
-		StringBuilder sb = new StringBuilder();
+	private int parseHex( IntPushbackSequence input ) {
+		int i = 0;
+		int digits = 0;
 		while( input.hasNext() ) {
-			Integer c = input.peek();
+			int c = input.peekInt();
 			
 			// if character is a hex digit then add it on and keep going
-			//This statement implicitly tests for Character.isValidCodePoint(int)
-			if ( "0123456789ABCDEFabcdef".indexOf(c) != -1 ) {
-				sb.appendCodePoint( c );
-				input.next();
+			if ( PushbackString.isHexDigit( c ) ) {
+				i = (i << 4) | Character.digit( c, 16 );
+				if ( i > Character.MAX_CODE_POINT ) {
+					return IntPushbackSequence.EOF;
+				}
+				digits++;
+				input.nextInt();
 				
 			// if character is a semi-colon, eat it and quit
 			} else if (c == ';' ) {
-				input.next();
+				input.nextInt();
 				break;
 				
 			// otherwise just quit
@@ -249,21 +269,16 @@ public class HTMLEntityCodec extends AbstractIntegerCodec
 				break;
 			}
 		}
-		try {
-			int i = Integer.parseInt(sb.toString(), 16);
-            if (Character.isValidCodePoint(i)) {
-                return i;
-            }
-		} catch( NumberFormatException e ) {
-			// throw an exception for malformed entity?
-		}
-			return null;
+		if ( digits == 0 ) {
+			return IntPushbackSequence.EOF;
 		}
+		return i;
+	}
 	
 	/**
 	 * 
 	 * Returns the decoded version of the character starting at index, or
-	 * null if no decoding is possible.
+	 * EOF if no decoding is possible.
 	 * 
 	 * Formats all are legal both with and without semi-colon, upper/lower case:
 	 *   &aa;
@@ -276,45 +291,33 @@ public class HTMLEntityCodec extends AbstractIntegerCodec
 	 * @param input
 	 * 		A string containing a named entity like &quot;
 	 * @return
-	 * 		Returns the decoded version of the character starting at index, or null if no decoding is possible.
+	 * 		Returns the decoded version of the character starting at index, or EOF if no decoding is possible.
 	 */
-	private Integer getNamedEntity( PushbackSequence<Integer> input ) {
-		StringBuilder possible = new StringBuilder();
+	private int getNamedEntity( IntPushbackSequence input ) {
 		Entry<CharSequence, Integer> entry;
 		int len;
 		
-		// kludge around PushbackString....
-		len = Math.min(input.remainder().length(), entityToCharacterTrie.getMaxKeyLength());
-		for(int i=0;i<len;i++){
-			Integer next = input.next();
-			if(null != next && Character.isValidCodePoint(next)){
-				possible.appendCodePoint(next);
-			}
-		}
-		// look up the longest match
-		entry = entityToCharacterTrie.getLongestMatch(possible);
+		// look up the longest match, walking the trie over the input
+		entry = entityToCharacterTrie.getLongestMatch(input, false);
 		if(entry == null) {
-			// We are lowercasing & comparing the result because of this all the upper case named entities are getting converted lowercase named entities.
-			// check is there any exact match https://github.com/ESAPI/esapi-java-legacy/issues/302
-			String possibleString = possible.toString();
-			String possibleStringLowerCase = possibleString.toLowerCase();
-		        if(!possibleString.equals(possibleStringLowerCase)) {
-		           Map.Entry<CharSequence,Integer> exactEntry = entityToCharacterTrie.getLongestMatch(possibleStringLowerCase);
-		           if(exactEntry != null) entry = exactEntry;
-		        }
-		        if(entry == null) return null; // no match, caller will reset input
+			// Upper case named entities are matched exactly above, so only fall back to the lower case ones if there is no exact match.
+			// https://github.com/ESAPI/esapi-java-legacy/issues/302
+			input.reset();
+			input.nextInt();	// read &
+			entry = entityToCharacterTrie.getLongestMatch(input, true);
+			if(entry == null) return IntPushbackSequence.EOF; // no match, caller will reset input
 		}
 
 		// fixup input
 		input.reset();
-		input.next();	// read &
+		input.nextInt();	// read &
 		len = entry.getKey().length();	// what matched's length
 		for(int i=0;i<len;i++)
-			input.next();
+			input.nextInt();
 
 		// check for a trailing semicolen
-		if(input.peek(Integer.valueOf(';')))
-			input.next();
+		if(input.peekInt() == ';')
+			input.nextInt();
 
 		return entry.getValue();
 	}
@@ -584,15 +587,15 @@ public class HTMLEntityCodec extends AbstractIntegerCodec
 	}
 
 	/**
-	 * Build a unmodifiable Trie from entitiy Name to Character
-	 * @return Unmodifiable trie.
+	 * Build an immutable Trie from entitiy Name to Character
+	 * @return Immutable trie.
 	 */
-	private static synchronized Trie<Integer> mkEntityToCharacterTrie()
+	private static synchronized ArrayTrie<Integer> mkEntityToCharacterTrie()
 	{
-		Trie<Integer> trie = new HashTrie<Integer>();
+		Map<String,Integer> map = new HashMap<String,Integer>(characterToEntityMap.size());
 
 		for(Map.Entry<Integer,String> entry : characterToEntityMap.entrySet())
-			trie.put(entry.getValue(),entry.getKey());
-		return Trie.Util.unmodifiable(trie);
+			map.put(entry.getValue(),entry.getKey());
+		return new ArrayTrie<Integer>(map);
 	}
 }
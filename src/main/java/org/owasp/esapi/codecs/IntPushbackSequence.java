@@ -0,0 +1,88 @@
+/**
+ * OWASP Enterprise Security API (ESAPI)
+ *
+ * This file is part of the Open Web Application Security Project (OWASP)
+ * Enterprise Security API (ESAPI) project. For details, please see
+ * <a href="http://www.owasp.org/index.php/ESAPI">http://www.owasp.org/index.php/ESAPI</a>.
+ *
+ * Copyright (c) 2017 - The OWASP Foundation
+ *
+ * The ESAPI is published by OWASP under the BSD license. You should read and accept the
+ * LICENSE before you use, modify, and/or redistribute this software.
+ *
+ */
+package org.owasp.esapi.codecs;
+
+/**
+ * Primitive counterpart of {@link PushbackSequence}.  Characters (or code points) are
+ * handed out as {@code int}s and the end of the input is signalled with {@link #EOF}
+ * instead of {@code null}, so decoding does not box a {@code Character} or
+ * {@code Integer} for every character read.
+ * <br/><br/>
+ * {@link PushbackString} and {@link PushBackSequenceImpl} implement both interfaces
+ * over the same state, so the boxed and primitive methods can be mixed freely.
+ *
+ * @see AbstractCharacterCodec#decodeInt(IntPushbackSequence)
+ * @see AbstractIntegerCodec#decodeInt(IntPushbackSequence)
+ */
+public interface IntPushbackSequence {
+
+	/**
+	 * Returned in place of a character when the input is exhausted, or when
+	 * a character does not match what was asked for.
+	 */
+	int EOF = -1;
+
+	/**
+	 * Pushes a character back onto the sequence.  Pushing back {@link #EOF}
+	 * clears any pending pushback.
+	 * @param c
+	 */
+	void pushbackInt(int c);
+
+	/**
+	 * Get the current index of the sequence. Typically used in error messages.
+	 * @return The current index of the sequence.
+	 */
+	int index();
+
+	/**
+	 *
+	 * @return true if there are more characters to read.
+	 */
+	boolean hasNext();
+
+	/**
+	 *
+	 * @return the next character, or {@link #EOF} at the end of the input.
+	 */
+	int nextInt();
+
+	/**
+	 * Consumes the next character.
+	 * @return the character if it is a hex digit, otherwise {@link #EOF}.
+	 */
+	int nextHexInt();
+
+	/**
+	 * Consumes the next character.
+	 * @return the character if it is an octal digit, otherwise {@link #EOF}.
+	 */
+	int nextOctalInt();
+
+	/**
+	 * Return the next character without affecting the current index.
+	 * @return the next character, or {@link #EOF} at the end of the input.
+	 */
+	int peekInt();
+
+	/**
+	 *
+	 */
+	void mark();
+
+	/**
+	 *
+	 */
+	void reset();
+}
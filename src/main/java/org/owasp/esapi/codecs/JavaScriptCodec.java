@@ -75,6 +75,14 @@ public class JavaScriptCodec extends AbstractCharacterCodec {
 	}
 
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public char[] getDecodeTriggers() {
+		return new char[] { '\\' };
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * 
@@ -88,28 +96,39 @@ public class JavaScriptCodec extends AbstractCharacterCodec {
 	 *   \\OOO (1, 2, or 3 digits)
 	 */
 	public Character decodeCharacter( PushbackSequence<Character> input ) {
+		return decodeBoxed( input );
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * Returns the decoded version of the character starting at index, or
+	 * EOF if no decoding is possible.
+	 */
+	@Override
+	public int decodeInt( IntPushbackSequence input ) {
 		input.mark();
-		Character first = input.next();
-		if ( first == null ) {
+		int first = input.nextInt();
+		if ( first == IntPushbackSequence.EOF ) {
 			input.reset();
-			return null;
+			return IntPushbackSequence.EOF;
 		}
 		
-		// if this is not an encoded character, return null
+		// if this is not an encoded character, return EOF
 		if (first != '\\' ) {
 			input.reset();
-			return null;
+			return IntPushbackSequence.EOF;
 		}
 
-		Character second = input.next();
-		if ( second == null ) {
+		int second = input.nextInt();
+		if ( second == IntPushbackSequence.EOF ) {
 			input.reset();
-			return null;
+			return IntPushbackSequence.EOF;
 		}
 		
 		// \0 collides with the octal decoder and is non-standard
-		// if ( second.charValue() == '0' ) {
-		//	return Character.valueOf( (char)0x00 );
+		// if ( second == '0' ) {
+		//	return 0x00;
 		if (second == 'b' ) {
 			return 0x08;
 		} else if (second == 't' ) {
@@ -130,88 +149,68 @@ public class JavaScriptCodec extends AbstractCharacterCodec {
 			return 0x5c;
 			
 		// look for \\xXX format
-		} else if ( Character.toLowerCase( second.charValue() ) == 'x' ) {
+		} else if ( Character.toLowerCase( (char) second ) == 'x' ) {
 			// Search for exactly 2 hex digits following
-			StringBuilder sb = new StringBuilder();
-			for ( int i=0; i<2; i++ ) {
-				Character c = input.nextHex();
-				if ( c != null ) sb.append( c );
-				else {
-					input.reset();
-					return null;
-				}
-			}
-			try {
-				// parse the hex digit and create a character
-				int i = Integer.parseInt(sb.toString(), 16);
-                if (Character.isValidCodePoint(i)) {
-                    return (char) i;
-                }
-			} catch( NumberFormatException e ) {
-				// throw an exception for malformed entity?
+			int i = parseHex( input, 2 );
+			if ( i == IntPushbackSequence.EOF ) {
 				input.reset();
-				return null;
+				return IntPushbackSequence.EOF;
 			}
+			return (char) i;
 			
 		// look for \\uXXXX format
-		} else if ( Character.toLowerCase( second.charValue() ) == 'u') {
+		} else if ( Character.toLowerCase( (char) second ) == 'u') {
 			// Search for exactly 4 hex digits following
-			StringBuilder sb = new StringBuilder();
-			for ( int i=0; i<4; i++ ) {
-				Character c = input.nextHex();
-				if ( c != null ) sb.append( c );
-				else {
-					input.reset();
-					return null;
-				}
-			}
-			try {
-				// parse the hex string and create a character
-				int i = Integer.parseInt(sb.toString(), 16);
-                if (Character.isValidCodePoint(i)) {
-                    return (char) i;
-                }
-			} catch( NumberFormatException e ) {
-				// throw an exception for malformed entity?
+			int i = parseHex( input, 4 );
+			if ( i == IntPushbackSequence.EOF ) {
 				input.reset();
-				return null;
+				return IntPushbackSequence.EOF;
 			}
+			return (char) i;
 			
 		// look for one, two, or three octal digits
 		} else if ( PushbackString.isOctalDigit(second) ) {
-			StringBuilder sb = new StringBuilder();
             // get digit 1
-            sb.append(second);
+            int i = second - '0';
             
             // get digit 2 if present
-            Character c2 = input.next();
+            int c2 = input.nextInt();
             if ( !PushbackString.isOctalDigit(c2) ) {
-            	input.pushback( c2 );
+            	input.pushbackInt( c2 );
             } else {
-            	sb.append( c2 );
+            	i = i * 8 + (c2 - '0');
 	            // get digit 3 if present
-	            Character c3 = input.next();
+	            int c3 = input.nextInt();
 	            if ( !PushbackString.isOctalDigit(c3) ) {
-	            	input.pushback( c3 );
+	            	input.pushbackInt( c3 );
 	            } else {
-	            	sb.append( c3 );
+	            	i = i * 8 + (c3 - '0');
 	            }
             }
-			try {
-				// parse the octal string and create a character
-				int i = Integer.parseInt(sb.toString(), 8);
-                if (Character.isValidCodePoint(i)) {
-                    return (char) i;
-                }
-			} catch( NumberFormatException e ) {
-				// throw an exception for malformed entity?
-				input.reset();
-				return null;
-			}
+            // at most 0777, always a valid code point
+            return (char) i;
 		}
 		
 		// ignore the backslash and return the character
 		return second;
 	}
 
+	/**
+	 * Reads exactly {@code digits} hex digits.
+	 * 
+	 * @return their value, or EOF if a non hex digit was found
+	 */
+	private static int parseHex( IntPushbackSequence input, int digits ) {
+		int i = 0;
+		for ( int n=0; n<digits; n++ ) {
+			int c = input.nextHexInt();
+			if ( c == IntPushbackSequence.EOF ) {
+				return IntPushbackSequence.EOF;
+			}
+			i = (i << 4) | Character.digit( c, 16 );
+		}
+		// at most 4 digits, always a valid code point
+		return i;
+	}
+
 }
\ No newline at end of file
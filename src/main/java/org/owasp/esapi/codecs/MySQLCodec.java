@@ -193,6 +193,18 @@ public class MySQLCodec extends AbstractCharacterCodec {
 	    return "\\" + c;
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public char[] getDecodeTriggers() {
+		switch( mode ) {
+			case ANSI: return new char[] { '\'' };
+			case STANDARD: return new char[] { '\\' };
+			default: return null;
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * 
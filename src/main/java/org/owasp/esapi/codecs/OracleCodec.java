@@ -47,9 +47,27 @@ public class OracleCodec extends AbstractCharacterCodec {
         	return "\'\'";
         return ""+c;
 	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * Only ' is ever encoded, and the immune list is ignored.
+	 */
+	@Override
+	protected boolean isPassThrough( char[] immune, char c ) {
+		return c != '\'';
+	}
 	
 
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public char[] getDecodeTriggers() {
+		return new char[] { '\'' };
+	}
+
 	/**
 	 * {@inheritDoc}
 	 *
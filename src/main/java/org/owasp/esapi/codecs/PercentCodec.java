@@ -119,6 +119,14 @@ public class PercentCodec extends AbstractCharacterCodec
 		return sb.toString();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public char[] getDecodeTriggers() {
+		return new char[] { '%' };
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * 
@@ -129,36 +137,41 @@ public class PercentCodec extends AbstractCharacterCodec
 	 * 			encoded character using percent characters (such as URL encoding)
 	 */
 	public Character decodeCharacter( PushbackSequence<Character> input ) {
+		return decodeBoxed( input );
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * Formats all are legal both upper/lower case:
+	 *   %hh;
+	 */
+	@Override
+	public int decodeInt( IntPushbackSequence input ) {
 		input.mark();
-		Character first = input.next();
-		if ( first == null ) {
-			input.reset();
-			return null;
-		}
+		int first = input.nextInt();
 
-		// if this is not an encoded character, return null
+		// if this is not an encoded character, return EOF
 		if (first != '%' ) {
 			input.reset();
-			return null;
+			return IntPushbackSequence.EOF;
 		}
 
 		// Search for exactly 2 hex digits following
-		StringBuilder sb = new StringBuilder();
-		for ( int i=0; i<2; i++ ) {
-			Character c = input.nextHex();
-			if ( c != null ) sb.append( c );
+		int i = 0;
+		int digits = 0;
+		for ( int n=0; n<2; n++ ) {
+			int c = input.nextHexInt();
+			if ( c != IntPushbackSequence.EOF ) {
+				i = (i << 4) | Character.digit( c, 16 );
+				digits++;
+			}
 		}
-		if ( sb.length() == 2 ) {
-			try {
-				// parse the hex digit and create a character
-				int i = Integer.parseInt(sb.toString(), 16);
-				if (Character.isValidCodePoint(i)) {
-					return (char) i;
-				}
-			} catch( NumberFormatException ignored ) { }
+		if ( digits == 2 ) {
+			return i;
 		}
 		input.reset();
-		return null;
+		return IntPushbackSequence.EOF;
 	}
 
 }
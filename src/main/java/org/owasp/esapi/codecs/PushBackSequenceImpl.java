@@ -24,15 +24,22 @@ public class PushBackSequenceImpl extends AbstractPushbackSequence<Integer>{
      * @return
      */
     public Integer next() {
+		return box( nextInt() );
+	}
+
+    /**
+     *
+     * @return the next code point, or {@link #EOF}
+     */
+    public int nextInt() {
 		if ( pushback != null ) {
-			Integer save = pushback;
+			int save = pushback.intValue();
 			pushback = null;
 			return save;
 		}
-		if ( input == null ) return null;
-		if ( input.length() == 0 ) return null;
-		if ( index >= input.length() ) return null;
-		final Integer point = input.codePointAt(index);
+		if ( input == null ) return EOF;
+		if ( index >= input.length() ) return EOF;
+		final int point = input.codePointAt(index);
 		index += Character.charCount(point);
 		return point;
 	}
@@ -42,10 +49,17 @@ public class PushBackSequenceImpl extends AbstractPushbackSequence<Integer>{
     * @return
     */
    public Integer nextHex() {
-		Integer c = next();
-		if ( c == null ) return null;
-		if ( isHexDigit( c ) ) return c;
-		return null;
+		return box( nextHexInt() );
+	}
+
+   /**
+    *
+    * @return the next code point if it is a hex digit, otherwise {@link #EOF}
+    */
+   public int nextHexInt() {
+		int c = nextInt();
+		if ( PushbackString.isHexDigit( c ) ) return c;
+		return EOF;
 	}
 
    /**
@@ -53,10 +67,17 @@ public class PushBackSequenceImpl extends AbstractPushbackSequence<Integer>{
    * @return
    */
   public Integer nextOctal() {
-		Integer c = next();
-		if ( c == null ) return null;
-		if ( isOctalDigit( c ) ) return c;
-		return null;
+		return box( nextOctalInt() );
+	}
+
+  /**
+   *
+   * @return the next code point if it is an octal digit, otherwise {@link #EOF}
+   */
+  public int nextOctalInt() {
+		int c = nextInt();
+		if ( PushbackString.isOctalDigit( c ) ) return c;
+		return EOF;
 	}
 
 	  /**
@@ -87,11 +108,27 @@ public class PushBackSequenceImpl extends AbstractPushbackSequence<Integer>{
      */
     public Integer peek() {
 		if ( pushback != null ) return pushback;
-		if ( input == null ) return null;
-		if ( input.length() == 0 ) return null;
-		if ( index >= input.length() ) return null;		
+		return box( peekInt() );
+	}
+
+    /**
+     * Return the next codePoint without affecting the current index.
+     * @return the next code point, or {@link #EOF}
+     */
+    public int peekInt() {
+		if ( pushback != null ) return pushback.intValue();
+		if ( input == null ) return EOF;
+		if ( index >= input.length() ) return EOF;
 		return input.codePointAt(index);
 	}
+
+    /**
+     *
+     * @param c
+     */
+    public void pushbackInt( int c ) {
+		pushback = box( c );
+	}
 	
     /**
      * Test to see if the next codePoint is a particular value without affecting the current index.
@@ -134,4 +171,11 @@ public class PushBackSequenceImpl extends AbstractPushbackSequence<Integer>{
 		return output;
 	}
 
+    /**
+     * Adapts a primitive code point to the boxed API.
+     */
+    private static Integer box( int c ) {
+		return c == EOF ? null : Integer.valueOf( c );
+	}
+
 }
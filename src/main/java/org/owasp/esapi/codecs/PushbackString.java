@@ -74,21 +74,27 @@ public class PushbackString extends AbstractPushbackSequence<Character> {
 	 * @see org.owasp.esapi.codecs.PushbackSequence#next()
 	 */
 	public Character next() {
+		return box(nextInt());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.owasp.esapi.codecs.IntPushbackSequence#nextInt()
+	 */
+	public int nextInt() {
 		if (pushback != null) {
-			Character save = pushback;
+			char save = pushback.charValue();
 			pushback = null;
 			return save;
 		}
 		if (input == null){
-			return null;
-		}
-		if (input.length() == 0){
-			return null;
+			return EOF;
 		}
 		if (index >= input.length()){
-			return null;
+			return EOF;
 		}
-		return Character.valueOf(input.charAt(index++));
+		return input.charAt(index++);
 	}
 
 	/*
@@ -97,14 +103,20 @@ public class PushbackString extends AbstractPushbackSequence<Character> {
 	 * @see org.owasp.esapi.codecs.PushbackSequence#nextHex()
 	 */
 	public Character nextHex() {
-		Character c = next();
-		if (c == null){
-			return null;
-		}
+		return box(nextHexInt());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.owasp.esapi.codecs.IntPushbackSequence#nextHexInt()
+	 */
+	public int nextHexInt() {
+		int c = nextInt();
 		if (isHexDigit(c)){
 			return c;
 		}
-		return null;
+		return EOF;
 	}
 
 	/*
@@ -113,14 +125,20 @@ public class PushbackString extends AbstractPushbackSequence<Character> {
 	 * @see org.owasp.esapi.codecs.PushbackSequence#nextOctal()
 	 */
 	public Character nextOctal() {
-		Character c = next();
-		if (c == null){
-			return null;
-		}
+		return box(nextOctalInt());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.owasp.esapi.codecs.IntPushbackSequence#nextOctalInt()
+	 */
+	public int nextOctalInt() {
+		int c = nextInt();
 		if (isOctalDigit(c)){
 			return c;
 		}
-		return null;
+		return EOF;
 	}
 
 	/**
@@ -134,7 +152,17 @@ public class PushbackString extends AbstractPushbackSequence<Character> {
 		if (c == null){
 			return false;
 		}
-		char ch = c.charValue();
+		return isHexDigit((int) c.charValue());
+	}
+
+	/**
+	 * Returns true if the parameter character is a hexidecimal digit 0 through
+	 * 9, a through f, or A through F.
+	 * 
+	 * @param ch
+	 * @return false for {@link IntPushbackSequence#EOF}.
+	 */
+	public static boolean isHexDigit(int ch) {
 		return (ch >= '0' && ch <= '9') || (ch >= 'a' && ch <= 'f') || (ch >= 'A' && ch <= 'F');
 	}
 
@@ -148,7 +176,16 @@ public class PushbackString extends AbstractPushbackSequence<Character> {
 		if (c == null){
 			return false;
 		}
-		char ch = c.charValue();
+		return isOctalDigit((int) c.charValue());
+	}
+
+	/**
+	 * Returns true if the parameter character is an octal digit 0 through 7.
+	 * 
+	 * @param ch
+	 * @return false for {@link IntPushbackSequence#EOF}.
+	 */
+	public static boolean isOctalDigit(int ch) {
 		return ch >= '0' && ch <= '7';
 	}
 
@@ -161,16 +198,25 @@ public class PushbackString extends AbstractPushbackSequence<Character> {
 		if (pushback != null){
 			return pushback;
 		}
-		if (input == null){
-			return null;
+		return box(peekInt());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.owasp.esapi.codecs.IntPushbackSequence#peekInt()
+	 */
+	public int peekInt() {
+		if (pushback != null){
+			return pushback.charValue();
 		}
-		if (input.length() == 0){
-			return null;
+		if (input == null){
+			return EOF;
 		}
 		if (index >= input.length()){
-			return null;
+			return EOF;
 		}
-		return Character.valueOf(input.charAt(index));
+		return input.charAt(index);
 	}
 
 	/*
@@ -194,6 +240,15 @@ public class PushbackString extends AbstractPushbackSequence<Character> {
 		return input.charAt(index) == c;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.owasp.esapi.codecs.IntPushbackSequence#pushbackInt(int)
+	 */
+	public void pushbackInt(int c) {
+		pushback = box(c);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -225,4 +280,11 @@ public class PushbackString extends AbstractPushbackSequence<Character> {
 		}
 		return output;
 	}
+
+	/**
+	 * Adapts a primitive character to the boxed API.
+	 */
+	private static Character box(int c) {
+		return c == EOF ? null : Character.valueOf((char) c);
+	}
 }
\ No newline at end of file
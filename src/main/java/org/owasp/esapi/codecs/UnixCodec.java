@@ -51,6 +51,14 @@ public class UnixCodec extends AbstractCharacterCodec {
 	}
 	
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public char[] getDecodeTriggers() {
+		return new char[] { '\\' };
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * 
@@ -15,6 +15,8 @@
  */
 package org.owasp.esapi.codecs;
 
+import java.io.IOException;
+
 import org.owasp.esapi.EncoderConstants;
 
 
@@ -38,6 +40,23 @@ public class VBScriptCodec extends AbstractCharacterCodec {
 	 */
     public String encode(char[] immune, String input) {
     	StringBuilder sb = new StringBuilder();
+    	try {
+    		encode(immune, input, sb);
+    	} catch (IOException e) {
+    		// StringBuilder never throws IOException
+    		throw new IllegalStateException(e);
+    	}
+		return sb.toString();
+    }
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * Quoting depends on the surrounding characters, so this codec writes 
+	 * character by character and does not use the pass-through fast path.
+	 */
+	@Override
+    public void encode(char[] immune, CharSequence input, Appendable out) throws IOException {
 		boolean encoding = false;
 		boolean inquotes = false;
 		for ( int i=0; i<input.length(); i++ ) {
@@ -45,22 +64,21 @@ public class VBScriptCodec extends AbstractCharacterCodec {
 			
 			// handle normal characters and surround them with quotes
 			if (containsCharacter(c, EncoderConstants.CHAR_ALPHANUMERICS) || containsCharacter(c, immune)) {
-				if ( encoding && i > 0 ) sb.append( "&" );
-				if ( !inquotes && i > 0 ) sb.append( "\"" );
-				sb.append( c );
+				if ( encoding && i > 0 ) out.append( "&" );
+				if ( !inquotes && i > 0 ) out.append( "\"" );
+				out.append( c );
 				inquotes = true;
 				encoding = false;
 				
 			// handle characters that need encoding
 			} else {
-				if ( inquotes && i < input.length() ) sb.append( "\"" );
-				if ( i > 0 ) sb.append( "&" );
-				sb.append( encodeCharacter( immune, Character.valueOf( c ) ) );
+				if ( inquotes && i < input.length() ) out.append( "\"" );
+				if ( i > 0 ) out.append( "&" );
+				out.append( encodeCharacter( immune, Character.valueOf( c ) ) );
 				inquotes = false;
 				encoding = true;
 			}
 		}
-		return sb.toString();
     }
 
 
@@ -88,6 +106,14 @@ public class VBScriptCodec extends AbstractCharacterCodec {
 	
 	
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public char[] getDecodeTriggers() {
+		return new char[] { '\"' };
+	}
+
 	/**
 	 * Returns the decoded version of the character starting at index, or
 	 * null if no decoding is possible.
@@ -52,6 +52,14 @@ public class WindowsCodec extends AbstractCharacterCodec {
 	}
 	
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public char[] getDecodeTriggers() {
+		return new char[] { '^' };
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * 
@@ -78,6 +78,26 @@ public class XMLEntityCodec extends AbstractCharacterCodec
 		return "&#x" + Integer.toHexString(c.charValue()) + ";";
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * Space and tab are never encoded in addition to the alphanumerics.
+	 */
+	@Override
+	protected boolean isPassThrough(char[] immune, char c)
+	{
+		return c == ' ' || c == '\t' || super.isPassThrough(immune, c);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public char[] getDecodeTriggers()
+	{
+		return new char[] { '&' };
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * 
@@ -93,39 +113,49 @@ public class XMLEntityCodec extends AbstractCharacterCodec
 	 */
 	public Character decodeCharacter(PushbackSequence<Character> input)
 	{
-		Character ret = null;
-		Character first;
-		Character second;
+		return decodeBoxed(input);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * Returns the decoded version of the character starting at index, or
+	 * EOF if no decoding is possible.
+	 */
+	@Override
+	public int decodeInt(IntPushbackSequence input)
+	{
+		int ret = IntPushbackSequence.EOF;
+		int first;
+		int second;
 
 		input.mark();
 		try
 		{
-			first = input.next();
-			if(first == null)
-				return null;
+			first = input.nextInt();
 
-			// if this is not an encoded character, return null
+			// if this is not an encoded character, return EOF
 			if(first != '&')
-				return null;
+				return IntPushbackSequence.EOF;
 
 			// test for numeric encodings
-			second = input.next();
-			if(second==null)
-				return null;
+			second = input.nextInt();
+			if(second == IntPushbackSequence.EOF)
+				return IntPushbackSequence.EOF;
 
 			if(second=='#')
 			{	// handle numbers
 				ret = getNumericEntity(input);
 			}
-			else if(Character.isLetter(second.charValue()))
+			else if(Character.isLetter(second))
 			{	// handle entities
-				input.pushback(second);
+				input.pushbackInt(second);
 				ret = getNamedEntity(input);
 			}
 		}
 		finally
 		{
-			if(ret == null)
+			if(ret == IntPushbackSequence.EOF)
 				input.reset();
 		}
 		return ret;
@@ -135,87 +165,71 @@ public class XMLEntityCodec extends AbstractCharacterCodec
 	 * Converts the rest of a numeric entity to a character.
 	 * @param input The input to read from. It is assumed that input
 	 * 	is positioned at the character after the &amp;#
-	 * @return The character decoded or null on failure.
+	 * @return The character decoded or EOF on failure.
 	 */
-	private static Character getNumericEntity(PushbackSequence<Character> input)
+	private static int getNumericEntity(IntPushbackSequence input)
 	{
-		Character first = input.peek();
+		int first = input.peekInt();
 
-		if(first == null)
-			return null;
+		if(first == IntPushbackSequence.EOF)
+			return IntPushbackSequence.EOF;
 
 		if(first=='x'||first=='X')
 		{
-			input.next();	// nuke X
+			input.nextInt();	// nuke X
 			return parseHex(input);
 		}
 		return parseNumber(input);
 	}
 
-	/**
-	 * Convert a integer code point to a Character.
-	 * @param i the integer
-	 * @return i as a Character or null if i is a invalid code point
-	 * 	or outside of the Java char range.
-	 */
-	private static Character int2char(int i)
-	{
-		if(!Character.isValidCodePoint(i))
-			return null;
-		if(!(Character.MIN_VALUE <= i && i <= Character.MAX_VALUE))
-			return null;	// we can't 0x010000-0x100000 currently
-		return (char)i;
-	}
-
 	/**
 	 * Converts the rest of a decimal numeric entity to a character.
 	 * @param input The input to read from. It is assumed that input
 	 * 	is positioned at the character after the &amp;# and that
 	 *	the next char is not a 'x' or 'X'.
-	 * @return The character decoded or null on failutre.
+	 * @return The character decoded or EOF on failutre.
 	 */
-	private static Character parseNumber(PushbackSequence<Character> input)
+	private static int parseNumber(IntPushbackSequence input)
 	{
-		StringBuilder sb = new StringBuilder();
-		Character c;
-		while((c=input.next())!=null)
+		int i = 0;
+		int digits = 0;
+		int c;
+		while((c=input.nextInt())!=IntPushbackSequence.EOF)
 		{
 			// end of entity?
 			if(c==';')
 				break;
 
 			// check for digit
-			if(!Character.isDigit(c.charValue()))
-				return null;
-			sb.append(c);
-		}
-		if(c==null)
-			return null;	// not ';' termintated
-		if(sb.length()<=0)	// no digits
-			return null;
-		try
-		{
-			return int2char(Integer.parseInt(sb.toString()));
-		}
-		catch(NumberFormatException e)
-		{
-			return null;
+			int digit = Character.digit(c, 10);
+			if(digit < 0)
+				return IntPushbackSequence.EOF;
+			i = i * 10 + digit;
+			if(i > Character.MAX_VALUE)
+				return IntPushbackSequence.EOF;	// we can't 0x010000-0x100000 currently
+			digits++;
 		}
+		if(c==IntPushbackSequence.EOF)
+			return IntPushbackSequence.EOF;	// not ';' termintated
+		if(digits<=0)	// no digits
+			return IntPushbackSequence.EOF;
+		return i;
 	}
 
 	/**
 	 * Converts the rest of a hexidecimal numeric entity to a character.
 	 * @param input The input to read from. It is assumed that input
 	 * 	is positioned at the character after the &amp;#[xX]
-	 * @return The character decoded or null on failutre.
+	 * @return The character decoded or EOF on failutre.
 	 */
-	private static Character parseHex(PushbackSequence<Character> input)
+	private static int parseHex(IntPushbackSequence input)
 	{
-		Character c;
-		StringBuilder sb = new StringBuilder();
-		input_loop: while((c=input.next())!=null)
+		int c;
+		int i = 0;
+		int digits = 0;
+		input_loop: while((c=input.nextInt())!=IntPushbackSequence.EOF)
 		{
-			switch(c.charValue())
+			switch(c)
 			{
 				case 'a':
 				case 'b':
@@ -238,61 +252,56 @@ public class XMLEntityCodec extends AbstractCharacterCodec
 				case '7':
 				case '8':
 				case '9':
-					sb.append(c);
+					i = (i << 4) | Character.digit(c, 16);
+					if(i > Character.MAX_VALUE)
+						return IntPushbackSequence.EOF;	// we can't 0x010000-0x100000 currently
+					digits++;
 					break;
 				case ';':
 					break input_loop;
 				default:
-					return null;
+					return IntPushbackSequence.EOF;
 			}
 		}
-		if(c==null)
-			return null;	// not ';' termintated
-		if(sb.length()<=0)	// no digits
-			return null;
-		try
-		{
-			return int2char(Integer.parseInt(sb.toString(),16));
-		}
-		catch(NumberFormatException e)
-		{
-			return null;
-		}
+		if(c==IntPushbackSequence.EOF)
+			return IntPushbackSequence.EOF;	// not ';' termintated
+		if(digits<=0)	// no digits
+			return IntPushbackSequence.EOF;
+		return i;
 	}
 
 	/**
 	 * 
 	 * Converts the rest of a named entity to a character.
-	 * null if no decoding is possible.
+	 * EOF if no decoding is possible.
 	 * @param input The input to read from. It is assumed that input
 	 * 	is positioned at the character after the &amp;.
-	 * @return The character decoded or null on failutre.
+	 * @return The character decoded or EOF on failutre.
 	 */
-	private Character getNamedEntity(PushbackSequence<Character> input)
+	private int getNamedEntity(IntPushbackSequence input)
 	{
 		StringBuilder possible = new StringBuilder();
 		Map.Entry<CharSequence,Character> entry;
 		int len;
 
-		// kludge around PushbackString....
-		len = Math.min(input.remainder().length(), entityToCharacterMap.getMaxKeyLength()+1);
-		for(int i=0;i<len;i++)
-			possible.append(Character.toLowerCase(input.next()));
+		len = entityToCharacterMap.getMaxKeyLength()+1;
+		for(int i=0;i<len && input.hasNext();i++)
+			possible.append(Character.toLowerCase((char) input.nextInt()));
 
 		// look up the longest match
 		entry = entityToCharacterMap.getLongestMatch(possible);
 		if(entry == null)
-			return null;	// no match, caller will reset input
+			return IntPushbackSequence.EOF;	// no match, caller will reset input
 		len = entry.getKey().length();	// what matched's length
 		if(possible.length() <= len || possible.charAt(len)!=';')
-			return null;	// not semicolon
+			return IntPushbackSequence.EOF;	// not semicolon
 
 		// fixup input
 		input.reset();
-		input.next();	// read &
+		input.nextInt();	// read &
 		for(int i=0;i<len;i++)
-			input.next();
-		input.next();	// read semicolen
-		return entry.getValue();
+			input.nextInt();
+		input.nextInt();	// read semicolen
+		return entry.getValue().charValue();
 	}
 }
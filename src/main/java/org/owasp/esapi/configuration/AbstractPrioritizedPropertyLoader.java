@@ -12,6 +12,9 @@ public abstract class AbstractPrioritizedPropertyLoader implements EsapiProperty
 
     private final int priority;
 
+    /** Modification time of the file when it was last loaded, 0 if it did not exist. */
+    private long lastModified;
+
     public AbstractPrioritizedPropertyLoader(String filename, int priority) {
         this.priority = priority;
         this.filename = filename;
@@ -41,12 +44,33 @@ public abstract class AbstractPrioritizedPropertyLoader implements EsapiProperty
         return filename;
     }
 
+    /**
+     * Loads the configuration file again if it has been modified, created or deleted since it was last loaded.
+     * @return true if the properties were reloaded
+     */
+    public synchronized boolean reloadIfModified() {
+        if (modificationTime(new File(filename)) == lastModified) {
+            return false;
+        }
+        initProperties();
+        return true;
+    }
+
+    /**
+     * Get a property as loaded from the configuration file, without throwing when it is missing.
+     * @return property value, or null if the file does not have the property
+     */
+    synchronized String findProperty(String propertyName) {
+        return properties.getProperty(propertyName);
+    }
+
     /**
      * Initializes properties object and fills it with data from configuration file.
      */
-    private void initProperties() {
+    private synchronized void initProperties() {
         properties = new Properties();
         File file = new File(filename);
+        lastModified = modificationTime(file);
         if (file.exists() && file.isFile()) {
             loadPropertiesFromFile(file);
         } else {
@@ -54,6 +78,10 @@ public abstract class AbstractPrioritizedPropertyLoader implements EsapiProperty
         }
     }
 
+    private static long modificationTime(File file) {
+        return file.isFile() ? file.lastModified() : 0L;
+    }
+
     /**
      * Method that loads the data from configuration file to properties object.
      * @param file
@@ -1,9 +1,13 @@
 package org.owasp.esapi.configuration;
 
+import org.owasp.esapi.ESAPI;
 import org.owasp.esapi.configuration.consts.EsapiConfiguration;
 import org.owasp.esapi.errors.ConfigurationException;
 
+import java.io.IOException;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static org.owasp.esapi.configuration.EsapiPropertyLoaderFactory.createPropertyLoader;
 
@@ -12,13 +16,112 @@ import static org.owasp.esapi.configuration.EsapiPropertyLoaderFactory.createPro
  * correct source. Uses following system properties to find configuration files:
  * - org.owasp.esapi.devteam - lower priority dev file path
  * - org.owasp.esapi.opsteam - higher priority ops file path
+ * <p>
+ * Resolved values are kept per type, so a lookup after the first one is a single map read. They are dropped when
+ * a loader's file changes, which is checked at most once every {@link #RELOAD_CHECK_INTERVAL} milliseconds, or
+ * when {@link #reloadIfModified()} is called. The {@code find*} methods return {@code null} instead of throwing
+ * when a property is not found.
  */
 public class EsapiPropertyManager implements EsapiPropertyLoader {
 
+    /** Cached when no loader has the property with a value of the right type. */
+    private static final Object NOT_FOUND = new Object();
+
+    /** Cached in place of a null value, which the maps cannot hold. */
+    private static final Object NULL_VALUE = new Object();
+
+    /**
+     * The property types, each with its own resolved values. A property is resolved to the value of the first
+     * loader that has it with a value of the right type, as the throwing lookups of the loaders always did.
+     */
+    private enum PropertyType {
+        INT {
+            Object parse(String value) {
+                try {
+                    return Integer.valueOf(value);
+                } catch (NumberFormatException e) {
+                    return NOT_FOUND;
+                }
+            }
+        },
+        BOOLEAN {
+            Object parse(String value) {
+                if (value.equalsIgnoreCase("true") || value.equalsIgnoreCase("yes")) {
+                    return Boolean.TRUE;
+                }
+                if (value.equalsIgnoreCase("false") || value.equalsIgnoreCase("no")) {
+                    return Boolean.FALSE;
+                }
+                return NOT_FOUND;
+            }
+        },
+        STRING {
+            Object parse(String value) {
+                return value;
+            }
+        },
+        BYTE_ARRAY {
+            Object parse(String value) {
+                try {
+                    return ESAPI.encoder().decodeFromBase64(value);
+                } catch (IOException e) {
+                    return NOT_FOUND;
+                }
+            }
+        };
+
+        /**
+         * @return the value converted to this type, or NOT_FOUND if it cannot be.
+         */
+        abstract Object parse(String value);
+    }
+
+    /** Minimum time in milliseconds between two checks of whether a loader's file has changed. */
+    public static final long RELOAD_CHECK_INTERVAL = 5000;
+
     protected TreeSet<AbstractPrioritizedPropertyLoader> loaders;
 
+    /** Replaced as a whole when a loader reloads, so a value resolved before the reload is never kept. */
+    private volatile ConcurrentMap<String, Object>[] resolved;
+
+    private volatile int generation = 0;
+
+    private volatile long nextReloadCheck;
+
     public EsapiPropertyManager() {
         initLoaders();
+        resolved = newResolved();
+        nextReloadCheck = System.currentTimeMillis() + RELOAD_CHECK_INTERVAL;
+    }
+
+    /**
+     * Reloads the files of the loaders that have been modified since they were last loaded, and drops the values
+     * resolved from them.
+     *
+     * @return true if any loader was reloaded
+     */
+    public synchronized boolean reloadIfModified() {
+        nextReloadCheck = System.currentTimeMillis() + RELOAD_CHECK_INTERVAL;
+        boolean reloaded = false;
+        for (AbstractPrioritizedPropertyLoader loader : loaders) {
+            reloaded |= loader.reloadIfModified();
+        }
+        if (reloaded) {
+            resolved = newResolved();
+            generation++;
+        }
+        return reloaded;
+    }
+
+    /**
+     * Get a number that changes whenever the loaders reload their files, so callers that keep values derived
+     * from this manager know when to drop them.
+     *
+     * @return the number of times the loaders have been reloaded
+     */
+    public int generation() {
+        checkReload();
+        return generation;
     }
 
     /**
@@ -26,14 +129,11 @@ public class EsapiPropertyManager implements EsapiPropertyLoader {
      */
     @Override
     public int getIntProp(String propertyName) throws ConfigurationException {
-        for (AbstractPrioritizedPropertyLoader loader : loaders) {
-            try {
-                return loader.getIntProp(propertyName);
-            } catch (ConfigurationException e) {
-                System.err.println("Property not found in " + loader.name());
-            }
+        Object value = resolve(PropertyType.INT, propertyName);
+        if (value == NOT_FOUND) {
+            throw notFound(propertyName);
         }
-        throw new ConfigurationException("Could not find property " + propertyName + " in configuration");
+        return (Integer) value;
     }
 
     /**
@@ -41,14 +141,11 @@ public class EsapiPropertyManager implements EsapiPropertyLoader {
      */
     @Override
     public byte[] getByteArrayProp(String propertyName) throws ConfigurationException {
-        for (AbstractPrioritizedPropertyLoader loader : loaders) {
-            try {
-                return loader.getByteArrayProp(propertyName);
-            } catch (ConfigurationException e) {
-                System.err.println("Property not found in " + loader.name());
-            }
+        Object value = resolve(PropertyType.BYTE_ARRAY, propertyName);
+        if (value == NOT_FOUND) {
+            throw notFound(propertyName);
         }
-        throw new ConfigurationException("Could not find property " + propertyName + " in configuration");
+        return value == NULL_VALUE ? null : ((byte[]) value).clone();
     }
 
     /**
@@ -56,14 +153,11 @@ public class EsapiPropertyManager implements EsapiPropertyLoader {
      */
     @Override
     public Boolean getBooleanProp(String propertyName) throws ConfigurationException {
-        for (AbstractPrioritizedPropertyLoader loader : loaders) {
-            try {
-                return loader.getBooleanProp(propertyName);
-            } catch (ConfigurationException e) {
-                System.err.println("Property not found in " + loader.name());
-            }
+        Object value = resolve(PropertyType.BOOLEAN, propertyName);
+        if (value == NOT_FOUND) {
+            throw notFound(propertyName);
         }
-        throw new ConfigurationException("Could not find property " + propertyName + " in configuration");
+        return (Boolean) value;
     }
 
     /**
@@ -71,14 +165,102 @@ public class EsapiPropertyManager implements EsapiPropertyLoader {
      */
     @Override
     public String getStringProp(String propertyName) throws ConfigurationException {
-        for (AbstractPrioritizedPropertyLoader loader : loaders) {
-            try {
-                return loader.getStringProp(propertyName);
-            } catch (ConfigurationException e) {
-                System.err.println("Property : " + propertyName + " not found in " + loader.name());
+        Object value = resolve(PropertyType.STRING, propertyName);
+        if (value == NOT_FOUND) {
+            throw notFound(propertyName);
+        }
+        return (String) value;
+    }
+
+    /**
+     * Get an int type property without throwing when it is missing.
+     *
+     * @return property value, or null when no loader has the property as an int.
+     */
+    public Integer findIntProp(String propertyName) {
+        return (Integer) valueOf(resolve(PropertyType.INT, propertyName));
+    }
+
+    /**
+     * Get a byte array type property without throwing when it is missing.
+     *
+     * @return a copy of the property value, or null when no loader has the property as a byte array.
+     */
+    public byte[] findByteArrayProp(String propertyName) {
+        byte[] value = (byte[]) valueOf(resolve(PropertyType.BYTE_ARRAY, propertyName));
+        return value == null ? null : value.clone();
+    }
+
+    /**
+     * Get a Boolean type property without throwing when it is missing.
+     *
+     * @return property value, or null when no loader has the property as a Boolean.
+     */
+    public Boolean findBooleanProp(String propertyName) {
+        return (Boolean) valueOf(resolve(PropertyType.BOOLEAN, propertyName));
+    }
+
+    /**
+     * Get any property without throwing when it is missing.
+     *
+     * @return property value, or null when no loader has the property.
+     */
+    public String findStringProp(String propertyName) {
+        return (String) valueOf(resolve(PropertyType.STRING, propertyName));
+    }
+
+    /**
+     * @return the resolved value, {@code NULL_VALUE} or {@code NOT_FOUND}.
+     */
+    private Object resolve(PropertyType type, String propertyName) {
+        checkReload();
+        ConcurrentMap<String, Object> values = resolved[type.ordinal()];
+        Object value = values.get(propertyName);
+        if (value == null) {
+            value = NOT_FOUND;
+            for (AbstractPrioritizedPropertyLoader loader : loaders) {
+                String property = loader.findProperty(propertyName);
+                if (property != null) {
+                    value = type.parse(property);
+                    if (value != NOT_FOUND) {
+                        break;
+                    }
+                }
+            }
+            if (value == null) {
+                value = NULL_VALUE;
+            }
+            values.put(propertyName, value);
+        }
+        return value;
+    }
+
+    private void checkReload() {
+        if (System.currentTimeMillis() - nextReloadCheck >= 0) {
+            synchronized (this) {
+                // another thread may have done the check while this one waited
+                if (System.currentTimeMillis() - nextReloadCheck >= 0) {
+                    reloadIfModified();
+                }
             }
         }
-        throw new ConfigurationException("Could not find property " + propertyName + " in configuration");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ConcurrentMap<String, Object>[] newResolved() {
+        ConcurrentMap<String, Object>[] maps = new ConcurrentMap[PropertyType.values().length];
+        for (int i = 0; i < maps.length; i++) {
+            maps[i] = new ConcurrentHashMap<String, Object>();
+        }
+        return maps;
+    }
+
+    private static Object valueOf(Object resolved) {
+        return resolved == NOT_FOUND || resolved == NULL_VALUE ? null : resolved;
+    }
+
+    private static ConfigurationException notFound(String propertyName) {
+        return new ConfigurationException("Could not find property " + propertyName + " in configuration");
     }
 
     private void initLoaders() {
@@ -429,6 +429,45 @@ public final class CipherText implements Serializable {
 	    }
 	}
 	
+	/**
+	 * Same as {@link #setCiphertext(byte[])} but keeps {@code ciphertext} rather
+	 * than a copy of it, so the caller must not change it afterwards. This is only
+	 * used by {@code CipherTextSerializer} when reading a serialized ciphertext.
+	 * (Has package level access.)
+	 */
+	void storeCiphertext(byte[] ciphertext) throws EncryptionException {
+	    if ( macComputed() ) {
+	        String logMsg = "Programming error: Attempt to set ciphertext after MAC already computed.";
+	        logger.error(Logger.SECURITY_FAILURE, logMsg);
+	        throw new EncryptionException("MAC already set; cannot store new raw ciphertext", logMsg);
+	    }
+	    if ( ciphertext == null || ciphertext.length == 0 ) {
+	        throw new EncryptionException("Encryption faled; no ciphertext",
+	                                      "Ciphertext may not be null or 0 length!");
+	    }
+	    if ( isCollected(CipherTextFlags.CIPHERTEXT) ) {
+	        logger.warning(Logger.SECURITY_FAILURE, "Raw ciphertext was already set; resetting.");
+	    }
+	    raw_ciphertext_ = ciphertext;
+	    received(CipherTextFlags.CIPHERTEXT);
+	    setEncryptionTimestamp();
+	}
+
+	/**
+	 * Same as {@link #getRawCipherText()} and {@link #getSeparateMAC()} but
+	 * without copying, so the caller must not change the result. These are only
+	 * used by {@code CipherTextSerializer} when serializing. (Have package level
+	 * access.)
+	 */
+	byte[] rawCipherText() {
+	    return raw_ciphertext_;
+	}
+
+	/** @see #rawCipherText() */
+	byte[] separateMAC() {
+	    return separate_mac_;
+	}
+
 	/**
 	 * Validate the message authentication code (MAC) associated with the ciphertext.
 	 * This is mostly meant to ensure that an attacker has not replaced the IV
@@ -502,8 +541,10 @@ public final class CipherText implements Serializable {
 	    }
 	    
 	    // If we are supposed to be using a (separate) MAC, also make sure
-	    // that it has been computed/stored.
-	    boolean requiresMAC = ESAPI.securityConfiguration().useMACforCipherText();
+	    // that it has been computed/stored. Combined cipher modes such as GCM
+	    // authenticate the ciphertext themselves and never get a separate MAC.
+	    boolean requiresMAC = ESAPI.securityConfiguration().useMACforCipherText() &&
+	                          ! CryptoHelper.isCombinedCipherMode(getCipherMode());
 	    if (  requiresMAC && ! macComputed() ) {
 	        String msg = "Programming error: MAC is required for this cipher mode (" +
 	                     getCipherMode() + "), but MAC has not yet been " +
@@ -536,10 +577,9 @@ public final class CipherText implements Serializable {
             if ( isCollected(CipherTextFlags.CIPHERTEXT) ) {
                 logger.warning(Logger.SECURITY_FAILURE, "Raw ciphertext was already set; resetting.");
             }
-            raw_ciphertext_ = new byte[ ciphertext.length ];
-            CryptoHelper.copyByteArray(ciphertext, raw_ciphertext_);
-            received(CipherTextFlags.CIPHERTEXT);
-            setEncryptionTimestamp();
+            byte[] copy = new byte[ ciphertext.length ];
+            CryptoHelper.copyByteArray(ciphertext, copy);
+            storeCiphertext(copy);
         } else {
             String logMsg = "Programming error: Attempt to set ciphertext after MAC already computed.";
             logger.error(Logger.SECURITY_FAILURE, logMsg);
@@ -572,12 +612,12 @@ public final class CipherText implements Serializable {
                     throw new EncryptionException("Encryption failed -- mandatory IV missing", // DISCUSS - also log? See below.
                                                   "Cipher mode " + getCipherMode() + " has null or empty IV");
                 }
-            } else if ( iv.length != getBlockSize() ) {
+            } else if ( iv.length != getBlockSize() && ! CryptoHelper.isCombinedCipherMode(getCipherMode()) ) {
 // TODO: FIXME: As per email from Jeff Walton to Kevin Wall dated 12/03/2013,
 //			  this is not always true. E.g., for CCM, the IV length is supposed
 //			  to be 7, 8,  7, 8, 9, 10, 11, 12, or 13 octets because of
 //			  it's formatting function, the restof the octets used by the
-//			  nonce/counter.
+//			  nonce/counter. Combined cipher modes such as GCM are therefore exempt.
                     throw new EncryptionException("Encryption failed -- bad parameters passed to encrypt",  // DISCUSS - also log? See below.
                                                   "IV length does not match cipher block size of " + getBlockSize());
             }
@@ -794,6 +834,7 @@ public final class CipherText implements Serializable {
         // checked things in the public or protected methods where appropriate.
         assert raw_ciphertext_ != null && raw_ciphertext_.length != 0 : "Raw ciphertext may not be null or empty.";
         assert authKey != null && authKey.getEncoded().length != 0 : "Authenticity secret key may not be null or zero length.";
+        Mac mac = null;
         try {
         	// IMPORTANT NOTE: The NSA review was (apparently) OK with using HmacSHA1
         	// to calculate the MAC that ensures authenticity of the IV+ciphertext.
@@ -803,7 +844,7 @@ public final class CipherText implements Serializable {
         	// to be just that much longer, which is probably unacceptable when encrypting
         	// short strings.
             SecretKey sk = new SecretKeySpec(authKey.getEncoded(), "HmacSHA1");
-            Mac mac = Mac.getInstance("HmacSHA1");
+            mac = CryptoPrimitivePool.getMac("HmacSHA1");
             mac.init(sk);
             if ( requiresIV() ) {
                 mac.update( getIV() );
@@ -816,6 +857,8 @@ public final class CipherText implements Serializable {
         } catch (InvalidKeyException e) {
             logger.error(Logger.SECURITY_FAILURE, "Cannot comput MAC; invalid 'key' for HmacSHA1.", e);
             return null;
+        } finally {
+            CryptoPrimitivePool.release(mac);
         }
     }
     
@@ -1,15 +1,17 @@
 package org.owasp.esapi.crypto;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InvalidClassException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
 import java.util.Date;
 
 import org.owasp.esapi.ESAPI;
 import org.owasp.esapi.Logger;
-import org.owasp.esapi.util.ByteConversionUtil;
 import org.owasp.esapi.errors.EncryptionException;
 
 /**
@@ -85,52 +87,150 @@ public class CipherTextSerializer {
      * Java serialization.
      */
     public byte[] asSerializedByteArray() {
-        int kdfInfo = cipherText_.getKDFInfo();
-        debug("asSerializedByteArray: kdfInfo = " + kdfInfo);
+        byte[] cipherXform = transformationBytes();
+        byte[] serializedObj = new byte[ serializedLength(cipherXform) ];
+        write(ByteBuffer.wrap(serializedObj), cipherXform);
+        return serializedObj;
+    }
+
+    /**
+     * Return the number of bytes that the portable serialization of this
+     * {@code CipherText} object takes, e.g., to size a buffer to pass to
+     * {@link #writeTo(ByteBuffer)}.
+     * @return The exact length of {@link #asSerializedByteArray()}.
+     */
+    public int serializedLength() {
+        return serializedLength(transformationBytes());
+    }
+
+    /**
+     * Return the portable serialization of this {@code CipherText} object in a
+     * new buffer of exactly the serialized length.
+     * @param direct	If true, a direct buffer is allocated, which NIO channels can
+     * 					write without copying it first; otherwise a heap buffer.
+     * @return The serialization, positioned at 0 with its limit at the end.
+     */
+    public ByteBuffer asSerializedByteBuffer(boolean direct) {
+        byte[] cipherXform = transformationBytes();
+        int length = serializedLength(cipherXform);
+        ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length);
+        write(buffer, cipherXform);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Write the portable serialization of this {@code CipherText} object into
+     * a buffer at its current position, which is advanced past it. The byte
+     * order of the buffer is left unchanged; the serialization is always in
+     * network byte order.
+     * @param buffer	The buffer to write to.
+     * @throws BufferOverflowException Thrown, without anything being written, if
+     *          fewer than {@link #serializedLength()} bytes remain in {@code buffer}.
+     */
+    public void writeTo(ByteBuffer buffer) {
+        if ( buffer == null ) {
+            throw new IllegalArgumentException("ByteBuffer cannot be null.");
+        }
+        byte[] cipherXform = transformationBytes();
+        if ( buffer.remaining() < serializedLength(cipherXform) ) {
+            throw new BufferOverflowException();
+        }
+        ByteBuffer out = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        write(out, cipherXform);
+        buffer.position(out.position());
+    }
+
+    /**
+     * Return the start of the portable serialization of this {@code CipherText}
+     * object: everything that comes before the raw ciphertext length, that is the
+     * KDF info, the encryption timestamp, the cipher transformation, the key and
+     * block sizes and the IV. This is written ahead of the ciphertext by
+     * {@link org.owasp.esapi.Encryptor#encrypt(javax.crypto.SecretKey, InputStream, java.io.OutputStream)},
+     * which does not know the length of the ciphertext in advance, so the raw
+     * ciphertext need not be set. If the encryption timestamp has not been set, the
+     * current time is used.
+     * @return The serialized header.
+     * @see #readSerializedHeader(InputStream)
+     */
+    public byte[] asSerializedHeader() {
         long timestamp = cipherText_.getEncryptionTimestamp();
-        String cipherXform = cipherText_.getCipherTransformation();
+        if ( timestamp == 0 ) {
+            timestamp = System.currentTimeMillis();
+        }
         if ( cipherText_.getKeySize() >= Short.MAX_VALUE ) {
         	throw new IllegalArgumentException("Key size is too large. Max is " + Short.MAX_VALUE);
         }
-        short keySize = (short) cipherText_.getKeySize();
         if ( cipherText_.getBlockSize() >= Short.MAX_VALUE ) {
         	throw new IllegalArgumentException("Block size is too large. Max is " + Short.MAX_VALUE);
         }
-        short blockSize = (short) cipherText_.getBlockSize();
         byte[] iv = cipherText_.getIV();
         if ( iv.length >= Short.MAX_VALUE ) {
         	throw new IllegalArgumentException("IV size too large. Max is " + Short.MAX_VALUE + " bytes");
         }
-        short ivLen = (short) iv.length;
-        byte[] rawCiphertext = cipherText_.getRawCipherText();
-        int ciphertextLen = rawCiphertext.length;
-        // Coverity issue 1352406, GitHub issue # 364 - possible NPE later if assertion disabled.
-        // Replaced assertion with explicit check.
-        if ( ciphertextLen < 1 ) {
-        	throw new IllegalArgumentException("Raw ciphertext length must be >= 1 byte.");
+        byte[] cipherXform = transformationBytes();
+        byte[] header = new byte[ headerLength(cipherXform, iv) ];
+        writeHeader(ByteBuffer.wrap(header), cipherText_.getKDFInfo(), timestamp, cipherXform,
+                    (short) cipherText_.getKeySize(), (short) cipherText_.getBlockSize(), iv);
+        return header;
+    }
+
+    /**
+     * Read the start of a portable serialization of a {@code CipherText} object, as
+     * written by {@link #asSerializedHeader()}, from a stream. The stream is left
+     * positioned at the raw ciphertext length. The same checks are made as when a
+     * whole serialized {@code CipherText} is read.
+     * @param in	The stream to read from.
+     * @return A {@code CipherText} object holding the cipher specification, the IV and
+     *          the KDF info, but no raw ciphertext. The encryption timestamp is
+     *          not restored.
+     * @throws EncryptionException Thrown if the header is corrupt or there are
+     *          version mismatches, etc.
+     * @throws IOException Thrown if reading from {@code in} fails.
+     */
+    public static CipherText readSerializedHeader(InputStream in)
+        throws EncryptionException, IOException
+    {
+        if ( in == null ) {
+            throw new IllegalArgumentException("InputStream cannot be null.");
         }
-        byte[] mac = cipherText_.getSeparateMAC();
-        if ( mac.length >= Short.MAX_VALUE ) {
-        	throw new IllegalArgumentException("MAC length too large. Max is " + Short.MAX_VALUE + " bytes");
+        try {
+            return readHeader(ByteBuffer.wrap(readHeaderBytes(in))).newCipherText();
+        } catch(EncryptionException ex) {
+            throw new EncryptionException("Cannot deserialize CipherText header",
+                                          "Cannot deserialize CipherText header", ex);
+        } catch(IllegalArgumentException ex) {
+            // Unlike a byte array, a stream comes from outside, so a short or
+            // malformed header is not a program error.
+            throw new EncryptionException("Cannot deserialize CipherText header",
+                                          "Malformed CipherText header: " + ex.getMessage(), ex);
         }
-        short macLen = (short) mac.length;
-        
-        byte[] serializedObj = computeSerialization(kdfInfo,
-                                                    timestamp,
-                                                    cipherXform,
-                                                    keySize,
-                                                    blockSize,
-                                                    ivLen,
-                                                    iv,
-                                                    ciphertextLen,
-                                                    rawCiphertext,
-                                                    macLen,
-                                                    mac
-                                                   );
-        
-        return serializedObj;
     }
     
+    /**
+     * Read a portable serialization of a {@code CipherText} object from a buffer,
+     * starting at its current position, which is advanced past the serialization
+     * so that consecutive ones can be read from the same buffer. Other than the
+     * single copy of the raw ciphertext into the returned object, nothing is
+     * copied; in particular the buffer may be a slice of a larger (e.g., memory
+     * mapped or direct) buffer. The byte order of the buffer is ignored.
+     * @param buffer	The buffer to read from.
+     * @return The corresponding {@code CipherText} object.
+     * @throws EncryptionException Thrown if the serialization is corrupt or there
+     *          are version mismatches, etc. The buffer position is then unchanged.
+     */
+    public static CipherText fromSerializedByteBuffer(ByteBuffer buffer)
+        throws EncryptionException
+    {
+        if ( buffer == null ) {
+            throw new IllegalArgumentException("ByteBuffer cannot be null.");
+        }
+        ByteBuffer in = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        CipherText ct = convertToCipherText(in);
+        buffer.position(in.position());
+        return ct;
+    }
+
     /**
      * Return the actual {@code CipherText} object.
      * @return The {@code CipherText} object that we are serializing.
@@ -142,157 +242,171 @@ public class CipherTextSerializer {
         return cipherText_;
     }
       
-    /**
-     * Take all the individual elements that make of the serialized ciphertext
-     * format and put them in order and return them as a byte array.
-     * @param kdfInfo	Info about the KDF... which PRF and the KDF version {@link #asCipherText()}.
-     * @param timestamp	Timestamp when the data was encrypted. Intended to help
-     * 					facilitate key change operations and nothing more. If it is meaningless,
-     * 					then the expectations are just that the recipient should ignore it. Mostly
-     * 					intended when encrypted data is kept long term over a period of many
-     * 					key change operations.
-     * @param cipherXform	Details of how the ciphertext was encrypted. The format used
-     * 						is the same as used by {@code javax.crypto.Cipher}, namely,
-     * 						"cipherAlg/cipherMode/paddingScheme".
-     * @param keySize	The key size used for encrypting. Intended for cipher algorithms
-     * 					supporting multiple key sizes such as triple DES (DESede) or
-     * 					Blowfish.
-     * @param blockSize	The cipher block size. Intended to support cipher algorithms
-     * 					that support variable block sizes, such as Rijndael.
-     * @param ivLen		The length of the IV.
-     * @param iv		The actual IV (initialization vector) bytes.
-     * @param ciphertextLen	The length of the raw ciphertext.
-     * @param rawCiphertext	The actual raw ciphertext itself
-     * @param macLen	The length of the MAC (message authentication code).
-     * @param mac		The MAC itself.
-     * @return	A byte array representing the serialized ciphertext.
-     */
-    private byte[] computeSerialization(int kdfInfo, long timestamp,
-                                        String cipherXform, short keySize,
-                                        short blockSize,
-                                        short ivLen, byte[] iv,
-                                        int ciphertextLen, byte[] rawCiphertext,
-                                        short macLen, byte[] mac
-                                       )
-    {
-        debug("computeSerialization: kdfInfo = " + kdfInfo);
-        debug("computeSerialization: timestamp = " + new Date(timestamp));
-        debug("computeSerialization: cipherXform = " + cipherXform);
-        debug("computeSerialization: keySize = " + keySize);
-        debug("computeSerialization: blockSize = " + blockSize);
-        debug("computeSerialization: ivLen = " + ivLen);
-        debug("computeSerialization: ciphertextLen = " + ciphertextLen);
-        debug("computeSerialization: macLen = " + macLen);
-
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        writeInt(baos, kdfInfo);
-        writeLong(baos, timestamp);
-        String[] parts = cipherXform.split("/");
-        if ( parts.length != 3 ) {
-            throw new IllegalArgumentException("Program error? Malformed cipher tranformation: " + cipherXform);
-        }
-        writeString(baos, cipherXform); // Size of string is prepended to string
-        writeShort(baos, keySize);
-        writeShort(baos, blockSize);
-        writeShort(baos, ivLen);
-        if ( ivLen > 0 ) baos.write(iv, 0, iv.length);
-        writeInt(baos, ciphertextLen);
-        baos.write(rawCiphertext, 0, rawCiphertext.length);
-        writeShort(baos, macLen);
-        if ( macLen > 0 ) baos.write(mac, 0, mac.length);
-        return baos.toByteArray();
-    }
-    
     // All strings are written as UTF-8 encoded byte streams with the
     // length prepended before it as a short. The prepended length is
     // more for the benefit of languages like C so they can pre-allocate
     // char arrays without worrying about buffer overflows.
-    private void writeString(ByteArrayOutputStream baos, String str) {
-        byte[] bytes;
+    private byte[] transformationBytes() {
+        String cipherXform = cipherText_.getCipherTransformation();
+        if ( cipherXform == null || cipherXform.length() == 0 ) {
+            throw new IllegalArgumentException("Program error? Cipher transformation is null or empty!");
+        }
+        String[] parts = cipherXform.split("/");
+        if ( parts.length != 3 ) {
+            throw new IllegalArgumentException("Program error? Malformed cipher tranformation: " + cipherXform);
+        }
+        byte[] bytes = null;
         try {
-            if ( str == null || str.length() == 0 ) {
-                throw new IllegalArgumentException("Program error? writeString: str is null or empty!");
-            }
-            bytes = str.getBytes("UTF8");
-            if ( bytes.length >= Short.MAX_VALUE ) {
-                throw new IllegalArgumentException("Program error? writeString: String exceeds max length of " +
-                                                   Short.MAX_VALUE + " bytes");
-            }
-            writeShort(baos, (short)bytes.length);
-            baos.write(bytes, 0, bytes.length);
+            bytes = cipherXform.getBytes("UTF8");
         } catch (UnsupportedEncodingException e) {
             // Should never happen. UTF8 is built into the rt.jar. We don't use native encoding as
             // a fall-back because that simply is not guaranteed to be portable across Java
             // platforms and could cause really bizarre errors way downstream.
             logger.error(Logger.EVENT_FAILURE, "Ignoring caught UnsupportedEncodingException " +
                            "converting string to UTF8 encoding. Results suspect. Corrupt rt.jar????");
+            throw new IllegalArgumentException("Program error? Cannot encode cipher transformation", e);
         }
-    }
-    
-    private String readString(ByteArrayInputStream bais, short sz)
-        throws NullPointerException, IOException
-    {
-        byte[] bytes = new byte[sz];
-        int ret = bais.read(bytes, 0, sz);
-        if ( ret != sz ) {
-                throw new IllegalArgumentException("Program error? readString: Expected to read " +
-                                                   sz + " bytes, but only read " + ret + " bytes");
+        if ( bytes.length >= Short.MAX_VALUE ) {
+            throw new IllegalArgumentException("Program error? Cipher transformation exceeds max length of " +
+                                               Short.MAX_VALUE + " bytes");
         }
-        return new String(bytes, "UTF8");
+        return bytes;
     }
-    
-    private void writeShort(ByteArrayOutputStream baos, short s) {
-        byte[] shortAsByteArray = ByteConversionUtil.fromShort(s);
-        if ( shortAsByteArray.length != 2 ) {
-                throw new IllegalArgumentException("Program error? writeShort: Excepted byte array != 2 bytes.");
-        }
-        baos.write(shortAsByteArray, 0, 2);
+
+    // Length of everything that precedes the raw ciphertext length.
+    private static int headerLength(byte[] cipherXform, byte[] iv) {
+        return 4 +                          // KDF info
+               8 +                          // timestamp
+               2 + cipherXform.length +     // cipher transformation
+               2 +                          // key size
+               2 +                          // block size
+               2 + iv.length;               // IV
     }
-    
-    private short readShort(ByteArrayInputStream bais)
-        throws NullPointerException, IndexOutOfBoundsException
-    {
-        byte[] shortAsByteArray = new byte[2];
-        int ret = bais.read(shortAsByteArray, 0, 2);
-        if ( ret != 2 ) {
-                throw new IllegalArgumentException("Program error? readShort: Failed to read 2 bytes.");
-        }
-        return ByteConversionUtil.toShort(shortAsByteArray);
+
+    private int serializedLength(byte[] cipherXform) {
+        byte[] mac = cipherText_.separateMAC();
+        return headerLength(cipherXform, cipherText_.getIV()) +
+               4 + cipherText_.getRawCipherTextByteLength() +
+               2 + (mac == null ? 0 : mac.length);
     }
-    
-    private void writeInt(ByteArrayOutputStream baos, int i) {
-        byte[] intAsByteArray = ByteConversionUtil.fromInt(i);
-        baos.write(intAsByteArray, 0, 4);
+
+    /**
+     * Put all the individual elements that make up the serialized ciphertext
+     * format in order into a buffer with room for all of them. These are:
+     * <ul>
+     * <li>Info about the KDF... which PRF and the KDF version.</li>
+     * <li>Timestamp when the data was encrypted. Intended to help facilitate key
+     * change operations and nothing more. If it is meaningless, then the
+     * expectations are just that the recipient should ignore it.</li>
+     * <li>Details of how the ciphertext was encrypted, in the same format as
+     * used by {@code javax.crypto.Cipher}, namely, "cipherAlg/cipherMode/paddingScheme".</li>
+     * <li>The key size used for encrypting and the cipher block size.</li>
+     * <li>The length of the IV and the IV itself.</li>
+     * <li>The length of the raw ciphertext and the raw ciphertext itself.</li>
+     * <li>The length of the MAC (message authentication code) and the MAC itself.</li>
+     * </ul>
+     * The raw ciphertext and MAC are written directly from the {@code CipherText}
+     * object, without copying them first.
+     */
+    private void write(ByteBuffer out, byte[] cipherXform) {
+        if ( cipherText_.getKeySize() >= Short.MAX_VALUE ) {
+        	throw new IllegalArgumentException("Key size is too large. Max is " + Short.MAX_VALUE);
+        }
+        if ( cipherText_.getBlockSize() >= Short.MAX_VALUE ) {
+        	throw new IllegalArgumentException("Block size is too large. Max is " + Short.MAX_VALUE);
+        }
+        byte[] iv = cipherText_.getIV();
+        if ( iv.length >= Short.MAX_VALUE ) {
+        	throw new IllegalArgumentException("IV size too large. Max is " + Short.MAX_VALUE + " bytes");
+        }
+        byte[] rawCiphertext = cipherText_.rawCipherText();
+        // Coverity issue 1352406, GitHub issue # 364 - possible NPE later if assertion disabled.
+        // Replaced assertion with explicit check.
+        if ( rawCiphertext == null || rawCiphertext.length < 1 ) {
+        	throw new IllegalArgumentException("Raw ciphertext length must be >= 1 byte.");
+        }
+        byte[] mac = cipherText_.separateMAC();
+        if ( mac == null ) {    // E.g., combined cipher modes such as GCM
+            mac = new byte[0];
+        }
+        if ( mac.length >= Short.MAX_VALUE ) {
+        	throw new IllegalArgumentException("MAC length too large. Max is " + Short.MAX_VALUE + " bytes");
+        }
+        if ( logger.isDebugEnabled() ) {
+            debug("computeSerialization: kdfInfo = " + cipherText_.getKDFInfo());
+            debug("computeSerialization: timestamp = " + new Date(cipherText_.getEncryptionTimestamp()));
+            debug("computeSerialization: cipherXform = " + cipherText_.getCipherTransformation());
+            debug("computeSerialization: keySize = " + cipherText_.getKeySize());
+            debug("computeSerialization: blockSize = " + cipherText_.getBlockSize());
+            debug("computeSerialization: ivLen = " + iv.length);
+            debug("computeSerialization: ciphertextLen = " + rawCiphertext.length);
+            debug("computeSerialization: macLen = " + mac.length);
+        }
+
+        writeHeader(out, cipherText_.getKDFInfo(), cipherText_.getEncryptionTimestamp(), cipherXform,
+                    (short) cipherText_.getKeySize(), (short) cipherText_.getBlockSize(), iv);
+        out.putInt(rawCiphertext.length);
+        out.put(rawCiphertext);
+        out.putShort((short) mac.length);
+        out.put(mac);
     }
-    
-    private int readInt(ByteArrayInputStream bais)
-        throws NullPointerException, IndexOutOfBoundsException
+
+    // Write everything that precedes the raw ciphertext length.
+    private static void writeHeader(ByteBuffer out, int kdfInfo, long timestamp,
+                                    byte[] cipherXform, short keySize, short blockSize,
+                                    byte[] iv)
     {
-        byte[] intAsByteArray = new byte[4];
-        int ret = bais.read(intAsByteArray, 0, 4);
-        if ( ret != 4 ) {
-                throw new IllegalArgumentException("Program error? readInt: Failed to read 4 bytes.");
+        out.putInt(kdfInfo);
+        out.putLong(timestamp);
+        out.putShort((short) cipherXform.length); // Size of string is prepended to string
+        out.put(cipherXform);
+        out.putShort(keySize);
+        out.putShort(blockSize);
+        out.putShort((short) iv.length);
+        out.put(iv);
+    }
+
+    // A header is of variable length, so read its fixed part up to the length of
+    // the cipher transformation, then up to the IV length, and then the IV.
+    // Unlike a ByteArrayInputStream, a stream may return fewer bytes than are
+    // available, so keep reading until each part is complete.
+    private static byte[] readHeaderBytes(InputStream in) throws IOException {
+        int fixedLen = 4 + 8 + 2;
+        byte[] header = read(in, new byte[fixedLen], 0);
+        short strSize = ByteBuffer.wrap(header).getShort(fixedLen - 2);
+        if ( strSize <= 0 ) {
+            throw new IllegalArgumentException("Program error? readHeader: Invalid cipher transformation length " + strSize);
         }
-        return ByteConversionUtil.toInt(intAsByteArray);
+        int ivLenOffset = fixedLen + strSize + 2 + 2;
+        header = read(in, Arrays.copyOf(header, ivLenOffset + 2), fixedLen);
+        short ivLen = ByteBuffer.wrap(header).getShort(ivLenOffset);
+        if ( ivLen < 0 ) {
+            throw new IllegalArgumentException("Program error? readHeader: Invalid IV length " + ivLen);
+        }
+        int read = header.length;
+        return read(in, Arrays.copyOf(header, read + ivLen), read);
     }
-    
-    private void writeLong(ByteArrayOutputStream baos, long l) {
-        byte[] longAsByteArray = ByteConversionUtil.fromLong(l);
-        if ( longAsByteArray.length != 8 ) {
-                throw new IllegalArgumentException("Program error? writeLong: Expected byte array != 8 bytes.");
+
+    // Fill 'bytes' from 'off' onwards.
+    private static byte[] read(InputStream in, byte[] bytes, int off) throws IOException {
+        int total = off;
+        while ( total < bytes.length ) {
+            int ret = in.read(bytes, total, bytes.length - total);
+            if ( ret < 0 ) {
+                throw new IllegalArgumentException("Program error? readHeader: Expected to read " +
+                                                   bytes.length + " bytes, but only read " + total + " bytes");
+            }
+            total += ret;
         }
-        baos.write(longAsByteArray, 0, 8);
+        return bytes;
     }
-    
-    private long readLong(ByteArrayInputStream bais)
-        throws NullPointerException, IndexOutOfBoundsException
-    {
-        byte[] longAsByteArray = new byte[8];
-        int ret = bais.read(longAsByteArray, 0, 8);
-        if ( ret != 8 ) {
-                throw new IllegalArgumentException("Program error? readLong: Failed to read 8 bytes.");
+
+    // Check that a length just read from 'in' does not run past its end.
+    private static void checkRemaining(ByteBuffer in, int length, String what) {
+        if ( length > in.remaining() ) {
+            throw new IllegalArgumentException("Program error? convertToCipherText: " + what + " length " + length +
+                                               " exceeds the " + in.remaining() + " bytes remaining");
         }
-        return ByteConversionUtil.toLong(longAsByteArray);
     }
     
     /** Convert the serialized ciphertext byte array to a {@code CipherText}
@@ -302,103 +416,73 @@ public class CipherTextSerializer {
      * @throws EncryptionException	Thrown if the byte array data is corrupt or
      * 				there are version mismatches, etc.
      */
-    private CipherText convertToCipherText(byte[] cipherTextSerializedBytes)
+    private static CipherText convertToCipherText(byte[] cipherTextSerializedBytes)
+        throws EncryptionException
+    {
+        if ( cipherTextSerializedBytes == null ) {
+            throw new IllegalArgumentException("cipherTextSerializedBytes cannot be null.");
+        }
+        return convertToCipherText(ByteBuffer.wrap(cipherTextSerializedBytes));
+    }
+
+    // Reads from the position of 'in', which must be big-endian, and advances it.
+    private static CipherText convertToCipherText(ByteBuffer in)
         throws EncryptionException
     {
         try {
-            if ( cipherTextSerializedBytes == null ) {
-                throw new IllegalArgumentException("cipherTextSerializedBytes cannot be null.");
-            }
-        	if ( cipherTextSerializedBytes.length == 0 ) {
+        	if ( ! in.hasRemaining() ) {
                 throw new IllegalArgumentException("cipherTextSerializedBytes must be > 0 in length.");
             }
-            ByteArrayInputStream bais = new ByteArrayInputStream(cipherTextSerializedBytes);
-            int kdfInfo = readInt(bais);
-            debug("kdfInfo: " + kdfInfo);
-            int kdfPrf = (kdfInfo >>> 28);
-            debug("kdfPrf: " + kdfPrf);
-            if ( kdfPrf < 0 || kdfPrf > 16 ) {
-                throw new IllegalArgumentException("Program error? convertToCipherText: kdPrf is " + kdfPrf +
-                                                   ". Must be between 0 and 15 inclusive");
-            }
-            int kdfVers = ( kdfInfo & 0x07ffffff);
-
-            // First do a quick sanity check on the argument. Previously this was an assertion.
-            if ( ! CryptoHelper.isValidKDFVersion(kdfVers, false, false) ) {
-            	// TODO: Clean up. Use StringBuilder. Good enough for now.
-            	String logMsg = "KDF version read from serialized ciphertext (" + kdfVers + ") is out of range. " +
-            				    "Valid range for KDF version is [" + KeyDerivationFunction.originalVersion + ", " +
-            				    "99991231].";
-            	// This should never happen under actual circumstances (barring programming errors; but we've
-            	// tested the code, right?), so it is likely an attempted attack. Thus don't get the originator
-            	// of the suspect ciphertext too much info. They ought to know what they sent anyhow.
-            	throw new EncryptionException("Version info from serialized ciphertext not in valid range.",
-            				 "Likely tampering with KDF version on serialized ciphertext." + logMsg);
-            }
-            
-            debug("convertToCipherText: kdfPrf = " + kdfPrf + ", kdfVers = " + kdfVers);
-            if ( ! versionIsCompatible( kdfVers) ) {
-            	throw new EncryptionException("This version of ESAPI is not compatible with the version of ESAPI that encrypted your data.",
-            			"KDF version " + kdfVers + " from serialized ciphertext not compatibile with current KDF version of " + 
-            			KeyDerivationFunction.kdfVersion);
-            }
-            long timestamp = readLong(bais);
-            debug("convertToCipherText: timestamp = " + new Date(timestamp));
-            short strSize = readShort(bais);
-            debug("convertToCipherText: length of cipherXform = " + strSize);
-            String cipherXform = readString(bais, strSize);
-            debug("convertToCipherText: cipherXform = " + cipherXform);
-            String[] parts = cipherXform.split("/");
-            if ( parts.length != 3 ) {
-                throw new IllegalArgumentException("Program error? Malformed cipher transformation. Expecting 3 parts to cipher transformation, " +
-                                                   "alg/mode/padding, but found " + parts.length + " parts (" + cipherXform + ").");
-            }
-            String cipherMode = parts[1];
-            if ( ! CryptoHelper.isAllowedCipherMode(cipherMode) ) {
-                String msg = "Cipher mode " + cipherMode + " is not an allowed cipher mode";
-                throw new EncryptionException(msg, msg);
-            }
-            short keySize = readShort(bais);
-            debug("convertToCipherText: keySize = " + keySize);
-            short blockSize = readShort(bais);
-            debug("convertToCipherText: blockSize = " + blockSize);
-            short ivLen = readShort(bais);
-            debug("convertToCipherText: ivLen = " + ivLen);
-            byte[] iv = null;
-            if ( ivLen > 0 ) {
-                iv = new byte[ivLen];
-                bais.read(iv, 0, iv.length);
-            }
-            int ciphertextLen = readInt(bais);
+            Header header = readHeader(in);
+            int ciphertextLen = in.getInt();
             debug("convertToCipherText: ciphertextLen = " + ciphertextLen);
             if ( ciphertextLen <= 0 ) {
                 throw new IllegalArgumentException("convertToCipherText: Invalid cipher text length; must be > 0.");
             }
+            checkRemaining(in, ciphertextLen, "Raw ciphertext");
             byte[] rawCiphertext = new byte[ciphertextLen];
-            bais.read(rawCiphertext, 0, rawCiphertext.length);
-            short macLen = readShort(bais);
+            in.get(rawCiphertext);
+            short macLen = in.getShort();
             debug("convertToCipherText: macLen = " + macLen);
             byte[] mac = null;
             if ( macLen > 0 ) {
+                checkRemaining(in, macLen, "MAC");
                 mac = new byte[macLen];
-                bais.read(mac, 0, mac.length);
+                in.get(mac);
             }
 
-            CipherSpec cipherSpec = new CipherSpec(cipherXform, keySize);
-            cipherSpec.setBlockSize(blockSize);
-            cipherSpec.setIV(iv);
-            debug("convertToCipherText: CipherSpec: " + cipherSpec);
-            CipherText ct = new CipherText(cipherSpec);
-            if ( ! (ivLen > 0 && ct.requiresIV()) ) {
-                    throw new EncryptionException("convertToCipherText: Mismatch between IV length and cipher mode.",
-                    						      "Possible tampering of serialized ciphertext?");
-            }
-            ct.setCiphertext(rawCiphertext);
+            CipherText ct = header.newCipherText();
+            ct.storeCiphertext(rawCiphertext);
               // Set this *AFTER* setting raw ciphertext because setCiphertext()
               // method also sets encryption time.
-            ct.setEncryptionTimestamp(timestamp);
+            ct.setEncryptionTimestamp(header.timestamp);
             if ( macLen > 0 ) {
                 ct.storeSeparateMAC(mac);
+            }
+            return ct;
+        } catch(EncryptionException ex) {
+            throw new EncryptionException("Cannot deserialize byte array into CipherText object",
+                                          "Cannot deserialize byte array into CipherText object",
+                                          ex);
+        } catch(BufferUnderflowException ex) {
+            throw new IllegalArgumentException("Program error? convertToCipherText: Serialized CipherText is truncated.", ex);
+        }
+    }
+
+    // The fields that precede the raw ciphertext length in the serialization.
+    private static final class Header {
+        int kdfPrf;
+        int kdfVers;
+        long timestamp;
+        short ivLen;
+        CipherSpec cipherSpec;
+
+        // Everything but the raw ciphertext, MAC, and encryption timestamp.
+        CipherText newCipherText() throws EncryptionException {
+            CipherText ct = new CipherText(cipherSpec);
+            if ( ! (ivLen > 0 && ct.requiresIV()) ) {
+                    throw new EncryptionException("convertToCipherText: Mismatch between IV length and cipher mode.",
+                    						      "Possible tampering of serialized ciphertext?");
             }
             	// Fixed in ESAPI crypto version 20130839. Previously is didn't really matter
             	// because there was only one version (20110203) and it defaulted to that
@@ -408,16 +492,96 @@ public class CipherTextSerializer {
             ct.setKDF_PRF(kdfPrf);
             ct.setKDFVersion(kdfVers);
             return ct;
-        } catch(EncryptionException ex) {
-            throw new EncryptionException("Cannot deserialize byte array into CipherText object",
-                                          "Cannot deserialize byte array into CipherText object",
-                                          ex);
-        } catch (IOException e) {
-            throw new EncryptionException("Cannot deserialize byte array into CipherText object",
-                    "Cannot deserialize byte array into CipherText object", e);
         }
     }
 
+    /** Read the fields that precede the raw ciphertext length and check them. */
+    private static Header readHeader(ByteBuffer in)
+        throws EncryptionException
+    {
+        int kdfInfo = in.getInt();
+        debug("kdfInfo: " + kdfInfo);
+        int kdfPrf = (kdfInfo >>> 28);
+        debug("kdfPrf: " + kdfPrf);
+        if ( kdfPrf < 0 || kdfPrf > 16 ) {
+            throw new IllegalArgumentException("Program error? convertToCipherText: kdPrf is " + kdfPrf +
+                                               ". Must be between 0 and 15 inclusive");
+        }
+        int kdfVers = ( kdfInfo & 0x07ffffff);
+
+        // First do a quick sanity check on the argument. Previously this was an assertion.
+        if ( ! CryptoHelper.isValidKDFVersion(kdfVers, false, false) ) {
+        	// TODO: Clean up. Use StringBuilder. Good enough for now.
+        	String logMsg = "KDF version read from serialized ciphertext (" + kdfVers + ") is out of range. " +
+        				    "Valid range for KDF version is [" + KeyDerivationFunction.originalVersion + ", " +
+        				    "99991231].";
+        	// This should never happen under actual circumstances (barring programming errors; but we've
+        	// tested the code, right?), so it is likely an attempted attack. Thus don't get the originator
+        	// of the suspect ciphertext too much info. They ought to know what they sent anyhow.
+        	throw new EncryptionException("Version info from serialized ciphertext not in valid range.",
+        				 "Likely tampering with KDF version on serialized ciphertext." + logMsg);
+        }
+        
+        debug("convertToCipherText: kdfPrf = " + kdfPrf + ", kdfVers = " + kdfVers);
+        if ( ! versionIsCompatible( kdfVers) ) {
+        	throw new EncryptionException("This version of ESAPI is not compatible with the version of ESAPI that encrypted your data.",
+        			"KDF version " + kdfVers + " from serialized ciphertext not compatibile with current KDF version of " + 
+        			KeyDerivationFunction.kdfVersion);
+        }
+        long timestamp = in.getLong();
+        debug("convertToCipherText: timestamp = " + new Date(timestamp));
+        short strSize = in.getShort();
+        debug("convertToCipherText: length of cipherXform = " + strSize);
+        if ( strSize <= 0 ) {
+            throw new IllegalArgumentException("Program error? readHeader: Invalid cipher transformation length " + strSize);
+        }
+        checkRemaining(in, strSize, "Cipher transformation");
+        byte[] cipherXformBytes = new byte[strSize];
+        in.get(cipherXformBytes);
+        String cipherXform = null;
+        try {
+            cipherXform = new String(cipherXformBytes, "UTF8");
+        } catch (UnsupportedEncodingException e) {
+            // Should never happen; see transformationBytes().
+            throw new IllegalArgumentException("Program error? Cannot decode cipher transformation", e);
+        }
+        debug("convertToCipherText: cipherXform = " + cipherXform);
+        String[] parts = cipherXform.split("/");
+        if ( parts.length != 3 ) {
+            throw new IllegalArgumentException("Program error? Malformed cipher transformation. Expecting 3 parts to cipher transformation, " +
+                                               "alg/mode/padding, but found " + parts.length + " parts (" + cipherXform + ").");
+        }
+        String cipherMode = parts[1];
+        if ( ! CryptoHelper.isAllowedCipherMode(cipherMode) ) {
+            String msg = "Cipher mode " + cipherMode + " is not an allowed cipher mode";
+            throw new EncryptionException(msg, msg);
+        }
+        short keySize = in.getShort();
+        debug("convertToCipherText: keySize = " + keySize);
+        short blockSize = in.getShort();
+        debug("convertToCipherText: blockSize = " + blockSize);
+        short ivLen = in.getShort();
+        debug("convertToCipherText: ivLen = " + ivLen);
+        byte[] iv = null;
+        if ( ivLen > 0 ) {
+            checkRemaining(in, ivLen, "IV");
+            iv = new byte[ivLen];
+            in.get(iv);
+        }
+
+        CipherSpec cipherSpec = new CipherSpec(cipherXform, keySize);
+        cipherSpec.setBlockSize(blockSize);
+        cipherSpec.setIV(iv);
+        debug("convertToCipherText: CipherSpec: " + cipherSpec);
+        Header header = new Header();
+        header.kdfPrf = kdfPrf;
+        header.kdfVers = kdfVers;
+        header.timestamp = timestamp;
+        header.ivLen = ivLen;
+        header.cipherSpec = cipherSpec;
+        return header;
+    }
+
     /** Check to see if we can support the KSF version that was extracted from
      *  the serialized ciphertext. In particular, we assume that if we have a
      *  newer version of KDF than we can support it as we assume that we have
@@ -449,7 +613,7 @@ public class CipherTextSerializer {
 		}
 	}
 
-	private void debug(String msg) {
+	private static void debug(String msg) {
         if ( logger.isDebugEnabled() ) {
             logger.debug(Logger.EVENT_SUCCESS, msg);
         }
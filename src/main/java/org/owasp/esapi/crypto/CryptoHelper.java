@@ -13,12 +13,15 @@ import java.io.UnsupportedEncodingException;
 import java.security.InvalidKeyException;
 import java.security.InvalidParameterException;
 import java.security.NoSuchAlgorithmException;
+import java.security.spec.AlgorithmParameterSpec;
 import java.util.Arrays;
 import java.util.List;
 
 import javax.crypto.KeyGenerator;
 import javax.crypto.Mac;
 import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
 import org.owasp.esapi.ESAPI;
@@ -39,6 +42,12 @@ public class CryptoHelper {
 	
 	private static final Logger logger = ESAPI.getLogger("CryptoHelper");
 
+	/** Length of the GCM authentication tag, in bits. The tag is appended to the raw ciphertext. */
+	public static final int GCM_TAG_LENGTH = 128;
+
+	/** Length of the IV (nonce) used with GCM, in bytes, as recommended by NIST SP 800-38D. */
+	public static final int GCM_IV_LENGTH = 12;
+
 	// TODO: Also consider supplying implementation of RFC 2898 / PKCS#5 PBKDF2
 	//		 in this file as well??? Maybe save for ESAPI 2.1 or 3.0.
 	/**
@@ -175,6 +184,23 @@ public class CryptoHelper {
 	    return combinedCipherModes.contains( cipherMode );
 	}
 
+	/**
+	 * Return the parameters to initialize a {@code Cipher} with for the specified
+	 * cipher mode and IV. GCM takes its IV together with the length of its
+	 * authentication tag, {@link #GCM_TAG_LENGTH}; all other cipher modes take
+	 * just the IV.
+	 * @param cipherMode	The cipher mode; e.g., "CBC" or "GCM".
+	 * @param iv			The IV. Cannot be null.
+	 * @return	A {@code GCMParameterSpec} for GCM, else an {@code IvParameterSpec}.
+	 */
+	public static AlgorithmParameterSpec getIVParameterSpec(String cipherMode, byte[] iv)
+	{
+	    if ( "GCM".equals(cipherMode) ) {
+	        return new GCMParameterSpec(GCM_TAG_LENGTH, iv);
+	    }
+	    return new IvParameterSpec(iv);
+	}
+
 	/**
      * Return true if specified cipher mode is one that may be used for
      * encryption / decryption operations via {@link org.owasp.esapi.Encryptor}.
@@ -0,0 +1,188 @@
+/*
+ * OWASP Enterprise Security API (ESAPI)
+ *
+ * This file is part of the Open Web Application Security Project (OWASP)
+ * Enterprise Security API (ESAPI) project. For details, please see
+ * <a href="http://www.owasp.org/index.php/ESAPI">http://www.owasp.org/index.php/ESAPI</a>.
+ *
+ * Copyright (c) 2017 - The OWASP Foundation
+ */
+package org.owasp.esapi.crypto;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Signature;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.NoSuchPaddingException;
+
+import org.owasp.esapi.ESAPI;
+import org.owasp.esapi.errors.ConfigurationException;
+import org.owasp.esapi.reference.DefaultSecurityConfiguration;
+
+/**
+ * A per-thread pool of {@code Cipher}, {@code Mac}, {@code MessageDigest} and
+ * {@code Signature} objects. Each {@code getInstance()} call of the JCA is a
+ * provider lookup that takes a lock, so at high request rates reusing these
+ * objects avoids contention between threads.
+ * </p><p>
+ * An object is taken from the pool by one of the {@code get} methods and must
+ * be handed back with {@code release()} once the caller is done with it,
+ * usually in a {@code finally} block. Until then no other caller gets it, so a
+ * method that is called while the caller still holds an object for the same
+ * algorithm simply gets a new one. Each thread keeps at most one idle object
+ * per algorithm.
+ * </p><p>
+ * A {@code MessageDigest} is reset before it is handed out. A {@code Cipher},
+ * {@code Mac} or {@code Signature} must be initialized by the caller, which
+ * also resets it.
+ * </p><p>
+ * The pool is only used if the <b>ESAPI.properties</b> property
+ * {@code Encryptor.PrimitivePool.Enabled} is true; otherwise, and by default,
+ * every {@code get} call creates a new object. This is a security trade-off:
+ * an idle {@code Cipher} or {@code Mac} still holds the key it was last
+ * initialized with, in memory, until its thread uses it again. The property
+ * is read from the current security configuration on every call, so it
+ * follows {@link ESAPI#override(org.owasp.esapi.SecurityConfiguration)}.
+ * </p><p>
+ * Objects are pooled by algorithm or transformation name only, since ESAPI
+ * always obtains them from the preferred provider in the JCE provider list.
+ *
+ * @since 2.2
+ */
+public final class CryptoPrimitivePool {
+
+	private static final ThreadLocal<Map<String, Object>> idle = new ThreadLocal<Map<String, Object>>() {
+		@Override
+		protected Map<String, Object> initialValue() {
+			return new HashMap<String, Object>();
+		}
+	};
+
+	private CryptoPrimitivePool() {
+		// Prevent instantiation
+	}
+
+	/**
+	 * @return whether objects are reused, as set by {@code Encryptor.PrimitivePool.Enabled}
+	 * in the current security configuration.
+	 */
+	public static boolean isEnabled() {
+		try {
+			return ESAPI.securityConfiguration().getBooleanProp(DefaultSecurityConfiguration.CRYPTO_PRIMITIVE_POOL_ENABLED);
+		} catch (ConfigurationException e) {
+			return false;	// not configured, so not enabled
+		}
+	}
+
+	/**
+	 * Get a {@code Cipher} for the specified transformation. It must be
+	 * initialized before use.
+	 * @param transformation	The cipher transformation; e.g., "AES/CBC/PKCS5Padding".
+	 * @return	A pooled or new {@code Cipher}.
+	 * @throws NoSuchAlgorithmException	See {@link Cipher#getInstance(String)}.
+	 * @throws NoSuchPaddingException	See {@link Cipher#getInstance(String)}.
+	 */
+	public static Cipher getCipher(String transformation)
+		throws NoSuchAlgorithmException, NoSuchPaddingException
+	{
+		Cipher cipher = (Cipher) take("Cipher:" + transformation);
+		return cipher != null ? cipher : Cipher.getInstance(transformation);
+	}
+
+	/**
+	 * Get a {@code Mac} for the specified algorithm. It must be initialized
+	 * before use.
+	 * @param algorithm	The MAC algorithm; e.g., "HmacSHA1".
+	 * @return	A pooled or new {@code Mac}.
+	 * @throws NoSuchAlgorithmException	See {@link Mac#getInstance(String)}.
+	 */
+	public static Mac getMac(String algorithm) throws NoSuchAlgorithmException {
+		Mac mac = (Mac) take("Mac:" + algorithm);
+		return mac != null ? mac : Mac.getInstance(algorithm);
+	}
+
+	/**
+	 * Get a {@code MessageDigest} for the specified algorithm, reset and
+	 * ready for use.
+	 * @param algorithm	The digest algorithm; e.g., "SHA-512".
+	 * @return	A pooled or new {@code MessageDigest}.
+	 * @throws NoSuchAlgorithmException	See {@link MessageDigest#getInstance(String)}.
+	 */
+	public static MessageDigest getMessageDigest(String algorithm) throws NoSuchAlgorithmException {
+		MessageDigest digest = (MessageDigest) take("MessageDigest:" + algorithm);
+		if ( digest == null ) {
+			return MessageDigest.getInstance(algorithm);
+		}
+		digest.reset();
+		return digest;
+	}
+
+	/**
+	 * Get a {@code Signature} for the specified algorithm. It must be
+	 * initialized for signing or verification before use.
+	 * @param algorithm	The signature algorithm; e.g., "SHA1withDSA".
+	 * @return	A pooled or new {@code Signature}.
+	 * @throws NoSuchAlgorithmException	See {@link Signature#getInstance(String)}.
+	 */
+	public static Signature getSignature(String algorithm) throws NoSuchAlgorithmException {
+		Signature signature = (Signature) take("Signature:" + algorithm);
+		return signature != null ? signature : Signature.getInstance(algorithm);
+	}
+
+	/**
+	 * Hand a {@code Cipher} obtained from {@link #getCipher(String)} back to the pool.
+	 * @param cipher	The {@code Cipher}; may be null.
+	 */
+	public static void release(Cipher cipher) {
+		if ( cipher != null ) {
+			give("Cipher:" + cipher.getAlgorithm(), cipher);
+		}
+	}
+
+	/**
+	 * Hand a {@code Mac} obtained from {@link #getMac(String)} back to the pool.
+	 * @param mac	The {@code Mac}; may be null.
+	 */
+	public static void release(Mac mac) {
+		if ( mac != null ) {
+			give("Mac:" + mac.getAlgorithm(), mac);
+		}
+	}
+
+	/**
+	 * Hand a {@code MessageDigest} obtained from {@link #getMessageDigest(String)} back to the pool.
+	 * @param digest	The {@code MessageDigest}; may be null.
+	 */
+	public static void release(MessageDigest digest) {
+		if ( digest != null ) {
+			give("MessageDigest:" + digest.getAlgorithm(), digest);
+		}
+	}
+
+	/**
+	 * Hand a {@code Signature} obtained from {@link #getSignature(String)} back to the pool.
+	 * @param signature	The {@code Signature}; may be null.
+	 */
+	public static void release(Signature signature) {
+		if ( signature != null ) {
+			give("Signature:" + signature.getAlgorithm(), signature);
+		}
+	}
+
+	private static Object take(String key) {
+		return isEnabled() ? idle.get().remove(key) : null;
+	}
+
+	private static void give(String key, Object primitive) {
+		if ( isEnabled() ) {
+			Map<String, Object> objects = idle.get();
+			if ( !objects.containsKey(key) ) {
+				objects.put(key, primitive);
+			}
+		}
+	}
+}
@@ -330,7 +330,7 @@ public class KeyDerivationFunction {
 		Mac mac = null;
 
 		try {
-			mac = Mac.getInstance("HmacSHA1");
+			mac = CryptoPrimitivePool.getMac("HmacSHA1");
 			mac.init(sk);
 		} catch( InvalidKeyException ex ) {
 			logger.error(Logger.SECURITY_FAILURE,
@@ -394,6 +394,7 @@ public class KeyDerivationFunction {
 			totalCopied += tmpKey.length;
 			destPos += len;
 		} while( totalCopied < keySize );
+		CryptoPrimitivePool.release(mac);	// Not returned if an exception was thrown; that only costs a new one.
 		
 		// Don't leave remnants of the partial key in memory. (Note: we could
 		// not do this if tmpKey were declared in the do-while loop.
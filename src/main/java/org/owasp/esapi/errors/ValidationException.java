@@ -15,10 +15,20 @@
  */
 package org.owasp.esapi.errors;
 
+import org.owasp.esapi.ESAPI;
+import org.owasp.esapi.SecurityConfiguration;
+import org.owasp.esapi.reference.DefaultSecurityConfiguration;
+
 /**
  * A ValidationException should be thrown to indicate that the data provided by
  * the user or from some other external source does not match the validation
  * rules that have been specified for that data.
+ * <P>
+ * Filling in the stack trace is most of the cost of creating an exception, and
+ * invalid input can be most of the input an application sees. When
+ * {@code Validator.StacklessValidationExceptions} is set to true in ESAPI.properties,
+ * ValidationExceptions are created without a stack trace. The cause, messages
+ * and context are kept.
  * 
  * @author Jeff Williams (jeff.williams@aspectsecurity.com)
  */
@@ -29,6 +39,9 @@ public class ValidationException extends EnterpriseSecurityException {
 	/** The UI reference that caused this ValidationException */
 	private String context;
 
+	/** The configuration the stackless setting was last read from, and the setting. */
+	private static volatile StacklessSetting stacklessSetting;
+
 	/**
 	 * Instantiates a new validation exception.
 	 */
@@ -112,4 +125,43 @@ public class ValidationException extends EnterpriseSecurityException {
 	public void setContext(String context) {
 		this.context = context;
 	}
+
+	/**
+	 * Fills in the stack trace unless stackless ValidationExceptions are configured.
+	 */
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		if ( isStackless() ) {
+			return this;
+		}
+		return super.fillInStackTrace();
+	}
+
+	private static boolean isStackless() {
+		SecurityConfiguration config = ESAPI.securityConfiguration();
+		StacklessSetting setting = stacklessSetting;
+		if ( setting == null || setting.config != config ) {
+			boolean stackless = false;
+			if ( config != null ) {
+				try {
+					stackless = config.getBooleanProp(DefaultSecurityConfiguration.STACKLESS_VALIDATION_EXCEPTIONS);
+				} catch (ConfigurationException e) {
+					// not set, keep the stack trace
+				}
+			}
+			setting = new StacklessSetting(config, stackless);
+			stacklessSetting = setting;
+		}
+		return setting.stackless;
+	}
+
+	private static final class StacklessSetting {
+		final SecurityConfiguration config;
+		final boolean stackless;
+
+		StacklessSetting(SecurityConfiguration config, boolean stackless) {
+			this.config = config;
+			this.stackless = stackless;
+		}
+	}
 }
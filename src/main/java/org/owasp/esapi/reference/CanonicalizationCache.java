@@ -0,0 +1,86 @@
+/**
+ * OWASP Enterprise Security API (ESAPI)
+ *
+ * This file is part of the Open Web Application Security Project (OWASP)
+ * Enterprise Security API (ESAPI) project. For details, please see
+ * <a href="http://www.owasp.org/index.php/ESAPI">http://www.owasp.org/index.php/ESAPI</a>.
+ *
+ * Copyright (c) 2017 - The OWASP Foundation
+ *
+ * The ESAPI is published by OWASP under the BSD license. You should read and accept the
+ * LICENSE before you use, modify, and/or redistribute this software.
+ *
+ */
+package org.owasp.esapi.reference;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.owasp.esapi.util.SegmentedLRUCache;
+
+/**
+ * A size bounded, least recently used cache of canonicalization outcomes, used by
+ * {@link DefaultEncoder#canonicalize(String, boolean, boolean)}.
+ * <br/><br/>
+ * Only the outcome of decoding is cached: the canonical value and how many times
+ * (and with how many different codecs) the input was found to be encoded. Whether
+ * that outcome is an intrusion depends on the flags of each call, so the caller
+ * still reports it every time.
+ */
+class CanonicalizationCache {
+
+	/** Inputs longer than this are not cached, to bound the memory used. */
+	static final int MAX_INPUT_LENGTH = 4096;
+
+	/**
+	 * The outcome of canonicalizing one input.
+	 */
+	static final class Outcome {
+		final String value;
+		final int foundCount;
+		final int mixedCount;
+
+		Outcome(String value, int foundCount, int mixedCount) {
+			this.value = value;
+			this.foundCount = foundCount;
+			this.mixedCount = mixedCount;
+		}
+	}
+
+	private final SegmentedLRUCache<String, Outcome> outcomes;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * @param maxSize the maximum number of outcomes to keep, at least 1.
+	 */
+	CanonicalizationCache(int maxSize) {
+		outcomes = new SegmentedLRUCache<String, Outcome>(maxSize);
+	}
+
+	/**
+	 * @return the cached outcome for {@code input}, or null.
+	 */
+	Outcome get(String input) {
+		Outcome outcome = outcomes.get(input);
+		if ( outcome == null ) {
+			misses.incrementAndGet();
+		} else {
+			hits.incrementAndGet();
+		}
+		return outcome;
+	}
+
+	void put(String input, Outcome outcome) {
+		if ( input.length() <= MAX_INPUT_LENGTH ) {
+			outcomes.put(input, outcome);
+		}
+	}
+
+	long getHitCount() {
+		return hits.get();
+	}
+
+	long getMissCount() {
+		return misses.get();
+	}
+}
@@ -34,6 +34,7 @@ import org.owasp.esapi.ESAPI;
 import org.owasp.esapi.Encoder;
 import org.owasp.esapi.Logger;
 import org.owasp.esapi.SecurityConfiguration;
+import org.owasp.esapi.codecs.AbstractCodec;
 import org.owasp.esapi.codecs.Base64;
 import org.owasp.esapi.codecs.CSSCodec;
 import org.owasp.esapi.codecs.Codec;
@@ -44,6 +45,7 @@ import org.owasp.esapi.codecs.VBScriptCodec;
 import org.owasp.esapi.codecs.XMLEntityCodec;
 import org.owasp.esapi.errors.EncodingException;
 import org.owasp.esapi.errors.IntrusionException;
+import org.owasp.esapi.util.SegmentedLRUCache;
 
 
 /**
@@ -80,6 +82,17 @@ public class DefaultEncoder implements Encoder {
 	private VBScriptCodec vbScriptCodec = new VBScriptCodec();
 	private CSSCodec cssCodec = new CSSCodec();
 
+	// The characters that can start an encoded sequence in any of the codecs, and
+	// for each codec a bit mask of the ones it decodes (or ANY_TRIGGER if unknown).
+	private String decodeTriggers;
+	private int[] codecTriggers;
+	private boolean untriggeredCodecs;
+	private static final int ANY_TRIGGER = -1;
+	
+	// Recently canonicalized input, or null if not enabled in ESAPI.properties
+	private CanonicalizationCache canonicalizationCache;
+	private static final int DEFAULT_CANONICALIZATION_CACHE_SIZE = 1000;
+
 	private final Logger logger = ESAPI.getLogger("Encoder");
 	
 	/**
@@ -105,6 +118,8 @@ public class DefaultEncoder implements Encoder {
 		codecs.add( htmlCodec );
 		codecs.add( percentCodec );
 		codecs.add( javaScriptCodec );
+		initDecodeTriggers();
+		initCanonicalizationCache();
 	}
 	
 	public DefaultEncoder( List<String> codecNames ) {
@@ -116,6 +131,61 @@ public class DefaultEncoder implements Encoder {
 				logger.warning( Logger.EVENT_FAILURE, "Codec " + clazz + " listed in ESAPI.properties not on classpath" );
 			}
 		}
+		initDecodeTriggers();
+		initCanonicalizationCache();
+	}
+	
+	/**
+	 * Creates the canonicalization cache if it is enabled in ESAPI.properties.
+	 */
+	private void initCanonicalizationCache() {
+		int size = SegmentedLRUCache.configuredSize( DefaultSecurityConfiguration.CANONICALIZATION_CACHE_ENABLED,
+				DefaultSecurityConfiguration.CANONICALIZATION_CACHE_SIZE, DEFAULT_CANONICALIZATION_CACHE_SIZE );
+		if ( size > 0 ) {
+			canonicalizationCache = new CanonicalizationCache( size );
+		}
+	}
+	
+	/**
+	 * Collects the decode triggers of the configured codecs, so canonicalize() can 
+	 * tell with one scan of the input which codecs could change it. Codecs that do
+	 * not extend AbstractCodec have no triggers and are always tried.
+	 */
+	private void initDecodeTriggers() {
+		StringBuilder triggers = new StringBuilder();
+		codecTriggers = new int[codecs.size()];
+		for ( int i = 0; i < codecTriggers.length; i++ ) {
+			Object codec = codecs.get(i);
+			char[] chars = codec instanceof AbstractCodec ? ((AbstractCodec<?>)codec).getDecodeTriggers() : null;
+			if ( chars == null ) {
+				codecTriggers[i] = ANY_TRIGGER;
+				untriggeredCodecs = true;
+				continue;
+			}
+			for ( char c : chars ) {
+				int bit = triggers.indexOf( String.valueOf( c ) );
+				if ( bit == -1 ) {
+					bit = triggers.length();
+					triggers.append( c );
+				}
+				codecTriggers[i] |= bit < 31 ? 1 << bit : ANY_TRIGGER;
+			}
+		}
+		decodeTriggers = triggers.toString();
+	}
+	
+	/**
+	 * @return a bit mask of the decode triggers that occur in {@code s}
+	 */
+	private int findDecodeTriggers( String s ) {
+		int found = 0;
+		for ( int i = 0; i < s.length(); i++ ) {
+			int bit = decodeTriggers.indexOf( s.charAt( i ) );
+			if ( bit != -1 && bit < 31 ) {
+				found |= 1 << bit;
+			}
+		}
+		return found;
 	}
 	
 	/**
@@ -149,32 +219,19 @@ public class DefaultEncoder implements Encoder {
 			return null;
 		}
 		
-        String working = input;
-        Codec codecFound = null;
-        int mixedCount = 1;
-        int foundCount = 0;
-        boolean clean = false;
-        while( !clean ) {
-            clean = true;
-            
-            // try each codec and keep track of which ones work
-            Iterator i = codecs.iterator();
-            while ( i.hasNext() ) {
-                Codec codec = (Codec)i.next();
-                String old = working;
-                working = codec.decode( working );
-                if ( !old.equals( working ) ) {
-                    if ( codecFound != null && codecFound != codec ) {
-                        mixedCount++;
-                    }
-                    codecFound = codec;
-                    if ( clean ) {
-                        foundCount++;
-                    }
-                    clean = false;
-                }
+        // a codec can only change the input if one of its triggers occurs in it,
+        // so most input is found to be canonical without decoding it at all
+        int triggers = findDecodeTriggers( input );
+        boolean cacheable = canonicalizationCache != null && ( triggers != 0 || untriggeredCodecs );
+        CanonicalizationCache.Outcome outcome = cacheable ? canonicalizationCache.get( input ) : null;
+        if ( outcome == null ) {
+            outcome = decodeAll( input, triggers );
+            if ( cacheable ) {
+                canonicalizationCache.put( input, outcome );
             }
         }
+        int foundCount = outcome.foundCount;
+        int mixedCount = outcome.mixedCount;
         
         // do strict tests and handle if any mixed, multiple, nested encoding were found
         if ( foundCount >= 2 && mixedCount > 1 ) {
@@ -198,7 +255,60 @@ public class DefaultEncoder implements Encoder {
                 logger.warning( Logger.SECURITY_FAILURE, "Mixed encoding ("+ mixedCount +"x) detected in " + input );
             }
         }
-        return working;
+        return outcome.value;
+	}
+	
+	/**
+	 * Applies the codecs to the input until none of them changes it, keeping track of 
+	 * how many times and with how many different codecs it was encoded.
+	 */
+	private CanonicalizationCache.Outcome decodeAll( String input, int triggers ) {
+        String working = input;
+        Codec codecFound = null;
+        int mixedCount = 1;
+        int foundCount = 0;
+        boolean clean = false;
+        while( !clean ) {
+            clean = true;
+            
+            // try each codec and keep track of which ones work
+            for ( int i = 0; i < codecTriggers.length; i++ ) {
+                if ( codecTriggers[i] != ANY_TRIGGER && ( codecTriggers[i] & triggers ) == 0 ) {
+                    continue;
+                }
+                Codec codec = (Codec)codecs.get( i );
+                String old = working;
+                working = codec.decode( working );
+                if ( !old.equals( working ) ) {
+                    triggers = findDecodeTriggers( working );
+                    if ( codecFound != null && codecFound != codec ) {
+                        mixedCount++;
+                    }
+                    codecFound = codec;
+                    if ( clean ) {
+                        foundCount++;
+                    }
+                    clean = false;
+                }
+            }
+        }
+        return new CanonicalizationCache.Outcome( working, foundCount, mixedCount );
+	}
+	
+	/**
+	 * @return the number of canonicalize() calls answered from the cache, which is
+	 * enabled with {@code Encoder.CanonicalizationCache.Enabled} in ESAPI.properties.
+	 */
+	public long getCanonicalizationCacheHits() {
+		return canonicalizationCache == null ? 0 : canonicalizationCache.getHitCount();
+	}
+	
+	/**
+	 * @return the number of canonicalize() calls that were looked up in the cache 
+	 * but had to be decoded.
+	 */
+	public long getCanonicalizationCacheMisses() {
+		return canonicalizationCache == null ? 0 : canonicalizationCache.getMissCount();
 	}
 
 	/**
@@ -210,6 +320,21 @@ public class DefaultEncoder implements Encoder {
 	    }
 	    return htmlCodec.encode( IMMUNE_HTML, input);	    
 	 }
+
+	/**
+	 * Streaming variant of {@link #encodeForHTML(String)} that writes the encoded text
+	 * directly to {@code out}, for example a servlet response {@code Writer},
+	 * without building an intermediate String. Nothing is written if
+	 * {@code input} is null.
+	 *
+	 * @throws IOException if {@code out} does
+	 */
+	public void encodeForHTML(CharSequence input, Appendable out) throws IOException {
+	    if( input == null ) {
+	    	return;
+	    }
+	    htmlCodec.encode( IMMUNE_HTML, input, out);
+	}
 	
 	/**
 	 * {@inheritDoc}
@@ -232,6 +357,21 @@ public class DefaultEncoder implements Encoder {
 	    return htmlCodec.encode( IMMUNE_HTMLATTR, input);
 	}
 
+	/**
+	 * Streaming variant of {@link #encodeForHTMLAttribute(String)} that writes the encoded text
+	 * directly to {@code out}, for example a servlet response {@code Writer},
+	 * without building an intermediate String. Nothing is written if
+	 * {@code input} is null.
+	 *
+	 * @throws IOException if {@code out} does
+	 */
+	public void encodeForHTMLAttribute(CharSequence input, Appendable out) throws IOException {
+	    if( input == null ) {
+	    	return;
+	    }
+	    htmlCodec.encode( IMMUNE_HTMLATTR, input, out);
+	}
+
 	
 	/**
 	 * {@inheritDoc}
@@ -243,6 +383,21 @@ public class DefaultEncoder implements Encoder {
 	    return cssCodec.encode( IMMUNE_CSS, input);
 	}
 
+	/**
+	 * Streaming variant of {@link #encodeForCSS(String)} that writes the encoded text
+	 * directly to {@code out}, for example a servlet response {@code Writer},
+	 * without building an intermediate String. Nothing is written if
+	 * {@code input} is null.
+	 *
+	 * @throws IOException if {@code out} does
+	 */
+	public void encodeForCSS(CharSequence input, Appendable out) throws IOException {
+	    if( input == null ) {
+	    	return;
+	    }
+	    cssCodec.encode( IMMUNE_CSS, input, out);
+	}
+
 	
 	/**
 	 * {@inheritDoc}
@@ -254,6 +409,21 @@ public class DefaultEncoder implements Encoder {
 	    return javaScriptCodec.encode(IMMUNE_JAVASCRIPT, input);
 	}
 
+	/**
+	 * Streaming variant of {@link #encodeForJavaScript(String)} that writes the encoded text
+	 * directly to {@code out}, for example a servlet response {@code Writer},
+	 * without building an intermediate String. Nothing is written if
+	 * {@code input} is null.
+	 *
+	 * @throws IOException if {@code out} does
+	 */
+	public void encodeForJavaScript(CharSequence input, Appendable out) throws IOException {
+	    if( input == null ) {
+	    	return;
+	    }
+	    javaScriptCodec.encode( IMMUNE_JAVASCRIPT, input, out);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -264,6 +434,21 @@ public class DefaultEncoder implements Encoder {
 	    return vbScriptCodec.encode(IMMUNE_VBSCRIPT, input);	    
 	}
 
+	/**
+	 * Streaming variant of {@link #encodeForVBScript(String)} that writes the encoded text
+	 * directly to {@code out}, for example a servlet response {@code Writer},
+	 * without building an intermediate String. Nothing is written if
+	 * {@code input} is null.
+	 *
+	 * @throws IOException if {@code out} does
+	 */
+	public void encodeForVBScript(CharSequence input, Appendable out) throws IOException {
+	    if( input == null ) {
+	    	return;
+	    }
+	    vbScriptCodec.encode( IMMUNE_VBSCRIPT, input, out);
+	}
+
 	
 	/**
 	 * {@inheritDoc}
@@ -401,6 +586,21 @@ public class DefaultEncoder implements Encoder {
 	    return xmlCodec.encode( IMMUNE_XML, input);
 	}
 
+	/**
+	 * Streaming variant of {@link #encodeForXML(String)} that writes the encoded text
+	 * directly to {@code out}, for example a servlet response {@code Writer},
+	 * without building an intermediate String. Nothing is written if
+	 * {@code input} is null.
+	 *
+	 * @throws IOException if {@code out} does
+	 */
+	public void encodeForXML(CharSequence input, Appendable out) throws IOException {
+	    if( input == null ) {
+	    	return;
+	    }
+	    xmlCodec.encode( IMMUNE_XML, input, out);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -411,6 +611,21 @@ public class DefaultEncoder implements Encoder {
 	    return xmlCodec.encode( IMMUNE_XMLATTR, input);
 	}
 
+	/**
+	 * Streaming variant of {@link #encodeForXMLAttribute(String)} that writes the encoded text
+	 * directly to {@code out}, for example a servlet response {@code Writer},
+	 * without building an intermediate String. Nothing is written if
+	 * {@code input} is null.
+	 *
+	 * @throws IOException if {@code out} does
+	 */
+	public void encodeForXMLAttribute(CharSequence input, Appendable out) throws IOException {
+	    if( input == null ) {
+	    	return;
+	    }
+	    xmlCodec.encode( IMMUNE_XMLATTR, input, out);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
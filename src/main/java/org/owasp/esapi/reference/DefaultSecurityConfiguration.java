@@ -29,6 +29,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -100,6 +102,8 @@ public class DefaultSecurityConfiguration implements SecurityConfiguration {
     public static final String ALLOW_MULTIPLE_ENCODING = "Encoder.AllowMultipleEncoding";
     public static final String ALLOW_MIXED_ENCODING	= "Encoder.AllowMixedEncoding";
     public static final String CANONICALIZATION_CODECS = "Encoder.DefaultCodecList";
+    public static final String CANONICALIZATION_CACHE_ENABLED = "Encoder.CanonicalizationCache.Enabled";
+    public static final String CANONICALIZATION_CACHE_SIZE = "Encoder.CanonicalizationCache.MaxSize";
 
     public static final String DISABLE_INTRUSION_DETECTION  = "IntrusionDetector.Disable";
     
@@ -125,6 +129,9 @@ public class DefaultSecurityConfiguration implements SecurityConfiguration {
     public static final String COMBINED_CIPHER_MODES = "Encryptor.cipher_modes.combined_modes";
     public static final String ADDITIONAL_ALLOWED_CIPHER_MODES = "Encryptor.cipher_modes.additional_allowed";
     public static final String KDF_PRF_ALG = "Encryptor.KDF.PRF";
+    public static final String KDF_CACHE_ENABLED = "Encryptor.KDF.Cache.Enabled";
+    public static final String KDF_CACHE_SIZE = "Encryptor.KDF.Cache.MaxSize";
+    public static final String CRYPTO_PRIMITIVE_POOL_ENABLED = "Encryptor.PrimitivePool.Enabled";
 	public static final String PRINT_PROPERTIES_WHEN_LOADED = "ESAPI.printProperties";
 
     public static final String WORKING_DIRECTORY = "Executor.WorkingDirectory";
@@ -152,6 +159,11 @@ public class DefaultSecurityConfiguration implements SecurityConfiguration {
     public static final String VALIDATION_PROPERTIES = "Validator.ConfigurationFile";
     public static final String VALIDATION_PROPERTIES_MULTIVALUED = "Validator.ConfigurationFile.MultiValued";
     public static final String ACCEPT_LENIENT_DATES = "Validator.AcceptLenientDates";
+    public static final String STACKLESS_VALIDATION_EXCEPTIONS = "Validator.StacklessValidationExceptions";
+    public static final String REGEX_STEP_LIMIT = "Validator.RegexStepLimit";
+    public static final String HTML_VALIDATION_SCANNER = "Validator.HtmlValidation.Scanner";
+    public static final String HTML_VALIDATION_CACHE_ENABLED = "Validator.HtmlValidation.Cache.Enabled";
+    public static final String HTML_VALIDATION_CACHE_SIZE = "Validator.HtmlValidation.Cache.MaxSize";
 
     /**
      * Special {@code System} property that, if set to {@code true}, will
@@ -214,7 +226,7 @@ public class DefaultSecurityConfiguration implements SecurityConfiguration {
     public static final String DEFAULT_HTTP_UTILITIES_IMPLEMENTATION = "org.owasp.esapi.reference.DefaultHTTPUtilities";
     public static final String DEFAULT_VALIDATOR_IMPLEMENTATION = "org.owasp.esapi.reference.DefaultValidator";
 
-    private static final Map<String, Pattern> patternCache = new HashMap<String, Pattern>();
+    private static final Map<String, Pattern> patternCache = new ConcurrentHashMap<String, Pattern>();
 
     /*
      * Absolute path to the user.home. No longer includes the ESAPI portion as it used to.
@@ -234,6 +246,12 @@ public class DefaultSecurityConfiguration implements SecurityConfiguration {
 	private final String resourceFile;
     private EsapiPropertyManager esapiPropertyManager;
 
+    /*
+     * The parsed values of the frequently read properties. Replaced as a whole
+     * whenever the properties are (re)loaded or changed, so readers never lock.
+     */
+    private volatile Snapshot snapshot = null;
+
 //    private static long lastModified = -1;
 
     /**
@@ -260,12 +278,18 @@ public class DefaultSecurityConfiguration implements SecurityConfiguration {
      * Warning - if the setResourceDirectory() method is invoked the properties will
      * be re-loaded, replacing the supplied properties.
      * 
+     * Changes made to the supplied properties afterwards are only seen if they were
+     * obtained from another DefaultSecurityConfiguration. Plain {@code Properties}
+     * are parsed once, here.
+     * 
      * @param properties
      */
     public DefaultSecurityConfiguration(Properties properties) {
     	resourceFile = DEFAULT_RESOURCE_FILE;
+    	this.esapiPropertyManager = new EsapiPropertyManager();
     	this.properties = properties; 
     	this.setCipherXProperties();
+    	snapshot();
     }
     
     /**
@@ -289,77 +313,77 @@ public class DefaultSecurityConfiguration implements SecurityConfiguration {
 	 * {@inheritDoc}
 	 */
     public String getApplicationName() {
-    	return getESAPIProperty(APPLICATION_NAME, "DefaultName");
+    	return snapshot().applicationName;
     }
 
     /**
 	 * {@inheritDoc}
 	 */
     public String getLogImplementation() {
-    	return getESAPIProperty(LOG_IMPLEMENTATION, DEFAULT_LOG_IMPLEMENTATION);
+    	return snapshot().logImplementation;
     }
 
     /**
 	 * {@inheritDoc}
 	 */
     public String getAuthenticationImplementation() {
-    	return getESAPIProperty(AUTHENTICATION_IMPLEMENTATION, DEFAULT_AUTHENTICATION_IMPLEMENTATION);
+    	return snapshot().authenticationImplementation;
     }
 
     /**
 	 * {@inheritDoc}
 	 */
     public String getEncoderImplementation() {
-    	return getESAPIProperty(ENCODER_IMPLEMENTATION, DEFAULT_ENCODER_IMPLEMENTATION);
+    	return snapshot().encoderImplementation;
     }
 
     /**
 	 * {@inheritDoc}
 	 */
     public String getAccessControlImplementation() {
-    	return getESAPIProperty(ACCESS_CONTROL_IMPLEMENTATION, DEFAULT_ACCESS_CONTROL_IMPLEMENTATION);
+    	return snapshot().accessControlImplementation;
     }
 
     /**
 	 * {@inheritDoc}
 	 */
     public String getEncryptionImplementation() {
-    	return getESAPIProperty(ENCRYPTION_IMPLEMENTATION, DEFAULT_ENCRYPTION_IMPLEMENTATION);
+    	return snapshot().encryptionImplementation;
     }
 
     /**
 	 * {@inheritDoc}
 	 */
     public String getIntrusionDetectionImplementation() {
-    	return getESAPIProperty(INTRUSION_DETECTION_IMPLEMENTATION, DEFAULT_INTRUSION_DETECTION_IMPLEMENTATION);
+    	return snapshot().intrusionDetectionImplementation;
     }
 
     /**
 	 * {@inheritDoc}
 	 */
     public String getRandomizerImplementation() {
-    	return getESAPIProperty(RANDOMIZER_IMPLEMENTATION, DEFAULT_RANDOMIZER_IMPLEMENTATION);
+    	return snapshot().randomizerImplementation;
     }
 
     /**
 	 * {@inheritDoc}
 	 */
     public String getExecutorImplementation() {
-    	return getESAPIProperty(EXECUTOR_IMPLEMENTATION, DEFAULT_EXECUTOR_IMPLEMENTATION);
+    	return snapshot().executorImplementation;
     }
 
     /**
 	 * {@inheritDoc}
 	 */
     public String getHTTPUtilitiesImplementation() {
-    	return getESAPIProperty(HTTP_UTILITIES_IMPLEMENTATION, DEFAULT_HTTP_UTILITIES_IMPLEMENTATION);
+    	return snapshot().httpUtilitiesImplementation;
     }
 
     /**
 	 * {@inheritDoc}
 	 */
     public String getValidationImplementation() {
-    	return getESAPIProperty(VALIDATOR_IMPLEMENTATION, DEFAULT_VALIDATOR_IMPLEMENTATION);
+    	return snapshot().validationImplementation;
     }
 
 
@@ -391,7 +415,7 @@ public class DefaultSecurityConfiguration implements SecurityConfiguration {
     }
 
     public int getEncryptionKeyLength() {
-    	return getESAPIProperty(KEY_LENGTH, 128 );
+    	return snapshot().encryptionKeyLength;
     }
 
     /**
@@ -419,21 +443,19 @@ public class DefaultSecurityConfiguration implements SecurityConfiguration {
 	 * {@inheritDoc}
 	 */
 	public List<String> getAllowedFileExtensions() {
-        String def = ".pdf,.txt,.jpg,.png";
-        String[] extList = getESAPIProperty(APPROVED_UPLOAD_EXTENSIONS,def).split(",");
-        return Arrays.asList(extList);
+        return snapshot().allowedFileExtensions;
     }
 
     /**
 	 * {@inheritDoc}
 	 */
     public int getAllowedFileUploadSize() {
-        return getESAPIProperty(MAX_UPLOAD_FILE_BYTES, 5000000);
+        return snapshot().allowedFileUploadSize;
     }
 
 
     private Properties loadPropertiesFromStream( InputStream is, String name ) throws IOException {
-    	Properties config = new Properties();
+    	Properties config = new TrackedProperties();
         try {
 	        config.load(is);
 	        logSpecial("Loaded '" + name + "' properties file", null);
@@ -529,6 +551,7 @@ public class DefaultSecurityConfiguration implements SecurityConfiguration {
 		        */
 		        }   	
 	        }
+			snapshot = new Snapshot(this, properties, esapiPropertyManager.generation());
 		}
 	}	
 	
@@ -688,7 +711,7 @@ public class DefaultSecurityConfiguration implements SecurityConfiguration {
 		
 					// now load the properties
 					if (in != null) {
-						result = new Properties();
+						result = new TrackedProperties();
 						result.load(in); // Can throw IOException
 						logSpecial("SUCCESSFULLY LOADED " + fileName + " via the CLASSPATH from '" +
 								currentClasspathSearchLocation + "' using " + classLoaderNames[i] + "!");
@@ -790,7 +813,7 @@ public class DefaultSecurityConfiguration implements SecurityConfiguration {
 	 * {@inheritDoc}
 	 */
     public String getEncryptionAlgorithm() {
-        return getESAPIProperty(ENCRYPTION_ALGORITHM, "AES");
+        return snapshot().encryptionAlgorithm;
     }
 
     /**
@@ -821,14 +844,14 @@ public class DefaultSecurityConfiguration implements SecurityConfiguration {
      * {@inheritDoc}
      */
     public boolean useMACforCipherText() {
-    	return getESAPIProperty(CIPHERTEXT_USE_MAC, true);
+    	return snapshot().useMACforCipherText;
     }
 
     /**
      * {@inheritDoc}
      */
     public boolean overwritePlainText() {
-    	return getESAPIProperty(PLAINTEXT_OVERWRITE, true);
+    	return snapshot().overwritePlainText;
     }
     
     /**
@@ -879,53 +902,49 @@ public class DefaultSecurityConfiguration implements SecurityConfiguration {
 	 * {@inheritDoc}
 	 */
     public String getHashAlgorithm() {
-        return getESAPIProperty(HASH_ALGORITHM, "SHA-512");
+        return snapshot().hashAlgorithm;
     }
 
     /**
 	 * {@inheritDoc}
 	 */
     public int getHashIterations() {
-    	return getESAPIProperty(HASH_ITERATIONS, 1024);
+    	return snapshot().hashIterations;
     }
 
     /**
      * {@inheritDoc}
      */
 	public String getKDFPseudoRandomFunction() {
-		return getESAPIProperty(KDF_PRF_ALG, "HmacSHA256");  // NSA recommended SHA2 or better.
+		return snapshot().kdfPseudoRandomFunction;
 	}
 
     /**
 	 * {@inheritDoc}
 	 */
     public String getCharacterEncoding() {
-        return getESAPIProperty(CHARACTER_ENCODING, "UTF-8");
+        return snapshot().characterEncoding;
     }
 
     /**
 	 * {@inheritDoc}
 	 */
 	public boolean getAllowMultipleEncoding() {
-		return getESAPIProperty( ALLOW_MULTIPLE_ENCODING, false );
+		return snapshot().allowMultipleEncoding;
 	}
 
     /**
 	 * {@inheritDoc}
 	 */
 	public boolean getAllowMixedEncoding() {
-		return getESAPIProperty( ALLOW_MIXED_ENCODING, false );
+		return snapshot().allowMixedEncoding;
 	}
 
     /**
 	 * {@inheritDoc}
 	 */
 	public List<String> getDefaultCanonicalizationCodecs() {
-		List<String> def = new ArrayList<String>();
-		def.add( "org.owasp.esapi.codecs.HTMLEntityCodec" );
-		def.add( "org.owasp.esapi.codecs.PercentCodec" );
-		def.add( "org.owasp.esapi.codecs.JavaScriptCodec" );
-		return getESAPIProperty( CANONICALIZATION_CODECS, def );
+		return snapshot().defaultCanonicalizationCodecs;
 	}
 
     /**
@@ -984,22 +1003,32 @@ public class DefaultSecurityConfiguration implements SecurityConfiguration {
 	 * {@inheritDoc}
 	 */
 	public boolean getDisableIntrusionDetection() {
-    	String value = properties.getProperty( DISABLE_INTRUSION_DETECTION );
-    	if ("true".equalsIgnoreCase(value)) return true;
-    	return false;	// Default result
+		return snapshot().disableIntrusionDetection;
 	}
 
     /**
 	 * {@inheritDoc}
 	 */
 	public Threshold getQuota(String eventName) {
+        Threshold quota = snapshot().quotas.get(eventName);
+        if ( quota == null ) {
+        	return null;
+        }
+        // Threshold has public fields, so hand out a copy rather than the shared one
+        return new Threshold(quota.name, quota.count, quota.interval, quota.actions);
+    }
+
+    /**
+     * Parses the quota of one event. Called when the snapshot is built.
+     */
+    private Threshold parseQuota(String eventName) {
         int count = getESAPIProperty("IntrusionDetector." + eventName + ".count", 0);
         int interval =  getESAPIProperty("IntrusionDetector." + eventName + ".interval", 0);
         List<String> actions = new ArrayList<String>();
         String actionString = getESAPIProperty("IntrusionDetector." + eventName + ".actions", "");
         if (actionString != null) {
             String[] actionList = actionString.split(",");
-            actions = Arrays.asList(actionList);
+            actions = Collections.unmodifiableList(Arrays.asList(actionList));
         }
         if ( count > 0 && interval > 0 && actions.size() > 0 ) {
         	return new Threshold(eventName, count, interval, actions);
@@ -1011,6 +1040,13 @@ public class DefaultSecurityConfiguration implements SecurityConfiguration {
 	 * {@inheritDoc}
 	 */
     public int getLogLevel() {
+        return snapshot().logLevel;
+    }
+
+    /**
+     * Parses the log level. Called when the snapshot is built.
+     */
+    private int parseLogLevel() {
         String level = getESAPIProperty(LOG_LEVEL, "WARNING" );
 
         if (level.equalsIgnoreCase("OFF"))
@@ -1054,7 +1090,7 @@ public class DefaultSecurityConfiguration implements SecurityConfiguration {
 	 * {@inheritDoc}
 	 */
     public boolean getLogEncodingRequired() {
-    	return getESAPIProperty( LOG_ENCODING_REQUIRED, false );
+    	return snapshot().logEncodingRequired;
 	}
 
 
@@ -1062,7 +1098,7 @@ public class DefaultSecurityConfiguration implements SecurityConfiguration {
 	 * {@inheritDoc}
 	 */
     public boolean getLogApplicationName() {
-    	return getESAPIProperty( LOG_APPLICATION_NAME, true );
+    	return snapshot().logApplicationName;
 	}
 
 
@@ -1070,56 +1106,56 @@ public class DefaultSecurityConfiguration implements SecurityConfiguration {
 	 * {@inheritDoc}
 	 */
     public boolean getLogServerIP() {
-    	return getESAPIProperty( LOG_SERVER_IP, true );
+    	return snapshot().logServerIP;
 	}
 
     /**
 	 * {@inheritDoc}
 	 */
     public boolean getForceHttpOnlySession() {
-    	return getESAPIProperty( FORCE_HTTPONLYSESSION, true );
+    	return snapshot().forceHttpOnlySession;
     }
 
     /**
 	 * {@inheritDoc}
 	 */
     public boolean getForceSecureSession() {
-    	return getESAPIProperty( FORCE_SECURESESSION, true );
+    	return snapshot().forceSecureSession;
     }
 
     /**
 	 * {@inheritDoc}
 	 */
     public boolean getForceHttpOnlyCookies() {
-    	return getESAPIProperty( FORCE_HTTPONLYCOOKIES, true );
+    	return snapshot().forceHttpOnlyCookies;
     }
 
     /**
 	 * {@inheritDoc}
 	 */
     public boolean getForceSecureCookies() {
-    	return getESAPIProperty( FORCE_SECURECOOKIES, true );
+    	return snapshot().forceSecureCookies;
     }
 
     /**
 	 * {@inheritDoc}
 	 */
 	public int getMaxHttpHeaderSize() {
-        return getESAPIProperty( MAX_HTTP_HEADER_SIZE, 4096);
+        return snapshot().maxHttpHeaderSize;
 	}
 
     /**
 	 * {@inheritDoc}
 	 */
 	public String getResponseContentType() {
-        return getESAPIProperty( RESPONSE_CONTENT_TYPE, "text/html; charset=UTF-8" );
+        return snapshot().responseContentType;
     }
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public String getHttpSessionIdName() {
-        return getESAPIProperty( HTTP_SESSION_ID_NAME, "JSESSIONID" );
+        return snapshot().httpSessionIdName;
     }
 	
 	/**
@@ -1155,21 +1191,29 @@ public class DefaultSecurityConfiguration implements SecurityConfiguration {
     *  			if key exists, the associated validation pattern, null otherwise
 	*/
     public Pattern getValidationPattern( String key ) {
-    	String value = getESAPIProperty( "Validator." + key, "" );
-    	// check cache
-    	Pattern p = patternCache.get( value );
+    	// patterns already looked up by name for the current properties
+    	ConcurrentMap<String, Pattern> patterns = snapshot().validationPatterns;
+    	Pattern p = key == null ? null : patterns.get( key );
     	if ( p != null ) return p;
 
-    	// compile a new pattern
-    	if ( value == null || value.equals( "" ) ) return null;
-    	try {
-    		Pattern q = Pattern.compile(value);
-    		patternCache.put( value, q );
-    		return q;
-    	} catch ( PatternSyntaxException e ) {
-    		logSpecial( "SecurityConfiguration for " + key + " not a valid regex in ESAPI.properties. Returning null", null );
-    		return null;
+    	String value = getESAPIProperty( "Validator." + key, "" );
+    	// check cache
+    	p = patternCache.get( value );
+    	if ( p == null ) {
+    		// compile a new pattern
+    		if ( value == null || value.equals( "" ) ) return null;
+    		try {
+    			p = Pattern.compile(value);
+    			patternCache.put( value, p );
+    		} catch ( PatternSyntaxException e ) {
+    			logSpecial( "SecurityConfiguration for " + key + " not a valid regex in ESAPI.properties. Returning null", null );
+    			return null;
+    		}
+    	}
+    	if ( key != null ) {
+    		patterns.put( key, p );
     	}
+    	return p;
     }
 
     /**
@@ -1196,8 +1240,7 @@ public class DefaultSecurityConfiguration implements SecurityConfiguration {
 	 */
 	public List<String> getCombinedCipherModes()
 	{
-	    List<String> empty = new ArrayList<String>();     // Default is empty list
-	    return getESAPIProperty(COMBINED_CIPHER_MODES, empty);
+	    return snapshot().combinedCipherModes;
 	}
 
 	/**
@@ -1205,15 +1248,14 @@ public class DefaultSecurityConfiguration implements SecurityConfiguration {
 	 */
 	public List<String> getAdditionalAllowedCipherModes()
 	{
-	    List<String> empty = new ArrayList<String>();     // Default is empty list
-	    return getESAPIProperty(ADDITIONAL_ALLOWED_CIPHER_MODES, empty);
+	    return snapshot().additionalAllowedCipherModes;
 	}
 	
 	/**
 	 * {@inheritDoc}
 	 */
 	public boolean getLenientDatesAccepted() {
-		return getESAPIProperty( ACCEPT_LENIENT_DATES, false);
+		return snapshot().lenientDatesAccepted;
 	}
 
 	protected String getESAPIProperty( String key, String def ) {
@@ -1296,17 +1338,18 @@ public class DefaultSecurityConfiguration implements SecurityConfiguration {
      */
     @Override
     public int getIntProp(String propertyName) throws ConfigurationException {
-        try {
-            return esapiPropertyManager.getIntProp(propertyName);
-        } catch (ConfigurationException ex) {
-            String property = properties.getProperty(propertyName);
-            try {
-                return Integer.parseInt(property);
-            } catch (NumberFormatException e) {
-                throw new ConfigurationException( "SecurityConfiguration for " + propertyName + " has incorrect " +
-                        "type");
-            }
-        }
+        return (Integer) typedProperty(PropertyType.INT, propertyName);
+    }
+
+    /**
+     * Returns an int property as getIntProp does, or defaultValue if the
+     * property is not set or is not an int. Unlike getIntProp, a missing
+     * property costs no exception, so this suits properties that are usually
+     * not set but are looked up often.
+     */
+    public int getIntProp(String propertyName, int defaultValue) {
+        Object value = typedValue(PropertyType.INT, propertyName);
+        return value instanceof Integer ? (Integer) value : defaultValue;
     }
 
     /**
@@ -1318,20 +1361,8 @@ public class DefaultSecurityConfiguration implements SecurityConfiguration {
      */
     @Override
     public byte[] getByteArrayProp(String propertyName) throws ConfigurationException {
-        try {
-            return esapiPropertyManager.getByteArrayProp(propertyName);
-        } catch (ConfigurationException ex) {
-            String property = properties.getProperty(propertyName);
-            if ( property == null ) {
-                throw new ConfigurationException( "SecurityConfiguration for " + propertyName + " not found in ESAPI.properties");
-            }
-            try {
-                return ESAPI.encoder().decodeFromBase64(property);
-            } catch( IOException e ) {
-                throw new ConfigurationException( "SecurityConfiguration for " + propertyName + " has incorrect " +
-                        "type");
-            }
-        }
+        Object value = typedProperty(PropertyType.BYTE_ARRAY, propertyName);
+        return value == NULL_VALUE ? null : ((byte[]) value).clone();
     }
 
     /**
@@ -1343,22 +1374,7 @@ public class DefaultSecurityConfiguration implements SecurityConfiguration {
      */
     @Override
     public Boolean getBooleanProp(String propertyName) throws ConfigurationException {
-        try {
-            return esapiPropertyManager.getBooleanProp(propertyName);
-        } catch (ConfigurationException ex) {
-            String property = properties.getProperty( propertyName );
-            if ( property == null ) {
-                throw new ConfigurationException( "SecurityConfiguration for " + propertyName + " not found in ESAPI.properties");
-            }
-            if ( property.equalsIgnoreCase("true") || property.equalsIgnoreCase("yes" ) ) {
-                return true;
-            }
-            if ( property.equalsIgnoreCase("false") || property.equalsIgnoreCase( "no" ) ) {
-                return false;
-            }
-            throw new ConfigurationException( "SecurityConfiguration for " + propertyName + " has incorrect " +
-                    "type");
-        }
+        return (Boolean) typedProperty(PropertyType.BOOLEAN, propertyName);
     }
 
     /**
@@ -1370,15 +1386,122 @@ public class DefaultSecurityConfiguration implements SecurityConfiguration {
      */
     @Override
     public String getStringProp(String propertyName) throws ConfigurationException {
-        try {
-            return esapiPropertyManager.getStringProp(propertyName);
-        } catch (ConfigurationException ex) {
-            String property = properties.getProperty( propertyName );
-            if ( property == null ) {
-                throw new ConfigurationException( "SecurityConfiguration for " + propertyName + " not found in ESAPI.properties");
+        return (String) typedProperty(PropertyType.STRING, propertyName);
+    }
+
+    /**
+     * Returns the value of a property resolved across the ops, dev and default
+     * configuration, throwing a ConfigurationException if it is missing or mistyped.
+     */
+    private Object typedProperty(PropertyType type, String propertyName) throws ConfigurationException {
+        Object value = typedValue(type, propertyName);
+        if ( value == NOT_FOUND ) {
+            throw new ConfigurationException( "SecurityConfiguration for " + propertyName + " not found in ESAPI.properties");
+        }
+        if ( value == INCORRECT_TYPE ) {
+            throw new ConfigurationException( "SecurityConfiguration for " + propertyName + " has incorrect " +
+                    "type");
+        }
+        return value;
+    }
+
+    /**
+     * Returns the value of a property resolved across the ops, dev and default
+     * configuration, or NOT_FOUND or INCORRECT_TYPE. The result is kept in the
+     * snapshot, so only the first lookup of a property parses it. Property names
+     * can come from callers, so no more than MAX_TYPED_PROPERTIES results of
+     * each type are kept; later ones are resolved on every lookup.
+     */
+    private Object typedValue(PropertyType type, String propertyName) {
+        Snapshot current = snapshot();
+        ConcurrentMap<String, Object> values = current.typedProperties[type.ordinal()];
+        Object value = values.get(propertyName);
+        if ( value == null ) {
+            value = type.find(esapiPropertyManager, propertyName);
+            if ( value == null ) {
+                String property = current.source.getProperty(propertyName);
+                value = property == null ? NOT_FOUND : type.parse(property);
+            }
+            if ( values.size() < MAX_TYPED_PROPERTIES ) {
+                values.put(propertyName, value);
             }
-            return property;
         }
+        return value;
+    }
+
+    /** The most results of one type that typedValue() keeps in a snapshot. */
+    private static final int MAX_TYPED_PROPERTIES = 1000;
+
+    /** Kept by typedProperty() for a property that is not set. */
+    private static final Object NOT_FOUND = new Object();
+
+    /** Kept by typedProperty() for a property whose value cannot be converted. */
+    private static final Object INCORRECT_TYPE = new Object();
+
+    /** Kept by typedProperty() in place of a null value, which the maps cannot hold. */
+    private static final Object NULL_VALUE = new Object();
+
+    /**
+     * The types of the typed getters, each with its own values in the snapshot.
+     */
+    private enum PropertyType {
+        INT {
+            Object find(EsapiPropertyManager manager, String propertyName) {
+                return manager.findIntProp(propertyName);
+            }
+            Object parse(String property) {
+                try {
+                    return Integer.valueOf(property);
+                } catch (NumberFormatException e) {
+                    return INCORRECT_TYPE;
+                }
+            }
+        },
+        BYTE_ARRAY {
+            Object find(EsapiPropertyManager manager, String propertyName) {
+                return manager.findByteArrayProp(propertyName);
+            }
+            Object parse(String property) {
+                try {
+                    byte[] value = ESAPI.encoder().decodeFromBase64(property);
+                    return value == null ? NULL_VALUE : value;
+                } catch (IOException e) {
+                    return INCORRECT_TYPE;
+                }
+            }
+        },
+        BOOLEAN {
+            Object find(EsapiPropertyManager manager, String propertyName) {
+                return manager.findBooleanProp(propertyName);
+            }
+            Object parse(String property) {
+                if ( property.equalsIgnoreCase("true") || property.equalsIgnoreCase("yes" ) ) {
+                    return Boolean.TRUE;
+                }
+                if ( property.equalsIgnoreCase("false") || property.equalsIgnoreCase( "no" ) ) {
+                    return Boolean.FALSE;
+                }
+                return INCORRECT_TYPE;
+            }
+        },
+        STRING {
+            Object find(EsapiPropertyManager manager, String propertyName) {
+                return manager.findStringProp(propertyName);
+            }
+            Object parse(String property) {
+                return property;
+            }
+        };
+
+        /**
+         * @return the value from the ops or dev configuration, or null if neither has it.
+         */
+        abstract Object find(EsapiPropertyManager manager, String propertyName);
+
+        /**
+         * @return the value of ESAPI.properties converted to this type, or INCORRECT_TYPE.
+         */
+        abstract Object parse(String property);
     }
 
 
@@ -1389,6 +1512,228 @@ public class DefaultSecurityConfiguration implements SecurityConfiguration {
     protected Properties getESAPIProperties() {
         return properties;
     }
+
+    /**
+     * Returns the parsed values of the current properties. The snapshot is built
+     * when the configuration is loaded and only rebuilt after the properties have
+     * been replaced or, for properties loaded by this class, modified, or after
+     * the ops or dev configuration files have been reloaded.
+     */
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        Properties props = properties;
+        int generation = esapiPropertyManager.generation();
+        if ( current == null || !current.isCurrent(props, generation) ) {
+            // concurrent callers may both rebuild; either result is correct
+            current = new Snapshot(this, props, generation);
+            snapshot = current;
+        }
+        return current;
+    }
+
+    /**
+     * Properties that count their modifications, so a {@link Snapshot} can tell
+     * whether it is still current. {@code load()}, {@code setProperty()} and
+     * {@code putAll()} all go through {@code put()}.
+     */
+    private static final class TrackedProperties extends Properties {
+        private static final long serialVersionUID = 1L;
+
+        private volatile int modifications = 0;
+
+        @Override
+        public synchronized Object put(Object key, Object value) {
+            Object previous = super.put(key, value);
+            modifications++;
+            return previous;
+        }
+
+        @Override
+        public synchronized Object remove(Object key) {
+            Object previous = super.remove(key);
+            modifications++;
+            return previous;
+        }
+
+        @Override
+        public synchronized void clear() {
+            super.clear();
+            modifications++;
+        }
+    }
+
+    /**
+     * An immutable, pre-parsed view of the properties that are read on every
+     * request, so that their getters are plain field reads. Missing or invalid
+     * values are reported once, when the snapshot is built.
+     */
+    private static final class Snapshot {
+        private final Properties source;
+        private final int modifications;
+        private final int generation;
+
+        final String applicationName;
+        final String logImplementation;
+        final String authenticationImplementation;
+        final String encoderImplementation;
+        final String accessControlImplementation;
+        final String encryptionImplementation;
+        final String intrusionDetectionImplementation;
+        final String randomizerImplementation;
+        final String executorImplementation;
+        final String httpUtilitiesImplementation;
+        final String validationImplementation;
+
+        final boolean allowMultipleEncoding;
+        final boolean allowMixedEncoding;
+        final List<String> defaultCanonicalizationCodecs;
+
+        final int encryptionKeyLength;
+        final String encryptionAlgorithm;
+        final String hashAlgorithm;
+        final int hashIterations;
+        final String kdfPseudoRandomFunction;
+        final String characterEncoding;
+        final boolean useMACforCipherText;
+        final boolean overwritePlainText;
+        final List<String> combinedCipherModes;
+        final List<String> additionalAllowedCipherModes;
+
+        final boolean disableIntrusionDetection;
+        final Map<String, Threshold> quotas;
+
+        final int logLevel;
+        final boolean logEncodingRequired;
+        final boolean logApplicationName;
+        final boolean logServerIP;
+
+        final boolean forceHttpOnlySession;
+        final boolean forceSecureSession;
+        final boolean forceHttpOnlyCookies;
+        final boolean forceSecureCookies;
+        final int maxHttpHeaderSize;
+        final String responseContentType;
+        final String httpSessionIdName;
+        final List<String> allowedFileExtensions;
+        final int allowedFileUploadSize;
+
+        final boolean lenientDatesAccepted;
+
+        /** Filled in by getValidationPattern() as validation patterns are asked for. */
+        final ConcurrentMap<String, Pattern> validationPatterns = new ConcurrentHashMap<String, Pattern>();
+
+        /** Filled in by typedProperty() as properties are asked for, one map per PropertyType. */
+        final ConcurrentMap<String, Object>[] typedProperties;
+
+        @SuppressWarnings("unchecked")
+        Snapshot(DefaultSecurityConfiguration config, Properties props, int generation) {
+            // read the count first, so a change made while parsing forces a rebuild
+            source = props;
+            modifications = modificationsOf(props);
+            this.generation = generation;
+            typedProperties = new ConcurrentMap[PropertyType.values().length];
+            for ( int i = 0; i < typedProperties.length; i++ ) {
+                typedProperties[i] = new ConcurrentHashMap<String, Object>();
+            }
+
+            applicationName = config.getESAPIProperty(APPLICATION_NAME, "DefaultName");
+            logImplementation = config.getESAPIProperty(LOG_IMPLEMENTATION, DEFAULT_LOG_IMPLEMENTATION);
+            authenticationImplementation = config.getESAPIProperty(AUTHENTICATION_IMPLEMENTATION, DEFAULT_AUTHENTICATION_IMPLEMENTATION);
+            encoderImplementation = config.getESAPIProperty(ENCODER_IMPLEMENTATION, DEFAULT_ENCODER_IMPLEMENTATION);
+            accessControlImplementation = config.getESAPIProperty(ACCESS_CONTROL_IMPLEMENTATION, DEFAULT_ACCESS_CONTROL_IMPLEMENTATION);
+            encryptionImplementation = config.getESAPIProperty(ENCRYPTION_IMPLEMENTATION, DEFAULT_ENCRYPTION_IMPLEMENTATION);
+            intrusionDetectionImplementation = config.getESAPIProperty(INTRUSION_DETECTION_IMPLEMENTATION, DEFAULT_INTRUSION_DETECTION_IMPLEMENTATION);
+            randomizerImplementation = config.getESAPIProperty(RANDOMIZER_IMPLEMENTATION, DEFAULT_RANDOMIZER_IMPLEMENTATION);
+            executorImplementation = config.getESAPIProperty(EXECUTOR_IMPLEMENTATION, DEFAULT_EXECUTOR_IMPLEMENTATION);
+            httpUtilitiesImplementation = config.getESAPIProperty(HTTP_UTILITIES_IMPLEMENTATION, DEFAULT_HTTP_UTILITIES_IMPLEMENTATION);
+            validationImplementation = config.getESAPIProperty(VALIDATOR_IMPLEMENTATION, DEFAULT_VALIDATOR_IMPLEMENTATION);
+
+            allowMultipleEncoding = config.getESAPIProperty(ALLOW_MULTIPLE_ENCODING, false);
+            allowMixedEncoding = config.getESAPIProperty(ALLOW_MIXED_ENCODING, false);
+            List<String> codecs = new ArrayList<String>();
+            codecs.add( "org.owasp.esapi.codecs.HTMLEntityCodec" );
+            codecs.add( "org.owasp.esapi.codecs.PercentCodec" );
+            codecs.add( "org.owasp.esapi.codecs.JavaScriptCodec" );
+            defaultCanonicalizationCodecs = immutable(config.getESAPIProperty(CANONICALIZATION_CODECS, codecs));
+
+            encryptionKeyLength = config.getESAPIProperty(KEY_LENGTH, 128);
+            encryptionAlgorithm = config.getESAPIProperty(ENCRYPTION_ALGORITHM, "AES");
+            hashAlgorithm = config.getESAPIProperty(HASH_ALGORITHM, "SHA-512");
+            hashIterations = config.getESAPIProperty(HASH_ITERATIONS, 1024);
+            kdfPseudoRandomFunction = config.getESAPIProperty(KDF_PRF_ALG, "HmacSHA256");  // NSA recommended SHA2 or better.
+            characterEncoding = config.getESAPIProperty(CHARACTER_ENCODING, "UTF-8");
+            useMACforCipherText = config.getESAPIProperty(CIPHERTEXT_USE_MAC, true);
+            overwritePlainText = config.getESAPIProperty(PLAINTEXT_OVERWRITE, true);
+            // Default is empty list
+            combinedCipherModes = immutable(config.getESAPIProperty(COMBINED_CIPHER_MODES, new ArrayList<String>()));
+            additionalAllowedCipherModes = immutable(config.getESAPIProperty(ADDITIONAL_ALLOWED_CIPHER_MODES, new ArrayList<String>()));
+
+            disableIntrusionDetection = "true".equalsIgnoreCase(props.getProperty(DISABLE_INTRUSION_DETECTION));
+            quotas = parseQuotas(config, props);
+
+            logLevel = config.parseLogLevel();
+            logEncodingRequired = config.getESAPIProperty(LOG_ENCODING_REQUIRED, false);
+            logApplicationName = config.getESAPIProperty(LOG_APPLICATION_NAME, true);
+            logServerIP = config.getESAPIProperty(LOG_SERVER_IP, true);
+
+            forceHttpOnlySession = config.getESAPIProperty(FORCE_HTTPONLYSESSION, true);
+            forceSecureSession = config.getESAPIProperty(FORCE_SECURESESSION, true);
+            forceHttpOnlyCookies = config.getESAPIProperty(FORCE_HTTPONLYCOOKIES, true);
+            forceSecureCookies = config.getESAPIProperty(FORCE_SECURECOOKIES, true);
+            maxHttpHeaderSize = config.getESAPIProperty(MAX_HTTP_HEADER_SIZE, 4096);
+            responseContentType = config.getESAPIProperty(RESPONSE_CONTENT_TYPE, "text/html; charset=UTF-8");
+            httpSessionIdName = config.getESAPIProperty(HTTP_SESSION_ID_NAME, "JSESSIONID");
+            String extensions = config.getESAPIProperty(APPROVED_UPLOAD_EXTENSIONS, ".pdf,.txt,.jpg,.png");
+            allowedFileExtensions = immutable(Arrays.asList(extensions.split(",")));
+            allowedFileUploadSize = config.getESAPIProperty(MAX_UPLOAD_FILE_BYTES, 5000000);
+
+            lenientDatesAccepted = config.getESAPIProperty(ACCEPT_LENIENT_DATES, false);
+        }
+
+        /**
+         * @return true if {@code props} are the properties this snapshot was
+         * built from, and have not been modified since, and the ops and dev
+         * configuration are still at {@code generation}.
+         */
+        boolean isCurrent(Properties props, int generation) {
+            return props == source && modificationsOf(props) == modifications && generation == this.generation;
+        }
+
+        private static int modificationsOf(Properties props) {
+            return props instanceof TrackedProperties ? ((TrackedProperties) props).modifications : 0;
+        }
+
+        private static List<String> immutable(List<String> list) {
+            return Collections.unmodifiableList(new ArrayList<String>(list));
+        }
+
+        /**
+         * Parses the quota of every event that has one of the
+         * IntrusionDetector.&lt;event&gt;.count/interval/actions properties.
+         */
+        private static Map<String, Threshold> parseQuotas(DefaultSecurityConfiguration config, Properties props) {
+            final String prefix = "IntrusionDetector.";
+            Map<String, Threshold> quotas = new HashMap<String, Threshold>();
+            for ( String key : props.stringPropertyNames() ) {
+                if ( !key.startsWith(prefix) ) {
+                    continue;
+                }
+                int dot = key.lastIndexOf('.');
+                String suffix = key.substring(dot + 1);
+                if ( dot <= prefix.length() ||
+                     !(suffix.equals("count") || suffix.equals("interval") || suffix.equals("actions")) ) {
+                    continue;
+                }
+                String eventName = key.substring(prefix.length(), dot);
+                if ( !quotas.containsKey(eventName) ) {
+                    quotas.put(eventName, config.parseQuota(eventName));
+                }
+            }
+            // events without a complete quota were mapped to null above
+            quotas.values().removeAll(Collections.singleton(null));
+            return Collections.unmodifiableMap(quotas);
+        }
+    }
     
     public enum DefaultSearchPath {
     	
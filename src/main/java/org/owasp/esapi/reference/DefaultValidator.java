@@ -20,8 +20,13 @@ package org.owasp.esapi.reference;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.text.DateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -37,10 +42,13 @@ import javax.servlet.http.HttpServletRequest;
 
 import org.owasp.esapi.ESAPI;
 import org.owasp.esapi.Encoder;
+import org.owasp.esapi.FileContentCheck;
 import org.owasp.esapi.Logger;
 import org.owasp.esapi.SecurityConfiguration;
 import org.owasp.esapi.ValidationErrorList;
+import org.owasp.esapi.ValidationResult;
 import org.owasp.esapi.ValidationRule;
+import org.owasp.esapi.ValidationSchema;
 import org.owasp.esapi.Validator;
 import org.owasp.esapi.errors.IntrusionException;
 import org.owasp.esapi.errors.ValidationAvailabilityException;
@@ -51,6 +59,7 @@ import org.owasp.esapi.reference.validation.HTMLValidationRule;
 import org.owasp.esapi.reference.validation.IntegerValidationRule;
 import org.owasp.esapi.reference.validation.NumberValidationRule;
 import org.owasp.esapi.reference.validation.StringValidationRule;
+import org.owasp.esapi.util.SegmentedLRUCache;
 
 /**
  * Reference implementation of the Validator interface. This implementation
@@ -86,6 +95,18 @@ public class DefaultValidator implements org.owasp.esapi.Validator {
 	/** The encoder to use for canonicalization */
 	private Encoder encoder = null;
 
+	/** The most string rules kept by getValidInput(); the least recently used are discarded. */
+	private static final int MAX_STRING_RULES = 1000;
+
+	/** The buffer size used to stream file content through getValidFileContent(). */
+	private static final int FILE_CONTENT_BUFFER_SIZE = 8192;
+
+	/**
+	 * The rules built by getValidInput(). They are never handed out or changed
+	 * after being built, so one rule can be shared by concurrent validations.
+	 */
+	private final SegmentedLRUCache<StringRuleKey, StringValidationRule> stringRules = new SegmentedLRUCache<StringRuleKey, StringValidationRule>(MAX_STRING_RULES);
+
 	/** The encoder to use for file system */
 	private static Validator fileValidator = null;
 
@@ -206,18 +227,31 @@ public class DefaultValidator implements org.owasp.esapi.Validator {
 	 * @throws IntrusionException
 	 */
 	public String getValidInput(String context, String input, String type, int maxLength, boolean allowNull, boolean canonicalize) throws ValidationException {
-		StringValidationRule rvr = new StringValidationRule( type, encoder );
 		Pattern p = ESAPI.securityConfiguration().getValidationPattern( type );
-		if ( p != null ) {
-			rvr.addWhitelistPattern( p );
-		} else {
+		if ( p == null ) {
             // Issue 232 - Specify requested type in exception message - CS
 			throw new IllegalArgumentException("The selected type [" + type + "] was not set via the ESAPI validation configuration");
 		}
-		rvr.setMaximumLength(maxLength);
-		rvr.setAllowNull(allowNull);
-		rvr.setCanonicalize(canonicalize);
-		return rvr.getValid(context, input);
+		return getStringRule(type, p, maxLength, allowNull, canonicalize).getValid(context, input);
+	}
+
+	/**
+	 * Returns the rule for the given settings, building it on first use. The
+	 * pattern is part of the key, so a change to the configured pattern gets
+	 * a new rule.
+	 */
+	private StringValidationRule getStringRule(String type, Pattern p, int maxLength, boolean allowNull, boolean canonicalize) {
+		StringRuleKey key = new StringRuleKey(type, p, maxLength, allowNull, canonicalize);
+		StringValidationRule rvr = stringRules.get(key);
+		if ( rvr == null ) {
+			rvr = new StringValidationRule( type, encoder );
+			rvr.addWhitelistPattern( p );
+			rvr.setMaximumLength(maxLength);
+			rvr.setAllowNull(allowNull);
+			rvr.setCanonicalize(canonicalize);
+			stringRules.put(key, rvr);
+		}
+		return rvr;
 	}
 
 	/**
@@ -787,6 +821,81 @@ public class DefaultValidator implements org.owasp.esapi.Validator {
 		return new byte[0];
 	}
 
+	/**
+	 * Copies file content from input to output while validating it, so that a file of any size can be validated with
+	 * a fixed amount of memory. The size is checked as the content is read, against both maxBytes and the ESAPI
+	 * maximum upload size, and every buffer is passed to each of the checks before it is written. Invalid input
+	 * will generate a descriptive ValidationException, and input that is clearly an attack
+	 * will generate a descriptive IntrusionException.
+	 * <p>
+	 * If the content is invalid, output will hold part or all of it, because the checks only complete once the
+	 * last buffer has been written; the caller must discard it, for example by deleting the file being written.
+	 * Neither stream is closed.
+	 *
+	 * @param context
+	 * 		A descriptive name of the parameter that you are validating (e.g., LoginPage_UsernameField). This value is used by any logging or error handling that is done with respect to the value passed in.
+	 * @param input
+	 * 		The content to validate.
+	 * @param output
+	 * 		Where to write the content, typically a file; must not be null.
+	 * @param maxBytes
+	 * 		The maximum number of bytes allowed in a legal file.
+	 * @param allowNull
+	 * 		If allowNull is true then a NULL or empty input will be legal. If allowNull is false then NULL or empty input will throw a ValidationException.
+	 * @param checks
+	 * 		Checks to run over the content, such as its file signature; may be null. Checks keep state, so use new instances for each file.
+	 *
+	 * @return The number of bytes copied.
+	 *
+	 * @throws ValidationException if the content is invalid or cannot be read or written
+	 * @throws IntrusionException
+	 */
+	public long getValidFileContent(String context, InputStream input, OutputStream output, long maxBytes, boolean allowNull, List<FileContentCheck> checks) throws ValidationException, IntrusionException {
+		if (output == null) {
+			throw new IllegalArgumentException("The output for the file content of [" + context + "] must not be null");
+		}
+		long esapiMaxBytes = ESAPI.securityConfiguration().getAllowedFileUploadSize();
+		long size = 0;
+		if (input != null) {
+			byte[] buffer = new byte[FILE_CONTENT_BUFFER_SIZE];
+			int n;
+			try {
+				while ((n = input.read(buffer)) != -1) {
+					size += n;
+					if (size > esapiMaxBytes ) throw new ValidationException( context + ": Invalid file content can not exceed " + esapiMaxBytes + " bytes", "Exceeded ESAPI max length", context );
+					if (size > maxBytes ) throw new ValidationException( context + ": Invalid file content can not exceed " + maxBytes + " bytes", "Exceeded maxBytes ( more than " + maxBytes + ")", context );
+					if (checks != null) {
+						for (FileContentCheck check : checks) {
+							check.update(context, buffer, 0, n);
+						}
+					}
+					output.write(buffer, 0, n);
+				}
+			} catch (IOException e) {
+				throw new ValidationException( context + ": File content could not be copied", "I/O error while validating file content after " + size + " bytes: context=" + context, e, context );
+			}
+		}
+		if (size == 0) {
+			if (allowNull) return 0;
+			throw new ValidationException( context + ": Input required", "Input required: context=" + context, context );
+		}
+		if (checks != null) {
+			for (FileContentCheck check : checks) {
+				check.finish(context);
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Calls getValidFileContent with streams over the channels.
+	 *
+	 * @see #getValidFileContent(String, InputStream, OutputStream, long, boolean, List)
+	 */
+	public long getValidFileContent(String context, ReadableByteChannel input, WritableByteChannel output, long maxBytes, boolean allowNull, List<FileContentCheck> checks) throws ValidationException, IntrusionException {
+		return getValidFileContent(context, input == null ? null : Channels.newInputStream(input), output == null ? null : Channels.newOutputStream(output), maxBytes, allowNull, checks);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 *
@@ -822,6 +931,38 @@ public class DefaultValidator implements org.owasp.esapi.Validator {
 		getValidFileContent( context, content, maxBytes, allowNull );
 	}
 
+	/**
+	 * Validates the filepath and filename of a file, and then streams its content to output while validating it
+	 * as {@link #getValidFileContent(String, InputStream, OutputStream, long, boolean, List)} does, so the caller
+	 * must discard output if it throws. Invalid input will generate a descriptive ValidationException, and input
+	 * that is clearly an attack will generate a descriptive IntrusionException.
+	 *
+	 * @param context
+	 * 		A descriptive name of the parameter that you are validating (e.g., LoginPage_UsernameField). This value is used by any logging or error handling that is done with respect to the value passed in.
+	 * @param directorypath
+	 * 		The file path of the uploaded file.
+	 * @param filename
+	 * 		The filename of the uploaded file
+	 * @param content
+	 * 		The content of the uploaded file.
+	 * @param output
+	 * 		Where to write the content, typically a file; must not be null.
+	 * @param maxBytes
+	 * 		The max number of bytes allowed for a legal file upload.
+	 * @param allowNull
+	 * 		If allowNull is true then an input that is NULL or an empty string will be legal. If allowNull is false then NULL or an empty String will throw a ValidationException.
+	 * @param checks
+	 * 		Checks to run over the content; may be null.
+	 *
+	 * @throws ValidationException
+	 * @throws IntrusionException
+	 */
+	public void assertValidFileUpload(String context, String directorypath, String filename, File parent, InputStream content, OutputStream output, long maxBytes, List<String> allowedExtensions, boolean allowNull, List<FileContentCheck> checks) throws ValidationException, IntrusionException {
+		getValidFileName( context, filename, allowedExtensions, allowNull );
+		getValidDirectoryPath( context, directorypath, parent, allowNull );
+		getValidFileContent( context, content, output, maxBytes, allowNull, checks );
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -954,6 +1095,92 @@ public class DefaultValidator implements org.owasp.esapi.Validator {
 		}
 	}
 
+	/**
+	 * Validates input like {@link #getValidInput(String, String, String, int, boolean)}, but reports invalid input
+	 * as a {@link ValidationResult} instead of a ValidationException, so that no exception or stack trace is built
+	 * for it. Invalid results are not reported to the IntrusionDetector. Input that is clearly an attack will still
+	 * generate a descriptive IntrusionException.
+	 *
+	 * @param context
+	 * 		A descriptive name of the parameter that you are validating (e.g., LoginPage_UsernameField). This value is used by any logging or error handling that is done with respect to the value passed in.
+	 * @param input
+	 * 		The actual user input data to validate.
+	 * @param type
+	 * 		The regular expression name that maps to the actual regular expression from "ESAPI.properties".
+	 * @param maxLength
+	 * 		The maximum post-canonicalized String length allowed.
+	 * @param allowNull
+	 * 		If allowNull is true then an input that is NULL or an empty string will be legal. If allowNull is false then NULL or an empty String will be invalid.
+	 *
+	 * @return the canonicalized input if it is valid, otherwise why it is not
+	 *
+	 * @throws IntrusionException
+	 */
+	public ValidationResult check(String context, String input, String type, int maxLength, boolean allowNull) throws IntrusionException {
+		return check(context, input, type, maxLength, allowNull, true);
+	}
+
+	/**
+	 * Validates input like {@link #getValidInput(String, String, String, int, boolean, boolean)}, but reports
+	 * invalid input as a {@link ValidationResult}.
+	 *
+	 * @see #check(String, String, String, int, boolean)
+	 */
+	public ValidationResult check(String context, String input, String type, int maxLength, boolean allowNull, boolean canonicalize) throws IntrusionException {
+		Pattern p = ESAPI.securityConfiguration().getValidationPattern( type );
+		if ( p == null ) {
+			throw new IllegalArgumentException("The selected type [" + type + "] was not set via the ESAPI validation configuration");
+		}
+		return getStringRule(type, p, maxLength, allowNull, canonicalize).check(context, input);
+	}
+
+	/**
+	 * Validates every field of the schema against the given parameters in one pass, as each field
+	 * would be by its own getValidInput call. Parameters that are not in the schema are ignored; use
+	 * assertValidHTTPRequestParameterSet to reject them. Each value of a multi-valued parameter is
+	 * validated, and the first invalid one is reported.
+	 *
+	 * Fields validated by type share the rules of getValidInput, so the
+	 * patterns are looked up and the rules built once rather than per value.
+	 * No exception is created for a valid value.
+	 *
+	 * @param params
+	 * 		The parameters to validate, for example from {@code ServletRequest.getParameterMap()}.
+	 * @param schema
+	 * 		The fields to validate and how.
+	 *
+	 * @return the errors found, keyed by field name; empty if every field is valid
+	 *
+	 * @throws IntrusionException
+	 */
+	public ValidationErrorList validateAll(Map<String, String[]> params, ValidationSchema schema) throws IntrusionException {
+		ValidationErrorList errors = new ValidationErrorList();
+		for (ValidationSchema.Field field : schema.getFields()) {
+			String name = field.getName();
+			ValidationRule rule = field.getRule();
+			if ( rule == null ) {
+				Pattern p = ESAPI.securityConfiguration().getValidationPattern( field.getType() );
+				if ( p == null ) {
+					throw new IllegalArgumentException("The selected type [" + field.getType() + "] was not set via the ESAPI validation configuration");
+				}
+				rule = getStringRule(field.getType(), p, field.getMaxLength(), field.isAllowNull(), field.isCanonicalize());
+			}
+			String[] values = params.get(name);
+			try {
+				if ( values == null || values.length == 0 ) {
+					rule.getValid(name, null);
+				} else {
+					for (String value : values) {
+						rule.getValid(name, value);
+					}
+				}
+			} catch (ValidationException e) {
+				errors.addError(name, e);
+			}
+		}
+		return errors;
+	}
+
 	/**
      * {@inheritDoc}
      *
@@ -992,21 +1219,32 @@ public class DefaultValidator implements org.owasp.esapi.Validator {
      * @throws IntrusionException
      */
 	public char[] getValidPrintable(String context, char[] input, int maxLength, boolean allowNull) throws ValidationException, IntrusionException {
-		if (isEmpty(input)) {
-			if (allowNull) return null;
+		return checkPrintable(context, input == null ? null : CharBuffer.wrap(input), maxLength, allowNull) ? input : null;
+	}
+
+	/**
+	 * Checks in a single pass that the input is not too long and holds only printable ASCII characters.
+	 *
+	 * @return false if the input is empty and that is allowed, true if it is valid
+	 * @throws ValidationException if the input is invalid
+	 */
+	private static boolean checkPrintable(String context, CharSequence input, int maxLength, boolean allowNull) throws ValidationException {
+		if (input == null || input.length() == 0) {
+			if (allowNull) return false;
    			throw new ValidationException(context + ": Input bytes required", "Input bytes required: HTTP request is null", context );
 		}
 
-		if (input.length > maxLength) {
-			throw new ValidationException(context + ": Input bytes can not exceed " + maxLength + " bytes", "Input exceeds maximum allowed length of " + maxLength + " by " + (input.length-maxLength) + " bytes: context=" + context + ", input=" + new String( input ), context);
+		if (input.length() > maxLength) {
+			throw new ValidationException(context + ": Input bytes can not exceed " + maxLength + " bytes", "Input exceeds maximum allowed length of " + maxLength + " by " + (input.length()-maxLength) + " bytes: context=" + context + ", input=" + input, context);
 		}
 
-		for (int i = 0; i < input.length; i++) {
-			if (input[i] <= 0x20 || input[i] >= 0x7E ) {
-				throw new ValidationException(context + ": Invalid input bytes: context=" + context, "Invalid non-ASCII input bytes, context=" + context + ", input=" + new String( input ), context);
+		for (int i = 0, n = input.length(); i < n; i++) {
+			char c = input.charAt(i);
+			if (c <= 0x20 || c >= 0x7E ) {
+				throw new ValidationException(context + ": Invalid input bytes: context=" + context, "Invalid non-ASCII input bytes, context=" + context + ", input=" + input, context);
 			}
 		}
-		return input;
+		return true;
 	}
 
 	/**
@@ -1059,13 +1297,15 @@ public class DefaultValidator implements org.owasp.esapi.Validator {
 	/**
 	 * Returns canonicalized and validated printable characters as a String. Invalid input will generate a descriptive ValidationException, and input that is clearly an attack
 	 * will generate a descriptive IntrusionException.
+	 * <p>
+	 * The canonical form is checked in place, so input that is already canonical is returned as is, without being copied.
      *
      * @throws IntrusionException
      */
 	public String getValidPrintable(String context, String input, int maxLength, boolean allowNull) throws ValidationException, IntrusionException {
 		try {
     		String canonical = encoder.canonicalize(input);
-    		return new String( getValidPrintable( context, canonical.toCharArray(), maxLength, allowNull) );
+    		return checkPrintable(context, canonical, maxLength, allowNull) ? canonical : null;
 	    //TODO - changed this to base Exception since we no longer need EncodingException
     	//TODO - this is a bit lame: we need to re-think this function.
 		} catch (Exception e) {
@@ -1191,17 +1431,6 @@ public class DefaultValidator implements org.owasp.esapi.Validator {
 	private final boolean isEmpty(byte[] input) {
 		return (input==null || input.length == 0);
 	}
-
-
-	/**
-	 * Helper function to check if a char array is empty
-	 *
-	 * @param input string input value
-	 * @return boolean response if input is empty or not
-	 */
-	private final boolean isEmpty(char[] input) {
-		return (input==null || input.length == 0);
-	}
 	
 	/**
 	 * {@inheritDoc}
@@ -1258,4 +1487,43 @@ public class DefaultValidator implements org.owasp.esapi.Validator {
 		}
 		return rval;
 	}
+
+	/**
+	 * Key of a rule built by getValidInput(). Patterns compare by identity.
+	 */
+	private static final class StringRuleKey {
+		private final String type;
+		private final Pattern pattern;
+		private final int maxLength;
+		private final boolean allowNull;
+		private final boolean canonicalize;
+
+		StringRuleKey(String type, Pattern pattern, int maxLength, boolean allowNull, boolean canonicalize) {
+			this.type = type;
+			this.pattern = pattern;
+			this.maxLength = maxLength;
+			this.allowNull = allowNull;
+			this.canonicalize = canonicalize;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if ( !(o instanceof StringRuleKey) ) {
+				return false;
+			}
+			StringRuleKey other = (StringRuleKey) o;
+			return pattern == other.pattern && maxLength == other.maxLength
+					&& allowNull == other.allowNull && canonicalize == other.canonicalize
+					&& (type == null ? other.type == null : type.equals(other.type));
+		}
+
+		@Override
+		public int hashCode() {
+			int h = pattern.hashCode();
+			h = 31 * h + maxLength;
+			h = 31 * h + (allowNull ? 1 : 0);
+			h = 31 * h + (canonicalize ? 1 : 0);
+			return h;
+		}
+	}
 }
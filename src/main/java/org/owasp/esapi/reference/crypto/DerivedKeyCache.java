@@ -0,0 +1,178 @@
+/**
+ * OWASP Enterprise Security API (ESAPI)
+ *
+ * This file is part of the Open Web Application Security Project (OWASP)
+ * Enterprise Security API (ESAPI) project. For details, please see
+ * <a href="http://www.owasp.org/index.php/ESAPI">http://www.owasp.org/index.php/ESAPI</a>.
+ *
+ * Copyright (c) 2017 - The OWASP Foundation
+ *
+ * The ESAPI is published by OWASP under the BSD license. You should read and accept the
+ * LICENSE before you use, modify, and/or redistribute this software.
+ */
+package org.owasp.esapi.reference.crypto;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.owasp.esapi.crypto.CryptoPrimitivePool;
+import org.owasp.esapi.crypto.KeyDerivationFunction;
+import org.owasp.esapi.util.SegmentedLRUCache;
+
+/**
+ * A size bounded, least recently used cache of the keys that {@link JavaEncryptor}
+ * derives from a key derivation key, so that encrypting or decrypting many
+ * values with the same key does not run the KDF twice for each of them.
+ * <br/><br/>
+ * Entries are keyed by a SHA-256 fingerprint of the key derivation key, so the
+ * key derivation key itself is never kept, together with the KDF version, the
+ * PRF, the key size and the purpose. Only the raw bytes of a derived key are
+ * kept; every hit returns a new {@code SecretKeySpec}, so callers cannot change
+ * the cached bytes, and the bytes are overwritten with zeros when their entry is
+ * evicted or the cache is cleared.
+ * <br/><br/>
+ * Keeping derived keys in memory longer is a security trade-off, which is why
+ * the cache is off unless {@code Encryptor.KDF.Cache.Enabled} is set.
+ */
+class DerivedKeyCache {
+
+	/** Overwrites every derived key that leaves the cache with zeros. */
+	private static final SegmentedLRUCache.EvictionListener<Key, Entry> DESTROY =
+		new SegmentedLRUCache.EvictionListener<Key, Entry>() {
+			public void evicted(Key key, Entry entry) {
+				entry.destroy();
+			}
+		};
+
+	private final SegmentedLRUCache<Key, Entry> entries;
+
+	/**
+	 * @param maxSize the maximum number of derived keys to keep, at least 1.
+	 */
+	DerivedKeyCache(int maxSize) {
+		entries = new SegmentedLRUCache<Key, Entry>(maxSize, DESTROY);
+	}
+
+	/**
+	 * Returns the cache key of a derived key.
+	 *
+	 * @throws NoSuchAlgorithmException if SHA-256 is not available
+	 */
+	static Key keyFor(int kdfVersion, KeyDerivationFunction.PRF_ALGORITHMS prf,
+					  SecretKey kdk, int keySize, String purpose)
+		throws NoSuchAlgorithmException
+	{
+		MessageDigest md = CryptoPrimitivePool.getMessageDigest("SHA-256");
+		try {
+			md.update(kdk.getAlgorithm().getBytes());
+			md.update((byte) 0);
+			byte[] encoded = kdk.getEncoded();
+			md.update(encoded);
+			Arrays.fill(encoded, (byte) 0);
+			return new Key(md.digest(), kdfVersion, prf, keySize, purpose);
+		} finally {
+			CryptoPrimitivePool.release(md);
+		}
+	}
+
+	/**
+	 * @return a copy of the cached derived key, or null.
+	 */
+	SecretKey get(Key key) {
+		Entry entry = entries.get(key);
+		return entry == null ? null : entry.copy();
+	}
+
+	/**
+	 * Caches a copy of {@code derivedKey}; the caller keeps ownership of the key.
+	 */
+	void put(Key key, SecretKey derivedKey) {
+		entries.put(key, new Entry(derivedKey.getEncoded(), derivedKey.getAlgorithm()));
+	}
+
+	/**
+	 * Removes all derived keys, overwriting them with zeros.
+	 */
+	void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * @return the number of derived keys kept.
+	 */
+	int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Identifies a derived key by everything the KDF output depends on.
+	 */
+	static final class Key {
+		private final byte[] fingerprint;
+		private final int kdfVersion;
+		private final KeyDerivationFunction.PRF_ALGORITHMS prf;
+		private final int keySize;
+		private final String purpose;
+		private final int hash;
+
+		Key(byte[] fingerprint, int kdfVersion, KeyDerivationFunction.PRF_ALGORITHMS prf,
+			int keySize, String purpose) {
+			this.fingerprint = fingerprint;
+			this.kdfVersion = kdfVersion;
+			this.prf = prf;
+			this.keySize = keySize;
+			this.purpose = purpose;
+			int h = Arrays.hashCode(fingerprint);
+			h = 31 * h + kdfVersion;
+			h = 31 * h + prf.hashCode();
+			h = 31 * h + keySize;
+			h = 31 * h + purpose.hashCode();
+			this.hash = h;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if ( this == o ) {
+				return true;
+			}
+			if ( !(o instanceof Key) ) {
+				return false;
+			}
+			Key other = (Key) o;
+			return kdfVersion == other.kdfVersion && keySize == other.keySize && prf == other.prf
+				&& purpose.equals(other.purpose) && MessageDigest.isEqual(fingerprint, other.fingerprint);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	private static final class Entry {
+		private final byte[] bytes;
+		private final String algorithm;
+		private boolean destroyed = false;
+
+		Entry(byte[] bytes, String algorithm) {
+			this.bytes = bytes;
+			this.algorithm = algorithm;
+		}
+
+		/**
+		 * @return a copy of the key, or null if it was evicted after it was looked up.
+		 */
+		synchronized SecretKey copy() {
+			return destroyed ? null : new SecretKeySpec(bytes, algorithm);
+		}
+
+		synchronized void destroy() {
+			destroyed = true;
+			Arrays.fill(bytes, (byte) 0);
+		}
+	}
+}
@@ -16,8 +16,15 @@
  */
 package org.owasp.esapi.reference.crypto;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.KeyPair;
@@ -31,6 +38,7 @@ import java.security.PublicKey;
 import java.security.SecureRandom;
 import java.security.Security;
 import java.security.Signature;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.Map;
@@ -38,23 +46,26 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.Map.Entry;
 
+import javax.crypto.AEADBadTagException;
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
-// import javax.crypto.Mac;			// Uncomment if computeHMAC() is included.
+import javax.crypto.Mac;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
-import javax.crypto.spec.IvParameterSpec;
 
 import org.owasp.esapi.ESAPI;
 import org.owasp.esapi.EncoderConstants;
 import org.owasp.esapi.Encryptor;
 import org.owasp.esapi.Logger;
+import org.owasp.esapi.SecurityConfiguration;
 import org.owasp.esapi.codecs.Hex;
 import org.owasp.esapi.crypto.CipherSpec;
 import org.owasp.esapi.crypto.CipherText;
+import org.owasp.esapi.crypto.CipherTextSerializer;
 import org.owasp.esapi.crypto.CryptoHelper;
+import org.owasp.esapi.crypto.CryptoPrimitivePool;
 import org.owasp.esapi.crypto.KeyDerivationFunction;
 import org.owasp.esapi.crypto.PlainText;
 import org.owasp.esapi.crypto.SecurityProviderLoader;
@@ -62,6 +73,7 @@ import org.owasp.esapi.errors.ConfigurationException;
 import org.owasp.esapi.errors.EncryptionException;
 import org.owasp.esapi.errors.IntegrityException;
 import org.owasp.esapi.reference.DefaultSecurityConfiguration;
+import org.owasp.esapi.util.SegmentedLRUCache;
 
 /**
  * Reference implementation of the {@code Encryptor} interface. This implementation
@@ -140,6 +152,18 @@ public final class JavaEncryptor implements Encryptor {
     // help prevent side-channel timing attacks.
     private static int N_SECS = 2;
 
+    private static final int DEFAULT_DERIVED_KEY_CACHE_SIZE = 100;
+
+    // Size of the plaintext chunks encrypted by the streaming encrypt().
+    private static final int STREAM_CHUNK_SIZE = 8192;
+
+    // Largest ciphertext chunk the streaming decrypt() accepts; leaves room for a
+    // block carried over from the previous chunk, padding, or an authentication tag.
+    private static final int MAX_STREAM_CHUNK_SIZE = STREAM_CHUNK_SIZE + 1024;
+
+    // Keys derived by computeDerivedKey(); null unless Encryptor.KDF.Cache.Enabled is set.
+    private static DerivedKeyCache derivedKeyCache = null;
+
 	// Load the preferred JCE provider if one has been specified.
 	static {
 	    try {
@@ -151,6 +175,7 @@ public final class JavaEncryptor implements Encryptor {
             throw new ExceptionInInitializerError(ex);
         }
         setupAlgorithms();
+        initDerivedKeyCache();
 	}
 	
     /**
@@ -308,9 +333,9 @@ public final class JavaEncryptor implements Encryptor {
 	 */
 	public String hash(String plaintext, String salt, int iterations) throws EncryptionException {
 		byte[] bytes = null;
+		MessageDigest digest = null;
 		try {
-			MessageDigest digest = MessageDigest.getInstance(hashAlgorithm);
-			digest.reset();
+			digest = CryptoPrimitivePool.getMessageDigest(hashAlgorithm);
 			digest.update(ESAPI.securityConfiguration().getMasterSalt());
 			digest.update(salt.getBytes(encoding));
 			digest.update(plaintext.getBytes(encoding));
@@ -327,6 +352,8 @@ public final class JavaEncryptor implements Encryptor {
 			throw new EncryptionException("Internal error", "Can't find hash algorithm " + hashAlgorithm, e);
 		} catch (UnsupportedEncodingException ex) {
 			throw new EncryptionException("Internal error", "Can't find encoding for " + encoding, ex);
+		} finally {
+			CryptoPrimitivePool.release(digest);
 		}
 	}
 
@@ -356,6 +383,7 @@ public final class JavaEncryptor implements Encryptor {
 		 boolean success = false;	// Used in 'finally' clause.
 		 String xform = null;
 		 int keySize = key.getEncoded().length * 8;	// Convert to # bits
+		 Cipher encrypter = null;
 
 		try {
 			 xform = ESAPI.securityConfiguration().getCipherTransformation();
@@ -375,13 +403,13 @@ public final class JavaEncryptor implements Encryptor {
                              "cipher mode " + cipherMode);
              }
              
-			 // Note - Cipher is not thread-safe so we create one locally
+			 // Note - Cipher is not thread-safe so we take one from the per-thread pool
 			 //        Also, we need to change this eventually so other algorithms can
 			 //        be supported. Eventually, there will be an encrypt() method that
 			 //        takes a (new class) CryptoControls, as something like this:
 			 //          public CipherText encrypt(CryptoControls ctrl, SecretKey skey, PlainText plaintext)
 			 //        and this method will just call that one.
-			 Cipher encrypter = Cipher.getInstance(xform);
+			 encrypter = CryptoPrimitivePool.getCipher(xform);
 			 String cipherAlg = encrypter.getAlgorithm();
 			 int keyLen = ESAPI.securityConfiguration().getEncryptionKeyLength();
 
@@ -475,33 +503,9 @@ public final class JavaEncryptor implements Encryptor {
 			 }
 			 
 			 if ( cipherSpec.requiresIV() ) {
-				 String ivType = ESAPI.securityConfiguration().getIVType();
-				 IvParameterSpec ivSpec = null;
-				 if ( ivType.equalsIgnoreCase("random") ) {
-					 ivBytes = ESAPI.randomizer().getRandomBytes(encrypter.getBlockSize());
-				 } else if ( ivType.equalsIgnoreCase("fixed") ) {
-					 String fixedIVAsHex = ESAPI.securityConfiguration().getFixedIV();
-					 ivBytes = Hex.decode(fixedIVAsHex);
-					 /* FUTURE		 } else if ( ivType.equalsIgnoreCase("specified")) {
-					 		// FUTURE - TODO  - Create instance of specified class to use for IV generation and
-					 		//					 use it to create the ivBytes. (The intent is to make sure that
-					 		//				     1) IVs are never repeated for cipher modes like OFB and CFB, and
-					 		//					 2) to screen for weak IVs for the particular cipher algorithm.
-					 		//		In meantime, use 'random' for block cipher in feedback mode. Unlikely they will
-					 		//		be repeated unless you are salting SecureRandom with same value each time. Anything
-					 		//		monotonically increasing should be suitable, like a counter, but need to remember
-					 		//		it across JVM restarts. Was thinking of using System.currentTimeMillis(). While
-					 		//		it's not perfect it probably is good enough. Could even all (advanced) developers
-					 		//      to define their own class to create a unique IV to allow them some choice, but
-					 		//      definitely need to provide a safe, default implementation.
-					  */
-				 } else {
-					 // TODO: Update to add 'specified' once that is supported and added above.
-					 throw new ConfigurationException("Property Encryptor.ChooseIVMethod must be set to 'random' or 'fixed'");
-				 }
-				 ivSpec = new IvParameterSpec(ivBytes);
+				 ivBytes = generateIV(encrypter, cipherMode);
 				 cipherSpec.setIV(ivBytes);
-				 encrypter.init(Cipher.ENCRYPT_MODE, encKey, ivSpec);
+				 encrypter.init(Cipher.ENCRYPT_MODE, encKey, CryptoHelper.getIVParameterSpec(cipherMode, ivBytes));
 			 } else {
 				 encrypter.init(Cipher.ENCRYPT_MODE, encKey);
 			 }
@@ -545,6 +549,7 @@ public final class JavaEncryptor implements Encryptor {
 			 throw new EncryptionException("Encryption failure (unavailable padding scheme requested)",
 					 "Encryption problem: specified padding scheme in cipher xform " + xform + " not available: " + e.getMessage(), e);
 		 } finally {
+			 CryptoPrimitivePool.release(encrypter);
 			 // Don't overwrite anything in the case of exceptions because they may wish to retry.
 			 if ( success && overwritePlaintext ) {
 				 plain.overwrite();		// Note: Same as overwriting 'plaintext' byte array.
@@ -668,14 +673,365 @@ public final class JavaEncryptor implements Encryptor {
 	    return plaintext;
 	}
 
+	/**
+	 * Encrypts everything read from a stream, writing the result to another
+	 * stream, using the same cipher transformation, IV and MAC rules as
+	 * {@link #encrypt(SecretKey, PlainText)}. The data is processed in fixed
+	 * size chunks, so the memory used does not depend on its size, which makes
+	 * this suitable for payloads too large to hold in a {@code PlainText}.
+	 * </p><p>
+	 * The output starts with the same header as the portable serialization of a
+	 * {@code CipherText} (see
+	 * {@link org.owasp.esapi.crypto.CipherTextSerializer#asSerializedHeader()}),
+	 * followed by the raw ciphertext as a series of chunks, each written as its
+	 * length, which is negated for all but the last chunk, the raw ciphertext, and
+	 * its MAC prefixed by the MAC length. Each chunk is authenticated together with
+	 * its sequence number and whether it is the last one, so that chunks cannot be
+	 * dropped, reordered or added without this being detected. With a combined
+	 * cipher mode such as GCM each chunk is encrypted separately, with a nonce
+	 * derived from the IV and the sequence number, and authenticated by the
+	 * cipher mode itself, so the MAC is empty.
+	 * </p><p>
+	 * Neither stream is closed.
+	 * </p>
+	 * @param key	The {@code SecretKey} to use for encrypting the plaintext.
+	 * @param in	The plaintext to encrypt.
+	 * @param out	Where the header, ciphertext and MAC are written.
+	 * @return	The number of plaintext bytes encrypted.
+	 * @throws EncryptionException	Thrown if something should go wrong, as for
+	 * 				{@link #encrypt(SecretKey, PlainText)}.
+	 * @throws IOException	Thrown if reading from {@code in} or writing to
+	 * 				{@code out} fails.
+	 * @see #decrypt(SecretKey, InputStream, OutputStream)
+	 */
+	public long encrypt(SecretKey key, InputStream in, OutputStream out)
+		throws EncryptionException, IOException
+	{
+		if ( key == null ) {
+			throw new IllegalArgumentException("(Master) encryption key arg may not be null. Is Encryptor.MasterKey set?");
+		}
+		if ( in == null || out == null ) {
+			throw new IllegalArgumentException("Input and output streams may not be null");
+		}
+		String xform = ESAPI.securityConfiguration().getCipherTransformation();
+		String[] parts = xform.split("/");
+		assert parts.length == 3 : "Malformed cipher transformation: " + xform;
+		String cipherMode = parts[1];
+		if ( ! CryptoHelper.isAllowedCipherMode(cipherMode) ) {
+			throw new EncryptionException("Encryption failure: invalid cipher mode ( " + cipherMode + ") for encryption",
+					"Encryption failure: Cipher transformation " + xform + " specifies invalid " +
+					"cipher mode " + cipherMode);
+		}
+		int keySize = key.getEncoded().length * 8;	// Convert to # bits
+
+		Cipher encrypter = null;
+		Mac mac = null;
+		byte[] buffer = new byte[STREAM_CHUNK_SIZE];
+		try {
+			encrypter = CryptoPrimitivePool.getCipher(xform);
+			CipherSpec cipherSpec = new CipherSpec(encrypter, keySize);
+			// Same rules as encrypt(SecretKey, PlainText): combined cipher modes use the key
+			// as-is and need no separate MAC.
+			boolean preferredCipherMode = CryptoHelper.isCombinedCipherMode( cipherMode );
+			SecretKey encKey = key;
+			if ( ! preferredCipherMode ) {
+				encKey = computeDerivedKey(KeyDerivationFunction.kdfVersion, getDefaultPRF(),
+										   key, keySize, "encryption");
+			}
+			byte[] ivBytes = null;
+			if ( cipherSpec.requiresIV() ) {
+				ivBytes = generateIV(encrypter, cipherMode);
+				cipherSpec.setIV(ivBytes);
+			}
+			// With a combined cipher mode the cipher is initialized for each chunk
+			// by initChunkCipher() instead.
+			if ( ! preferredCipherMode && ivBytes != null ) {
+				encrypter.init(Cipher.ENCRYPT_MODE, encKey, CryptoHelper.getIVParameterSpec(cipherMode, ivBytes));
+			} else if ( ! preferredCipherMode ) {
+				encrypter.init(Cipher.ENCRYPT_MODE, encKey);
+			}
+			CipherText header = new CipherText(cipherSpec);
+			if ( ! preferredCipherMode ) {
+				mac = initStreamMAC(key, KeyDerivationFunction.kdfVersion, getDefaultPRF(), keySize);
+			}
+
+			DataOutputStream dos = new DataOutputStream(out);
+			dos.write(new CipherTextSerializer(header).asSerializedHeader());
+
+			byte[] chunk = new byte[MAX_STREAM_CHUNK_SIZE];
+			long total = 0;
+			long seq = 0;
+			int n;
+			do {
+				n = readFully(in, buffer);
+				// A full buffer may have been the end of the input, in which case the
+				// last chunk holds no plaintext, only padding or an authentication tag.
+				boolean last = ( n < buffer.length );
+				byte[] info = chunkInfo(seq, last);
+				int len;
+				if ( preferredCipherMode ) {
+					initChunkCipher(encrypter, Cipher.ENCRYPT_MODE, encKey, cipherMode, ivBytes, seq);
+					encrypter.updateAAD(info);
+					len = encrypter.doFinal(buffer, 0, n, chunk);
+				} else if ( last ) {
+					len = encrypter.doFinal(buffer, 0, n, chunk);
+				} else {
+					len = encrypter.update(buffer, 0, n, chunk);
+				}
+				total += n;
+				if ( len == 0 && ! last ) {
+					continue;	// Nothing to write yet; the cipher holds on to a partial block.
+				}
+				dos.writeInt(last ? len : -len);
+				dos.write(chunk, 0, len);
+				byte[] macBytes = ( mac != null ) ? chunkMAC(mac, ivBytes, info, chunk, len) : new byte[0];
+				dos.writeShort(macBytes.length);
+				dos.write(macBytes);
+				seq++;
+			} while ( n == buffer.length );
+			dos.flush();
+			logger.debug(Logger.EVENT_SUCCESS, "JavaEncryptor.encrypt(SecretKey,InputStream,OutputStream) -- success!");
+			return total;
+		} catch (GeneralSecurityException e) {
+			throw new EncryptionException("Encryption failure",
+					"Stream encryption problem with cipher xform " + xform + ": " + e.getMessage(), e);
+		} catch (ConfigurationException cex) {
+			throw new EncryptionException("Encryption failure: Configuration error. Details in log.",
+					"Unsupported IV method. Check Encryptor.ChooseIVMethod property.", cex);
+		} finally {
+			CryptoPrimitivePool.release(encrypter);
+			CryptoPrimitivePool.release(mac);
+			Arrays.fill(buffer, (byte) 0);		// Don't leave plaintext lying around.
+		}
+	}
+
+	/**
+	 * Decrypts a stream written by {@link #encrypt(SecretKey, InputStream, OutputStream)},
+	 * writing the plaintext to another stream. The data is processed in fixed size
+	 * chunks, so the memory used does not depend on its size.
+	 * </p><p>
+	 * No plaintext is written to {@code out} before the chunk it comes from has
+	 * been authenticated, and a chunk is authenticated before it is decrypted, as
+	 * for {@link #decrypt(SecretKey, CipherText)}. If this method throws an
+	 * exception, what has been written to {@code out} is authentic, but may be
+	 * only the start of the plaintext.
+	 * </p><p>
+	 * Neither stream is closed.
+	 * </p>
+	 * @param key	The {@code SecretKey} to use for decrypting the ciphertext.
+	 * @param in	The header, ciphertext and MAC to decrypt.
+	 * @param out	Where the plaintext is written.
+	 * @return	The number of plaintext bytes written.
+	 * @throws EncryptionException	Thrown if something should go wrong, as for
+	 * 				{@link #decrypt(SecretKey, CipherText)}, or if the stream is
+	 * 				malformed or its MAC is not valid.
+	 * @throws IOException	Thrown if reading from {@code in} or writing to
+	 * 				{@code out} fails.
+	 * @see #encrypt(SecretKey, InputStream, OutputStream)
+	 */
+	public long decrypt(SecretKey key, InputStream in, OutputStream out)
+		throws EncryptionException, IOException
+	{
+		if ( key == null ) {
+			throw new IllegalArgumentException("SecretKey arg may not be null");
+		}
+		if ( in == null || out == null ) {
+			throw new IllegalArgumentException("Input and output streams may not be null");
+		}
+		// Also checks that the cipher mode is allowed.
+		CipherText header = CipherTextSerializer.readSerializedHeader(in);
+		int keySize = key.getEncoded().length * 8;	// Convert to # bits
+
+		Cipher decrypter = null;
+		Mac mac = null;
+		byte[] chunk = new byte[MAX_STREAM_CHUNK_SIZE];
+		try {
+			decrypter = CryptoPrimitivePool.getCipher(header.getCipherTransformation());
+			String cipherMode = header.getCipherMode();
+			boolean preferredCipherMode = CryptoHelper.isCombinedCipherMode( cipherMode );
+			SecretKey encKey = key;
+			if ( ! preferredCipherMode ) {
+				encKey = computeDerivedKey( header.getKDFVersion(), header.getKDF_PRF(),
+											key, keySize, "encryption");
+			}
+			byte[] ivBytes = header.requiresIV() ? header.getIV() : null;
+			// With a combined cipher mode the cipher is initialized for each chunk
+			// by initChunkCipher() instead.
+			if ( ! preferredCipherMode && ivBytes != null ) {
+				decrypter.init(Cipher.DECRYPT_MODE, encKey, CryptoHelper.getIVParameterSpec(cipherMode, ivBytes));
+			} else if ( ! preferredCipherMode ) {
+				decrypter.init(Cipher.DECRYPT_MODE, encKey);
+			}
+			if ( CryptoHelper.isMACRequired(header) ) {
+				mac = initStreamMAC(key, header.getKDFVersion(), header.getKDF_PRF(), keySize);
+			}
+
+			DataInputStream dis = new DataInputStream(in);
+			long total = 0;
+			long seq = 0;
+			boolean last = false;
+			do {
+				int len = dis.readInt();
+				last = ( len >= 0 );
+				if ( ! last ) {
+					len = -len;		// Still negative for Integer.MIN_VALUE.
+				}
+				if ( len < 0 || len > chunk.length ) {
+					throw new EncryptionException(DECRYPTION_FAILED, "Invalid chunk length " + len + " in ciphertext stream");
+				}
+				dis.readFully(chunk, 0, len);
+				short macLen = dis.readShort();
+				if ( macLen < 0 ) {
+					throw new EncryptionException(DECRYPTION_FAILED, "Invalid MAC length " + macLen + " in ciphertext stream");
+				}
+				byte[] storedMAC = new byte[macLen];
+				dis.readFully(storedMAC);
+
+				// Each chunk is authenticated, together with its sequence number and
+				// whether it is the last one, before any of its plaintext is written.
+				byte[] info = chunkInfo(seq, last);
+				byte[] plaintext;
+				if ( preferredCipherMode ) {
+					initChunkCipher(decrypter, Cipher.DECRYPT_MODE, encKey, cipherMode, ivBytes, seq);
+					decrypter.updateAAD(info);
+					plaintext = decrypter.doFinal(chunk, 0, len);	// Checks the tag first.
+				} else {
+					// Checked *before* the chunk is decrypted so that a padding
+					// error cannot tell an attacker anything.
+					if ( mac != null && ! MessageDigest.isEqual(chunkMAC(mac, ivBytes, info, chunk, len), storedMAC) ) {
+						throw new EncryptionException(DECRYPTION_FAILED,
+								"Decryption failed because MAC invalid for chunk " + seq + " of ciphertext stream " + header);
+					}
+					plaintext = last ? decrypter.doFinal(chunk, 0, len) : decrypter.update(chunk, 0, len);
+				}
+				total += writePlaintext(out, plaintext);
+				seq++;
+			} while ( ! last );
+			logger.debug(Logger.EVENT_SUCCESS, "JavaEncryptor.decrypt(SecretKey,InputStream,OutputStream) -- success!");
+			return total;
+		} catch (EOFException e) {
+			throw new EncryptionException(DECRYPTION_FAILED, "Ciphertext stream is truncated", e);
+		} catch (GeneralSecurityException e) {
+			throw new EncryptionException(DECRYPTION_FAILED, "Stream decryption problem with cipher xform " +
+					header.getCipherTransformation() + ": " + e.getMessage(), e);
+		} finally {
+			CryptoPrimitivePool.release(decrypter);
+			CryptoPrimitivePool.release(mac);
+		}
+	}
+
+	// Set up the HmacSHA1 MAC over the chunks of a stream, keyed as CipherText.computeMAC() is.
+	private Mac initStreamMAC(SecretKey key, int kdfVersion, KeyDerivationFunction.PRF_ALGORITHMS prf,
+							  int keySize)
+		throws GeneralSecurityException, EncryptionException
+	{
+		SecretKey authKey = computeDerivedKey(kdfVersion, prf, key, keySize, "authenticity");
+		Mac mac = CryptoPrimitivePool.getMac("HmacSHA1");
+		mac.init(new SecretKeySpec(authKey.getEncoded(), "HmacSHA1"));
+		return mac;
+	}
+
+	// The sequence number of a chunk and whether it is the last one, which are
+	// authenticated with it so that chunks cannot be dropped, reordered or
+	// added, nor a stream cut short at a chunk boundary.
+	private static byte[] chunkInfo(long seq, boolean last) {
+		return ByteBuffer.allocate(9).putLong(seq).put((byte) (last ? 1 : 0)).array();
+	}
+
+	// The MAC of one chunk: HmacSHA1 over the IV, the chunk info and the raw ciphertext of the chunk.
+	private static byte[] chunkMAC(Mac mac, byte[] iv, byte[] info, byte[] chunk, int len) {
+		if ( iv != null ) {
+			mac.update(iv);
+		}
+		mac.update(info);
+		mac.update(chunk, 0, len);
+		return mac.doFinal();
+	}
+
+	// With a combined cipher mode each chunk is a message of its own, so that it can be
+	// authenticated, and its plaintext released, without buffering the whole stream.
+	// The nonce of a chunk is the IV with the sequence number XORed into its last
+	// 8 bytes, so no two chunks of a stream share one.
+	private static void initChunkCipher(Cipher cipher, int mode, SecretKey key, String cipherMode,
+										byte[] iv, long seq)
+		throws GeneralSecurityException
+	{
+		if ( iv == null || iv.length < 8 ) {
+			throw new InvalidAlgorithmParameterException("Cipher mode " + cipherMode + " requires an IV of at least 8 bytes");
+		}
+		byte[] nonce = iv.clone();
+		for ( int i = 0; i < 8; i++ ) {
+			nonce[nonce.length - 1 - i] ^= (byte) (seq >>> (8 * i));
+		}
+		cipher.init(mode, key, CryptoHelper.getIVParameterSpec(cipherMode, nonce));
+	}
+
+	// Fill 'buffer' from 'in', unless it ends first. Returns the number of bytes read.
+	private static int readFully(InputStream in, byte[] buffer) throws IOException {
+		int total = 0;
+		while ( total < buffer.length ) {
+			int n = in.read(buffer, total, buffer.length - total);
+			if ( n < 0 ) {
+				break;
+			}
+			total += n;
+		}
+		return total;
+	}
+
+	// Write decrypted bytes, if any, and then overwrite them.
+	private static int writePlaintext(OutputStream out, byte[] plaintext) throws IOException {
+		if ( plaintext == null ) {
+			return 0;
+		}
+		out.write(plaintext);
+		Arrays.fill(plaintext, (byte) 0);
+		return plaintext.length;
+	}
+
+    // Choose the IV for a new encryption as configured by Encryptor.ChooseIVMethod.
+    private byte[] generateIV(Cipher encrypter, String cipherMode) {
+		byte[] ivBytes = null;
+		String ivType = ESAPI.securityConfiguration().getIVType();
+		boolean gcm = "GCM".equals(cipherMode);
+		if ( ivType.equalsIgnoreCase("random") ) {
+			ivBytes = ESAPI.randomizer().getRandomBytes(gcm ? CryptoHelper.GCM_IV_LENGTH : encrypter.getBlockSize());
+		} else if ( gcm ) {
+			// Reusing an IV with the same key destroys both the confidentiality and
+			// the authenticity that GCM provides.
+			throw new ConfigurationException("Property Encryptor.ChooseIVMethod must be set to 'random' for GCM cipher mode");
+		} else if ( ivType.equalsIgnoreCase("fixed") ) {
+			String fixedIVAsHex = ESAPI.securityConfiguration().getFixedIV();
+			ivBytes = Hex.decode(fixedIVAsHex);
+			/* FUTURE		 } else if ( ivType.equalsIgnoreCase("specified")) {
+					// FUTURE - TODO  - Create instance of specified class to use for IV generation and
+					//					 use it to create the ivBytes. (The intent is to make sure that
+					//				     1) IVs are never repeated for cipher modes like OFB and CFB, and
+					//					 2) to screen for weak IVs for the particular cipher algorithm.
+					//		In meantime, use 'random' for block cipher in feedback mode. Unlikely they will
+					//		be repeated unless you are salting SecureRandom with same value each time. Anything
+					//		monotonically increasing should be suitable, like a counter, but need to remember
+					//		it across JVM restarts. Was thinking of using System.currentTimeMillis(). While
+					//		it's not perfect it probably is good enough. Could even all (advanced) developers
+					//      to define their own class to create a unique IV to allow them some choice, but
+					//      definitely need to provide a safe, default implementation.
+			 */
+		} else {
+			// TODO: Update to add 'specified' once that is supported and added above.
+			throw new ConfigurationException("Property Encryptor.ChooseIVMethod must be set to 'random' or 'fixed'");
+		}
+		return ivBytes;
+    }
+
     // Handle the actual decryption portion. At this point it is assumed that
     // any MAC has already been validated. (But see "DISCUSS" issue, below.)
     private PlainText handleDecryption(SecretKey key, CipherText ciphertext)
         throws EncryptionException
     {
         int keySize = 0;
+        Cipher decrypter = null;
         try {
-            Cipher decrypter = Cipher.getInstance(ciphertext.getCipherTransformation());
+            decrypter = CryptoPrimitivePool.getCipher(ciphertext.getCipherTransformation());
             keySize = key.getEncoded().length * 8;  // Convert to # bits
 
             // Using cipher mode that supports *both* confidentiality *and* authenticity? If so, then
@@ -687,11 +1043,7 @@ public final class JavaEncryptor implements Encryptor {
             if ( preferredCipherMode ) {
                 encKey = key;
             } else {
-                // TODO: PERFORMANCE: Calculate avg time this takes and consider caching for very short interval
-                //       (e.g., 2 to 5 sec tops). Otherwise doing lots of encryptions in a loop could take a LOT longer.
-                //       But remember Jon Bentley's "Rule #1 on performance: First make it right, then make it fast."
-            	//		 This would be a security trade-off as it would leave keys in memory a bit longer, so it
-            	//		 should probably be off by default and controlled via a property.
+                // NOTE: Derived keys are cached if Encryptor.KDF.Cache.Enabled is set; see computeDerivedKey().
             	//
             	// TODO: Feed in some additional parms here to use as the 'context' for the
             	//		 KeyDerivationFunction...especially the KDF version. We would have to
@@ -705,7 +1057,8 @@ public final class JavaEncryptor implements Encryptor {
                 		                    key, keySize, "encryption");
             }
             if ( ciphertext.requiresIV() ) {
-                decrypter.init(Cipher.DECRYPT_MODE, encKey, new IvParameterSpec(ciphertext.getIV()));
+                decrypter.init(Cipher.DECRYPT_MODE, encKey,
+                               CryptoHelper.getIVParameterSpec(ciphertext.getCipherMode(), ciphertext.getIV()));
             } else {
                 decrypter.init(Cipher.DECRYPT_MODE, encKey);
             }
@@ -725,6 +1078,13 @@ public final class JavaEncryptor implements Encryptor {
             throw new EncryptionException(DECRYPTION_FAILED, "Decryption problem: " + e.getMessage(), e);
         } catch (IllegalBlockSizeException e) {
             throw new EncryptionException(DECRYPTION_FAILED, "Decryption problem: " + e.getMessage(), e);
+        } catch (AEADBadTagException e) {
+            // Combined cipher mode such as GCM: the authentication tag, which takes the
+            // place of the separate MAC, did not match.
+            throw new EncryptionException(DECRYPTION_FAILED,
+                    "Decryption problem: WARNING: Adversary may have tampered with " +
+                    "CipherText object or CipherText object mangled in transit: authentication tag invalid: " +
+                    e.getMessage(), e);
         } catch (BadPaddingException e) {
             //DISCUSS: This needs fixed. Already validated MAC in CryptoHelper.isCipherTextMACvalid() above.
             //So only way we could get a padding exception is if invalid padding were used originally by
@@ -748,6 +1108,8 @@ public final class JavaEncryptor implements Encryptor {
                         "Decryption problem: WARNING: Adversary may have tampered with " +
                         "CipherText object orCipherText object mangled in transit: " + e.getMessage(), e);
             }
+        } finally {
+            CryptoPrimitivePool.release(decrypter);
         }
     }
 	
@@ -755,8 +1117,9 @@ public final class JavaEncryptor implements Encryptor {
 	* {@inheritDoc}
 	*/
 	public String sign(String data) throws EncryptionException {
+		Signature signer = null;
 		try {
-			Signature signer = Signature.getInstance(signatureAlgorithm);
+			signer = CryptoPrimitivePool.getSignature(signatureAlgorithm);
 			signer.initSign(privateKey);
 			signer.update(data.getBytes(encoding));
 			byte[] bytes = signer.sign();
@@ -765,6 +1128,8 @@ public final class JavaEncryptor implements Encryptor {
 			throw new EncryptionException("Encryption failure", "Must install unlimited strength crypto extension from Sun", ike);
 		} catch (Exception e) {
 			throw new EncryptionException("Signature failure", "Can't find signature algorithm " + signatureAlgorithm, e);
+		} finally {
+			CryptoPrimitivePool.release(signer);
 		}
 	}
 		
@@ -772,9 +1137,10 @@ public final class JavaEncryptor implements Encryptor {
 	* {@inheritDoc}
 	*/
 	public boolean verifySignature(String signature, String data) {
+		Signature signer = null;
 		try {
 			byte[] bytes = ESAPI.encoder().decodeFromBase64(signature);
-			Signature signer = Signature.getInstance(signatureAlgorithm);
+			signer = CryptoPrimitivePool.getSignature(signatureAlgorithm);
 			signer.initVerify(publicKey);
 			signer.update(data.getBytes(encoding));
 			return signer.verify(bytes);
@@ -784,6 +1150,8 @@ public final class JavaEncryptor implements Encryptor {
 		    // shut it up.
 			new EncryptionException("Invalid signature", "Problem verifying signature: " + e.getMessage(), e);
 			return false;
+		} finally {
+			CryptoPrimitivePool.release(signer);
 		}
 	}
 
@@ -999,11 +1367,34 @@ public final class JavaEncryptor implements Encryptor {
     	assert purpose.equals("encryption") || purpose.equals("authenticity") :
     		"Purpose must be \"encryption\" or \"authenticity\".";
 
+    	DerivedKeyCache.Key cacheKey = null;
+    	if ( derivedKeyCache != null ) {
+    		cacheKey = DerivedKeyCache.keyFor(kdfVersion, prf, kdk, keySize, purpose);
+    		SecretKey cached = derivedKeyCache.get(cacheKey);
+    		if ( cached != null ) {
+    			return cached;
+    		}
+    	}
     	KeyDerivationFunction kdf = new KeyDerivationFunction(prf);
     	if ( kdfVersion != 0 ) {
     		kdf.setVersion(kdfVersion);
     	}
-    	return kdf.computeDerivedKey(kdk, keySize, purpose);
+    	SecretKey derivedKey = kdf.computeDerivedKey(kdk, keySize, purpose);
+    	if ( cacheKey != null ) {
+    		derivedKeyCache.put(cacheKey, derivedKey);
+    	}
+    	return derivedKey;
+    }
+
+    /**
+     * Creates the derived key cache if it is enabled in ESAPI.properties.
+     */
+    private static void initDerivedKeyCache() {
+    	int size = SegmentedLRUCache.configuredSize( DefaultSecurityConfiguration.KDF_CACHE_ENABLED,
+    			DefaultSecurityConfiguration.KDF_CACHE_SIZE, DEFAULT_DERIVED_KEY_CACHE_SIZE );
+    	if ( size > 0 ) {
+    		derivedKeyCache = new DerivedKeyCache( size );
+    	}
     }
 
     // Get all the algorithms we will be using from ESAPI.properties.
@@ -0,0 +1,146 @@
+/**
+ * OWASP Enterprise Security API (ESAPI)
+ *
+ * This file is part of the Open Web Application Security Project (OWASP)
+ * Enterprise Security API (ESAPI) project. For details, please see
+ * <a href="http://www.owasp.org/index.php/ESAPI">http://www.owasp.org/index.php/ESAPI</a>.
+ *
+ * Copyright (c) 2017 - The OWASP Foundation
+ *
+ * The ESAPI is published by OWASP under the BSD license. You should read and accept the
+ * LICENSE before you use, modify, and/or redistribute this software.
+ */
+package org.owasp.esapi.reference.validation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An immutable table of accepted issuer identification number (BIN/IIN)
+ * ranges, used by {@link CreditCardValidationRule} to accept only the card
+ * numbers of known issuers. Each range is given as a prefix, such as
+ * {@code "4"}, or as an inclusive range of prefixes of the same length, such
+ * as {@code "2221-2720"}:
+ *
+ * <PRE>
+ * BinRanges ranges = new BinRanges("4", "51-55", "2221-2720", "34", "37");
+ * </PRE>
+ *
+ * The ranges are grouped by prefix length and merged into sorted arrays, so
+ * a lookup is a binary search per prefix length and does not allocate.
+ */
+public final class BinRanges {
+
+	/** The longest prefix a range may have. */
+	public static final int MAX_PREFIX_LENGTH = 8;
+
+	private static final int[] POWERS_OF_TEN = { 1, 10, 100, 1000, 10000, 100000, 1000000, 10000000, 100000000 };
+
+	/** For each prefix length, the sorted, disjoint range bounds as low, high pairs; null if none. */
+	private final int[][] bounds = new int[MAX_PREFIX_LENGTH + 1][];
+
+	/**
+	 * @param ranges prefixes, or ranges of prefixes written as "low-high"
+	 * @throws IllegalArgumentException if a range is not one or two prefixes of
+	 *	1 to {@link #MAX_PREFIX_LENGTH} digits and the same length, low first
+	 */
+	public BinRanges(String... ranges) {
+		if ( ranges == null || ranges.length == 0 ) {
+			throw new IllegalArgumentException("At least one BIN range is required");
+		}
+		List<List<int[]>> byLength = new ArrayList<List<int[]>>();
+		for ( int i = 0; i <= MAX_PREFIX_LENGTH; i++ ) {
+			byLength.add(new ArrayList<int[]>());
+		}
+		for ( String range : ranges ) {
+			if ( range == null ) {
+				throw new IllegalArgumentException("BIN range cannot be null");
+			}
+			int dash = range.indexOf('-');
+			String low = dash < 0 ? range : range.substring(0, dash);
+			String high = dash < 0 ? range : range.substring(dash + 1);
+			if ( !isPrefix(low) || !isPrefix(high) || low.length() != high.length() || low.compareTo(high) > 0 ) {
+				throw new IllegalArgumentException("Invalid BIN range: " + range);
+			}
+			byLength.get(low.length()).add(new int[] { Integer.parseInt(low), Integer.parseInt(high) });
+		}
+		for ( int length = 1; length <= MAX_PREFIX_LENGTH; length++ ) {
+			bounds[length] = merge(byLength.get(length));
+		}
+	}
+
+	private static boolean isPrefix(String s) {
+		if ( s.length() == 0 || s.length() > MAX_PREFIX_LENGTH ) {
+			return false;
+		}
+		for ( int i = 0; i < s.length(); i++ ) {
+			if ( s.charAt(i) < '0' || s.charAt(i) > '9' ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the ranges sorted and with overlapping ones joined, as low, high pairs; null if there are none.
+	 */
+	private static int[] merge(List<int[]> ranges) {
+		if ( ranges.isEmpty() ) {
+			return null;
+		}
+		int[][] sorted = ranges.toArray(new int[ranges.size()][]);
+		Arrays.sort(sorted, new Comparator<int[]>() {
+			public int compare(int[] a, int[] b) {
+				return a[0] < b[0] ? -1 : (a[0] == b[0] ? 0 : 1);
+			}
+		});
+		int[] merged = new int[sorted.length * 2];
+		int n = 0;
+		for ( int[] range : sorted ) {
+			if ( n > 0 && range[0] <= merged[n - 1] + 1 ) {
+				merged[n - 1] = Math.max(merged[n - 1], range[1]);
+			} else {
+				merged[n++] = range[0];
+				merged[n++] = range[1];
+			}
+		}
+		return Arrays.copyOf(merged, n);
+	}
+
+	/**
+	 * Checks the leading digits of a card number against the ranges.
+	 *
+	 * @param leading the value of the first {@code leadingCount} digits of the card number
+	 * @param leadingCount how many digits {@code leading} holds, at most {@link #MAX_PREFIX_LENGTH}
+	 * @return true if a range contains the prefix of its length
+	 */
+	public boolean contains(int leading, int leadingCount) {
+		for ( int length = 1; length <= leadingCount; length++ ) {
+			int[] b = bounds[length];
+			if ( b != null && inRange(b, leading / POWERS_OF_TEN[leadingCount - length]) ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return whether one of the low, high pairs in {@code b} contains {@code prefix}.
+	 */
+	private static boolean inRange(int[] b, int prefix) {
+		// binary search for the last range starting at or below prefix
+		int lo = 0;
+		int hi = b.length / 2 - 1;
+		while ( lo <= hi ) {
+			int mid = (lo + hi) >>> 1;
+			if ( b[mid * 2] <= prefix ) {
+				lo = mid + 1;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return hi >= 0 && prefix <= b[hi * 2 + 1];
+	}
+}
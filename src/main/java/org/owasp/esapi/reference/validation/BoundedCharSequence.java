@@ -0,0 +1,74 @@
+/**
+ * OWASP Enterprise Security API (ESAPI)
+ *
+ * This file is part of the Open Web Application Security Project (OWASP)
+ * Enterprise Security API (ESAPI) project. For details, please see
+ * <a href="http://www.owasp.org/index.php/ESAPI">http://www.owasp.org/index.php/ESAPI</a>.
+ *
+ * Copyright (c) 2017 - The OWASP Foundation
+ *
+ * The ESAPI is published by OWASP under the BSD license. You should read and accept the
+ * LICENSE before you use, modify, and/or redistribute this software.
+ */
+package org.owasp.esapi.reference.validation;
+
+/**
+ * A CharSequence that allows only a limited number of reads, used to bound the
+ * work a regular expression can do on one input.
+ * <br/><br/>
+ * java.util.regex backtracks, so a pattern such as {@code ^(a+)+$} can take
+ * exponential time on crafted input. Every step of a match reads a character,
+ * so counting the reads bounds the steps: once the limit is reached,
+ * {@link #charAt(int)} throws {@link LimitExceededException} and the match is
+ * abandoned.
+ */
+final class BoundedCharSequence implements CharSequence {
+
+	/**
+	 * Thrown when a match reads more characters than allowed.
+	 */
+	static final class LimitExceededException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		LimitExceededException(long limit) {
+			super("Regular expression step limit of " + limit + " exceeded");
+		}
+	}
+
+	private final String input;
+	private final long limit;
+	private long reads;
+
+	/**
+	 * @param input the input to match
+	 * @param stepsPerChar the number of reads allowed per character of input,
+	 *	plus one character so that empty input can be matched.
+	 */
+	BoundedCharSequence(String input, int stepsPerChar) {
+		this.input = input;
+		this.limit = (long) stepsPerChar * (input.length() + 1);
+	}
+
+	public char charAt(int index) {
+		if ( ++reads > limit ) {
+			throw new LimitExceededException(limit);
+		}
+		return input.charAt(index);
+	}
+
+	public int length() {
+		return input.length();
+	}
+
+	/**
+	 * Not counted: java.util.regex only uses this to return the text of groups.
+	 */
+	public CharSequence subSequence(int start, int end) {
+		return input.subSequence(start, end);
+	}
+
+	@Override
+	public String toString() {
+		return input;
+	}
+}
@@ -0,0 +1,105 @@
+/**
+ * OWASP Enterprise Security API (ESAPI)
+ *
+ * This file is part of the Open Web Application Security Project (OWASP)
+ * Enterprise Security API (ESAPI) project. For details, please see
+ * <a href="http://www.owasp.org/index.php/ESAPI">http://www.owasp.org/index.php/ESAPI</a>.
+ *
+ * Copyright (c) 2017 - The OWASP Foundation
+ *
+ * The ESAPI is published by OWASP under the BSD license. You should read and accept the
+ * LICENSE before you use, modify, and/or redistribute this software.
+ */
+package org.owasp.esapi.reference.validation;
+
+import org.owasp.esapi.FileContentCheck;
+import org.owasp.esapi.errors.ValidationException;
+
+/**
+ * Rejects file content that contains any of a set of byte sequences, such as
+ * {@code <script} in an upload that should not hold markup. A sequence that
+ * spans two buffers is found too: the last bytes of each buffer are kept, one
+ * fewer than the longest sequence.
+ * <P>
+ * An instance keeps state and checks one file.
+ */
+public class ByteSequenceDenylistCheck implements FileContentCheck {
+
+	private final byte[][] denied;
+	/** The last bytes seen before the current buffer. */
+	private final byte[] tail;
+	private int tailLength = 0;
+	/** The number of bytes checked before the current buffer. */
+	private long position = 0;
+
+	/**
+	 * @param denied the byte sequences that must not occur in the content.
+	 * @throws IllegalArgumentException if there are no sequences, or one is null or empty
+	 */
+	public ByteSequenceDenylistCheck(byte[]... denied) {
+		if ( denied == null || denied.length == 0 ) {
+			throw new IllegalArgumentException("At least one byte sequence is required");
+		}
+		this.denied = new byte[denied.length][];
+		int max = 0;
+		for ( int i = 0; i < denied.length; i++ ) {
+			if ( denied[i] == null || denied[i].length == 0 ) {
+				throw new IllegalArgumentException("Byte sequences cannot be null or empty");
+			}
+			this.denied[i] = denied[i].clone();
+			max = Math.max(max, denied[i].length);
+		}
+		tail = new byte[max - 1];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void update(String context, byte[] buffer, int offset, int length) throws ValidationException {
+		for ( int i = 0; i < length; i++ ) {
+			for ( byte[] sequence : denied ) {
+				if ( endsAt(sequence, buffer, offset, i) ) {
+					throw new ValidationException( context + ": Invalid file content", "Denied byte sequence found in file content at offset " + (position + i + 1 - sequence.length) + ": context=" + context, context );
+				}
+			}
+		}
+		keepTail(buffer, offset, length);
+		position += length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void finish(String context) {
+		// every sequence was looked for as the bytes arrived
+	}
+
+	/**
+	 * @return whether {@code sequence} ends at index {@code i} of the buffer,
+	 *	reading back into the tail where it starts in an earlier buffer.
+	 */
+	private boolean endsAt(byte[] sequence, byte[] buffer, int offset, int i) {
+		if ( i + 1 + tailLength < sequence.length ) {
+			return false;
+		}
+		for ( int k = sequence.length - 1, j = i; k >= 0; k--, j-- ) {
+			byte actual = j >= 0 ? buffer[offset + j] : tail[tailLength + j];
+			if ( actual != sequence[k] ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void keepTail(byte[] buffer, int offset, int length) {
+		if ( length >= tail.length ) {
+			System.arraycopy(buffer, offset + length - tail.length, tail, 0, tail.length);
+			tailLength = tail.length;
+			return;
+		}
+		int keep = Math.min(tailLength, tail.length - length);
+		System.arraycopy(tail, tailLength - keep, tail, 0, keep);
+		System.arraycopy(buffer, offset, tail, keep, length);
+		tailLength = keep + length;
+	}
+}
@@ -42,6 +42,9 @@ public class CreditCardValidationRule extends BaseValidationRule {
 	
 	private StringValidationRule ccrule = null; 
 	
+	/** The accepted issuer ranges, or null to accept any issuer. */
+	private BinRanges binRanges = null;
+	
 	/**
 	 * Creates a CreditCardValidator using the rule found in security configuration
 	 * @param typeName a description of the type of card being validated
@@ -88,43 +91,45 @@ public class CreditCardValidationRule extends BaseValidationRule {
 
 	/**
 	 * Performs additional validation on the card nummber.
-	 * This implementation performs Luhn algorithm checking
+	 * This implementation performs Luhn algorithm checking and, if BIN ranges
+	 * have been set, checks that the number belongs to one of them. Characters
+	 * other than digits, such as separators, are skipped.
+	 * <P>
+	 * The number is read once, from the left, without allocating. Which digits
+	 * Luhn doubles depends on the parity of their position from the right, which
+	 * is only known at the end, so the sum is kept for both parities.
 	 * @param ccNum number to be validated
 	 * @return true if the ccNum passes the Luhn Algorithm
 	 */
 	protected boolean validCreditCardFormat(String ccNum) {
-		
-	    StringBuilder digitsOnly = new StringBuilder();
-		char c;
+		int sumIfEvenCount = 0;	// doubling the digits at even positions from the left
+		int sumIfOddCount = 0;	// doubling the digits at odd positions from the left
+		int count = 0;
+		int leading = 0;
 		for (int i = 0; i < ccNum.length(); i++) {
-			c = ccNum.charAt(i);
-			if (Character.isDigit(c)) {
-				digitsOnly.append(c);
+			int digit = Character.digit(ccNum.charAt(i), 10);
+			if (digit < 0) {
+				continue;
 			}
-		}
-	
-		int sum = 0;
-		int digit = 0;
-		int addend = 0;
-		boolean timesTwo = false;
-	
-		for (int i = digitsOnly.length() - 1; i >= 0; i--) {
-			// guaranteed to be an int
-			digit = Integer.valueOf(digitsOnly.substring(i, i + 1));
-			if (timesTwo) {
-				addend = digit * 2;
-				if (addend > 9) {
-					addend -= 9;
-				}
+			int doubled = digit < 5 ? digit * 2 : digit * 2 - 9;
+			if ((count & 1) == 0) {
+				sumIfEvenCount += doubled;
+				sumIfOddCount += digit;
 			} else {
-				addend = digit;
+				sumIfEvenCount += digit;
+				sumIfOddCount += doubled;
+			}
+			if (count < BinRanges.MAX_PREFIX_LENGTH) {
+				leading = leading * 10 + digit;
 			}
-			sum += addend;
-			timesTwo = !timesTwo;
+			count++;
 		}
 
-		return sum % 10 == 0; 
-	
+		int sum = (count & 1) == 0 ? sumIfEvenCount : sumIfOddCount;
+		if (sum % 10 != 0) {
+			return false;
+		}
+		return binRanges == null || binRanges.contains(leading, Math.min(count, BinRanges.MAX_PREFIX_LENGTH));
 	}
 	
     /**
@@ -149,6 +154,20 @@ public class CreditCardValidationRule extends BaseValidationRule {
 		return ccrule;
 	}
 
+	/**
+	 * @param binRanges the accepted issuer ranges, or null to accept any issuer
+	 */
+	public void setBinRanges(BinRanges binRanges) {
+		this.binRanges = binRanges;
+	}
+
+	/**
+	 * @return the accepted issuer ranges, or null if any issuer is accepted
+	 */
+	public BinRanges getBinRanges() {
+		return binRanges;
+	}
+
 	/**
 	 * @param maxCardLength the maxCardLength to set
 	 */
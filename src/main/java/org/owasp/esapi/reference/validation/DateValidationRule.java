@@ -27,6 +27,12 @@ import org.owasp.esapi.errors.ValidationException;
 /**
  * A validator performs syntax and possibly semantic validation of a single
  * piece of data from an untrusted source.
+ * <P>
+ * A DateFormat is not thread safe, but a rule may be shared between threads:
+ * the rule keeps its own copy of the format it is given, and every thread
+ * parses with its own clone of that copy, made on its first use. Changes made
+ * to the format after it was set are therefore not seen by the rule; call
+ * {@link #setDateFormat(DateFormat)} again instead.
  * 
  * @author Jeff Williams (jeff.williams .at. aspectsecurity.com) <a
  *         href="http://www.aspectsecurity.com">Aspect Security</a>
@@ -34,7 +40,10 @@ import org.owasp.esapi.errors.ValidationException;
  * @see org.owasp.esapi.Validator
  */
 public class DateValidationRule extends BaseValidationRule {
+	/** The rule's own copy of the format, which is only used to make clones. */
 	private DateFormat format = DateFormat.getDateInstance();
+	/** Clones of the format for each thread. */
+	private volatile ThreadLocal<DateFormat> formatClones;
 	
 	public DateValidationRule( String typeName, Encoder encoder, DateFormat newFormat ) {
 		super( typeName, encoder );      
@@ -53,8 +62,18 @@ public class DateValidationRule extends BaseValidationRule {
 			throw new IllegalArgumentException(e);
 		}
 */
-        this.format = newFormat;
-        this.format.setLenient( ESAPI.securityConfiguration().getLenientDatesAccepted() );
+        newFormat.setLenient( ESAPI.securityConfiguration().getLenientDatesAccepted() );
+        // copied once, so the caller can go on using newFormat without affecting this rule
+        final DateFormat prototype = (DateFormat) newFormat.clone();
+        this.format = prototype;
+        this.formatClones = new ThreadLocal<DateFormat>() {
+            @Override
+            protected DateFormat initialValue() {
+                synchronized ( prototype ) {
+                    return (DateFormat) prototype.clone();
+                }
+            }
+        };
     }
 
     /**
@@ -102,6 +121,7 @@ public class DateValidationRule extends BaseValidationRule {
 		}
 
 		 String canonical = encoder.canonicalize(input);
+		 DateFormat format = formatClones.get();
 	        try {
 	            Date rval = format.parse(canonical);
 	            if (sanitize) {
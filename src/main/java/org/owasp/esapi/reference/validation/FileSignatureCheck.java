@@ -0,0 +1,98 @@
+/**
+ * OWASP Enterprise Security API (ESAPI)
+ *
+ * This file is part of the Open Web Application Security Project (OWASP)
+ * Enterprise Security API (ESAPI) project. For details, please see
+ * <a href="http://www.owasp.org/index.php/ESAPI">http://www.owasp.org/index.php/ESAPI</a>.
+ *
+ * Copyright (c) 2017 - The OWASP Foundation
+ *
+ * The ESAPI is published by OWASP under the BSD license. You should read and accept the
+ * LICENSE before you use, modify, and/or redistribute this software.
+ */
+package org.owasp.esapi.reference.validation;
+
+import org.owasp.esapi.FileContentCheck;
+import org.owasp.esapi.errors.ValidationException;
+
+/**
+ * Checks that file content starts with one of a set of signatures, the "magic
+ * bytes" that identify a file type, such as {@code %PDF-} for PDF documents.
+ * Only the first bytes of the content are kept.
+ * <P>
+ * An instance keeps state and checks one file.
+ */
+public class FileSignatureCheck implements FileContentCheck {
+
+	private final byte[][] signatures;
+	/** The first bytes of the content, as many as the longest signature. */
+	private final byte[] prefix;
+	private int prefixLength = 0;
+	private boolean matched = false;
+
+	/**
+	 * @param signatures the allowed signatures; the content must start with one of them.
+	 * @throws IllegalArgumentException if there are no signatures, or one is null or empty
+	 */
+	public FileSignatureCheck(byte[]... signatures) {
+		if ( signatures == null || signatures.length == 0 ) {
+			throw new IllegalArgumentException("At least one signature is required");
+		}
+		this.signatures = new byte[signatures.length][];
+		int max = 0;
+		for ( int i = 0; i < signatures.length; i++ ) {
+			if ( signatures[i] == null || signatures[i].length == 0 ) {
+				throw new IllegalArgumentException("Signatures cannot be null or empty");
+			}
+			this.signatures[i] = signatures[i].clone();
+			max = Math.max(max, signatures[i].length);
+		}
+		prefix = new byte[max];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void update(String context, byte[] buffer, int offset, int length) throws ValidationException {
+		if ( matched || prefixLength == prefix.length ) {
+			return;
+		}
+		int n = Math.min(length, prefix.length - prefixLength);
+		System.arraycopy(buffer, offset, prefix, prefixLength, n);
+		prefixLength += n;
+		if ( prefixLength == prefix.length ) {
+			verify(context);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void finish(String context) throws ValidationException {
+		if ( !matched ) {
+			verify(context);
+		}
+	}
+
+	private void verify(String context) throws ValidationException {
+		for ( byte[] signature : signatures ) {
+			if ( startsWith(signature) ) {
+				matched = true;
+				return;
+			}
+		}
+		throw new ValidationException( context + ": Invalid file type", "File content does not start with an allowed signature: context=" + context, context );
+	}
+
+	private boolean startsWith(byte[] signature) {
+		if ( signature.length > prefixLength ) {
+			return false;
+		}
+		for ( int i = 0; i < signature.length; i++ ) {
+			if ( prefix[i] != signature[i] ) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
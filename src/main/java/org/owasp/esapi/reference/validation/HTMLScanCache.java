@@ -0,0 +1,70 @@
+/**
+ * OWASP Enterprise Security API (ESAPI)
+ *
+ * This file is part of the Open Web Application Security Project (OWASP)
+ * Enterprise Security API (ESAPI) project. For details, please see
+ * <a href="http://www.owasp.org/index.php/ESAPI">http://www.owasp.org/index.php/ESAPI</a>.
+ *
+ * Copyright (c) 2017 - The OWASP Foundation
+ *
+ * The ESAPI is published by OWASP under the BSD license. You should read and accept the
+ * LICENSE before you use, modify, and/or redistribute this software.
+ */
+package org.owasp.esapi.reference.validation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.owasp.esapi.util.SegmentedLRUCache;
+
+/**
+ * A size bounded, least recently used cache of AntiSamy scan results, used by
+ * {@link HTMLValidationRule} so that content which is submitted again, for
+ * example after a preview, is not scanned again.
+ * <br/><br/>
+ * Results are keyed by the canonicalized input itself rather than by a digest
+ * of it, so two different inputs can never share a result. The scan depends
+ * only on the input, the policy and the kind of scanner, and the latter two
+ * are fixed when HTMLValidationRule is loaded.
+ */
+class HTMLScanCache {
+
+	/** Inputs longer than this are not cached, to bound the memory used. */
+	static final int MAX_INPUT_LENGTH = 16384;
+
+	/**
+	 * The outcome of scanning one input.
+	 */
+	static final class Result {
+		final String cleanHTML;
+		final List<String> errors;
+
+		Result(String cleanHTML, List<String> errors) {
+			this.cleanHTML = cleanHTML;
+			this.errors = Collections.unmodifiableList(new ArrayList<String>(errors));
+		}
+	}
+
+	private final SegmentedLRUCache<String, Result> results;
+
+	/**
+	 * @param maxSize the maximum number of results to keep, at least 1.
+	 */
+	HTMLScanCache(int maxSize) {
+		results = new SegmentedLRUCache<String, Result>(maxSize);
+	}
+
+	/**
+	 * @return the cached result for {@code input}, or null.
+	 */
+	Result get(String input) {
+		return results.get(input);
+	}
+
+	void put(String input, Result result) {
+		if ( input.length() <= MAX_INPUT_LENGTH ) {
+			results.put(input, result);
+		}
+	}
+}
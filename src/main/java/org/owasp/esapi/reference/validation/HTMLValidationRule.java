@@ -25,6 +25,8 @@ import org.owasp.esapi.Encoder;
 import org.owasp.esapi.Logger;
 import org.owasp.esapi.StringUtilities;
 import org.owasp.esapi.errors.ValidationException;
+import org.owasp.esapi.reference.DefaultSecurityConfiguration;
+import org.owasp.esapi.util.SegmentedLRUCache;
 import org.owasp.validator.html.AntiSamy;
 import org.owasp.validator.html.CleanResults;
 import org.owasp.validator.html.Policy;
@@ -46,6 +48,14 @@ public class HTMLValidationRule extends StringValidationRule {
 	/** OWASP AntiSamy markup verification policy */
 	private static Policy antiSamyPolicy = null;
 	private static final Logger LOGGER = ESAPI.getLogger( "HTMLValidationRule" ); 
+	private static final int DEFAULT_SCAN_CACHE_SIZE = 1000;
+
+	/** Shared by all rules; AntiSamy creates a new scanner for every scan, so this is thread safe. */
+	private static final AntiSamy ANTI_SAMY = new AntiSamy();
+	/** AntiSamy.DOM or AntiSamy.SAX, from Validator.HtmlValidation.Scanner */
+	private static final int scanType = configuredScanType();
+	/** Results of recent scans, or null if Validator.HtmlValidation.Cache.Enabled is not true */
+	private static final HTMLScanCache scanCache = createScanCache();
 	
 	static {
         InputStream resourceStream = null;
@@ -63,6 +73,34 @@ public class HTMLValidationRule extends StringValidationRule {
 			}
 		}
 
+	/**
+	 * @return AntiSamy.SAX if the SAX scanner is configured, otherwise AntiSamy.DOM
+	 */
+	private static int configuredScanType() {
+		String scanner;
+		try {
+			scanner = ESAPI.securityConfiguration().getStringProp( DefaultSecurityConfiguration.HTML_VALIDATION_SCANNER );
+		} catch ( ConfigurationException e ) {
+			return AntiSamy.DOM;
+		}
+		if ( "SAX".equalsIgnoreCase( scanner ) ) {
+			return AntiSamy.SAX;
+		}
+		if ( !"DOM".equalsIgnoreCase( scanner ) ) {
+			LOGGER.warning( Logger.EVENT_FAILURE, DefaultSecurityConfiguration.HTML_VALIDATION_SCANNER + " must be DOM or SAX, using DOM" );
+		}
+		return AntiSamy.DOM;
+	}
+
+	/**
+	 * Creates the scan result cache if it is enabled in ESAPI.properties.
+	 */
+	private static HTMLScanCache createScanCache() {
+		int size = SegmentedLRUCache.configuredSize( DefaultSecurityConfiguration.HTML_VALIDATION_CACHE_ENABLED,
+				DefaultSecurityConfiguration.HTML_VALIDATION_CACHE_SIZE, DEFAULT_SCAN_CACHE_SIZE );
+		return size > 0 ? new HTMLScanCache( size ) : null;
+	}
+
 	public HTMLValidationRule( String typeName ) {
 		super( typeName );
 	}
@@ -109,15 +147,21 @@ public class HTMLValidationRule extends StringValidationRule {
 		String canonical = super.getValid( context, input );
 
 		try {
-			AntiSamy as = new AntiSamy();
-			CleanResults test = as.scan(canonical, antiSamyPolicy);
+			HTMLScanCache.Result result = scanCache == null ? null : scanCache.get( canonical );
+			if ( result == null ) {
+				CleanResults test = ANTI_SAMY.scan(canonical, antiSamyPolicy, scanType);
+				result = new HTMLScanCache.Result( test.getCleanHTML().trim(), test.getErrorMessages() );
+				if ( scanCache != null ) {
+					scanCache.put( canonical, result );
+				}
+			}
 			
-			List<String> errors = test.getErrorMessages();
+			List<String> errors = result.errors;
 			if ( !errors.isEmpty() ) {
 				LOGGER.info( Logger.SECURITY_FAILURE, "Cleaned up invalid HTML input: " + errors );
 			}
 			
-			return test.getCleanHTML().trim();
+			return result.cleanHTML;
 			
 		} catch (ScanException e) {
 			throw new ValidationException( context + ": Invalid HTML input", "Invalid HTML input: context=" + context + " error=" + e.getMessage(), e, context );
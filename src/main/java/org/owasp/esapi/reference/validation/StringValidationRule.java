@@ -17,6 +17,7 @@ package org.owasp.esapi.reference.validation;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -24,8 +25,12 @@ import org.owasp.esapi.ESAPI;
 import org.owasp.esapi.Encoder;
 import org.owasp.esapi.EncoderConstants;
 import org.owasp.esapi.Logger;
+import org.owasp.esapi.SecurityConfiguration;
 import org.owasp.esapi.StringUtilities;
+import org.owasp.esapi.ValidationResult;
+import org.owasp.esapi.errors.ConfigurationException;
 import org.owasp.esapi.errors.ValidationException;
+import org.owasp.esapi.reference.DefaultSecurityConfiguration;
 import org.owasp.esapi.util.NullSafe;
 
 
@@ -47,20 +52,56 @@ public class StringValidationRule extends BaseValidationRule {
 	protected int minLength = 0;
 	protected int maxLength = Integer.MAX_VALUE;
 	private boolean canonicalizeInput = true;
+	/** The blacklist patterns combined into one, rebuilt when blacklistPatterns changes. */
+	private volatile CombinedPatterns combinedBlacklist;
+	/** Characters a pattern may read per character of input, or 0 for no limit. */
+	private int regexStepLimit;
 
 	public StringValidationRule( String typeName ) {
 		super( typeName );
+		regexStepLimit = configuredRegexStepLimit( typeName );
 	}
 
 	public StringValidationRule( String typeName, Encoder encoder ) {
 		super( typeName, encoder );
+		regexStepLimit = configuredRegexStepLimit( typeName );
 	}
 
 	public StringValidationRule( String typeName, Encoder encoder, String whitelistPattern ) {
 		super( typeName, encoder );
+		regexStepLimit = configuredRegexStepLimit( typeName );
 		addWhitelistPattern( whitelistPattern );
 	}
 
+	/**
+	 * Reads {@code Validator.RegexStepLimit.<typeName>}, or else
+	 * {@code Validator.RegexStepLimit}, from the ESAPI configuration. Rules
+	 * are built for every call of some validations, so with the reference
+	 * configuration the lookup does not throw for the usual missing property.
+	 * @return the step limit, or 0 if neither is set.
+	 */
+	private static int configuredRegexStepLimit( String typeName ) {
+		SecurityConfiguration config = ESAPI.securityConfiguration();
+		if ( config == null ) {
+			return 0;
+		}
+		if ( config instanceof DefaultSecurityConfiguration ) {
+			DefaultSecurityConfiguration dsc = (DefaultSecurityConfiguration) config;
+			int limit = dsc.getIntProp( DefaultSecurityConfiguration.REGEX_STEP_LIMIT, 0 );
+			return dsc.getIntProp( DefaultSecurityConfiguration.REGEX_STEP_LIMIT + "." + typeName, limit );
+		}
+		try {
+			return config.getIntProp( DefaultSecurityConfiguration.REGEX_STEP_LIMIT + "." + typeName );
+		} catch( ConfigurationException e ) {
+			// not set for this type
+		}
+		try {
+			return config.getIntProp( DefaultSecurityConfiguration.REGEX_STEP_LIMIT );
+		} catch( ConfigurationException e ) {
+			return 0;
+		}
+	}
+
 	/**
 	 * @throws IllegalArgumentException if pattern is null
 	 */
@@ -122,6 +163,34 @@ public class StringValidationRule extends BaseValidationRule {
 	    this.canonicalizeInput = canonicalize;
 	}
 
+	/**
+	 * Limits the work each whitelist and blacklist pattern may do on an input,
+	 * to guard against patterns that backtrack excessively (ReDoS). A match
+	 * may read at most {@code stepsPerChar} characters per character of input;
+	 * input that needs more is rejected as invalid. The default comes from
+	 * {@code Validator.RegexStepLimit} in ESAPI.properties.
+	 * @param stepsPerChar the limit, or 0 for no limit
+	 */
+	public void setRegexStepLimit(int stepsPerChar) {
+	    this.regexStepLimit = stepsPerChar;
+	}
+
+	/**
+	 * @return the input to match, bounded by the regex step limit if there is one.
+	 */
+	private CharSequence matchInput(String input) {
+		return matchInput(input, regexStepLimit);
+	}
+
+	/**
+	 * @return the input to match, bounded by {@code stepsPerChar} unless it is 0.
+	 *	Each match needs its own, as the bound is on the reads of all matches
+	 *	made with it.
+	 */
+	private static CharSequence matchInput(String input, int stepsPerChar) {
+		return stepsPerChar > 0 ? new BoundedCharSequence(input, stepsPerChar) : input;
+	}
+
 	/**
 	 * checks input against whitelists.
 	 * @param context The context to include in exception messages
@@ -136,7 +205,7 @@ public class StringValidationRule extends BaseValidationRule {
 	{
 		// check whitelist patterns
 		for (Pattern p : whitelistPatterns) {
-			if ( !p.matcher(input).matches() ) {
+			if ( !p.matcher(matchInput(input)).matches() ) {
 				throw new ValidationException( context + ": Invalid input. Please conform to regex " + p.pattern() + ( maxLength == Integer.MAX_VALUE ? "" : " with a maximum length of " + maxLength ), "Invalid input: context=" + context + ", type(" + getTypeName() + ")=" + p.pattern() + ", input=" + input + (NullSafe.equals(orig,input) ? "" : ", orig=" + orig), context );
 			}
 		}
@@ -169,15 +238,34 @@ public class StringValidationRule extends BaseValidationRule {
 	private String checkBlacklist(String context, String input, String orig) throws ValidationException
 	{
 		// check blacklist patterns
-		for (Pattern p : blacklistPatterns) {
-			if ( p.matcher(input).matches() ) {
-				throw new ValidationException( context + ": Invalid input. Dangerous input matching " + p.pattern() + " detected.", "Dangerous input: context=" + context + ", type(" + getTypeName() + ")=" + p.pattern() + ", input=" + input + (NullSafe.equals(orig,input) ? "" : ", orig=" + orig), context );
-			}
+		Pattern p = findBlacklistMatch(input);
+		if ( p != null ) {
+			throw new ValidationException( context + ": Invalid input. Dangerous input matching " + p.pattern() + " detected.", "Dangerous input: context=" + context + ", type(" + getTypeName() + ")=" + p.pattern() + ", input=" + input + (NullSafe.equals(orig,input) ? "" : ", orig=" + orig), context );
 		}
 
 		return input;
 	}
 
+	/**
+	 * Finds the first blacklist pattern that matches the whole input. When there
+	 * are several patterns they are tried as one combined pattern, so the input
+	 * is matched once rather than once per pattern.
+	 * @param input the input to check
+	 * @return the first matching pattern, or null if none matches.
+	 */
+	private Pattern findBlacklistMatch(String input)
+	{
+		if ( blacklistPatterns.size() < 2 ) {
+			return blacklistPatterns.isEmpty() || !blacklistPatterns.get(0).matcher(matchInput(input)).matches() ? null : blacklistPatterns.get(0);
+		}
+		CombinedPatterns combined = combinedBlacklist;
+		if ( combined == null || !combined.isFor(blacklistPatterns) ) {
+			combined = new CombinedPatterns(blacklistPatterns);
+			combinedBlacklist = combined;
+		}
+		return combined.firstMatch(input, regexStepLimit);
+	}
+
 	/**
 	 * checks input against blacklists.
 	 * @param context The context to include in exception messages
@@ -279,16 +367,85 @@ public class StringValidationRule extends BaseValidationRule {
             data = input;
 		}
 
-		// check whitelist patterns
-		checkWhitelist(context, input);
+		try {
+			// check whitelist patterns
+			checkWhitelist(context, input);
 
-		// check blacklist patterns
-		checkBlacklist(context, input);
+			// check blacklist patterns
+			checkBlacklist(context, input);
+		} catch (BoundedCharSequence.LimitExceededException e) {
+			throw new ValidationException( context + ": Invalid input. The input could not be validated.", "Regex step limit exceeded, input rejected: context=" + context + ", type=" + getTypeName() + ", limit=" + regexStepLimit + ", input=" + input, e, context );
+		}
 			
 		// validation passed
 		return data;
 	}
 
+	/**
+	 * Performs the same checks as {@link #getValid(String, String)}, but reports
+	 * invalid input as a result instead of throwing, so no exception or stack
+	 * trace is built for it. Unlike getValid, an invalid result is not reported
+	 * to the IntrusionDetector.
+	 *
+	 * @param context The context to include in messages
+	 * @param input the input to check
+	 * @return the canonicalized input if valid, otherwise why it is not
+	 */
+	public ValidationResult check( String context, String input )
+	{
+		// check for empty/null
+		if (StringUtilities.isEmpty(input)) {
+			return allowNull ? ValidationResult.valid(null) : ValidationResult.invalid(context, context + ": Input required.");
+		}
+
+		// check length
+		if (input.length() < minLength) {
+			return ValidationResult.invalid(context, context + ": Invalid input. The minimum length of " + minLength + " characters was not met.");
+		}
+		if (input.length() > maxLength) {
+			return ValidationResult.invalid(context, context + ": Invalid input. The maximum length of " + maxLength + " characters was exceeded.");
+		}
+
+		// canonicalize
+		String data;
+		if (canonicalizeInput) {
+		    data = encoder.canonicalize(input);
+		} else {
+		    String message = String.format("Input validaiton excludes canonicalization.  Context: %s   Input: %s", context, input);
+		    LOGGER.warning(Logger.SECURITY_AUDIT, message);
+            data = input;
+		}
+
+		try {
+			return checkPatterns(context, input, data);
+		} catch (BoundedCharSequence.LimitExceededException e) {
+			LOGGER.warning(Logger.SECURITY_FAILURE, "Regex step limit exceeded, input rejected: context=" + context + ", type=" + getTypeName() + ", limit=" + regexStepLimit);
+			return ValidationResult.invalid(context, context + ": Invalid input. The input could not be validated.");
+		}
+	}
+
+	/**
+	 * The whitelist and blacklist checks of {@link #check(String, String)}.
+	 */
+	private ValidationResult checkPatterns( String context, String input, String data )
+	{
+		// check whitelist patterns
+		for (Pattern w : whitelistPatterns) {
+			if ( !w.matcher(matchInput(input)).matches() ) {
+				return ValidationResult.invalid(context, context + ": Invalid input. Please conform to regex " + w.pattern() + ( maxLength == Integer.MAX_VALUE ? "" : " with a maximum length of " + maxLength ));
+			}
+		}
+
+		// check blacklist patterns
+		Pattern p = findBlacklistMatch(input);
+		if ( p != null ) {
+			return ValidationResult.invalid(context, context + ": Invalid input. Dangerous input matching " + p.pattern() + " detected.");
+		}
+
+		// validation passed
+		return ValidationResult.valid(data);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -297,6 +454,106 @@ public class StringValidationRule extends BaseValidationRule {
 			return whitelist( input, EncoderConstants.CHAR_ALPHANUMERICS );
 		}
 
+	/**
+	 * A list of patterns compiled into one alternation, {@code (p1)|(p2)|...},
+	 * with one capturing group around each pattern so that the pattern that
+	 * matched can be told apart. The alternatives are tried in list order, so
+	 * the pattern found is the same one a loop over the list would find.
+	 * <br/><br/>
+	 * Patterns that cannot be combined without changing their meaning, such as
+	 * those with back references (whose group numbers would shift), compile
+	 * flags or comments, leave the list uncombined and it is matched one
+	 * pattern at a time.
+	 */
+	private static final class CombinedPatterns {
+		private static final Pattern NOT_COMBINABLE = Pattern.compile("\\\\[1-9]|\\\\k<|\\(\\?[a-zA-Z-]*x");
+
+		private final Pattern[] sources;
+		/** The combined pattern, or null if the sources could not be combined. */
+		private final Pattern combined;
+		/** The group wrapping each source in the combined pattern. */
+		private final int[] groups;
+
+		CombinedPatterns(List<Pattern> patterns) {
+			sources = patterns.toArray(new Pattern[patterns.size()]);
+			groups = new int[sources.length];
+			StringBuilder sb = new StringBuilder();
+			int group = 1;
+			for (int i = 0; i < sources.length; i++) {
+				Pattern p = sources[i];
+				if ( !isCombinable(p) ) {
+					sb = null;
+					break;
+				}
+				if ( i > 0 ) {
+					sb.append('|');
+				}
+				sb.append('(').append(p.pattern()).append(')');
+				groups[i] = group;
+				group += 1 + p.matcher("").groupCount();
+			}
+			Pattern compiled = null;
+			if ( sb != null ) {
+				try {
+					compiled = Pattern.compile(sb.toString());
+				} catch (PatternSyntaxException e) {
+					// e.g. the same named group in two patterns; match them one at a time
+				}
+			}
+			combined = compiled;
+		}
+
+		private static boolean isCombinable(Pattern p) {
+			String pattern = p.pattern();
+			// an unterminated \Q would quote the rest of the combined pattern
+			return p.flags() == 0
+				&& !NOT_COMBINABLE.matcher(pattern).find()
+				&& pattern.lastIndexOf("\\Q") <= pattern.lastIndexOf("\\E");
+		}
+
+		/**
+		 * @return whether this was built from the same patterns, in the same order.
+		 */
+		boolean isFor(List<Pattern> patterns) {
+			if ( patterns.size() != sources.length ) {
+				return false;
+			}
+			for (int i = 0; i < sources.length; i++) {
+				if ( patterns.get(i) != sources[i] ) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * @param input the input to check
+		 * @param stepsPerChar the regex step limit of each match, or 0 for none
+		 * @return the first pattern that matches the whole input, or null.
+		 */
+		Pattern firstMatch(String input, int stepsPerChar) {
+			if ( combined == null ) {
+				// one match per pattern, so each gets the step limit a whitelist pattern gets
+				for (Pattern p : sources) {
+					if ( p.matcher(matchInput(input, stepsPerChar)).matches() ) {
+						return p;
+					}
+				}
+				return null;
+			}
+			Matcher m = combined.matcher(matchInput(input, stepsPerChar));
+			if ( !m.matches() ) {
+				return null;
+			}
+			for (int i = 0; i < sources.length; i++) {
+				if ( m.start(groups[i]) >= 0 ) {
+					return sources[i];
+				}
+			}
+			return null;
+		}
+	}
+
 
 }
 
@@ -13,6 +13,8 @@ import org.owasp.esapi.errors.ConfigurationException;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A generic object factory to create an object of class T. T must be a concrete
@@ -44,6 +46,23 @@ import java.lang.reflect.Modifier;
  */
 public class ObjFactory {
 
+	/**
+	 * The classes made so far by name, so that {@link #make(String, String)} only
+	 * looks a class and its getInstance method up the first time.
+	 */
+	private static final ConcurrentMap<String, ResolvedClass> resolvedClasses =
+		new ConcurrentHashMap<String, ResolvedClass>();
+
+	private static final class ResolvedClass {
+		final Class<?> theClass;
+		final Method singleton;		// The static getInstance method, or null if there is none.
+
+		ResolvedClass(Class<?> theClass, Method singleton) {
+			this.theClass = theClass;
+			this.singleton = singleton;
+		}
+	}
+
 	/**
 	 * Create an object based on the <code>className</code> parameter.
 	 * 
@@ -71,30 +90,12 @@ public class ObjFactory {
 				typeName = "[unknown?]";	// CHECKME: Any better suggestions?
 			}
 			
-			Class<?> theClass = Class.forName(className);
-
-            try {
-                Method singleton = theClass.getMethod( "getInstance" );
-
-                // If the implementation class contains a getInstance method that is not static, this is an invalid
-                // object configuration and a ConfigurationException will be thrown.
-                if ( !Modifier.isStatic( singleton.getModifiers() ) )
-                {
-                    throw new ConfigurationException( "Class [" + className + "] contains a non-static getInstance method." );
-                }
-                
-                obj = singleton.invoke( null );
-            } catch (NoSuchMethodException e) {
-                // This is a no-error exception, if this is caught we will continue on assuming the implementation was
-                // not meant to be used as a singleton.
-                obj = theClass.newInstance();
-            } catch (SecurityException e) {
-                // The class is meant to be singleton, however, the SecurityManager restricts us from calling the
-                // getInstance method on the class, thus this is a configuration issue and a ConfigurationException
-                // is thrown
-                throw new ConfigurationException( "The SecurityManager has restricted the object factory from getting a reference to the singleton implementation" +
-                        "of the class [" + className + "]", e );
-            }
+			ResolvedClass resolved = resolve(className);
+			if ( resolved.singleton != null ) {
+				obj = resolved.singleton.invoke( null );
+			} else {
+				obj = resolved.theClass.newInstance();
+			}
 
 			return (T)obj;		// Eclipse warning here if @SupressWarnings omitted.
 			
@@ -131,6 +132,57 @@ public class ObjFactory {
 		// DISCUSS: Should we also catch ExceptionInInitializerError here? See Google Issue #61 comments.
 	}
 	
+	/**
+	 * Tells whether {@link #make(String, String)} uses <code>className</code> as a singleton,
+	 * that is, whether it returns what the class's static getInstance method returns rather than
+	 * a new object on every call. Like make, this only looks the class up the first time.
+	 * 
+	 * @param className	The fully qualified name of the class.
+	 * @return	true if the class is used as a singleton; false if it is not, or if make would
+	 * 			throw a ConfigurationException for it.
+	 */
+	public static boolean isSingleton(String className) {
+		if (null == className || "".equals(className) ) {
+			return false;
+		}
+		try {
+			return resolve(className).singleton != null;
+		} catch ( Exception ex ) {
+			return false;
+		}
+	}
+
+	private static ResolvedClass resolve(String className) throws ClassNotFoundException {
+		ResolvedClass resolved = resolvedClasses.get(className);
+		if ( resolved != null ) {
+			return resolved;
+		}
+		Class<?> theClass = Class.forName(className);
+		Method singleton = null;
+		try {
+			singleton = theClass.getMethod( "getInstance" );
+
+			// If the implementation class contains a getInstance method that is not static, this is an invalid
+			// object configuration and a ConfigurationException will be thrown.
+			if ( !Modifier.isStatic( singleton.getModifiers() ) )
+			{
+				throw new ConfigurationException( "Class [" + className + "] contains a non-static getInstance method." );
+			}
+		} catch (NoSuchMethodException e) {
+			// This is a no-error exception, if this is caught we will continue on assuming the implementation was
+			// not meant to be used as a singleton.
+		} catch (SecurityException e) {
+			// The class is meant to be singleton, however, the SecurityManager restricts us from calling the
+			// getInstance method on the class, thus this is a configuration issue and a ConfigurationException
+			// is thrown
+			throw new ConfigurationException( "The SecurityManager has restricted the object factory from getting a reference to the singleton implementation" +
+					"of the class [" + className + "]", e );
+		}
+		resolved = new ResolvedClass(theClass, singleton);
+		resolvedClasses.putIfAbsent(className, resolved);
+		return resolved;
+	}
+
 	/**
 	 * Not instantiable
 	 */
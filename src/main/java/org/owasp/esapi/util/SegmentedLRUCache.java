@@ -0,0 +1,191 @@
+/**
+ * OWASP Enterprise Security API (ESAPI)
+ *
+ * This file is part of the Open Web Application Security Project (OWASP)
+ * Enterprise Security API (ESAPI) project. For details, please see
+ * <a href="http://www.owasp.org/index.php/ESAPI">http://www.owasp.org/index.php/ESAPI</a>.
+ *
+ * Copyright (c) 2017 - The OWASP Foundation
+ *
+ * The ESAPI is published by OWASP under the BSD license. You should read and accept the
+ * LICENSE before you use, modify, and/or redistribute this software.
+ */
+package org.owasp.esapi.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.owasp.esapi.ESAPI;
+import org.owasp.esapi.Logger;
+import org.owasp.esapi.SecurityConfiguration;
+import org.owasp.esapi.errors.ConfigurationException;
+
+/**
+ * A size bounded, least recently used cache that is safe for concurrent use.
+ * The entries are split over up to 16 segments, each with its own lock and an
+ * equal share of the maximum size, so concurrent callers rarely contend for
+ * the same lock. As a consequence, an entry may be evicted before the cache
+ * as a whole is full.
+ * <br/><br/>
+ * This class is shared by the caches of the reference implementation and is
+ * not part of the ESAPI API.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the cached values
+ * @since 2.2
+ */
+public final class SegmentedLRUCache<K, V> {
+
+	private static final int SEGMENTS = 16;
+
+	/**
+	 * Told about every value that leaves the cache, because it was evicted,
+	 * replaced or cleared. It is called while the segment of the entry is
+	 * locked, so it must not use the cache.
+	 */
+	public interface EvictionListener<K, V> {
+		void evicted(K key, V value);
+	}
+
+	private final Segment<K, V>[] segments;
+
+	/**
+	 * @param maxSize the maximum number of entries to keep, at least 1.
+	 */
+	public SegmentedLRUCache(int maxSize) {
+		this(maxSize, null);
+	}
+
+	/**
+	 * @param maxSize the maximum number of entries to keep, at least 1.
+	 * @param listener told about every value that leaves the cache; may be null.
+	 */
+	@SuppressWarnings("unchecked")
+	public SegmentedLRUCache(int maxSize, EvictionListener<? super K, ? super V> listener) {
+		if ( maxSize < 1 ) {
+			throw new IllegalArgumentException("maxSize must be at least 1: " + maxSize);
+		}
+		int count = Math.min(SEGMENTS, maxSize);
+		segments = new Segment[count];
+		for ( int i = 0; i < count; i++ ) {
+			segments[i] = new Segment<K, V>(maxSize / count + (i < maxSize % count ? 1 : 0), listener);
+		}
+	}
+
+	/**
+	 * Returns the size configured for a cache in ESAPI.properties.
+	 *
+	 * @param enabledProperty the boolean property that enables the cache.
+	 * @param sizeProperty the int property with the maximum size of the cache.
+	 * @param defaultSize the size to use if {@code sizeProperty} is not set.
+	 * @return the size of the cache, or 0 if it is not enabled or its size is not positive.
+	 */
+	public static int configuredSize(String enabledProperty, String sizeProperty, int defaultSize) {
+		SecurityConfiguration sc = ESAPI.securityConfiguration();
+		try {
+			if ( !sc.getBooleanProp( enabledProperty ) ) {
+				return 0;
+			}
+		} catch ( ConfigurationException e ) {
+			return 0;	// not configured, so not enabled
+		}
+		int size = defaultSize;
+		try {
+			size = sc.getIntProp( sizeProperty );
+		} catch ( ConfigurationException e ) {
+			// use the default
+		}
+		if ( size > 0 ) {
+			return size;
+		}
+		ESAPI.getLogger( SegmentedLRUCache.class ).warning( Logger.EVENT_FAILURE, sizeProperty + " must be positive, cache disabled" );
+		return 0;
+	}
+
+	/**
+	 * @return the cached value for {@code key}, or null.
+	 */
+	public V get(K key) {
+		Segment<K, V> segment = segmentFor(key);
+		synchronized ( segment ) {
+			return segment.get(key);
+		}
+	}
+
+	/**
+	 * Caches {@code value}, evicting the least recently used entry of its
+	 * segment if that segment is full.
+	 */
+	public void put(K key, V value) {
+		Segment<K, V> segment = segmentFor(key);
+		synchronized ( segment ) {
+			V old = segment.put(key, value);
+			if ( old != null && old != value ) {
+				segment.evicted(key, old);
+			}
+		}
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public void clear() {
+		for ( Segment<K, V> segment : segments ) {
+			synchronized ( segment ) {
+				Iterator<Map.Entry<K, V>> it = segment.entrySet().iterator();
+				while ( it.hasNext() ) {
+					Map.Entry<K, V> entry = it.next();
+					it.remove();
+					segment.evicted(entry.getKey(), entry.getValue());
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the number of entries kept.
+	 */
+	public int size() {
+		int size = 0;
+		for ( Segment<K, V> segment : segments ) {
+			synchronized ( segment ) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	private Segment<K, V> segmentFor(K key) {
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		return segments[(h & 0x7fffffff) % segments.length];
+	}
+
+	private static final class Segment<K, V> extends LinkedHashMap<K, V> {
+		private static final long serialVersionUID = 1L;
+		private final int maxSize;
+		private final EvictionListener<? super K, ? super V> listener;
+
+		Segment(int maxSize, EvictionListener<? super K, ? super V> listener) {
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+			this.listener = listener;
+		}
+
+		void evicted(K key, V value) {
+			if ( listener != null ) {
+				listener.evicted(key, value);
+			}
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			if ( size() > maxSize ) {
+				evicted(eldest.getKey(), eldest.getValue());
+				return true;
+			}
+			return false;
+		}
+	}
+}
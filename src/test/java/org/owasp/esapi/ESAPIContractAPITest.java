@@ -26,9 +26,13 @@ public class ESAPIContractAPITest {
     
     @Before
     public void configureStaticContexts() throws Exception {
+        // ESAPI keeps the configuration it resolved in an earlier test
+        ESAPI.override(null);
         PowerMockito.mockStatic(ObjFactory.class);
         PowerMockito.when(ObjFactory.class, "make", ArgumentMatchers.anyString(), ArgumentMatchers.eq("SecurityConfiguration")).thenReturn(mockSecConfig);
         PowerMockito.when(ObjFactory.class, "make", ArgumentMatchers.eq("MOCK_TEST_VALIDATOR"), ArgumentMatchers.eq("Validator")).thenReturn(mockValidator);
+        // ESAPI asks whether to keep each component, as it would for the reference singletons
+        PowerMockito.when(ObjFactory.class, "isSingleton", ArgumentMatchers.anyString()).thenReturn(true);
         
         PowerMockito.when(mockSecConfig.getValidationImplementation()).thenReturn("MOCK_TEST_VALIDATOR");
     }
@@ -44,6 +48,9 @@ public class ESAPIContractAPITest {
         PowerMockito.verifyStatic(ObjFactory.class, VerificationModeFactory.times(1));
         ObjFactory.make(ArgumentMatchers.eq("MOCK_TEST_VALIDATOR"), ArgumentMatchers.eq("Validator"));
         
+        PowerMockito.verifyStatic(ObjFactory.class, VerificationModeFactory.times(2));
+        ObjFactory.isSingleton(ArgumentMatchers.anyString());
+        
         PowerMockito.verifyNoMoreInteractions(ObjFactory.class);
         
         Mockito.verify(mockSecConfig, Mockito.times(1)).getValidationImplementation();
@@ -0,0 +1,54 @@
+package org.owasp.esapi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.After;
+import org.junit.Test;
+import org.owasp.esapi.reference.DefaultIntrusionDetector;
+import org.owasp.esapi.reference.JavaLogFactory;
+import org.owasp.esapi.reference.Log4JLogFactory;
+
+public class ESAPITest {
+
+    @After
+    public void clearOverride() {
+        ESAPI.override(null);
+    }
+
+    @Test
+    public void testSingletonComponentsAreKept() {
+        assertSame(ESAPI.securityConfiguration(), ESAPI.securityConfiguration());
+        assertSame(ESAPI.encoder(), ESAPI.encoder());
+        assertSame(ESAPI.validator(), ESAPI.validator());
+    }
+
+    @Test
+    public void testOtherComponentsAreMadeAnew() {
+        assertEquals(DefaultIntrusionDetector.class.getName(),
+                     ESAPI.securityConfiguration().getIntrusionDetectionImplementation());
+        IntrusionDetector detector = ESAPI.intrusionDetector();
+        assertNotSame(detector, ESAPI.intrusionDetector());
+        assertSame(detector.getClass(), ESAPI.intrusionDetector().getClass());
+    }
+
+    @Test
+    public void testOverrideResolvesComponentsAgain() {
+        SecurityConfiguration config = ESAPI.securityConfiguration();
+        assertEquals(Log4JLogFactory.class.getName(), config.getLogImplementation());
+        Logger log4j = ESAPI.getLogger("ESAPITest");
+
+        ESAPI.override(new SecurityConfigurationWrapper(config) {
+            @Override
+            public String getLogImplementation() {
+                return JavaLogFactory.class.getName();
+            }
+        });
+        assertNotSame(log4j.getClass(), ESAPI.getLogger("ESAPITest").getClass());
+
+        ESAPI.override(null);
+        assertSame(config, ESAPI.securityConfiguration());
+        assertSame(log4j.getClass(), ESAPI.getLogger("ESAPITest").getClass());
+    }
+}
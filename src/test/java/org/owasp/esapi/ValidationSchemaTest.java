@@ -0,0 +1,72 @@
+/**
+ * OWASP Enterprise Security API (ESAPI)
+ *
+ * This file is part of the Open Web Application Security Project (OWASP)
+ * Enterprise Security API (ESAPI) project. For details, please see
+ * <a href="http://www.owasp.org/index.php/ESAPI">http://www.owasp.org/index.php/ESAPI</a>.
+ *
+ * Copyright (c) 2017 - The OWASP Foundation
+ *
+ * The ESAPI is published by OWASP under the BSD license. You should read and accept the
+ * LICENSE before you use, modify, and/or redistribute this software.
+ */
+package org.owasp.esapi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+import org.owasp.esapi.reference.validation.StringValidationRule;
+
+public class ValidationSchemaTest {
+
+    @Test
+    public void testFieldsKeepOrderAndSettings() {
+        ValidationRule rule = new StringValidationRule("custom");
+        ValidationSchema schema = new ValidationSchema()
+            .add("b", "SafeString", 10, true)
+            .add("a", "Email", 20, false, false)
+            .add("c", rule);
+
+        Iterator<ValidationSchema.Field> fields = schema.getFields().iterator();
+        ValidationSchema.Field b = fields.next();
+        assertEquals("b", b.getName());
+        assertEquals("SafeString", b.getType());
+        assertNull(b.getRule());
+        assertEquals(10, b.getMaxLength());
+        assertTrue(b.isAllowNull());
+        assertTrue(b.isCanonicalize());
+
+        ValidationSchema.Field a = fields.next();
+        assertEquals("a", a.getName());
+        assertEquals(20, a.getMaxLength());
+        assertFalse(a.isAllowNull());
+        assertFalse(a.isCanonicalize());
+
+        ValidationSchema.Field c = fields.next();
+        assertEquals("c", c.getName());
+        assertNull(c.getType());
+        assertSame(rule, c.getRule());
+        assertFalse(fields.hasNext());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateFieldRejected() {
+        new ValidationSchema().add("a", "SafeString", 10, true).add("a", "Email", 10, true);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullTypeRejected() {
+        new ValidationSchema().add("a", (String) null, 10, true);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testFieldsUnmodifiable() {
+        new ValidationSchema().add("a", "SafeString", 10, true).getFields().clear();
+    }
+}
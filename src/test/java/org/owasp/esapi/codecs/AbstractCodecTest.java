@@ -134,6 +134,93 @@ public class AbstractCodecTest extends TestCase {
         	assertEquals( "^<", windowsCodec.encode(EMPTY_CHAR_ARRAY, "<") );
 	}
 
+	public void testEncodeNothingToEncodeReturnsInput()
+	{
+		String input = "abcXYZ019";
+		assertSame( input, htmlCodec.encode(EMPTY_CHAR_ARRAY, input) );
+		assertSame( input, percentCodec.encode(EMPTY_CHAR_ARRAY, input) );
+		assertSame( input, javaScriptCodec.encode(EMPTY_CHAR_ARRAY, input) );
+		assertSame( input, cssCodec.encode(EMPTY_CHAR_ARRAY, input) );
+		assertSame( "a b,c", htmlCodec.encode(new char[] { ' ', ',' }, "a b,c") );
+		assertSame( "a<b>c", oracleCodec.encode(EMPTY_CHAR_ARRAY, "a<b>c") );
+	}
+
+	public void testEncodeMatchesEncodeCharacter()
+	{
+		char[] immune = { ',', '.', '-', '_', ' ' };
+		Codec<?>[] codecs = { htmlCodec, percentCodec, javaScriptCodec, cssCodec,
+				mySQLCodecANSI, mySQLCodecStandard, oracleCodec, unixCodec, windowsCodec,
+				new XMLEntityCodec(), new DB2Codec() };
+		for ( Codec<?> codec : codecs ) {
+			StringBuilder input = new StringBuilder();
+			StringBuilder expected = new StringBuilder();
+			for ( char c = 0; c < 0x400; c++ ) {
+				input.append( "ab" ).append( c );
+				expected.append( "ab" ).append( encodeOne(codec, immune, c) );
+			}
+			assertEquals( codec.getClass().getName(), expected.toString(), codec.encode(immune, input.toString()) );
+		}
+	}
+
+	public void testEncodeTableFollowsImmuneContents()
+	{
+		char[] immune = { ',' };
+		assertEquals( "a,b&#x2e;c", htmlCodec.encode(immune, "a,b.c") );
+		immune[0] = '.';
+		assertEquals( "a&#x2c;b.c", htmlCodec.encode(immune, "a,b.c") );
+		assertEquals( "a&#x2c;b&#x2e;c", htmlCodec.encode(EMPTY_CHAR_ARRAY, "a,b.c") );
+		assertEquals( "a%2Cb", percentCodec.encode(null, "a,b") );
+	}
+
+	public void testEncodeManyImmuneSets()
+	{
+		for ( char c = '!'; c < '!' + 40; c++ ) {
+			char[] immune = { c };
+			String input = "x" + c + "~";
+			assertEquals( "x" + c + "\\7e ", cssCodec.encode(immune, input) );
+		}
+	}
+
+	public void testDecodeWithoutTriggersReturnsInput()
+	{
+		AbstractCodec<?>[] codecs = { htmlCodec, percentCodec, javaScriptCodec, vbScriptCodec, cssCodec,
+				mySQLCodecANSI, mySQLCodecStandard, oracleCodec, unixCodec, windowsCodec, new XMLEntityCodec() };
+		for ( AbstractCodec<?> codec : codecs ) {
+			String triggers = new String( codec.getDecodeTriggers() );
+			StringBuilder input = new StringBuilder();
+			for ( char c = 0; c < 0x400; c++ ) {
+				if ( triggers.indexOf(c) == -1 ) {
+					input.append(c).append("#x3c;");
+				}
+			}
+			assertEquals( codec.getClass().getName(), input.toString(), codec.decode(input.toString()) );
+		}
+	}
+
+	public void testDecodeIntAdaptsOtherSequences()
+	{
+		// a character codec reading code points
+		PushBackSequenceImpl codePoints = new PushBackSequenceImpl("^<a");
+		assertEquals( '<', windowsCodec.decodeInt(codePoints) );
+		assertEquals( 2, codePoints.index() );
+		assertEquals( IntPushbackSequence.EOF, windowsCodec.decodeInt(codePoints) );
+		assertEquals( 2, codePoints.index() );
+
+		// an integer codec reading characters
+		AbstractIntegerCodec integerCodec = new AbstractIntegerCodec() {};
+		PushbackString chars = new PushbackString("ab");
+		assertEquals( 'a', integerCodec.decodeInt(chars) );
+		assertEquals( 1, chars.index() );
+	}
+
+	private static String encodeOne(Codec<?> codec, char[] immune, char c)
+	{
+		if ( codec instanceof HTMLEntityCodec ) {
+			return codec.encodeCharacter(immune, (int) c);
+		}
+		return codec.encodeCharacter(immune, Character.valueOf(c));
+	}
+
 	
 	public void testHtmlEncodeChar()
 	{
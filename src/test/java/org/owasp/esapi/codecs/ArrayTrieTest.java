@@ -0,0 +1,120 @@
+package org.owasp.esapi.codecs;
+
+import java.io.PushbackReader;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import junit.framework.TestCase;
+
+public class ArrayTrieTest extends TestCase
+{
+	private static ArrayTrie<Integer> mkTrie(String... keys)
+	{
+		Map<String,Integer> map = new HashMap<String,Integer>();
+
+		for(int i=0;i<keys.length;i++)
+			map.put(keys[i], i);
+		return new ArrayTrie<Integer>(map);
+	}
+
+	public void testLookup()
+	{
+		ArrayTrie<Integer> trie = mkTrie("true", "false", "pre", "prefalse");
+
+		assertEquals(Integer.valueOf(0), trie.get("true"));
+		assertEquals(Integer.valueOf(1), trie.get("false"));
+		assertEquals(Integer.valueOf(2), trie.get("pre"));
+		assertEquals(Integer.valueOf(3), trie.get("prefalse"));
+		assertNull(trie.get("tru"));
+		assertNull(trie.get("trueX"));
+		assertNull(trie.get(""));
+		assertNull(trie.get(Boolean.TRUE));
+		assertEquals(4, trie.size());
+		assertEquals("prefalse".length(), trie.getMaxKeyLength());
+	}
+
+	public void testLongestMatchFromSequence()
+	{
+		ArrayTrie<Integer> trie = mkTrie("lt", "lta", "Uuml", "uuml");
+
+		assertEquals("lta", trie.getLongestMatch(new PushbackString("ltab;"), false).getKey());
+		assertEquals("Uuml", trie.getLongestMatch(new PushbackString("Uuml;"), false).getKey());
+		assertNull(trie.getLongestMatch(new PushbackString("LT;"), false));
+		assertEquals("lt", trie.getLongestMatch(new PushbackString("LT;"), true).getKey());
+		assertEquals("uuml", trie.getLongestMatch(new PushbackString("Uuml;"), true).getKey());
+		assertNull(trie.getLongestMatch(new PushbackString("x"), true));
+		assertNull(trie.getLongestMatch(new PushbackString(new StringBuilder().appendCodePoint(0x1F600).toString()), false));
+	}
+
+	public void testEmpty()
+	{
+		ArrayTrie<Integer> trie = mkTrie();
+
+		assertNull(trie.get("true"));
+		assertNull(trie.getLongestMatch("true"));
+		assertTrue(trie.isEmpty());
+		assertTrue(trie.getMaxKeyLength()<0);
+	}
+
+	public void testLongestMatch()
+	{
+		ArrayTrie<Integer> trie = mkTrie("lt", "lta", "ltabc", "amp");
+		Entry<CharSequence,Integer> entry;
+
+		entry = trie.getLongestMatch("ltab;");
+		assertEquals("lta", entry.getKey());
+		assertEquals(Integer.valueOf(1), entry.getValue());
+		assertEquals("ltabc", trie.getLongestMatch("ltabcdef").getKey());
+		assertEquals("lt", trie.getLongestMatch("lt").getKey());
+		assertNull(trie.getLongestMatch("l"));
+		assertNull(trie.getLongestMatch("x"));
+		assertSame(trie.getLongestMatch("amp;"), trie.getLongestMatch("ampersand"));
+	}
+
+	public void testLongestMatchFromReader() throws Exception
+	{
+		ArrayTrie<Integer> trie = mkTrie("lt", "ltabc");
+		PushbackReader in = new PushbackReader(new StringReader("ltab;"), trie.getMaxKeyLength()+1);
+
+		assertEquals("lt", trie.getLongestMatch(in).getKey());
+		assertEquals('a', in.read());
+	}
+
+	public void testSameAsHashTrie()
+	{
+		HashTrie<Integer> hashTrie = new HashTrie<Integer>();
+		hashTrie.put("quot", 1);
+		hashTrie.put("amp", 2);
+		hashTrie.put("ampx", 3);
+		ArrayTrie<Integer> trie = new ArrayTrie<Integer>(hashTrie);
+
+		assertEquals(hashTrie, trie);
+		assertEquals(trie, hashTrie);
+		assertEquals(hashTrie.hashCode(), trie.hashCode());
+	}
+
+	public void testUnmodifiable()
+	{
+		ArrayTrie<Integer> trie = mkTrie("a");
+
+		try
+		{
+			trie.put("b", 1);
+			fail("put");
+		}
+		catch(UnsupportedOperationException expected)
+		{
+		}
+		try
+		{
+			trie.clear();
+			fail("clear");
+		}
+		catch(UnsupportedOperationException expected)
+		{
+		}
+		assertEquals(Integer.valueOf(0), trie.get("a"));
+	}
+}
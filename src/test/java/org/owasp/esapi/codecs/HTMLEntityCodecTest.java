@@ -48,4 +48,18 @@ public class HTMLEntityCodecTest {
 		String input = bmp + nonBMP;
 		assertEquals(expected, codec.encode(new char[0], input));
 	}
+	
+	@Test
+	public void testDecodeIntMatchesDecodeCharacter(){
+		HTMLEntityCodec html = new HTMLEntityCodec();
+		String[] inputs = { "&lt;", "&LT", "&#60;", "&#x3c", "&#x2163e;", "&#1114112;", "&#x;", "&notin;x", "&amp", "&", "&#", "a" };
+		for (String input : inputs) {
+			PushBackSequenceImpl boxed = new PushBackSequenceImpl(input);
+			PushBackSequenceImpl primitive = new PushBackSequenceImpl(input);
+			Integer expected = html.decodeCharacter(boxed);
+			int actual = html.decodeInt(primitive);
+			assertEquals(input, expected == null ? IntPushbackSequence.EOF : expected.intValue(), actual);
+			assertEquals(input, boxed.index(), primitive.index());
+		}
+	}
 }
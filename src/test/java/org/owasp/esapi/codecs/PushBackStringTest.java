@@ -1,6 +1,8 @@
 package org.owasp.esapi.codecs;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 
 import org.junit.Test;
 
@@ -38,4 +40,38 @@ public class PushBackStringTest {
 			
 		}
 	}
+	
+	@Test
+	public void testPrimitiveAndBoxedShareState() {
+		PushbackString pbs = new PushbackString("az7");
+		
+		pbs.mark();
+		assertEquals('a', pbs.nextInt());
+		assertEquals(Character.valueOf('z'), pbs.next());
+		pbs.pushbackInt('z');
+		assertEquals(Character.valueOf('z'), pbs.peek());
+		assertEquals('z', pbs.nextInt());
+		assertEquals('7', pbs.nextOctalInt());
+		assertFalse(pbs.hasNext());
+		assertEquals(IntPushbackSequence.EOF, pbs.nextInt());
+		assertNull(pbs.next());
+		
+		pbs.reset();
+		assertEquals('a', pbs.peekInt());
+		assertEquals('a', pbs.nextHexInt());
+		assertEquals(IntPushbackSequence.EOF, pbs.nextHexInt());
+	}
+	
+	@Test
+	public void testPrimitiveCodePoints() {
+		String cjk = new StringBuilder().appendCodePoint(0x2f9f4).toString();
+		PushBackSequenceImpl pbs = new PushBackSequenceImpl("x" + cjk);
+		
+		assertEquals('x', pbs.nextInt());
+		assertEquals(0x2f9f4, pbs.peekInt());
+		assertEquals(0x2f9f4, pbs.nextInt());
+		assertEquals(IntPushbackSequence.EOF, pbs.nextInt());
+		pbs.pushbackInt(0x2f9f4);
+		assertEquals(Integer.valueOf(0x2f9f4), pbs.next());
+	}
 }
@@ -7,6 +7,7 @@ import org.owasp.esapi.configuration.consts.EsapiConfiguration;
 import org.owasp.esapi.errors.ConfigurationException;
 
 import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
 
 import static junit.framework.Assert.*;
@@ -312,6 +313,75 @@ public class EsapiPropertyManagerTest {
         assertEquals(expectedValue, propertyValue);
     }
 
+    @Test
+    public void testFindPropertyReturnsNullWhenNotFound() {
+        // given
+        System.setProperty(EsapiConfiguration.DEVTEAM_ESAPI_CFG.getConfigName(), propFilename1);
+        String propertyKey = "non.existing.property";
+
+        // when
+        testPropertyManager = new EsapiPropertyManager();
+
+        // then
+        assertNull(testPropertyManager.findStringProp(propertyKey));
+        assertNull(testPropertyManager.findIntProp(propertyKey));
+        assertNull(testPropertyManager.findBooleanProp(propertyKey));
+        assertNull(testPropertyManager.findByteArrayProp(propertyKey));
+        assertNull(testPropertyManager.findIntProp("invalid_int_property"));
+        assertNull(testPropertyManager.findBooleanProp("invalid_boolean_property"));
+    }
+
+    @Test
+    public void testFindPropertyLoadedFromFileWithHigherPriority() {
+        // given
+        System.setProperty(EsapiConfiguration.DEVTEAM_ESAPI_CFG.getConfigName(), propFilename1);
+        System.setProperty(EsapiConfiguration.OPSTEAM_ESAPI_CFG.getConfigName(), propFilename2);
+
+        // when
+        testPropertyManager = new EsapiPropertyManager();
+
+        // then
+        assertEquals("test_string_property_2", testPropertyManager.findStringProp("string_property"));
+        assertEquals(Integer.valueOf(52), testPropertyManager.findIntProp("int_property"));
+        assertEquals(Boolean.FALSE, testPropertyManager.findBooleanProp("boolean_property"));
+        // repeated lookups are served from the resolved values
+        assertEquals(Integer.valueOf(52), testPropertyManager.findIntProp("int_property"));
+        assertEquals(Boolean.TRUE, testPropertyManager.findBooleanProp("boolean_yes_property"));
+    }
+
+    @Test
+    public void testPropertiesReloadedWhenFileChanges() throws IOException {
+        // given
+        File file = File.createTempFile("ESAPI-reload", ".properties");
+        file.deleteOnExit();
+        writeProperty(file, "int_property=1");
+        System.setProperty(EsapiConfiguration.DEVTEAM_ESAPI_CFG.getConfigName(), file.getPath());
+        testPropertyManager = new EsapiPropertyManager();
+        int generation = testPropertyManager.generation();
+        assertEquals(Integer.valueOf(1), testPropertyManager.findIntProp("int_property"));
+        assertNull(testPropertyManager.findStringProp("string_property"));
+        assertFalse(testPropertyManager.reloadIfModified());
+
+        // when
+        writeProperty(file, "int_property=2\nstring_property=added");
+        assertTrue(file.setLastModified(file.lastModified() + 2000));
+
+        // then
+        assertTrue(testPropertyManager.reloadIfModified());
+        assertEquals(generation + 1, testPropertyManager.generation());
+        assertEquals(Integer.valueOf(2), testPropertyManager.findIntProp("int_property"));
+        assertEquals("added", testPropertyManager.findStringProp("string_property"));
+    }
+
+    private static void writeProperty(File file, String content) throws IOException {
+        FileWriter writer = new FileWriter(file);
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+
     @Test(expected = ConfigurationException.class)
     public void testByteArrayPropertyNotFoundByLoaderAndThrowException() {
         // given
@@ -2,6 +2,12 @@ package org.owasp.esapi.crypto;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.IvParameterSpec;
@@ -80,4 +86,102 @@ public class CipherTextSerializerTest {
         }
     }
 
+    @Test
+    public final void testSerializedHeader() throws Exception {
+        System.out.println("CipherTextSerializerTest.testSerializedHeader() ...");
+        CipherText ct = ESAPI.encryptor().encrypt( new PlainText("Hello") );
+        byte[] header = new CipherTextSerializer( ct ).asSerializedHeader();
+        byte[] serialized = new CipherTextSerializer( ct ).asSerializedByteArray();
+        // The header is the start of the full serialization.
+        assertArrayEquals( header, Arrays.copyOf(serialized, header.length) );
+
+        ByteArrayInputStream in = new ByteArrayInputStream( serialized );
+        CipherText result = CipherTextSerializer.readSerializedHeader( in );
+        assertEquals( ct.getCipherTransformation(), result.getCipherTransformation() );
+        assertEquals( ct.getKeySize(), result.getKeySize() );
+        assertArrayEquals( ct.getIV(), result.getIV() );
+        assertEquals( ct.getKDFInfo(), result.getKDFInfo() );
+        assertEquals( serialized.length - header.length, in.available() );
+    }
+
+    @Test(expected = EncryptionException.class)
+    public final void testTruncatedHeader() throws Exception {
+        CipherText ct = ESAPI.encryptor().encrypt( new PlainText("Hello") );
+        byte[] header = new CipherTextSerializer( ct ).asSerializedHeader();
+        CipherTextSerializer.readSerializedHeader(
+                new ByteArrayInputStream( Arrays.copyOf(header, header.length - 1) ) );
+    }
+
+    @Test
+    public final void testSerializedByteBuffer() throws Exception {
+        System.out.println("CipherTextSerializerTest.testSerializedByteBuffer() ...");
+        CipherText ct = ESAPI.encryptor().encrypt( new PlainText("Hello") );
+        CipherTextSerializer cts = new CipherTextSerializer( ct );
+        byte[] serialized = cts.asSerializedByteArray();
+        assertEquals( serialized.length, cts.serializedLength() );
+
+        for ( boolean direct : new boolean[] { false, true } ) {
+            ByteBuffer buffer = cts.asSerializedByteBuffer( direct );
+            assertEquals( direct, buffer.isDirect() );
+            assertEquals( 0, buffer.position() );
+            assertEquals( serialized.length, buffer.remaining() );
+            byte[] bytes = new byte[ buffer.remaining() ];
+            buffer.duplicate().get( bytes );
+            assertArrayEquals( serialized, bytes );
+            CipherText result = CipherTextSerializer.fromSerializedByteBuffer( buffer );
+            assertFalse( buffer.hasRemaining() );
+            assertEquals( ct, result );
+            assertEquals( "Hello", ESAPI.encryptor().decrypt(result).toString() );
+        }
+    }
+
+    @Test
+    public final void testConsecutiveInByteBuffer() throws Exception {
+        System.out.println("CipherTextSerializerTest.testConsecutiveInByteBuffer() ...");
+        CipherText first = ESAPI.encryptor().encrypt( new PlainText("Hello") );
+        CipherText second = ESAPI.encryptor().encrypt( new PlainText("Goodbye") );
+        CipherTextSerializer cts1 = new CipherTextSerializer( first );
+        CipherTextSerializer cts2 = new CipherTextSerializer( second );
+        // The byte order of the buffer must not matter.
+        ByteBuffer buffer = ByteBuffer.allocateDirect( 3 + cts1.serializedLength() + cts2.serializedLength() )
+                                      .order( ByteOrder.LITTLE_ENDIAN );
+        buffer.position( 3 );
+        cts1.writeTo( buffer );
+        cts2.writeTo( buffer );
+        assertFalse( buffer.hasRemaining() );
+        assertEquals( ByteOrder.LITTLE_ENDIAN, buffer.order() );
+
+        buffer.position( 3 );
+        ByteBuffer slice = buffer.slice();
+        assertEquals( first, CipherTextSerializer.fromSerializedByteBuffer( slice ) );
+        assertEquals( cts1.serializedLength(), slice.position() );
+        CipherText result = CipherTextSerializer.fromSerializedByteBuffer( slice );
+        assertEquals( second, result );
+        assertFalse( slice.hasRemaining() );
+        assertEquals( "Goodbye", ESAPI.encryptor().decrypt(result).toString() );
+    }
+
+    @Test
+    public final void testWriteToFullBuffer() throws Exception {
+        CipherTextSerializer cts = new CipherTextSerializer( ESAPI.encryptor().encrypt( new PlainText("Hello") ) );
+        ByteBuffer buffer = ByteBuffer.allocate( cts.serializedLength() - 1 );
+        try {
+            cts.writeTo( buffer );
+            fail("Wrote serialized CipherText to a buffer that is too small");
+        } catch (BufferOverflowException e) {
+            assertEquals( 0, buffer.position() );
+        }
+    }
+
+    @Test
+    public final void testTruncatedByteBuffer() throws Exception {
+        byte[] serialized = ESAPI.encryptor().encrypt( new PlainText("Hello") ).asPortableSerializedByteArray();
+        ByteBuffer buffer = ByteBuffer.wrap( serialized, 0, serialized.length - 1 );
+        try {
+            CipherTextSerializer.fromSerializedByteBuffer( buffer );
+            fail("Read a truncated serialized CipherText");
+        } catch (IllegalArgumentException e) {
+            assertEquals( 0, buffer.position() );
+        }
+    }
 }
@@ -0,0 +1,128 @@
+package org.owasp.esapi.crypto;
+
+import static org.junit.Assert.*;
+
+import java.security.MessageDigest;
+import java.security.Signature;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.owasp.esapi.ESAPI;
+import org.owasp.esapi.SecurityConfigurationWrapper;
+import org.owasp.esapi.errors.ConfigurationException;
+import org.owasp.esapi.reference.DefaultSecurityConfiguration;
+
+public class CryptoPrimitivePoolTest {
+
+    @Before
+    public void setUp() {
+        // The pool is disabled by default, so enable it for these tests only.
+        assertFalse(CryptoPrimitivePool.isEnabled());
+        ESAPI.override(new SecurityConfigurationWrapper(ESAPI.securityConfiguration()) {
+            @Override
+            public Boolean getBooleanProp(String propertyName) throws ConfigurationException {
+                if (DefaultSecurityConfiguration.CRYPTO_PRIMITIVE_POOL_ENABLED.equals(propertyName)) {
+                    return Boolean.TRUE;
+                }
+                return super.getBooleanProp(propertyName);
+            }
+        });
+        assertTrue(CryptoPrimitivePool.isEnabled());
+    }
+
+    @After
+    public void tearDown() {
+        ESAPI.override(null);
+    }
+
+    @Test
+    public final void testDisabledPoolCreatesNewInstances() throws Exception {
+        ESAPI.override(null);
+        MessageDigest digest = CryptoPrimitivePool.getMessageDigest("SHA-256");
+        CryptoPrimitivePool.release(digest);
+        assertNotSame(digest, CryptoPrimitivePool.getMessageDigest("SHA-256"));
+    }
+
+    @Test
+    public final void testReleasedInstanceIsReused() throws Exception {
+        Cipher cipher = CryptoPrimitivePool.getCipher("AES/CBC/PKCS5Padding");
+        CryptoPrimitivePool.release(cipher);
+        assertSame(cipher, CryptoPrimitivePool.getCipher("AES/CBC/PKCS5Padding"));
+        CryptoPrimitivePool.release(cipher);
+
+        Mac mac = CryptoPrimitivePool.getMac("HmacSHA1");
+        CryptoPrimitivePool.release(mac);
+        assertSame(mac, CryptoPrimitivePool.getMac("HmacSHA1"));
+        CryptoPrimitivePool.release(mac);
+
+        Signature signature = CryptoPrimitivePool.getSignature("SHA1withDSA");
+        CryptoPrimitivePool.release(signature);
+        assertSame(signature, CryptoPrimitivePool.getSignature("SHA1withDSA"));
+        CryptoPrimitivePool.release(signature);
+    }
+
+    @Test
+    public final void testHeldInstanceIsNotHandedOut() throws Exception {
+        Mac outer = CryptoPrimitivePool.getMac("HmacSHA256");
+        Mac inner = CryptoPrimitivePool.getMac("HmacSHA256");
+        assertNotSame(outer, inner);
+        CryptoPrimitivePool.release(inner);
+        CryptoPrimitivePool.release(outer);
+        assertSame(inner, CryptoPrimitivePool.getMac("HmacSHA256"));
+    }
+
+    @Test
+    public final void testAlgorithmsAreKeptApart() throws Exception {
+        MessageDigest sha256 = CryptoPrimitivePool.getMessageDigest("SHA-256");
+        CryptoPrimitivePool.release(sha256);
+        MessageDigest sha512 = CryptoPrimitivePool.getMessageDigest("SHA-512");
+        assertEquals("SHA-512", sha512.getAlgorithm());
+        assertNotSame(sha256, sha512);
+        CryptoPrimitivePool.release(sha512);
+    }
+
+    @Test
+    public final void testMessageDigestIsReset() throws Exception {
+        MessageDigest digest = CryptoPrimitivePool.getMessageDigest("SHA-256");
+        byte[] expected = digest.digest("abc".getBytes("UTF-8"));
+        digest.update("left over".getBytes("UTF-8"));
+        CryptoPrimitivePool.release(digest);
+
+        digest = CryptoPrimitivePool.getMessageDigest("SHA-256");
+        assertArrayEquals(expected, digest.digest("abc".getBytes("UTF-8")));
+        CryptoPrimitivePool.release(digest);
+    }
+
+    @Test
+    public final void testThreadsDoNotShareInstances() throws Exception {
+        final MessageDigest mine = CryptoPrimitivePool.getMessageDigest("SHA-1");
+        CryptoPrimitivePool.release(mine);
+        final MessageDigest[] theirs = new MessageDigest[1];
+        Thread t = new Thread() {
+            public void run() {
+                try {
+                    theirs[0] = CryptoPrimitivePool.getMessageDigest("SHA-1");
+                } catch (Exception e) {
+                    // leave it null
+                }
+            }
+        };
+        t.start();
+        t.join();
+        assertNotNull(theirs[0]);
+        assertNotSame(mine, theirs[0]);
+        assertSame(mine, CryptoPrimitivePool.getMessageDigest("SHA-1"));
+    }
+
+    @Test
+    public final void testReleaseNull() {
+        CryptoPrimitivePool.release((Cipher) null);
+        CryptoPrimitivePool.release((Mac) null);
+        CryptoPrimitivePool.release((MessageDigest) null);
+        CryptoPrimitivePool.release((Signature) null);
+    }
+}
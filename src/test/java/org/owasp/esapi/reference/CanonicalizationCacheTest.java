@@ -0,0 +1,48 @@
+package org.owasp.esapi.reference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class CanonicalizationCacheTest {
+
+	@Test
+	public void testHitsAndMisses() {
+		CanonicalizationCache cache = new CanonicalizationCache(10);
+		assertNull(cache.get("%3c"));
+		cache.put("%3c", new CanonicalizationCache.Outcome("<", 1, 1));
+		CanonicalizationCache.Outcome outcome = cache.get("%3c");
+		assertNotNull(outcome);
+		assertEquals("<", outcome.value);
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void testBoundedSize() {
+		CanonicalizationCache cache = new CanonicalizationCache(1);
+		cache.put("a", new CanonicalizationCache.Outcome("a", 0, 1));
+		cache.put("b", new CanonicalizationCache.Outcome("b", 0, 1));
+		assertNull(cache.get("a"));
+		assertNotNull(cache.get("b"));
+	}
+
+	@Test
+	public void testLongInputNotCached() {
+		CanonicalizationCache cache = new CanonicalizationCache(10);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i <= CanonicalizationCache.MAX_INPUT_LENGTH; i++) {
+			sb.append('%');
+		}
+		String input = sb.toString();
+		cache.put(input, new CanonicalizationCache.Outcome(input, 0, 1));
+		assertNull(cache.get(input));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidSize() {
+		new CanonicalizationCache(0);
+	}
+}
@@ -352,6 +352,87 @@ public class DefaultSecurityConfigurationTest {
 		assertFalse(secConf.getDisableIntrusionDetection());
 	}
 	
+	@Test
+	public void testGetQuota() {
+		java.util.Properties properties = new java.util.Properties();
+		properties.setProperty("IntrusionDetector.event.test.count", "2");
+		properties.setProperty("IntrusionDetector.event.test.interval", "10");
+		properties.setProperty("IntrusionDetector.event.test.actions", "disable,log");
+		properties.setProperty("IntrusionDetector.event.partial.count", "2");
+		DefaultSecurityConfiguration secConf = new DefaultSecurityConfiguration(properties);
+
+		SecurityConfiguration.Threshold quota = secConf.getQuota("event.test");
+		assertNotNull(quota);
+		assertEquals("event.test", quota.name);
+		assertEquals(2, quota.count);
+		assertEquals(10, quota.interval);
+		assertEquals(java.util.Arrays.asList("disable", "log"), quota.actions);
+
+		// each call returns its own Threshold
+		quota.count = 99;
+		assertEquals(2, secConf.getQuota("event.test").count);
+
+		assertNull(secConf.getQuota("event.partial"));
+		assertNull(secConf.getQuota("event.unknown"));
+	}
+
+	@Test
+	public void testChangesToLoadedPropertiesAreSeen() {
+		DefaultSecurityConfiguration secConf = new DefaultSecurityConfiguration();
+		boolean original = secConf.getAllowMultipleEncoding();
+		secConf.getESAPIProperties().setProperty(DefaultSecurityConfiguration.ALLOW_MULTIPLE_ENCODING, String.valueOf(!original));
+		assertEquals(!original, secConf.getAllowMultipleEncoding());
+
+		// a configuration sharing the properties sees the change too
+		DefaultSecurityConfiguration shared = new DefaultSecurityConfiguration(secConf.getESAPIProperties());
+		secConf.getESAPIProperties().setProperty(DefaultSecurityConfiguration.LOG_LEVEL, "TRACE");
+		assertEquals(Logger.TRACE, shared.getLogLevel());
+	}
+
+	@Test
+	public void testTypedProperties() {
+		java.util.Properties properties = new java.util.Properties();
+		properties.setProperty("test.int", "42");
+		properties.setProperty("test.boolean", "yes");
+		properties.setProperty("test.string", "value");
+		properties.setProperty("test.invalid", "not a number");
+		DefaultSecurityConfiguration secConf = new DefaultSecurityConfiguration(properties);
+
+		assertEquals(42, secConf.getIntProp("test.int"));
+		assertEquals(Boolean.TRUE, secConf.getBooleanProp("test.boolean"));
+		assertEquals("value", secConf.getStringProp("test.string"));
+		// repeated lookups, including misses, are served from the snapshot
+		for (int i = 0; i < 2; i++) {
+			try {
+				secConf.getIntProp("test.missing");
+				fail("Expected ConfigurationException for a missing property");
+			} catch (ConfigurationException e) {
+				assertTrue(e.getMessage().contains("not found"));
+			}
+			try {
+				secConf.getIntProp("test.invalid");
+				fail("Expected ConfigurationException for a property of the wrong type");
+			} catch (ConfigurationException e) {
+				assertTrue(e.getMessage().contains("incorrect type"));
+			}
+		}
+		assertEquals(42, secConf.getIntProp("test.int", 5));
+		assertEquals(5, secConf.getIntProp("test.missing", 5));
+		assertEquals(5, secConf.getIntProp("test.invalid", 5));
+		// more names than are kept are still resolved
+		for (int i = 0; i < 2000; i++) {
+			assertEquals(i, secConf.getIntProp("test.missing." + i, i));
+		}
+		assertEquals(42, secConf.getIntProp("test.int"));
+
+		// changes to loaded properties rebuild the snapshot
+		DefaultSecurityConfiguration loaded = new DefaultSecurityConfiguration();
+		loaded.getESAPIProperties().setProperty("test.int", "7");
+		assertEquals(7, loaded.getIntProp("test.int"));
+		loaded.getESAPIProperties().setProperty("test.int", "8");
+		assertEquals(8, loaded.getIntProp("test.int"));
+	}
+
 	@Test
 	public void testGetLogLevel() {
 		DefaultSecurityConfiguration secConf = new DefaultSecurityConfiguration(new java.util.Properties());
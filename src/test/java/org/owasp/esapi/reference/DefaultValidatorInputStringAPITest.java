@@ -4,6 +4,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atMost;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
@@ -101,6 +102,8 @@ public class DefaultValidatorInputStringAPITest {
     @After
     public void verifyDelegateCalls() {
         verify(mockSecConfig, times(1)).getValidationPattern(testValidatorType);
+        // a ValidationException thrown by a mock is filled in again, which reads the stackless setting once per configuration
+        verify(mockSecConfig, atMost(1)).getBooleanProp(DefaultSecurityConfiguration.STACKLESS_VALIDATION_EXCEPTIONS);
         
         PowerMockito.verifyNoMoreInteractions(spyStringRule, mockSecConfig, mockEncoder);
     }
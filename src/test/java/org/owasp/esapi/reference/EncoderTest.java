@@ -18,6 +18,7 @@ package org.owasp.esapi.reference;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
+import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.util.ArrayList;
@@ -337,6 +338,56 @@ public class EncoderTest extends TestCase {
         }
     }
 
+    public void testCanonicalizeWithoutTriggers() {
+        Encoder instance = ESAPI.encoder();
+        String input = "plain text, no encoding at all: <script>";
+        assertSame( input, instance.canonicalize( input, true, true ) );
+
+        // only the codecs whose triggers appear are applied, but they still count
+        ArrayList<String> list = new ArrayList<String>();
+        list.add( "JavaScriptCodec" );
+        list.add( "PercentCodec" );
+        list.add( "HTMLEntityCodec" );
+        instance = new DefaultEncoder( list );
+        assertEquals( "<", instance.canonicalize( "\\x253c", false ) );
+        try {
+            instance.canonicalize( "\\x253c", false, true );
+            fail( "Mixed encoding not detected" );
+        } catch ( IntrusionException e ) {
+            // expected
+        }
+    }
+
+    public void testCanonicalizationCache() {
+        UnitTestSecurityConfiguration config = new UnitTestSecurityConfiguration((DefaultSecurityConfiguration) ESAPI.securityConfiguration());
+        config.getESAPIProperties().setProperty(DefaultSecurityConfiguration.CANONICALIZATION_CACHE_ENABLED, "true");
+        config.getESAPIProperties().setProperty(DefaultSecurityConfiguration.CANONICALIZATION_CACHE_SIZE, "10");
+        ESAPI.override(config);
+        try {
+            DefaultEncoder instance = new DefaultEncoder( Arrays.asList( "HTMLEntityCodec", "PercentCodec", "JavaScriptCodec" ) );
+            assertEquals( "<", instance.canonicalize( "%3c", true, true ) );
+            assertEquals( "<", instance.canonicalize( "%3c", true, true ) );
+            assertEquals( 1, instance.getCanonicalizationCacheHits() );
+            assertEquals( 1, instance.getCanonicalizationCacheMisses() );
+
+            // clean input is never looked up
+            assertEquals( "abc", instance.canonicalize( "abc", true, true ) );
+            assertEquals( 1, instance.getCanonicalizationCacheMisses() );
+
+            // the flags are applied to cached outcomes as well
+            assertEquals( "<", instance.canonicalize( "%253c", false, false ) );
+            try {
+                instance.canonicalize( "%253c", true, false );
+                fail( "Multiple encoding not detected" );
+            } catch ( IntrusionException e ) {
+                // expected
+            }
+            assertEquals( 2, instance.getCanonicalizationCacheHits() );
+        } finally {
+            ESAPI.override(null);
+        }
+    }
+
     /**
 	 * Test of encodeForHTML method, of class org.owasp.esapi.Encoder.
      *
@@ -360,6 +411,49 @@ public class EncoderTest extends TestCase {
         assertEquals("" + (char)12345 + (char)65533 + (char)1244, "" + (char)12345 + (char)65533 + (char)1244 );
     }
     
+    /**
+	 * Test of the Appendable variants of the encodeForXXX methods, of class org.owasp.esapi.reference.DefaultEncoder.
+     *
+     * @throws Exception
+     */
+    public void testEncodeToAppendable() throws Exception {
+        System.out.println("encodeToAppendable");
+        DefaultEncoder instance = (DefaultEncoder) DefaultEncoder.getInstance();
+        String input = "one&two <script>alert('x' + \"\u00ff\")</script>\uD845\uDE3E,.-_#" + (char)0 + "tail";
+
+        StringBuilder out = new StringBuilder("prefix:");
+        instance.encodeForHTML(input, out);
+        assertEquals("prefix:" + instance.encodeForHTML(input), out.toString());
+
+        out.setLength(0);
+        instance.encodeForHTMLAttribute(input, out);
+        assertEquals(instance.encodeForHTMLAttribute(input), out.toString());
+
+        out.setLength(0);
+        instance.encodeForCSS(input, out);
+        assertEquals(instance.encodeForCSS(input), out.toString());
+
+        out.setLength(0);
+        instance.encodeForJavaScript(input, out);
+        assertEquals(instance.encodeForJavaScript(input), out.toString());
+
+        out.setLength(0);
+        instance.encodeForVBScript(input, out);
+        assertEquals(instance.encodeForVBScript(input), out.toString());
+
+        out.setLength(0);
+        instance.encodeForXML(input, out);
+        assertEquals(instance.encodeForXML(input), out.toString());
+
+        StringWriter writer = new StringWriter();
+        instance.encodeForXMLAttribute(input, writer);
+        assertEquals(instance.encodeForXMLAttribute(input), writer.toString());
+
+        out.setLength(0);
+        instance.encodeForHTML(null, out);
+        assertEquals("", out.toString());
+    }
+
     /**
 	 * Test of encodeForHTMLAttribute method, of class org.owasp.esapi.Encoder.
 	 */
@@ -17,14 +17,21 @@ package org.owasp.esapi.reference;
 
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
+import java.nio.channels.Channels;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 
 import javax.servlet.http.Cookie;
@@ -32,14 +39,19 @@ import javax.servlet.http.Cookie;
 import org.owasp.esapi.ESAPI;
 import org.owasp.esapi.Encoder;
 import org.owasp.esapi.EncoderConstants;
+import org.owasp.esapi.FileContentCheck;
 import org.owasp.esapi.SecurityConfiguration;
 import org.owasp.esapi.ValidationErrorList;
+import org.owasp.esapi.ValidationResult;
 import org.owasp.esapi.ValidationRule;
+import org.owasp.esapi.ValidationSchema;
 import org.owasp.esapi.Validator;
 import org.owasp.esapi.errors.ValidationException;
 import org.owasp.esapi.filters.SecurityWrapperRequest;
 import org.owasp.esapi.http.MockHttpServletRequest;
 import org.owasp.esapi.http.MockHttpServletResponse;
+import org.owasp.esapi.reference.validation.ByteSequenceDenylistCheck;
+import org.owasp.esapi.reference.validation.FileSignatureCheck;
 import org.owasp.esapi.reference.validation.HTMLValidationRule;
 import org.owasp.esapi.reference.validation.StringValidationRule;
 import org.owasp.esapi.util.TestUtils;
@@ -195,6 +207,54 @@ public class ValidatorTest extends TestCase {
         assertEquals(1, errors.size());
     }
 
+    public void testGetValidFileContentStream() throws Exception {
+        System.out.println("getValidFileContent(InputStream)");
+        DefaultValidator instance = (DefaultValidator) ESAPI.validator();
+        byte[] bytes = new byte[20000];
+        Arrays.fill(bytes, (byte) 'a');
+        System.arraycopy("%PDF-".getBytes(PREFERRED_ENCODING), 0, bytes, 0, 5);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<FileContentCheck> checks = new ArrayList<FileContentCheck>();
+        checks.add(new FileSignatureCheck("%PDF-".getBytes(PREFERRED_ENCODING)));
+        assertEquals(20000, instance.getValidFileContent("test", new ByteArrayInputStream(bytes), out, 20000, false, checks));
+        assertTrue(Arrays.equals(bytes, out.toByteArray()));
+
+        // the limit is checked while streaming, so no more than it is written
+        out.reset();
+        try {
+            instance.getValidFileContent("test", new ByteArrayInputStream(bytes), out, 10000, false, null);
+            fail();
+        } catch (ValidationException e) {
+            assertTrue(out.size() <= 10000);
+        }
+
+        // a denied sequence at the boundary of two buffers
+        System.arraycopy("<script".getBytes(PREFERRED_ENCODING), 0, bytes, 8190, 7);
+        checks.add(new ByteSequenceDenylistCheck("<script".getBytes(PREFERRED_ENCODING)));
+        checks.set(0, new FileSignatureCheck("%PDF-".getBytes(PREFERRED_ENCODING)));
+        try {
+            instance.getValidFileContent("test", new ByteArrayInputStream(bytes), new ByteArrayOutputStream(), 20000, false, checks);
+            fail();
+        } catch (ValidationException e) {
+            assertEquals("test: Invalid file content", e.getUserMessage());
+        }
+
+        assertEquals(0, instance.getValidFileContent("test", new ByteArrayInputStream(new byte[0]), out, 10, true, null));
+        try {
+            instance.getValidFileContent("test", (InputStream) null, out, 10, false, null);
+            fail();
+        } catch (ValidationException e) {
+            // expected
+        }
+        try {
+            instance.getValidFileContent("test", Channels.newChannel(new ByteArrayInputStream(bytes)), null, 20000, false, null);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
     public void testGetValidFileName() throws Exception {
         System.out.println("getValidFileName");
         Validator instance = ESAPI.validator();
@@ -210,6 +270,103 @@ public class ValidatorTest extends TestCase {
         // instance.getValidInput(String, String, String, int, boolean, ValidationErrorList)
     }
 
+    public void testGetValidInputRulesPerSettings() throws Exception {
+        System.out.println("getValidInputRulesPerSettings");
+        Validator instance = new DefaultValidator();
+        // the same type with different settings must not share a rule
+        assertEquals("abc", instance.getValidInput("test", "abc", "SafeString", 3, false));
+        assertFalse(instance.isValidInput("test", "abc", "SafeString", 2, false));
+        assertTrue(instance.isValidInput("test", "", "SafeString", 3, true));
+        assertFalse(instance.isValidInput("test", "", "SafeString", 3, false));
+        // and the first rule is unchanged by the others
+        assertEquals("abc", instance.getValidInput("test", "abc", "SafeString", 3, false));
+    }
+
+    public void testValidateAll() throws Exception {
+        System.out.println("validateAll");
+        DefaultValidator instance = (DefaultValidator) ESAPI.validator();
+        ValidationSchema schema = new ValidationSchema()
+            .add("name", "SafeString", 20, false)
+            .add("comment", "SafeString", 20, true)
+            .add("email", "Email", 100, false)
+            .add("tags", "SafeString", 5, false);
+
+        Map<String, String[]> params = new HashMap<String, String[]>();
+        params.put("name", new String[] { "Jeff Williams" });
+        params.put("email", new String[] { "jeff@example.com" });
+        params.put("tags", new String[] { "one", "two" });
+        params.put("unexpected", new String[] { "<script>" });
+        assertTrue(instance.validateAll(params, schema).isEmpty());
+
+        // missing, too long and invalid values are each reported once, by field name
+        params.remove("name");
+        params.put("email", new String[] { "not an email" });
+        params.put("tags", new String[] { "one", "toolong", "alsotoolong" });
+        ValidationErrorList errors = instance.validateAll(params, schema);
+        assertEquals(3, errors.size());
+        assertNotNull(errors.getError("name"));
+        assertNotNull(errors.getError("email"));
+        assertNotNull(errors.getError("tags"));
+        assertNull(errors.getError("comment"));
+    }
+
+    public void testCheck() throws Exception {
+        System.out.println("check");
+        DefaultValidator instance = (DefaultValidator) ESAPI.validator();
+        ValidationResult result = instance.check("test", "jeff.williams@aspectsecurity.com", "Email", 100, false);
+        assertTrue(result.isValid());
+        assertEquals("jeff.williams@aspectsecurity.com", result.getValue());
+        assertNull(result.getUserMessage());
+
+        result = instance.check("test", "", "Email", 100, true);
+        assertTrue(result.isValid());
+        assertNull(result.getValue());
+
+        // same user messages as getValidInput, without the exception
+        String[] invalid = { "jeff.WILLIAMS@aspectsecurity", "", "jeff.williams@aspectsecurity.com" };
+        int[] maxLengths = { 100, 100, 10 };
+        for (int i = 0; i < invalid.length; i++) {
+            result = instance.check("test", invalid[i], "Email", maxLengths[i], false);
+            assertFalse(result.isValid());
+            assertNull(result.getValue());
+            assertEquals("test", result.getContext());
+            try {
+                instance.getValidInput("test", invalid[i], "Email", maxLengths[i], false);
+                fail();
+            } catch (ValidationException e) {
+                assertEquals(e.getUserMessage(), result.getUserMessage());
+                assertEquals(e.getUserMessage(), result.toException().getUserMessage());
+                assertEquals("test", result.toException().getContext());
+            }
+        }
+
+        try {
+            instance.check("test", "input", "NoSuchType", 100, false);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testStacklessValidationExceptions() {
+        System.out.println("stacklessValidationExceptions");
+        assertTrue(new ValidationException("m1", "m2").getStackTrace().length > 0);
+
+        Properties props = new Properties();
+        props.putAll(((DefaultSecurityConfiguration) ESAPI.securityConfiguration()).getESAPIProperties());
+        props.setProperty(DefaultSecurityConfiguration.STACKLESS_VALIDATION_EXCEPTIONS, "true");
+        ESAPI.override(new DefaultSecurityConfiguration(props));
+        try {
+            ValidationException e = new ValidationException("m1", "m2", "context");
+            assertEquals(0, e.getStackTrace().length);
+            assertEquals("m1", e.getUserMessage());
+            assertEquals("context", e.getContext());
+        } finally {
+            ESAPI.override(null);
+        }
+        assertTrue(new ValidationException("m1", "m2").getStackTrace().length > 0);
+    }
+
     public void testGetValidInteger() {
         System.out.println("getValidInteger");
         Validator instance = ESAPI.validator();
@@ -836,6 +993,33 @@ public class ValidatorTest extends TestCase {
         assertTrue(errors.size() ==1);
     }
 
+    public void testGetValidPrintableDoesNotCopy() throws Exception {
+        System.out.println("getValidPrintable");
+        Validator instance = ESAPI.validator();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            sb.append("log-entry;");
+        }
+        String input = sb.toString();
+        assertSame(input, instance.getValidPrintable("name", input, input.length(), false));
+        char[] chars = input.toCharArray();
+        assertSame(chars, instance.getValidPrintable("name", chars, chars.length, false));
+
+        assertNull(instance.getValidPrintable("name", "", 10, true));
+        try {
+            instance.getValidPrintable("name", "", 10, false);
+            fail();
+        } catch (ValidationException e) {
+            // expected
+        }
+        try {
+            instance.getValidPrintable("name", input, input.length() - 1, false);
+            fail();
+        } catch (ValidationException e) {
+            // expected
+        }
+    }
+
     public void testIsValidPrintable() {
         System.out.println("isValidPrintable");
         Validator instance = ESAPI.validator();
@@ -0,0 +1,94 @@
+package org.owasp.esapi.reference.crypto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.Test;
+import org.owasp.esapi.crypto.KeyDerivationFunction;
+import org.owasp.esapi.crypto.KeyDerivationFunction.PRF_ALGORITHMS;
+
+public class DerivedKeyCacheTest {
+
+	private static final SecretKey KDK = new SecretKeySpec(new byte[] {
+		1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16 }, "AES");
+
+	private static DerivedKeyCache.Key key(SecretKey kdk, String purpose) throws Exception {
+		return DerivedKeyCache.keyFor(KeyDerivationFunction.kdfVersion, PRF_ALGORITHMS.HmacSHA256, kdk, 128, purpose);
+	}
+
+	private static SecretKey derived(int seed) {
+		byte[] bytes = new byte[16];
+		Arrays.fill(bytes, (byte) seed);
+		return new SecretKeySpec(bytes, "AES");
+	}
+
+	@Test
+	public void testGetAndPut() throws Exception {
+		DerivedKeyCache cache = new DerivedKeyCache(10);
+		assertNull(cache.get(key(KDK, "encryption")));
+		cache.put(key(KDK, "encryption"), derived(7));
+		SecretKey hit = cache.get(key(KDK, "encryption"));
+		assertNotNull(hit);
+		assertEquals("AES", hit.getAlgorithm());
+		assertArrayEquals(derived(7).getEncoded(), hit.getEncoded());
+		assertNull(cache.get(key(KDK, "authenticity")));
+	}
+
+	@Test
+	public void testKeyDependsOnEveryInput() throws Exception {
+		DerivedKeyCache.Key base = key(KDK, "encryption");
+		assertEquals(base, key(new SecretKeySpec(KDK.getEncoded(), "AES"), "encryption"));
+		assertEquals(base.hashCode(), key(new SecretKeySpec(KDK.getEncoded(), "AES"), "encryption").hashCode());
+		assertFalse(base.equals(key(KDK, "authenticity")));
+		assertFalse(base.equals(key(new SecretKeySpec(KDK.getEncoded(), "DESede"), "encryption")));
+		byte[] other = KDK.getEncoded();
+		other[0] ^= 1;
+		assertFalse(base.equals(key(new SecretKeySpec(other, "AES"), "encryption")));
+		assertFalse(base.equals(DerivedKeyCache.keyFor(KeyDerivationFunction.kdfVersion, PRF_ALGORITHMS.HmacSHA512, KDK, 128, "encryption")));
+		assertFalse(base.equals(DerivedKeyCache.keyFor(KeyDerivationFunction.kdfVersion, PRF_ALGORITHMS.HmacSHA256, KDK, 256, "encryption")));
+		assertFalse(base.equals(DerivedKeyCache.keyFor(KeyDerivationFunction.kdfVersion + 1, PRF_ALGORITHMS.HmacSHA256, KDK, 128, "encryption")));
+	}
+
+	@Test
+	public void testCachedBytesCannotBeChanged() throws Exception {
+		DerivedKeyCache cache = new DerivedKeyCache(10);
+		byte[] bytes = derived(7).getEncoded();
+		SecretKey put = new SecretKeySpec(bytes, "AES");
+		cache.put(key(KDK, "encryption"), put);
+		Arrays.fill(bytes, (byte) 0);
+		assertArrayEquals(derived(7).getEncoded(), cache.get(key(KDK, "encryption")).getEncoded());
+	}
+
+	@Test
+	public void testBoundedSize() throws Exception {
+		DerivedKeyCache cache = new DerivedKeyCache(1);
+		cache.put(key(KDK, "encryption"), derived(1));
+		cache.put(key(KDK, "authenticity"), derived(2));
+		assertEquals(1, cache.size());
+		assertNull(cache.get(key(KDK, "encryption")));
+		assertNotNull(cache.get(key(KDK, "authenticity")));
+	}
+
+	@Test
+	public void testClear() throws Exception {
+		DerivedKeyCache cache = new DerivedKeyCache(10);
+		cache.put(key(KDK, "encryption"), derived(1));
+		cache.put(key(KDK, "authenticity"), derived(2));
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertNull(cache.get(key(KDK, "encryption")));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroSize() {
+		new DerivedKeyCache(0);
+	}
+}
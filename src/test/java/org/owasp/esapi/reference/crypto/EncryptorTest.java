@@ -15,7 +15,12 @@
  */
 package org.owasp.esapi.reference.crypto;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
 
 import javax.crypto.SecretKey;
 
@@ -27,6 +32,7 @@ import org.owasp.esapi.ESAPI;
 import org.owasp.esapi.EncoderConstants;
 import org.owasp.esapi.Encryptor;
 import org.owasp.esapi.crypto.CipherText;
+import org.owasp.esapi.crypto.CipherTextSerializer;
 import org.owasp.esapi.crypto.CryptoHelper;
 import org.owasp.esapi.crypto.PlainText;
 import org.owasp.esapi.errors.EncryptionException;
@@ -519,6 +525,193 @@ public class EncryptorTest extends TestCase {
         assertTrue( secretMsg.equals( plainText.toString() ) );
     }
     
+    /**
+     * Test of encryption and decryption with AES/GCM, which authenticates the
+     * ciphertext itself rather than with a separate MAC.
+     * @throws Exception
+     */
+    public void testGCMEncryptDecrypt() throws Exception {
+        String secretMsg = "Secret Message";
+        SecretKey key = CryptoHelper.generateSecretKey("AES", 128);
+
+        // Encrypted before switching to GCM, so must still decrypt afterwards.
+        CipherText cbc = ESAPI.encryptor().encrypt(key, new PlainText(secretMsg));
+
+        ESAPI.securityConfiguration().setCipherTransformation("AES/GCM/NoPadding");
+        try {
+            CipherText ct = ESAPI.encryptor().encrypt(key, new PlainText(secretMsg));
+            assertEquals("GCM", ct.getCipherMode());
+            assertEquals(CryptoHelper.GCM_IV_LENGTH, ct.getIV().length);
+            assertTrue(ct.toString().matches(".*, MAC is absent;.*"));
+            // The authentication tag is appended to the raw ciphertext.
+            assertEquals(secretMsg.length() + CryptoHelper.GCM_TAG_LENGTH / 8, ct.getRawCipherTextByteLength());
+            assertEquals(secretMsg, ESAPI.encryptor().decrypt(key, ct).toString());
+
+            byte[] serialized = ct.asPortableSerializedByteArray();
+            CipherText restored = CipherText.fromPortableSerializedBytes(serialized);
+            assertEquals(secretMsg, ESAPI.encryptor().decrypt(key, restored).toString());
+
+            assertEquals(secretMsg, ESAPI.encryptor().decrypt(key, cbc).toString());
+
+            // Flip a bit of the tag, which is just before the (zero) MAC length at the end.
+            serialized[serialized.length - 3] ^= 1;
+            try {
+                ESAPI.encryptor().decrypt(key, CipherText.fromPortableSerializedBytes(serialized));
+                fail("Decrypted GCM ciphertext with a tampered authentication tag");
+            } catch (EncryptionException e) {
+                // expected
+            }
+
+            ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+            javaEncryptor().encrypt(key, new ByteArrayInputStream(secretMsg.getBytes("UTF-8")), encrypted);
+            ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+            javaEncryptor().decrypt(key, new ByteArrayInputStream(encrypted.toByteArray()), decrypted);
+            assertEquals(secretMsg, new String(decrypted.toByteArray(), "UTF-8"));
+        } finally {
+            ESAPI.securityConfiguration().setCipherTransformation("AES/CBC/PKCS5Padding");
+        }
+    }
+
+    /**
+     * Test of encrypt(SecretKey, InputStream, OutputStream) and the matching
+     * decrypt() with a payload spanning many chunks.
+     * @throws Exception
+     */
+    public void testStreamEncryptDecrypt() throws Exception {
+        SecretKey key = CryptoHelper.generateSecretKey("AES", 128);
+        byte[] plaintext = new byte[100000];
+        new Random(42).nextBytes(plaintext);
+
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+        long n = javaEncryptor().encrypt(key, new ByteArrayInputStream(plaintext), encrypted);
+        assertEquals(plaintext.length, n);
+
+        ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+        n = javaEncryptor().decrypt(key, new ByteArrayInputStream(encrypted.toByteArray()), decrypted);
+        assertEquals(plaintext.length, n);
+        assertTrue(Arrays.equals(plaintext, decrypted.toByteArray()));
+
+        // An empty stream round trips too.
+        encrypted = new ByteArrayOutputStream();
+        assertEquals(0, javaEncryptor().encrypt(key, new ByteArrayInputStream(new byte[0]), encrypted));
+        decrypted = new ByteArrayOutputStream();
+        assertEquals(0, javaEncryptor().decrypt(key, new ByteArrayInputStream(encrypted.toByteArray()), decrypted));
+        assertEquals(0, decrypted.size());
+    }
+
+    /**
+     * Test that tampered, truncated, reordered and extended streams are rejected,
+     * without any unauthenticated plaintext being written.
+     * @throws Exception
+     */
+    public void testStreamDecryptTampered() throws Exception {
+        SecretKey key = CryptoHelper.generateSecretKey("AES", 128);
+        byte[] plaintext = new byte[20000];
+        new Random(7).nextBytes(plaintext);
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+        javaEncryptor().encrypt(key, new ByteArrayInputStream(plaintext), encrypted);
+        byte[] bytes = encrypted.toByteArray();
+        int headerLen = new CipherTextSerializer(
+                CipherTextSerializer.readSerializedHeader(new ByteArrayInputStream(bytes))).asSerializedHeader().length;
+
+        // Flip a byte of the second chunk: only the authentic first chunk may come out.
+        byte[] tampered = bytes.clone();
+        tampered[tampered.length / 2 + 4096] ^= 1;
+        assertStreamRejected(key, tampered, plaintext);
+
+        // Cut off the last chunk, then mark the chunk before it as the last one.
+        int lastChunk = chunkOffsets(bytes, headerLen)[2];
+        byte[] truncated = Arrays.copyOf(bytes, lastChunk);
+        assertStreamRejected(key, truncated, plaintext);
+        ByteBuffer.wrap(truncated).putInt(chunkOffsets(bytes, headerLen)[1],
+                -ByteBuffer.wrap(truncated).getInt(chunkOffsets(bytes, headerLen)[1]));
+        assertStreamRejected(key, truncated, plaintext);
+
+        // Swap the first two chunks. Their sizes differ if the provider holds back a block.
+        int[] offsets = chunkOffsets(bytes, headerLen);
+        byte[] reordered = bytes.clone();
+        int firstLen = offsets[1] - offsets[0];
+        int secondLen = offsets[2] - offsets[1];
+        System.arraycopy(bytes, offsets[1], reordered, offsets[0], secondLen);
+        System.arraycopy(bytes, offsets[0], reordered, offsets[0] + secondLen, firstLen);
+        assertStreamRejected(key, reordered, plaintext);
+
+        byte[] extended = Arrays.copyOf(bytes, bytes.length + firstLen);
+        System.arraycopy(bytes, offsets[0], extended, bytes.length, firstLen);
+        ByteBuffer.wrap(extended).putInt(offsets[2], -ByteBuffer.wrap(extended).getInt(offsets[2]));
+        assertStreamRejected(key, extended, plaintext);
+
+        try {
+            javaEncryptor().decrypt(key, new ByteArrayInputStream(new byte[3]), new ByteArrayOutputStream());
+            fail("Decrypted a stream without a header");
+        } catch (EncryptionException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Test of the streaming encrypt() and decrypt() with AES/GCM, where each chunk
+     * is encrypted and authenticated on its own.
+     * @throws Exception
+     */
+    public void testGCMStreamEncryptDecrypt() throws Exception {
+        ESAPI.securityConfiguration().setCipherTransformation("AES/GCM/NoPadding");
+        try {
+            SecretKey key = CryptoHelper.generateSecretKey("AES", 128);
+            byte[] plaintext = new byte[3 * 8192];    // also ends with an empty last chunk
+            new Random(11).nextBytes(plaintext);
+            ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+            javaEncryptor().encrypt(key, new ByteArrayInputStream(plaintext), encrypted);
+            byte[] bytes = encrypted.toByteArray();
+
+            ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+            assertEquals(plaintext.length, javaEncryptor().decrypt(key, new ByteArrayInputStream(bytes), decrypted));
+            assertTrue(Arrays.equals(plaintext, decrypted.toByteArray()));
+
+            byte[] tampered = bytes.clone();
+            tampered[tampered.length / 2] ^= 1;
+            assertStreamRejected(key, tampered, plaintext);
+        } finally {
+            ESAPI.securityConfiguration().setCipherTransformation("AES/CBC/PKCS5Padding");
+        }
+    }
+
+    // The streaming methods are only offered by the reference implementation.
+    private static JavaEncryptor javaEncryptor() {
+        return (JavaEncryptor) ESAPI.encryptor();
+    }
+
+    // Decrypting must fail, having written no more than an authentic start of the plaintext.
+    private static void assertStreamRejected(SecretKey key, byte[] stream, byte[] plaintext) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            javaEncryptor().decrypt(key, new ByteArrayInputStream(stream), out);
+            fail("Decrypted a modified stream");
+        } catch (EncryptionException e) {
+            // expected
+        }
+        byte[] written = out.toByteArray();
+        assertTrue(written.length < plaintext.length);
+        assertTrue(Arrays.equals(Arrays.copyOf(plaintext, written.length), written));
+    }
+
+    // Offsets of the chunks of an encrypted stream, starting with the first one.
+    private static int[] chunkOffsets(byte[] stream, int headerLen) {
+        ByteBuffer buf = ByteBuffer.wrap(stream);
+        int[] offsets = new int[0];
+        int pos = headerLen;
+        boolean last = false;
+        while ( ! last ) {
+            offsets = Arrays.copyOf(offsets, offsets.length + 1);
+            offsets[offsets.length - 1] = pos;
+            int len = buf.getInt(pos);
+            last = ( len >= 0 );
+            pos += 4 + Math.abs(len);
+            pos += 2 + buf.getShort(pos);
+        }
+        return offsets;
+    }
+
     /**
      * Test of main method, of class org.owasp.esapi.Encryptor. Must be done by
      * visual inspection for now. (Needs improvement.)
@@ -0,0 +1,46 @@
+package org.owasp.esapi.reference.validation;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class BinRangesTest {
+
+	private final BinRanges ranges = new BinRanges("4", "51-55", "2221-2720", "34", "37", "6011", "2500-2600");
+
+	@Test
+	public void testPrefixesOfEveryLength() {
+		assertTrue(ranges.contains(41111111, 8));
+		assertTrue(ranges.contains(5500, 4));
+		assertTrue(ranges.contains(22210000, 8));
+		assertTrue(ranges.contains(27209999, 8));
+		assertTrue(ranges.contains(601100, 6));
+		assertTrue(ranges.contains(37, 2));
+	}
+
+	@Test
+	public void testOutsideRanges() {
+		assertFalse(ranges.contains(56000000, 8));
+		assertFalse(ranges.contains(22200000, 8));
+		assertFalse(ranges.contains(27210000, 8));
+		assertFalse(ranges.contains(35, 2));
+		assertFalse(ranges.contains(601, 3));
+		assertFalse(ranges.contains(0, 0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDifferentLengthsRejected() {
+		new BinRanges("51-550");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testReversedRangeRejected() {
+		new BinRanges("55-51");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooLongPrefixRejected() {
+		new BinRanges("123456789");
+	}
+}
@@ -0,0 +1,35 @@
+package org.owasp.esapi.reference.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class BoundedCharSequenceTest {
+
+	@Test
+	public void testReadsWithinLimit() {
+		// two reads per character of "abc", plus one character
+		BoundedCharSequence seq = new BoundedCharSequence("abc", 2);
+		assertEquals(3, seq.length());
+		for (int i = 0; i < 8; i++) {
+			assertEquals("abc".charAt(i % 3), seq.charAt(i % 3));
+		}
+		assertEquals("abc", seq.toString());
+		assertEquals("bc", seq.subSequence(1, 3).toString());
+	}
+
+	@Test
+	public void testLimitExceeded() {
+		BoundedCharSequence seq = new BoundedCharSequence("abc", 2);
+		for (int i = 0; i < 8; i++) {
+			seq.charAt(0);
+		}
+		try {
+			seq.charAt(0);
+			fail("Expected LimitExceededException");
+		} catch (BoundedCharSequence.LimitExceededException e) {
+			// expected
+		}
+	}
+}
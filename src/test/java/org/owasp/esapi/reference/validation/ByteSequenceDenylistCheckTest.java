@@ -0,0 +1,44 @@
+package org.owasp.esapi.reference.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.owasp.esapi.errors.ValidationException;
+
+public class ByteSequenceDenylistCheckTest {
+
+	@Test
+	public void testCleanContentAccepted() throws ValidationException {
+		ByteSequenceDenylistCheck check = new ByteSequenceDenylistCheck("<script".getBytes(), "%00".getBytes());
+		byte[] content = "a harmless <scrip text %0".getBytes();
+		for (int i = 0; i < content.length; i++) {
+			check.update("ctx", content, i, 1);
+		}
+		check.finish("ctx");
+	}
+
+	@Test
+	public void testSequenceFoundAcrossBuffers() {
+		byte[] content = "xx<SCRIPT<script>".getBytes();
+		// every split of the content into two and three buffers
+		for (int a = 0; a <= content.length; a++) {
+			for (int b = a; b <= content.length; b++) {
+				ByteSequenceDenylistCheck check = new ByteSequenceDenylistCheck("<script".getBytes());
+				try {
+					check.update("ctx", content, 0, a);
+					check.update("ctx", content, a, b - a);
+					check.update("ctx", content, b, content.length - b);
+					fail("Expected Exception not thrown for split " + a + "," + b);
+				} catch (ValidationException e) {
+					assertEquals("ctx: Invalid file content", e.getUserMessage());
+				}
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullSequenceRejected() {
+		new ByteSequenceDenylistCheck((byte[]) null);
+	}
+}
@@ -0,0 +1,40 @@
+package org.owasp.esapi.reference.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.owasp.esapi.ESAPI;
+import org.owasp.esapi.errors.ValidationException;
+
+public class CreditCardValidationRuleTest {
+
+	private final CreditCardValidationRule rule = new CreditCardValidationRule("cc", ESAPI.encoder());
+
+	@Test
+	public void testLuhnWithSeparators() {
+		assertTrue(rule.validCreditCardFormat("4111 1111 1111 1111"));
+		assertTrue(rule.validCreditCardFormat("4111-1111-1111-1111"));
+		assertTrue(rule.validCreditCardFormat("378282246310005"));	// odd number of digits
+		assertTrue(rule.validCreditCardFormat("5555555555554444"));
+		assertFalse(rule.validCreditCardFormat("4111 1111 1111 1112"));
+		assertFalse(rule.validCreditCardFormat("378282246310006"));
+	}
+
+	@Test
+	public void testBinRanges() throws ValidationException {
+		rule.setBinRanges(new BinRanges("4", "51-55"));
+		assertEquals("4111 1111 1111 1111", rule.getValid("cc", "4111 1111 1111 1111"));
+		assertTrue(rule.validCreditCardFormat("5555555555554444"));
+		// pass Luhn, but American Express and Discover are not accepted
+		assertFalse(rule.validCreditCardFormat("378282246310005"));
+		try {
+			rule.getValid("cc", "6011 1111 1111 1117");
+			fail("Expected Exception not thrown");
+		} catch (ValidationException e) {
+			assertEquals("cc: Invalid credit card input", e.getUserMessage());
+		}
+	}
+}
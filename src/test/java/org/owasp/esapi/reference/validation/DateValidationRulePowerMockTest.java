@@ -13,6 +13,7 @@ import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.internal.verification.VerificationModeFactory;
+import org.owasp.esapi.ESAPI;
 import org.owasp.esapi.Encoder;
 import org.owasp.esapi.SecurityConfiguration;
 import org.owasp.esapi.util.ObjFactory;
@@ -34,8 +35,12 @@ public class DateValidationRulePowerMockTest {
     
     @Before
     public void configureStaticContexts() throws Exception {
+        // ESAPI keeps the configuration it resolved in an earlier test
+        ESAPI.override(null);
         PowerMockito.mockStatic(ObjFactory.class);
         PowerMockito.when(ObjFactory.class, "make", ArgumentMatchers.anyString(), ArgumentMatchers.eq("SecurityConfiguration")).thenReturn(mockSecConfig);
+        // ESAPI asks whether to keep the configuration, as it would for the reference singleton
+        PowerMockito.when(ObjFactory.class, "isSingleton", ArgumentMatchers.anyString()).thenReturn(true);
         
         mockEncoder = Mockito.mock(Encoder.class);
         testFormat = Mockito.spy(testFormat);
@@ -59,6 +64,9 @@ public class DateValidationRulePowerMockTest {
         PowerMockito.verifyStatic(ObjFactory.class, VerificationModeFactory.times(1));
         ObjFactory.make(ArgumentMatchers.anyString(), ArgumentMatchers.eq("SecurityConfiguration"));
         
+        PowerMockito.verifyStatic(ObjFactory.class, VerificationModeFactory.times(1));
+        ObjFactory.isSingleton(ArgumentMatchers.anyString());
+        
         PowerMockito.verifyNoMoreInteractions(ObjFactory.class);
         
        
@@ -82,6 +90,9 @@ public class DateValidationRulePowerMockTest {
         PowerMockito.verifyStatic(ObjFactory.class, VerificationModeFactory.times(1));
         ObjFactory.make(ArgumentMatchers.anyString(), ArgumentMatchers.eq("SecurityConfiguration"));
         
+        PowerMockito.verifyStatic(ObjFactory.class, VerificationModeFactory.times(1));
+        ObjFactory.isSingleton(ArgumentMatchers.anyString());
+        
         PowerMockito.verifyNoMoreInteractions(ObjFactory.class);
     }
     
@@ -106,9 +117,13 @@ public class DateValidationRulePowerMockTest {
         Mockito.verify(testFormat, Mockito.times(0)).setLenient(true);
         Mockito.verify(testFormat, Mockito.times(1)).setLenient(false);
         
-        PowerMockito.verifyStatic(ObjFactory.class, VerificationModeFactory.times(2));
+        // the configuration is made once, ESAPI keeps it for the setter
+        PowerMockito.verifyStatic(ObjFactory.class, VerificationModeFactory.times(1));
         ObjFactory.make(ArgumentMatchers.anyString(), ArgumentMatchers.eq("SecurityConfiguration"));
         
+        PowerMockito.verifyStatic(ObjFactory.class, VerificationModeFactory.times(1));
+        ObjFactory.isSingleton(ArgumentMatchers.anyString());
+        
         PowerMockito.verifyNoMoreInteractions(ObjFactory.class);
     }
     
@@ -133,9 +148,13 @@ public class DateValidationRulePowerMockTest {
         Mockito.verify(testFormat, Mockito.times(1)).setLenient(true);
         Mockito.verify(testFormat, Mockito.times(0)).setLenient(false);
         
-        PowerMockito.verifyStatic(ObjFactory.class, VerificationModeFactory.times(2));
+        // the configuration is made once, ESAPI keeps it for the setter
+        PowerMockito.verifyStatic(ObjFactory.class, VerificationModeFactory.times(1));
         ObjFactory.make(ArgumentMatchers.anyString(), ArgumentMatchers.eq("SecurityConfiguration"));
         
+        PowerMockito.verifyStatic(ObjFactory.class, VerificationModeFactory.times(1));
+        ObjFactory.isSingleton(ArgumentMatchers.anyString());
+        
         PowerMockito.verifyNoMoreInteractions(ObjFactory.class);
     }
 }
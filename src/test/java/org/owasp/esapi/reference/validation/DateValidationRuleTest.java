@@ -46,6 +46,8 @@ public class DateValidationRuleTest {
     public void setup() {
         mockEncoder = Mockito.mock(Encoder.class);
         testFormat = Mockito.spy(testFormat);
+        // the rule parses with clones of the format, so have them be the spy
+        Mockito.doReturn(testFormat).when(testFormat).clone();
         uit = new DateValidationRule(testName.getMethodName(), mockEncoder, testFormat);
         contextStr = testName.getMethodName();
         
@@ -82,7 +84,10 @@ public class DateValidationRuleTest {
         
         uit.setDateFormat(newFormat);
         DateFormat uitFormat = Whitebox.getInternalState(uit, "format");
-        Assert.assertEquals(newFormat, uitFormat);
+        // the rule keeps its own copy of the format
+        Assert.assertNotSame(newFormat, uitFormat);
+        Assert.assertEquals(((SimpleDateFormat) newFormat).toPattern(), ((SimpleDateFormat) uitFormat).toPattern());
+        Assert.assertEquals(acceptLenient, uitFormat.isLenient());
         Mockito.verify(newFormat).setLenient(acceptLenient);
     }
     
@@ -226,11 +231,13 @@ public class DateValidationRuleTest {
             lenientFormat.setLenient(true);
             Mockito.doNothing().when(lenientFormat).setLenient(ArgumentMatchers.anyBoolean());
             Mockito.doReturn(testDate).when(lenientFormat).parse(cruftyDate);
+            Mockito.doReturn(lenientFormat).when(lenientFormat).clone();
             
             DateFormat strictFormat = Mockito.spy(pair.getKey());
             strictFormat.setLenient(false);
             Mockito.doNothing().when(strictFormat).setLenient(ArgumentMatchers.anyBoolean());
             Mockito.doReturn(testDate).when(strictFormat).parse(cruftyDate);
+            Mockito.doReturn(strictFormat).when(strictFormat).clone();
             
             uit.setDateFormat(lenientFormat);
             Date lenientValidDate = uit.getValid(contextStr, cruftyDate);
@@ -245,4 +252,44 @@ public class DateValidationRuleTest {
             Assert.assertEquals("calls to sanitize should return default date if cruft exists in input string",0, strictSanitizedDate.getTime());
         }
     }
+    
+    @Test
+    public void testSharedBetweenThreads() throws Exception {
+        final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        final DateValidationRule shared = new DateValidationRule(contextStr, ESAPI.encoder(), format);
+        final String[] inputs = { "2001-09-11", "1999-12-31", "2017-06-01", "1970-01-01" };
+        final Date[] expected = new Date[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            expected[i] = format.parse(inputs[i]);
+        }
+        final Throwable[] failure = new Throwable[1];
+        Thread[] threads = new Thread[inputs.length];
+        for (int t = 0; t < threads.length; t++) {
+            final int index = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 500; i++) {
+                            Assert.assertEquals(expected[index], shared.getValid(contextStr, inputs[index]));
+                        }
+                    } catch (Throwable e) {
+                        synchronized (failure) {
+                            failure[0] = e;
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        synchronized (failure) {
+            Assert.assertNull(String.valueOf(failure[0]), failure[0]);
+        }
+        // the thread that set the format parses with a clone too, so changing the format has no effect
+        format.applyPattern("dd/MM/yyyy");
+        Assert.assertEquals(expected[0], shared.getValid(contextStr, inputs[0]));
+    }
 }
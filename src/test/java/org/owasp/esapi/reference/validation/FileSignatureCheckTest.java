@@ -0,0 +1,50 @@
+package org.owasp.esapi.reference.validation;
+
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.owasp.esapi.errors.ValidationException;
+
+public class FileSignatureCheckTest {
+
+	private static final byte[] PNG = { (byte) 0x89, 'P', 'N', 'G' };
+	private static final byte[] GIF = { 'G', 'I', 'F', '8', '9', 'a' };
+
+	@Test
+	public void testSignatureAcrossBuffers() throws ValidationException {
+		FileSignatureCheck check = new FileSignatureCheck(GIF, PNG);
+		check.update("ctx", new byte[] { 0, (byte) 0x89, 'P' }, 1, 2);
+		check.update("ctx", new byte[] { 'N', 'G', 0, 0, 0 }, 0, 5);
+		check.finish("ctx");
+	}
+
+	@Test
+	public void testShortContentMatchesShortSignature() throws ValidationException {
+		FileSignatureCheck check = new FileSignatureCheck(GIF, PNG);
+		check.update("ctx", PNG, 0, PNG.length);
+		check.finish("ctx");
+	}
+
+	@Test
+	public void testWrongSignatureRejected() {
+		FileSignatureCheck check = new FileSignatureCheck(GIF, PNG);
+		try {
+			check.update("ctx", "<html>".getBytes(), 0, 6);
+			fail("Expected Exception not thrown");
+		} catch (ValidationException e) {
+			// expected
+		}
+	}
+
+	@Test(expected = ValidationException.class)
+	public void testTruncatedSignatureRejected() throws ValidationException {
+		FileSignatureCheck check = new FileSignatureCheck(GIF);
+		check.update("ctx", GIF, 0, 3);
+		check.finish("ctx");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEmptySignatureRejected() {
+		new FileSignatureCheck(new byte[0]);
+	}
+}
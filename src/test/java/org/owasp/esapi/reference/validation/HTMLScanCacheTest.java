@@ -0,0 +1,53 @@
+package org.owasp.esapi.reference.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class HTMLScanCacheTest {
+
+	@Test
+	public void testGetAndPut() {
+		HTMLScanCache cache = new HTMLScanCache(10);
+		assertNull(cache.get("<b>x</b><script>"));
+		List<String> errors = new ArrayList<String>(Arrays.asList("The script tag is not allowed"));
+		cache.put("<b>x</b><script>", new HTMLScanCache.Result("<b>x</b>", errors));
+		errors.clear();
+		HTMLScanCache.Result result = cache.get("<b>x</b><script>");
+		assertNotNull(result);
+		assertEquals("<b>x</b>", result.cleanHTML);
+		assertEquals(Arrays.asList("The script tag is not allowed"), result.errors);
+	}
+
+	@Test
+	public void testBoundedSize() {
+		HTMLScanCache cache = new HTMLScanCache(1);
+		cache.put("a", new HTMLScanCache.Result("a", new ArrayList<String>()));
+		cache.put("b", new HTMLScanCache.Result("b", new ArrayList<String>()));
+		assertNull(cache.get("a"));
+		assertNotNull(cache.get("b"));
+	}
+
+	@Test
+	public void testLongInputNotCached() {
+		HTMLScanCache cache = new HTMLScanCache(10);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i <= HTMLScanCache.MAX_INPUT_LENGTH; i++) {
+			sb.append('a');
+		}
+		String input = sb.toString();
+		cache.put(input, new HTMLScanCache.Result(input, new ArrayList<String>()));
+		assertNull(cache.get(input));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSizeMustBePositive() {
+		new HTMLScanCache(0);
+	}
+}
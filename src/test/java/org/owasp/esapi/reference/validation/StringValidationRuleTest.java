@@ -7,10 +7,117 @@ import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
 import org.owasp.esapi.Encoder;
 import org.owasp.esapi.ValidationErrorList;
+import org.owasp.esapi.ValidationResult;
 import org.owasp.esapi.errors.ValidationException;
 
 public class StringValidationRuleTest {
 
+	@Test
+	public void testCheck() {
+		StringValidationRule validationRule = new StringValidationRule("Alphabetic");
+		validationRule.addWhitelistPattern("^[a-zA-Z]*");
+		validationRule.addBlacklistPattern(".*Bad.*");
+		validationRule.setMaximumLength(8);
+
+		ValidationResult result = validationRule.check("ctx", "MagnumPI");
+		Assert.assertTrue(result.isValid());
+		Assert.assertEquals("MagnumPI", result.getValue());
+
+		String[] invalid = { "Magnum44", "BadInput", "MagnumPIx", null };
+		for (String input : invalid) {
+			result = validationRule.check("ctx", input);
+			Assert.assertFalse(result.isValid());
+			Assert.assertEquals("ctx", result.getContext());
+			try {
+				validationRule.getValid("ctx", input);
+				Assert.fail("Expected Exception not thrown");
+			}
+			catch (ValidationException ve) {
+				Assert.assertEquals(ve.getUserMessage(), result.getUserMessage());
+			}
+		}
+
+		validationRule.setAllowNull(true);
+		result = validationRule.check("ctx", "");
+		Assert.assertTrue(result.isValid());
+		Assert.assertNull(result.getValue());
+	}
+
+	@Test
+	public void testManyBlacklistPatterns() throws ValidationException {
+		StringValidationRule validationRule = new StringValidationRule("Blacklist");
+		// groups, alternation, inline flags and a back reference, which cannot be combined
+		String[] patterns = { ".*(<)(script).*", "(?i).*onload=.*", "drop|delete", ".*select.*", "(a)\\1.*" };
+		for (String pattern : patterns) {
+			validationRule.addBlacklistPattern(pattern);
+		}
+		String[] dangerous = { "x<script>", "OnLoad=1", "delete", "a select b", "<script>select" };
+		String[] reported = { patterns[0], patterns[1], patterns[2], patterns[3], patterns[0] };
+		for (int i = 0; i < dangerous.length; i++) {
+			try {
+				validationRule.getValid("", dangerous[i]);
+				Assert.fail("Expected Exception not thrown");
+			}
+			catch (ValidationException ve) {
+				Assert.assertEquals(": Invalid input. Dangerous input matching " + reported[i] + " detected.", ve.getUserMessage());
+			}
+		}
+		Assert.assertEquals("dropped", validationRule.getValid("", "dropped"));
+		Assert.assertFalse(validationRule.check("", "aa").isValid());
+
+		// patterns added later are seen, also without the back reference
+		validationRule.blacklistPatterns.remove(4);
+		Assert.assertEquals("aa", validationRule.getValid("", "aa"));
+		validationRule.addBlacklistPattern("dropped");
+		Assert.assertFalse(validationRule.check("", "dropped").isValid());
+	}
+
+	@Test
+	public void testRegexStepLimit() throws ValidationException {
+		// the lookahead and the match each read the whole input, which is more
+		// than one read per character on any regex engine
+		StringValidationRule validationRule = new StringValidationRule("Lookahead");
+		validationRule.addWhitelistPattern("^(?=.*z)[a-z]+$");
+		String input = "abcdefghijklmnopqrstuvwxyz";
+		Assert.assertEquals(input, validationRule.getValid("ctx", input));
+		validationRule.setRegexStepLimit(1);
+		try {
+			validationRule.getValid("ctx", input);
+			Assert.fail("Expected Exception not thrown");
+		}
+		catch (ValidationException ve) {
+			Assert.assertEquals("ctx: Invalid input. The input could not be validated.", ve.getUserMessage());
+		}
+		Assert.assertFalse(validationRule.check("ctx", input).isValid());
+		validationRule.setRegexStepLimit(0);
+		Assert.assertEquals(input, validationRule.getValid("ctx", input));
+
+		// a blacklist that runs out of steps rejects the input too
+		StringValidationRule blacklistRule = new StringValidationRule("Lookahead");
+		blacklistRule.addBlacklistPattern("^(?=.*!)[a-z]+$");
+		blacklistRule.setRegexStepLimit(1);
+		try {
+			blacklistRule.getValid("ctx", input);
+			Assert.fail("Expected Exception not thrown");
+		}
+		catch (ValidationException ve) {
+			Assert.assertEquals("ctx: Invalid input. The input could not be validated.", ve.getUserMessage());
+		}
+	}
+
+	@Test
+	public void testRegexStepLimitPerBlacklistPattern() throws ValidationException {
+		// back references keep the patterns from being combined, so they are
+		// matched one at a time, each with its own step limit
+		StringValidationRule validationRule = new StringValidationRule("Uncombined");
+		String input = "abcdefghijklmnopqrstuvwxyz";
+		for (int i = 0; i < 20; i++) {
+			validationRule.addBlacklistPattern("^(?=.*" + i + ")(.)\\1.*$");
+		}
+		validationRule.setRegexStepLimit(4);
+		Assert.assertEquals(input, validationRule.getValid("ctx", input));
+	}
+
 	@Test
 	public void testWhitelistPattern() throws ValidationException {
 		
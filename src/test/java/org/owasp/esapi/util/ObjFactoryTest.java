@@ -189,4 +189,13 @@ public class ObjFactoryTest extends TestCase {
     		assertTrue( cause instanceof InstantiationException);
     	}
     }
+    
+    /** Test of isSingleton() for a singleton, a plain class and a class that cannot be made. */
+    public void testIsSingleton() {
+    	assertTrue( ObjFactory.isSingleton("org.owasp.esapi.reference.DefaultValidator") );
+    	assertFalse( ObjFactory.isSingleton("javax.crypto.NullCipher") );
+    	assertFalse( ObjFactory.isSingleton("org.owasp.esapi.ThisClassDoesNotExist") );
+    	assertFalse( ObjFactory.isSingleton("") );
+    	assertFalse( ObjFactory.isSingleton(null) );
+    }
 }
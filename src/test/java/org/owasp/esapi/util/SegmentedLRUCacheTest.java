@@ -0,0 +1,73 @@
+package org.owasp.esapi.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SegmentedLRUCacheTest {
+
+	private static final class Recorder implements SegmentedLRUCache.EvictionListener<String, String> {
+		final List<String> evicted = new ArrayList<String>();
+
+		public void evicted(String key, String value) {
+			evicted.add(key + "=" + value);
+		}
+	}
+
+	@Test
+	public void testGetAndPut() {
+		SegmentedLRUCache<String, String> cache = new SegmentedLRUCache<String, String>(10);
+		assertNull(cache.get("a"));
+		cache.put("a", "1");
+		assertEquals("1", cache.get("a"));
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() {
+		Recorder recorder = new Recorder();
+		SegmentedLRUCache<String, String> cache = new SegmentedLRUCache<String, String>(1, recorder);
+		cache.put("a", "1");
+		cache.put("b", "2");
+		assertNull(cache.get("a"));
+		assertEquals("2", cache.get("b"));
+		assertEquals(1, recorder.evicted.size());
+		assertEquals("a=1", recorder.evicted.get(0));
+	}
+
+	@Test
+	public void testReplacedAndClearedValuesAreEvicted() {
+		Recorder recorder = new Recorder();
+		SegmentedLRUCache<String, String> cache = new SegmentedLRUCache<String, String>(10, recorder);
+		cache.put("a", "1");
+		cache.put("a", "2");
+		assertEquals("2", cache.get("a"));
+		cache.put("b", "3");
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertNull(cache.get("a"));
+		assertEquals(3, recorder.evicted.size());
+		assertEquals("a=1", recorder.evicted.get(0));
+		assertTrue(recorder.evicted.contains("a=2"));
+		assertTrue(recorder.evicted.contains("b=3"));
+	}
+
+	@Test
+	public void testSizeIsBounded() {
+		SegmentedLRUCache<Integer, Integer> cache = new SegmentedLRUCache<Integer, Integer>(20);
+		for (int i = 0; i < 1000; i++) {
+			cache.put(i, i);
+		}
+		assertTrue(cache.size() <= 20);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSizeMustBePositive() {
+		new SegmentedLRUCache<String, String>(0);
+	}
+}